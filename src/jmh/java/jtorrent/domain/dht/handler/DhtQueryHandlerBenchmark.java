@@ -0,0 +1,102 @@
+package jtorrent.domain.dht.handler;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jtorrent.domain.common.util.Bit160Value;
+import jtorrent.domain.dht.handler.node.Node;
+import jtorrent.domain.dht.handler.routingtable.RoutingTable;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+
+/**
+ * Measures the throughput of finding the closest nodes to a target, which {@link DhtQueryHandler} does for every
+ * find_node and get_peers query that it receives, with several threads querying the routing table at once.
+ * <p>
+ * Sending the response is not included, as it depends on the socket rather than on the handler.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DhtQueryHandlerBenchmark {
+
+    private static final int NUM_TARGETS = 1024;
+
+    /**
+     * The number of buckets, starting from the furthest, that are filled with K nodes each.
+     */
+    @Param({"20", "160"})
+    private int numFilledBuckets;
+
+    private RoutingTable routingTable;
+    private NodeId[] targets;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        routingTable = new RoutingTable();
+        int port = 1;
+        for (int i = 0; i < numFilledBuckets; i++) {
+            for (int j = 0; j < DhtManager.K; j++) {
+                InetSocketAddress address = new InetSocketAddress("127.0.0.1", port++);
+                routingTable.addNode(Node.withContactInfo(new NodeContactInfo(randomIdInBucket(i, random), address)));
+            }
+        }
+
+        targets = new NodeId[NUM_TARGETS];
+        for (int i = 0; i < NUM_TARGETS; i++) {
+            targets[i] = NodeId.random();
+        }
+    }
+
+    /**
+     * Creates an ID that has exactly the given number of leading bits in common with the local ID.
+     */
+    private static NodeId randomIdInBucket(int numMatchingBits, Random random) {
+        int differingBit = Bit160Value.SIZE_BITS - 1 - numMatchingBits;
+        BigInteger lowerBitsMask = BigInteger.ONE.shiftLeft(differingBit).subtract(BigInteger.ONE);
+        BigInteger id = NodeId.getLocal().toBigInteger()
+                .flipBit(differingBit)
+                .andNot(lowerBitsMask)
+                .or(new BigInteger(differingBit, random));
+        return NodeId.fromBigInteger(id);
+    }
+
+    @Benchmark
+    public Collection<Node> getClosestNodes(ThreadState threadState) {
+        return routingTable.getClosestNodes(targets[threadState.nextTargetIndex()], DhtManager.K);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int targetIndex;
+
+        int nextTargetIndex() {
+            targetIndex = (targetIndex + 1) % NUM_TARGETS;
+            return targetIndex;
+        }
+    }
+}
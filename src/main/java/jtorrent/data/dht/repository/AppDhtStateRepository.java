@@ -0,0 +1,54 @@
+package jtorrent.data.dht.repository;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jtorrent.data.dht.source.db.dao.DhtStateDao;
+import jtorrent.data.dht.source.db.model.DhtStateEntity;
+import jtorrent.domain.common.util.logging.Markers;
+import jtorrent.domain.dht.model.DhtState;
+import jtorrent.domain.dht.repository.DhtStateRepository;
+
+public class AppDhtStateRepository implements DhtStateRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppDhtStateRepository.class);
+
+    private final DhtStateDao dhtStateDao;
+
+    public AppDhtStateRepository() {
+        this(new DhtStateDao());
+    }
+
+    AppDhtStateRepository(DhtStateDao dhtStateDao) {
+        this.dhtStateDao = dhtStateDao;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A saved state that is corrupt is deleted and treated as if no state had been saved, so that the DHT starts with
+     * a fresh node ID rather than failing to start.
+     */
+    @Override
+    public Optional<DhtState> load() {
+        DhtStateEntity dhtStateEntity = dhtStateDao.read();
+        if (dhtStateEntity == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(dhtStateEntity.toDomain());
+        } catch (IllegalStateException e) {
+            LOGGER.warn(Markers.DHT, "Discarding corrupt saved DHT state", e);
+            dhtStateDao.delete();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void save(DhtState dhtState) {
+        dhtStateDao.save(DhtStateEntity.fromDomain(dhtState));
+    }
+}
@@ -0,0 +1,56 @@
+package jtorrent.data.dht.source.db.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import jtorrent.data.dht.source.db.model.DhtStateEntity;
+import jtorrent.data.torrent.source.db.util.HibernateUtil;
+
+public class DhtStateDao {
+
+    private final SessionFactory sessionFactory;
+
+    public DhtStateDao() {
+        this(HibernateUtil.getSessionFactory());
+    }
+
+    public DhtStateDao(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Reads the saved state.
+     *
+     * @return the saved state, or null if no state has been saved
+     */
+    public DhtStateEntity read() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.get(DhtStateEntity.class, DhtStateEntity.ID);
+        }
+    }
+
+    /**
+     * Saves the given state, replacing the saved state if there is one.
+     */
+    public void save(DhtStateEntity dhtStateEntity) {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.merge(dhtStateEntity);
+            session.getTransaction().commit();
+        }
+    }
+
+    /**
+     * Deletes the saved state, if there is one.
+     */
+    public void delete() {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            DhtStateEntity entity = session.get(DhtStateEntity.class, DhtStateEntity.ID);
+            if (entity != null) {
+                session.remove(entity);
+            }
+            session.getTransaction().commit();
+        }
+    }
+}
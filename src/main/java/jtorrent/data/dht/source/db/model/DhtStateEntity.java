@@ -0,0 +1,96 @@
+package jtorrent.data.dht.source.db.model;
+
+import java.net.Inet4Address;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jtorrent.domain.dht.model.DhtState;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+import jtorrent.domain.dht.model.node.SavedNode;
+
+/**
+ * The saved state of the DHT. There is at most one, which always has the ID {@link #ID}.
+ */
+@Entity
+public class DhtStateEntity {
+
+    public static final int ID = 1;
+    /**
+     * Each node is stored as its compact node info followed by the epoch second at which it was last seen.
+     */
+    private static final int SAVED_NODE_BYTES = NodeContactInfo.COMPACT_NODE_INFO_BYTES + Long.BYTES;
+
+    @Id
+    private final int id;
+    @Column(length = 20, nullable = false)
+    private final byte[] localNodeId;
+    @Lob
+    @Column(nullable = false)
+    private final byte[] nodes;
+
+    protected DhtStateEntity() {
+        this(new byte[0], new byte[0]);
+    }
+
+    public DhtStateEntity(byte[] localNodeId, byte[] nodes) {
+        this.id = ID;
+        this.localNodeId = localNodeId;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Creates an entity from the given state. Only nodes with IPv4 addresses are kept, as they are the only nodes that
+     * have a compact node info.
+     */
+    public static DhtStateEntity fromDomain(DhtState dhtState) {
+        List<SavedNode> ipv4Nodes = dhtState.nodes().stream()
+                .filter(node -> node.contactInfo().getAddress() instanceof Inet4Address)
+                .toList();
+        ByteBuffer buffer = ByteBuffer.allocate(ipv4Nodes.size() * SAVED_NODE_BYTES);
+        for (SavedNode node : ipv4Nodes) {
+            buffer.put(node.contactInfo().toCompactNodeInfo());
+            buffer.putLong(node.lastSeen().toEpochSecond(ZoneOffset.UTC));
+        }
+        return new DhtStateEntity(dhtState.localNodeId().getBytes(), buffer.array());
+    }
+
+    /**
+     * Creates the state from this entity.
+     *
+     * @throws IllegalStateException if the saved local node ID or nodes are corrupt
+     */
+    public DhtState toDomain() {
+        if (localNodeId.length != NodeId.SIZE_BYTES) {
+            throw new IllegalStateException("Invalid saved local node ID length: " + localNodeId.length);
+        }
+        if (nodes.length % SAVED_NODE_BYTES != 0) {
+            throw new IllegalStateException("Invalid saved nodes length: " + nodes.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(nodes);
+        List<SavedNode> domainNodes = new ArrayList<>(nodes.length / SAVED_NODE_BYTES);
+        byte[] compactNodeInfo = new byte[NodeContactInfo.COMPACT_NODE_INFO_BYTES];
+        while (buffer.hasRemaining()) {
+            buffer.get(compactNodeInfo);
+            NodeContactInfo contactInfo = NodeContactInfo.fromCompactNodeInfo(compactNodeInfo);
+            long lastSeenEpochSecond = buffer.getLong();
+            LocalDateTime lastSeen;
+            try {
+                lastSeen = LocalDateTime.ofEpochSecond(lastSeenEpochSecond, 0, ZoneOffset.UTC);
+            } catch (DateTimeException e) {
+                throw new IllegalStateException("Invalid saved last seen time: " + lastSeenEpochSecond, e);
+            }
+            domainNodes.add(new SavedNode(contactInfo, lastSeen));
+        }
+        return new DhtState(new NodeId(localNodeId), domainNodes);
+    }
+}
@@ -3,9 +3,13 @@ package jtorrent.data.torrent.repository;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,23 +24,24 @@ public class AppPieceRepository implements PieceRepository {
     private static final Logger LOGGER = LoggerFactory.getLogger(AppPieceRepository.class);
     private static final String READ_ONLY_MODE = "r";
     private static final String READ_WRITE_MODE = "rw";
+    private static final String PARTS_DIRECTORY_SUFFIX = ".parts";
 
     @Override
     public byte[] getPiece(Torrent torrent, int index) throws IOException {
         LOGGER.debug(Markers.TORRENT, "Getting piece {}", index);
         long start = torrent.getPieceOffset(index);
         int length = torrent.getPieceSize(index);
-        return getData(torrent, start, length);
+        return getData(torrent, index, start, length);
     }
 
     @Override
     public byte[] getBlock(Torrent torrent, int index, int offset, int length) throws IOException {
         LOGGER.debug(Markers.TORRENT, "Getting block in piece {} at offset {} with length {}", index, offset, length);
         long start = torrent.getPieceOffset(index) + offset;
-        return getData(torrent, start, length);
+        return getData(torrent, index, start, length);
     }
 
-    private byte[] getData(Torrent torrent, long start, int length) throws IOException {
+    private byte[] getData(Torrent torrent, int index, long start, int length) throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(length);
         long end = start + length - 1; // inclusive
         LOGGER.debug(Markers.TORRENT, "Getting data in range [{}, {}]", start, end);
@@ -46,8 +51,14 @@ public class AppPieceRepository implements PieceRepository {
             long startOffsetInFile = Math.max(start - metadataItem.start(), 0);
             long endOffsetInFile = Math.min(metadataItem.end(), end) - metadataItem.start();
             int readLength = (int) (endOffsetInFile - startOffsetInFile + 1);
-            Path path = torrent.getRootSaveDirectory().resolve(metadataItem.path());
-            buffer.put(read(path, startOffsetInFile, readLength));
+            Path partPath = getPartPath(torrent, index, metadataItem);
+            if (Files.exists(partPath)) {
+                long offsetInPart = startOffsetInFile - getPartStartInFile(torrent, index, metadataItem);
+                buffer.put(read(partPath, offsetInPart, readLength));
+            } else {
+                Path path = torrent.getRootSaveDirectory().resolve(metadataItem.path());
+                buffer.put(read(path, startOffsetInFile, readLength));
+            }
         }
         return buffer.array();
     }
@@ -66,8 +77,98 @@ public class AppPieceRepository implements PieceRepository {
             int writeLength = (int) (endOffsetInFile - startOffsetInFile + 1);
             byte[] fileData = new byte[writeLength];
             buffer.get(fileData);
-            Path path = torrent.getRootSaveDirectory().resolve(metadataItem.path());
-            write(path, startOffsetInFile, fileData);
+            if (torrent.getFilePriority(metadataItem.path()).isWanted()) {
+                Path path = torrent.getRootSaveDirectory().resolve(metadataItem.path());
+                write(path, startOffsetInFile, fileData);
+            } else {
+                long offsetInPart = startOffsetInFile - getPartStartInFile(torrent, index, metadataItem);
+                write(getPartPath(torrent, index, metadataItem), offsetInPart, fileData);
+            }
+        }
+    }
+
+    @Override
+    public void restoreSkippedData(Torrent torrent, FileMetadata fileMetadata) throws IOException {
+        if (!Files.isDirectory(getPartsDirectory(torrent))) {
+            return;
+        }
+
+        Path path = torrent.getRootSaveDirectory().resolve(fileMetadata.path());
+        for (int index = fileMetadata.firstPiece(); index <= fileMetadata.lastPiece(); index++) {
+            Path partPath = getPartPath(torrent, index, fileMetadata);
+            if (!Files.exists(partPath)) {
+                continue;
+            }
+            LOGGER.debug(Markers.TORRENT, "Restoring skipped data of piece {} to {}", index, path);
+            write(path, getPartStartInFile(torrent, index, fileMetadata), Files.readAllBytes(partPath));
+            Files.delete(partPath);
+        }
+
+        try {
+            Files.deleteIfExists(getPartsDirectory(torrent));
+        } catch (DirectoryNotEmptyException e) {
+            // other skipped files still have data stored aside
+        }
+    }
+
+    /**
+     * Gets the path of the file in which the part of a piece that belongs to a skipped file is stored.
+     * The part file contains the bytes of the piece that overlap the file, starting from the first of them.
+     */
+    private static Path getPartPath(Torrent torrent, int index, FileMetadata fileMetadata) {
+        return getPartsDirectory(torrent).resolve(index + "-" + fileMetadata.start());
+    }
+
+    private static Path getPartsDirectory(Torrent torrent) {
+        return torrent.getSaveDirectory().resolve("." + torrent.getInfoHash() + PARTS_DIRECTORY_SUFFIX);
+    }
+
+    /**
+     * Gets the offset within a file of the first byte of a piece that overlaps the file.
+     */
+    private static long getPartStartInFile(Torrent torrent, int index, FileMetadata fileMetadata) {
+        return Math.max(torrent.getPieceOffset(index) - fileMetadata.start(), 0);
+    }
+
+    @Override
+    public byte[] getData(Path path, long offset, int length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), READ_ONLY_MODE)) {
+            byte[] buffer = new byte[length];
+            file.seek(offset);
+            file.readFully(buffer);
+            return buffer;
+        }
+    }
+
+    @Override
+    public Map<Path, Long> getFileSizes(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .collect(Collectors.toMap(Path::toAbsolutePath, path -> path.toFile().length()));
+        }
+    }
+
+    @Override
+    public boolean isFilePresent(Torrent torrent, FileMetadata fileMetadata) {
+        return Files.exists(torrent.getRootSaveDirectory().resolve(fileMetadata.path()));
+    }
+
+    @Override
+    public void importFile(Torrent torrent, FileMetadata fileMetadata, Path source, boolean isLinkAllowed)
+            throws IOException {
+        Path path = torrent.getRootSaveDirectory().resolve(fileMetadata.path());
+        Files.createDirectories(path.getParent());
+        if (!isLinkAllowed) {
+            Files.copy(source, path);
+            LOGGER.debug(Markers.TORRENT, "Copied {} to {}", source, path);
+            return;
+        }
+        try {
+            Files.createLink(path, source);
+            LOGGER.debug(Markers.TORRENT, "Linked {} to {}", path, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            LOGGER.debug(Markers.TORRENT, "Failed to link {} to {}, copying instead", path, source);
+            Files.copy(source, path);
         }
     }
 
@@ -4,31 +4,90 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jtorrent.data.torrent.source.db.dao.TorrentDao;
 import jtorrent.data.torrent.source.db.model.TorrentEntity;
+import jtorrent.data.torrent.source.db.model.TorrentEntityUpdate;
+import jtorrent.data.torrent.source.db.model.TorrentProgressComponent;
+import jtorrent.data.torrent.source.db.model.TorrentStatisticsComponent;
+import jtorrent.data.torrent.source.db.model.TorrentSummary;
 import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.common.util.rx.MutableRxObservableList;
 import jtorrent.domain.common.util.rx.RxObservableList;
 import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.model.TorrentContent;
+import jtorrent.domain.torrent.model.TorrentProgress;
 import jtorrent.domain.torrent.repository.TorrentRepository;
 
+/**
+ * A {@link TorrentRepository} backed by a database.
+ * <p>
+ * Only the summaries of the torrents are read at startup. The metadata and progress of each torrent are read when they
+ * are first accessed, and released again once the torrent has been stopped, persisted and not accessed for
+ * {@value #IDLE_PERSISTS_BEFORE_RELEASE} consecutive persists.
+ */
 public class AppTorrentRepository implements TorrentRepository {
 
+    private static final int IDLE_PERSISTS_BEFORE_RELEASE = 10;
+
     private final MutableRxObservableList<Torrent> torrentsObservable;
     private final Map<Sha1Hash, Torrent> infoHashToTorrent;
-    private final TorrentDao torrentDao = new TorrentDao();
+    /**
+     * The state of each torrent as of the last time it was persisted, used to only write the parts that changed.
+     */
+    private final Map<Sha1Hash, Checkpoint> infoHashToCheckpoint = new ConcurrentHashMap<>();
+    private final TorrentDao torrentDao;
 
     public AppTorrentRepository() {
+        this(new TorrentDao());
+    }
+
+    AppTorrentRepository(TorrentDao torrentDao) {
+        this.torrentDao = torrentDao;
         List<Torrent> torrents = new ArrayList<>();
-        torrentDao.readAll().stream()
-                .map(TorrentEntity::toDomain)
-                .forEach(torrents::add);
+        for (TorrentSummary torrentSummary : torrentDao.readAllSummaries()) {
+            Torrent torrent = torrentSummary.isLegacyFormat()
+                    ? loadLegacyTorrent(torrentSummary)
+                    : loadTorrent(torrentSummary);
+            torrents.add(torrent);
+        }
         infoHashToTorrent = torrents.stream()
-                .collect(HashMap::new, (map, torrent) -> map.put(torrent.getInfoHash(), torrent), Map::putAll);
+                .collect(ConcurrentHashMap::new, (map, torrent) -> map.put(torrent.getInfoHash(), torrent),
+                        Map::putAll);
         this.torrentsObservable = new MutableRxObservableList<>(torrents);
     }
 
+    private Torrent loadTorrent(TorrentSummary torrentSummary) {
+        Torrent torrent = torrentSummary.toDomain(this::loadContent);
+        infoHashToCheckpoint.put(torrent.getInfoHash(), Checkpoint.of(torrentSummary));
+        return torrent;
+    }
+
+    /**
+     * Loads a torrent that was persisted before summaries existed in full, and rewrites it so that its summary can be
+     * read next time.
+     */
+    private Torrent loadLegacyTorrent(TorrentSummary torrentSummary) {
+        Torrent torrent = torrentDao.read(torrentSummary.infoHash()).toDomain();
+        long progressModificationCount = torrent.getProgress().getModificationCount();
+        TorrentEntity torrentEntity = TorrentEntity.fromDomain(torrent);
+        torrentDao.update(torrentEntity);
+        infoHashToCheckpoint.put(torrent.getInfoHash(), Checkpoint.of(torrentEntity, progressModificationCount));
+        return torrent;
+    }
+
+    private TorrentContent loadContent(Sha1Hash infoHash) {
+        TorrentEntity torrentEntity = torrentDao.read(infoHash.getBytes());
+        TorrentContent content = torrentEntity.toDomainContent();
+        long persistedModificationCount = Checkpoint.getPersistedModificationCount(torrentEntity.getProgress(),
+                content.progress().getModificationCount());
+        // the modification count of the previously loaded progress does not apply to the newly loaded progress
+        infoHashToCheckpoint.computeIfPresent(infoHash,
+                (key, checkpoint) -> checkpoint.withProgressModificationCount(persistedModificationCount));
+        return content;
+    }
+
     @Override
     public RxObservableList<Torrent> getTorrents() {
         return torrentsObservable;
@@ -45,26 +104,124 @@ public class AppTorrentRepository implements TorrentRepository {
             // TODO: maybe throw exception if torrent already exists?
             return;
         }
-        torrentDao.create(TorrentEntity.fromDomain(torrent));
+        long progressModificationCount = torrent.getProgress().getModificationCount();
+        TorrentEntity torrentEntity = TorrentEntity.fromDomain(torrent);
+        torrentDao.create(torrentEntity);
+        infoHashToCheckpoint.put(torrent.getInfoHash(), Checkpoint.of(torrentEntity, progressModificationCount));
         infoHashToTorrent.put(torrent.getInfoHash(), torrent);
         torrentsObservable.add(torrent);
     }
 
+    /**
+     * Persists the torrents whose attributes, statistics, or progress changed since they were last persisted.
+     * Only the changed parts of each torrent are written, and the torrents are written in batches.
+     * Afterwards, the metadata and progress of torrents that have been idle for long enough are released.
+     */
     @Override
-    public void persistTorrents() {
-        infoHashToTorrent.values().stream()
-                .map(TorrentEntity::fromDomain)
-                .forEach(torrentDao::update);
+    public synchronized void persistTorrents() {
+        List<TorrentEntityUpdate> updates = new ArrayList<>();
+        Map<Sha1Hash, Checkpoint> infoHashToOldCheckpoint = new HashMap<>();
+        Map<Sha1Hash, Checkpoint> infoHashToNewCheckpoint = new HashMap<>();
+
+        for (Torrent torrent : infoHashToTorrent.values()) {
+            Checkpoint checkpoint = infoHashToCheckpoint.get(torrent.getInfoHash());
+            if (checkpoint == null) {
+                continue;
+            }
+
+            // progress that is not loaded has not changed since it was last persisted
+            TorrentProgress progress = torrent.getProgressIfLoaded();
+            // read before the progress is copied, so that changes made while copying are written next time
+            long progressModificationCount = progress == null
+                    ? checkpoint.progressModificationCount()
+                    : progress.getModificationCount();
+            TorrentEntityUpdate.Attributes attributes = TorrentEntityUpdate.Attributes.fromDomain(torrent);
+            TorrentStatisticsComponent statistics = TorrentStatisticsComponent.fromDomain(torrent.getStatistics());
+            boolean isProgressChanged = progressModificationCount != checkpoint.progressModificationCount();
+
+            TorrentEntityUpdate update = new TorrentEntityUpdate(
+                    torrent.getInfoHash().getBytes(),
+                    attributes.equals(checkpoint.attributes()) ? null : attributes,
+                    statistics.equals(checkpoint.statistics()) ? null : statistics,
+                    isProgressChanged ? TorrentProgressComponent.fromDomain(progress) : null
+            );
+
+            if (!update.isEmpty()) {
+                updates.add(update);
+                infoHashToOldCheckpoint.put(torrent.getInfoHash(), checkpoint);
+                infoHashToNewCheckpoint.put(torrent.getInfoHash(),
+                        new Checkpoint(attributes, statistics, progressModificationCount));
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            torrentDao.update(updates);
+            // torrents that were removed, or whose progress was loaded again while persisting, must not be overwritten
+            infoHashToNewCheckpoint.forEach((infoHash, newCheckpoint) ->
+                    infoHashToCheckpoint.replace(infoHash, infoHashToOldCheckpoint.get(infoHash), newCheckpoint));
+        }
+
+        releaseIdleContent();
+    }
+
+    private void releaseIdleContent() {
+        for (Torrent torrent : infoHashToTorrent.values()) {
+            Checkpoint checkpoint = infoHashToCheckpoint.get(torrent.getInfoHash());
+            if (checkpoint != null) {
+                torrent.releaseContentIfIdle(checkpoint.progressModificationCount(), IDLE_PERSISTS_BEFORE_RELEASE,
+                        this::loadContent);
+            }
+        }
     }
 
     @Override
     public void removeTorrent(Torrent torrent) {
-        torrentDao.delete(torrent.getInfoHash().getBytes());
+        infoHashToCheckpoint.remove(torrent.getInfoHash());
         infoHashToTorrent.remove(torrent.getInfoHash());
+        // emitted before the row is deleted, so that listeners can still load the content of a released torrent
         torrentsObservable.remove(torrent);
+        torrentDao.delete(torrent.getInfoHash().getBytes());
     }
 
     private boolean isExistingTorrent(Torrent torrent) {
         return infoHashToTorrent.containsKey(torrent.getInfoHash());
     }
+
+    /**
+     * @param attributes                the persisted display name, save directory and state
+     * @param statistics                the persisted statistics
+     * @param progressModificationCount the modification count of the progress when it was persisted
+     */
+    private record Checkpoint(TorrentEntityUpdate.Attributes attributes, TorrentStatisticsComponent statistics,
+            long progressModificationCount) {
+
+        private static final long CONVERTED_PROGRESS_MODIFICATION_COUNT = -1;
+
+        private static Checkpoint of(TorrentEntity torrentEntity, long progressModificationCount) {
+            TorrentEntityUpdate.Attributes attributes = new TorrentEntityUpdate.Attributes(
+                    torrentEntity.getDisplayName(), torrentEntity.getSaveDirectory(), torrentEntity.getState());
+            return new Checkpoint(attributes, torrentEntity.getStatistics(),
+                    getPersistedModificationCount(torrentEntity.getProgress(), progressModificationCount));
+        }
+
+        /**
+         * Creates the checkpoint of a torrent whose progress is not loaded. The modification count is set when the
+         * progress is loaded.
+         */
+        private static Checkpoint of(TorrentSummary torrentSummary) {
+            TorrentEntityUpdate.Attributes attributes = new TorrentEntityUpdate.Attributes(
+                    torrentSummary.displayName(), torrentSummary.saveDirectory(), torrentSummary.state());
+            return new Checkpoint(attributes, torrentSummary.statistics(), 0);
+        }
+
+        private static long getPersistedModificationCount(TorrentProgressComponent progress,
+                long progressModificationCount) {
+            // converted progress never matches a modification count, so it is rewritten by the next persist
+            return progress.isRewriteNeeded() ? CONVERTED_PROGRESS_MODIFICATION_COUNT : progressModificationCount;
+        }
+
+        private Checkpoint withProgressModificationCount(long progressModificationCount) {
+            return new Checkpoint(attributes, statistics, progressModificationCount);
+        }
+    }
 }
@@ -7,11 +7,37 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 
 import jtorrent.data.torrent.source.db.model.TorrentEntity;
+import jtorrent.data.torrent.source.db.model.TorrentEntityUpdate;
+import jtorrent.data.torrent.source.db.model.TorrentSummary;
 import jtorrent.data.torrent.source.db.util.HibernateUtil;
 
 public class TorrentDao {
 
-    private final SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+    /**
+     * The maximum number of torrents that are updated in a single transaction.
+     */
+    static final int UPDATE_BATCH_SIZE = 100;
+    private static final String UPDATE_ATTRIBUTES_QUERY = "update TorrentEntity set displayName = :displayName, "
+            + "saveDirectory = :saveDirectory, state = :state where infoHash = :infoHash";
+    private static final String UPDATE_STATISTICS_QUERY = "update TorrentEntity set "
+            + "statistics.downloaded = :downloaded, statistics.uploaded = :uploaded where infoHash = :infoHash";
+    private static final String UPDATE_PROGRESS_QUERY = "update TorrentEntity set "
+            + "progress.verifiedPieces = :verifiedPieces, progress.pieceToReceivedBlocks = :pieceToReceivedBlocks, "
+            + "progress.resumeData = :resumeData, progress.filePriorities = :filePriorities, "
+            + "progress.verifiedBytes = :verifiedBytes where infoHash = :infoHash";
+    private static final String READ_ALL_SUMMARIES_QUERY = "select new " + TorrentSummary.class.getName()
+            + "(infoHash, displayName, saveDirectory, state, statistics, totalSize, progress.verifiedBytes) "
+            + "from TorrentEntity";
+
+    private final SessionFactory sessionFactory;
+
+    public TorrentDao() {
+        this(HibernateUtil.getSessionFactory());
+    }
+
+    public TorrentDao(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
 
     public void create(TorrentEntity torrentEntity) {
         try (Session session = sessionFactory.openSession()) {
@@ -27,6 +53,15 @@ public class TorrentDao {
         }
     }
 
+    /**
+     * Reads the summaries of all torrents, without reading their metadata and progress.
+     */
+    public List<TorrentSummary> readAllSummaries() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.createQuery(READ_ALL_SUMMARIES_QUERY, TorrentSummary.class).list();
+        }
+    }
+
     public TorrentEntity read(byte[] infoHash) {
         try (Session session = sessionFactory.openSession()) {
             TorrentEntity torrentEntity = session.get(TorrentEntity.class, infoHash);
@@ -46,6 +81,51 @@ public class TorrentDao {
         }
     }
 
+    /**
+     * Writes only the changed parts of the given torrents, in as few transactions as possible.
+     * Updates of torrents that no longer exist have no effect.
+     *
+     * @param updates the updates to apply
+     */
+    public void update(List<TorrentEntityUpdate> updates) {
+        for (int i = 0; i < updates.size(); i += UPDATE_BATCH_SIZE) {
+            List<TorrentEntityUpdate> batch = updates.subList(i, Math.min(i + UPDATE_BATCH_SIZE, updates.size()));
+            try (Session session = sessionFactory.openSession()) {
+                session.beginTransaction();
+                batch.forEach(update -> apply(session, update));
+                session.getTransaction().commit();
+            }
+        }
+    }
+
+    private static void apply(Session session, TorrentEntityUpdate update) {
+        if (update.attributes() != null) {
+            session.createMutationQuery(UPDATE_ATTRIBUTES_QUERY)
+                    .setParameter("displayName", update.attributes().displayName())
+                    .setParameter("saveDirectory", update.attributes().saveDirectory())
+                    .setParameter("state", update.attributes().state())
+                    .setParameter("infoHash", update.infoHash())
+                    .executeUpdate();
+        }
+        if (update.statistics() != null) {
+            session.createMutationQuery(UPDATE_STATISTICS_QUERY)
+                    .setParameter("downloaded", update.statistics().getDownloaded())
+                    .setParameter("uploaded", update.statistics().getUploaded())
+                    .setParameter("infoHash", update.infoHash())
+                    .executeUpdate();
+        }
+        if (update.progress() != null) {
+            session.createMutationQuery(UPDATE_PROGRESS_QUERY)
+                    .setParameter("verifiedPieces", update.progress().getVerifiedPieces())
+                    .setParameter("pieceToReceivedBlocks", update.progress().getPieceToReceivedBlocks())
+                    .setParameter("resumeData", update.progress().getResumeData())
+                    .setParameter("filePriorities", update.progress().getFilePriorities())
+                    .setParameter("verifiedBytes", update.progress().getVerifiedBytes())
+                    .setParameter("infoHash", update.infoHash())
+                    .executeUpdate();
+        }
+    }
+
     public void delete(byte[] infoHash) {
         try (Session session = sessionFactory.openSession()) {
             session.beginTransaction();
@@ -0,0 +1,110 @@
+package jtorrent.data.torrent.source.db.model;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Lob;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.torrent.model.FileHashTree;
+
+@Embeddable
+public class FileHashTreeComponent {
+
+    @Column(nullable = false)
+    private final String path;
+
+    @Column(nullable = false)
+    private final long size;
+
+    @Column(nullable = false)
+    private final byte[] piecesRoot;
+
+    @Lob
+    private final byte[] pieceLayer;
+
+    protected FileHashTreeComponent() {
+        this("", 0, new byte[0], new byte[0]);
+    }
+
+    public FileHashTreeComponent(String path, long size, byte[] piecesRoot, byte[] pieceLayer) {
+        this.path = path;
+        this.size = size;
+        this.piecesRoot = piecesRoot;
+        this.pieceLayer = pieceLayer;
+    }
+
+    public static FileHashTreeComponent fromDomain(Path path, FileHashTree fileHashTree) {
+        return new FileHashTreeComponent(
+                path.toString(),
+                fileHashTree.getSize(),
+                fileHashTree.getPiecesRoot().getBytes(),
+                Sha256Hash.concatHashes(fileHashTree.getPieceLayer())
+        );
+    }
+
+    public static FileHashTreeComponent fromDomain(Map.Entry<Path, FileHashTree> entry) {
+        return fromDomain(entry.getKey(), entry.getValue());
+    }
+
+    public Path getDomainPath() {
+        return Path.of(path);
+    }
+
+    public FileHashTree toDomain() {
+        return new FileHashTree(size, new Sha256Hash(piecesRoot), Sha256Hash.splitHashes(pieceLayer));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public byte[] getPiecesRoot() {
+        return piecesRoot;
+    }
+
+    public byte[] getPieceLayer() {
+        return pieceLayer;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = path.hashCode();
+        result = 31 * result + Long.hashCode(size);
+        result = 31 * result + Arrays.hashCode(piecesRoot);
+        result = 31 * result + Arrays.hashCode(pieceLayer);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        FileHashTreeComponent that = (FileHashTreeComponent) o;
+        return size == that.size
+                && path.equals(that.path)
+                && Arrays.equals(piecesRoot, that.piecesRoot)
+                && Arrays.equals(pieceLayer, that.pieceLayer);
+    }
+
+    @Override
+    public String toString() {
+        return "FileHashTreeComponent{"
+                + "path='" + path + '\''
+                + ", size=" + size
+                + ", piecesRoot=" + Arrays.toString(piecesRoot)
+                + ", pieceLayer=" + Arrays.toString(pieceLayer)
+                + '}';
+    }
+}
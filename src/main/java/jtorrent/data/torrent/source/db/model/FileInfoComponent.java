@@ -1,9 +1,12 @@
 package jtorrent.data.torrent.source.db.model;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import org.hibernate.annotations.Formula;
 
@@ -12,7 +15,9 @@ import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.Lob;
 import jakarta.persistence.OrderColumn;
+import jtorrent.domain.common.util.PackedSha1Hashes;
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.torrent.model.FileHashTree;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.FileMetadata;
 import jtorrent.domain.torrent.model.MultiFileInfo;
@@ -31,6 +36,10 @@ public class FileInfoComponent {
     @Lob
     private final byte[] pieceHashes;
 
+    @OrderColumn
+    @ElementCollection
+    private final List<FileHashTreeComponent> fileHashTrees;
+
     @Column(nullable = false)
     private final int pieceSize;
 
@@ -38,14 +47,20 @@ public class FileInfoComponent {
     private final byte[] infoHash;
 
     protected FileInfoComponent() {
-        this(null, Collections.emptyList(), new byte[0], 0, null);
+        this(null, Collections.emptyList(), new byte[0], Collections.emptyList(), 0, null);
     }
 
     public FileInfoComponent(String directory, List<FileMetadataComponent> fileMetadata, byte[] pieceHashes,
             int pieceSize, byte[] infoHash) {
+        this(directory, fileMetadata, pieceHashes, Collections.emptyList(), pieceSize, infoHash);
+    }
+
+    public FileInfoComponent(String directory, List<FileMetadataComponent> fileMetadata, byte[] pieceHashes,
+            List<FileHashTreeComponent> fileHashTrees, int pieceSize, byte[] infoHash) {
         this.directory = directory;
         this.fileMetadata = fileMetadata;
         this.pieceHashes = pieceHashes;
+        this.fileHashTrees = fileHashTrees;
         this.pieceSize = pieceSize;
         this.infoHash = infoHash;
     }
@@ -62,11 +77,11 @@ public class FileInfoComponent {
         List<FileMetadataComponent> fileMetadata = singleFileInfo.getFileMetaData().stream()
                 .map(FileMetadataComponent::fromDomain)
                 .toList();
-        byte[] pieceHashes = Sha1Hash.concatHashes(singleFileInfo.getPieceHashes());
-        Sha1Hash.concatHashes(singleFileInfo.getPieceHashes());
+        byte[] pieceHashes = singleFileInfo.getPieceHashes().getBytes();
+        List<FileHashTreeComponent> fileHashTrees = fileHashTreesFromDomain(singleFileInfo);
         int pieceSize = singleFileInfo.getPieceSize();
         byte[] infoHash = singleFileInfo.getInfoHash().getBytes();
-        return new FileInfoComponent(null, fileMetadata, pieceHashes, pieceSize, infoHash);
+        return new FileInfoComponent(null, fileMetadata, pieceHashes, fileHashTrees, pieceSize, infoHash);
     }
 
     public static FileInfoComponent fromDomain(MultiFileInfo multiFileInfo) {
@@ -74,10 +89,17 @@ public class FileInfoComponent {
         List<FileMetadataComponent> fileMetadata = multiFileInfo.getFileMetaData().stream()
                 .map(FileMetadataComponent::fromDomain)
                 .toList();
-        byte[] pieceHashes = Sha1Hash.concatHashes(multiFileInfo.getPieceHashes());
+        byte[] pieceHashes = multiFileInfo.getPieceHashes().getBytes();
+        List<FileHashTreeComponent> fileHashTrees = fileHashTreesFromDomain(multiFileInfo);
         int pieceSize = multiFileInfo.getPieceSize();
         byte[] infoHash = multiFileInfo.getInfoHash().getBytes();
-        return new FileInfoComponent(directory, fileMetadata, pieceHashes, pieceSize, infoHash);
+        return new FileInfoComponent(directory, fileMetadata, pieceHashes, fileHashTrees, pieceSize, infoHash);
+    }
+
+    private static List<FileHashTreeComponent> fileHashTreesFromDomain(FileInfo fileInfo) {
+        return fileInfo.getFileHashTrees().entrySet().stream()
+                .map(FileHashTreeComponent::fromDomain)
+                .toList();
     }
 
     public FileInfo toDomain() {
@@ -90,18 +112,25 @@ public class FileInfoComponent {
 
     private SingleFileInfo toSingleFileInfo() {
         FileMetadata domainFileMetadata = fileMetadata.get(0).toDomain();
-        List<Sha1Hash> domainPieceHashes = Sha1Hash.splitHashes(pieceHashes);
+        PackedSha1Hashes domainPieceHashes = new PackedSha1Hashes(pieceHashes);
         Sha1Hash domainInfoHash = new Sha1Hash(infoHash);
-        return new SingleFileInfo(domainFileMetadata, pieceSize, domainPieceHashes, domainInfoHash);
+        return new SingleFileInfo(domainFileMetadata, pieceSize, domainPieceHashes, getDomainFileHashTrees(),
+                domainInfoHash);
     }
 
     private MultiFileInfo toMultiFileInfo() {
         List<FileMetadata> domainFileMetadata = fileMetadata.stream()
                 .map(FileMetadataComponent::toDomain)
                 .toList();
-        List<Sha1Hash> domainPieceHashes = Sha1Hash.splitHashes(pieceHashes);
+        PackedSha1Hashes domainPieceHashes = new PackedSha1Hashes(pieceHashes);
         Sha1Hash domainInfoHash = new Sha1Hash(infoHash);
-        return new MultiFileInfo(directory, domainFileMetadata, pieceSize, domainPieceHashes, domainInfoHash);
+        return new MultiFileInfo(directory, domainFileMetadata, pieceSize, domainPieceHashes,
+                getDomainFileHashTrees(), domainInfoHash);
+    }
+
+    private Map<Path, FileHashTree> getDomainFileHashTrees() {
+        return fileHashTrees.stream()
+                .collect(Collectors.toMap(FileHashTreeComponent::getDomainPath, FileHashTreeComponent::toDomain));
     }
 
     public String getDirectory() {
@@ -116,6 +145,10 @@ public class FileInfoComponent {
         return pieceHashes;
     }
 
+    public List<FileHashTreeComponent> getFileHashTrees() {
+        return fileHashTrees;
+    }
+
     public int getPieceSize() {
         return pieceSize;
     }
@@ -129,6 +162,7 @@ public class FileInfoComponent {
         int result = Objects.hashCode(directory);
         result = 31 * result + fileMetadata.hashCode();
         result = 31 * result + Arrays.hashCode(pieceHashes);
+        result = 31 * result + fileHashTrees.hashCode();
         result = 31 * result + pieceSize;
         result = 31 * result + Arrays.hashCode(infoHash);
         return result;
@@ -148,6 +182,7 @@ public class FileInfoComponent {
                 && Objects.equals(directory, that.directory)
                 && fileMetadata.equals(that.fileMetadata)
                 && Arrays.equals(pieceHashes, that.pieceHashes)
+                && fileHashTrees.equals(that.fileHashTrees)
                 && Arrays.equals(infoHash, that.infoHash);
     }
 
@@ -157,6 +192,7 @@ public class FileInfoComponent {
                 + "directory='" + directory + '\''
                 + ", fileMetadata=" + fileMetadata
                 + ", pieceHashes=" + Arrays.toString(pieceHashes)
+                + ", fileHashTrees=" + fileHashTrees
                 + ", pieceSize=" + pieceSize
                 + ", infoHash=" + Arrays.toString(infoHash)
                 + '}';
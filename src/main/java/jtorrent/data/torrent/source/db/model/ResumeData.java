@@ -0,0 +1,212 @@
+package jtorrent.data.torrent.source.db.model;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The progress of a torrent that is needed to resume it, in a compact and versioned binary encoding.
+ * <p>
+ * Only the verified pieces and the received blocks of pieces that are neither verified nor empty are stored, so the
+ * size of the encoding depends on the current state of the torrent rather than on its history.
+ * <p>
+ * The encoding starts with a version byte, followed by any number of sections. Each section consists of a tag, the
+ * length of its payload, and the payload. Readers skip sections with unknown tags, so sections may be added without
+ * changing the version. The version only changes when existing sections change incompatibly.
+ * <ul>
+ *     <li>{@link #TAG_VERIFIED_RUNS}: the verified pieces as the lengths of alternating runs of unverified and verified
+ *     pieces, starting with a run of unverified pieces that may be empty</li>
+ *     <li>{@link #TAG_VERIFIED_BITMAP}: the verified pieces as a bitmap, used instead of the runs if it is smaller</li>
+ *     <li>{@link #TAG_PARTIAL_PIECES}: the number of partial pieces, followed by the difference between the index of
+ *     each partial piece and the previous one, and the bitmap of its received blocks</li>
+ * </ul>
+ * All integers are encoded as unsigned variable-length integers, and all bitmaps are prefixed with their length.
+ *
+ * @param verifiedPieces the verified pieces
+ * @param partialPieces  the received blocks of each piece that is not verified, and has some blocks received
+ */
+public record ResumeData(BitSet verifiedPieces, Map<Integer, BitSet> partialPieces) {
+
+    static final int VERSION = 1;
+    static final int TAG_VERIFIED_RUNS = 1;
+    static final int TAG_VERIFIED_BITMAP = 2;
+    static final int TAG_PARTIAL_PIECES = 3;
+
+    public ResumeData {
+        requireNonNull(verifiedPieces);
+        requireNonNull(partialPieces);
+    }
+
+    /**
+     * Creates resume data from the received blocks of all pieces, dropping the pieces that are verified or have no
+     * received blocks.
+     *
+     * @param verifiedPieces the verified pieces
+     * @param receivedBlocks the received blocks of each piece
+     */
+    public static ResumeData of(BitSet verifiedPieces, Map<Integer, BitSet> receivedBlocks) {
+        Map<Integer, BitSet> partialPieces = new TreeMap<>();
+        receivedBlocks.forEach((piece, blocks) -> {
+            if (!verifiedPieces.get(piece) && !blocks.isEmpty()) {
+                partialPieces.put(piece, blocks);
+            }
+        });
+        return new ResumeData(verifiedPieces, Collections.unmodifiableMap(partialPieces));
+    }
+
+    /**
+     * Checks whether the given encoding is of the version that this class reads. Encodings of other versions are
+     * written by other releases, and cannot be decoded.
+     */
+    public static boolean isSupportedVersion(byte[] bytes) {
+        return bytes.length > 0 && Byte.toUnsignedInt(bytes[0]) == VERSION;
+    }
+
+    public static ResumeData decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            int version = Byte.toUnsignedInt(buffer.get());
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported resume data version: " + version);
+            }
+
+            BitSet verifiedPieces = new BitSet();
+            Map<Integer, BitSet> partialPieces = new TreeMap<>();
+            while (buffer.hasRemaining()) {
+                int tag = readVarInt(buffer);
+                int length = readVarInt(buffer);
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                switch (tag) {
+                case TAG_VERIFIED_RUNS -> verifiedPieces = decodeRuns(payload);
+                case TAG_VERIFIED_BITMAP -> verifiedPieces = readBitSet(payload);
+                case TAG_PARTIAL_PIECES -> partialPieces = decodePartialPieces(payload);
+                default -> {
+                    // written by a newer version, and not needed to resume
+                }
+                }
+            }
+            return new ResumeData(verifiedPieces, Collections.unmodifiableMap(partialPieces));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated resume data", e);
+        }
+    }
+
+    private static BitSet decodeRuns(ByteBuffer payload) {
+        BitSet bitSet = new BitSet();
+        int index = 0;
+        boolean isSet = false;
+        while (payload.hasRemaining()) {
+            int runLength = readVarInt(payload);
+            if (isSet) {
+                bitSet.set(index, index + runLength);
+            }
+            index += runLength;
+            isSet = !isSet;
+        }
+        return bitSet;
+    }
+
+    private static Map<Integer, BitSet> decodePartialPieces(ByteBuffer payload) {
+        int count = readVarInt(payload);
+        Map<Integer, BitSet> partialPieces = new TreeMap<>();
+        int piece = 0;
+        for (int i = 0; i < count; i++) {
+            piece += readVarInt(payload);
+            partialPieces.put(piece, readBitSet(payload));
+        }
+        return partialPieces;
+    }
+
+    private static BitSet readBitSet(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return BitSet.valueOf(bytes);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(VERSION);
+
+        byte[] runs = encodeRuns();
+        byte[] bitmap = encodeBitSet(verifiedPieces);
+        if (runs.length <= bitmap.length) {
+            writeSection(out, TAG_VERIFIED_RUNS, runs);
+        } else {
+            writeSection(out, TAG_VERIFIED_BITMAP, bitmap);
+        }
+
+        if (!partialPieces.isEmpty()) {
+            writeSection(out, TAG_PARTIAL_PIECES, encodePartialPieces());
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] encodeRuns() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int index = 0;
+        while (index < verifiedPieces.length()) {
+            int runStart = verifiedPieces.nextSetBit(index);
+            int runEnd = verifiedPieces.nextClearBit(runStart);
+            writeVarInt(out, runStart - index);
+            writeVarInt(out, runEnd - runStart);
+            index = runEnd;
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] encodePartialPieces() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarInt(out, partialPieces.size());
+        int previousPiece = 0;
+        for (Map.Entry<Integer, BitSet> entry : new TreeMap<>(partialPieces).entrySet()) {
+            writeVarInt(out, entry.getKey() - previousPiece);
+            out.writeBytes(encodeBitSet(entry.getValue()));
+            previousPiece = entry.getKey();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeBitSet(BitSet bitSet) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = bitSet.toByteArray();
+        writeVarInt(out, bytes.length);
+        out.writeBytes(bytes);
+        return out.toByteArray();
+    }
+
+    private static void writeSection(ByteArrayOutputStream out, int tag, byte[] payload) {
+        writeVarInt(out, tag);
+        writeVarInt(out, payload.length);
+        out.writeBytes(payload);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+}
@@ -3,6 +3,7 @@ package jtorrent.data.torrent.source.db.model;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Objects;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
@@ -10,6 +11,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.model.TorrentContent;
 import jtorrent.domain.torrent.model.TorrentMetadata;
 import jtorrent.domain.torrent.model.TorrentProgress;
 import jtorrent.domain.torrent.model.TorrentStatistics;
@@ -30,17 +32,24 @@ public class TorrentEntity {
     @Enumerated
     @Column(nullable = false)
     private final Torrent.State state;
+    /**
+     * The total size of the files in the torrent, which is shown without loading the metadata.
+     * Nullable so that torrents persisted before it existed can still be loaded.
+     */
+    @Column
+    private final Long totalSize;
     @Id
     @Column(length = 20)
     private byte[] infoHash;
 
     protected TorrentEntity() {
         this(new byte[0], "", "", new TorrentMetadataComponent(), new TorrentStatisticsComponent(),
-                new TorrentProgressComponent(), Torrent.State.STOPPED);
+                new TorrentProgressComponent(), Torrent.State.STOPPED, 0L);
     }
 
     public TorrentEntity(byte[] infoHash, String displayName, String saveDirectory, TorrentMetadataComponent metadata,
-            TorrentStatisticsComponent statistics, TorrentProgressComponent progress, Torrent.State state) {
+            TorrentStatisticsComponent statistics, TorrentProgressComponent progress, Torrent.State state,
+            Long totalSize) {
         this.infoHash = infoHash;
         this.displayName = displayName;
         this.saveDirectory = saveDirectory;
@@ -48,6 +57,7 @@ public class TorrentEntity {
         this.statistics = statistics;
         this.progress = progress;
         this.state = state;
+        this.totalSize = totalSize;
     }
 
     public static TorrentEntity fromDomain(Torrent torrent) {
@@ -58,7 +68,8 @@ public class TorrentEntity {
                 TorrentMetadataComponent.fromDomain(torrent.getMetadata()),
                 TorrentStatisticsComponent.fromDomain(torrent.getStatistics()),
                 TorrentProgressComponent.fromDomain(torrent.getProgress()),
-                torrent.getState()
+                torrent.getState(),
+                torrent.getTotalSize()
         );
     }
 
@@ -70,6 +81,12 @@ public class TorrentEntity {
         return new Torrent(domainMetadata, domainStatistics, domainProgress, displayName, domainSaveDirectory, state);
     }
 
+    public TorrentContent toDomainContent() {
+        TorrentMetadata domainMetadata = metadata.toDomain();
+        TorrentProgress domainProgress = progress.toDomain(domainMetadata.fileInfo());
+        return new TorrentContent(domainMetadata, domainProgress);
+    }
+
     public byte[] getInfoHash() {
         return infoHash;
     }
@@ -98,6 +115,10 @@ public class TorrentEntity {
         return state;
     }
 
+    public Long getTotalSize() {
+        return totalSize;
+    }
+
     @Override
     public int hashCode() {
         int result = Arrays.hashCode(infoHash);
@@ -107,6 +128,7 @@ public class TorrentEntity {
         result = 31 * result + statistics.hashCode();
         result = 31 * result + progress.hashCode();
         result = 31 * result + state.hashCode();
+        result = 31 * result + Objects.hashCode(totalSize);
         return result;
     }
 
@@ -126,7 +148,8 @@ public class TorrentEntity {
                 && metadata.equals(that.metadata)
                 && statistics.equals(that.statistics)
                 && progress.equals(that.progress)
-                && state == that.state;
+                && state == that.state
+                && Objects.equals(totalSize, that.totalSize);
     }
 
     @Override
@@ -138,6 +161,8 @@ public class TorrentEntity {
                 + ", metadata=" + metadata
                 + ", statistics=" + statistics
                 + ", progress=" + progress
+                + ", state=" + state
+                + ", totalSize=" + totalSize
                 + '}';
     }
 }
@@ -0,0 +1,77 @@
+package jtorrent.data.torrent.source.db.model;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import jtorrent.domain.torrent.model.Torrent;
+
+/**
+ * The changed parts of a persisted {@link TorrentEntity}. Parts that are {@code null} have not changed and are not
+ * written. The metadata of a torrent never changes, so it is not part of an update.
+ *
+ * @param infoHash   the info hash of the torrent to update
+ * @param attributes the new display name, save directory and state, or {@code null} if they have not changed
+ * @param statistics the new statistics, or {@code null} if they have not changed
+ * @param progress   the new progress, or {@code null} if it has not changed
+ */
+public record TorrentEntityUpdate(byte[] infoHash, Attributes attributes, TorrentStatisticsComponent statistics,
+        TorrentProgressComponent progress) {
+
+    public TorrentEntityUpdate {
+        requireNonNull(infoHash);
+    }
+
+    public boolean isEmpty() {
+        return attributes == null && statistics == null && progress == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(infoHash);
+        result = 31 * result + Objects.hashCode(attributes);
+        result = 31 * result + Objects.hashCode(statistics);
+        result = 31 * result + Objects.hashCode(progress);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        TorrentEntityUpdate that = (TorrentEntityUpdate) o;
+        return Arrays.equals(infoHash, that.infoHash)
+                && Objects.equals(attributes, that.attributes)
+                && Objects.equals(statistics, that.statistics)
+                && Objects.equals(progress, that.progress);
+    }
+
+    @Override
+    public String toString() {
+        return "TorrentEntityUpdate{"
+                + "infoHash=" + Arrays.toString(infoHash)
+                + ", attributes=" + attributes
+                + ", statistics=" + statistics
+                + ", progress=" + progress
+                + '}';
+    }
+
+    public record Attributes(String displayName, String saveDirectory, Torrent.State state) {
+
+        public Attributes {
+            requireNonNull(displayName);
+            requireNonNull(saveDirectory);
+            requireNonNull(state);
+        }
+
+        public static Attributes fromDomain(Torrent torrent) {
+            return new Attributes(torrent.getName(), torrent.getSaveDirectory().toString(), torrent.getState());
+        }
+    }
+}
@@ -1,84 +1,191 @@
 package jtorrent.data.torrent.source.db.model;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.Lob;
+import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.FilePriority;
 import jtorrent.domain.torrent.model.FileProgress;
 import jtorrent.domain.torrent.model.TorrentProgress;
 
 @Embeddable
 public class TorrentProgressComponent {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TorrentProgressComponent.class);
+
+    /**
+     * The verified pieces as a raw bit set, which is only used by torrents persisted before {@link #resumeData}
+     * existed, and is empty otherwise.
+     */
     @Lob
     @Column(nullable = false)
     private final byte[] verifiedPieces;
 
+    /**
+     * The received blocks of every piece that ever received a block, which is only used by torrents persisted before
+     * {@link #resumeData} existed, and is empty otherwise.
+     */
     @Lob
     @Column(nullable = false)
     private byte[] pieceToReceivedBlocks;
 
+    /**
+     * The verified pieces and partial pieces, encoded as {@link ResumeData}.
+     * Nullable so that torrents persisted before it existed can still be loaded.
+     */
+    @Lob
+    @Column
+    private byte[] resumeData;
+
+    /**
+     * The ordinal of the {@link FilePriority} of each file, in the order of the files in the torrent.
+     * Nullable so that torrents persisted before priorities existed can still be loaded.
+     */
+    @Lob
+    @Column
+    private byte[] filePriorities;
+
+    /**
+     * The number of verified bytes, which is shown without loading the rest of the progress.
+     * Nullable so that torrents persisted before it existed can still be loaded.
+     */
+    @Column
+    private Long verifiedBytes;
+
     protected TorrentProgressComponent() {
-        this(new byte[0], new byte[0]);
+        this(new byte[0], new byte[0], new byte[0], new byte[0], 0L);
     }
 
-    public TorrentProgressComponent(byte[] pieceToReceivedBlocks, byte[] verifiedPieces) {
+    public TorrentProgressComponent(byte[] pieceToReceivedBlocks, byte[] verifiedPieces, byte[] resumeData,
+            byte[] filePriorities, Long verifiedBytes) {
         this.pieceToReceivedBlocks = pieceToReceivedBlocks;
         this.verifiedPieces = verifiedPieces;
+        this.resumeData = resumeData;
+        this.filePriorities = filePriorities;
+        this.verifiedBytes = verifiedBytes;
     }
 
     public static TorrentProgressComponent fromDomain(TorrentProgress torrentProgress) {
-        byte[] pieceToReceivedBlocks = serializeMap(torrentProgress.getReceivedBlocks());
-        byte[] verifiedPieces = torrentProgress.getVerifiedPieces().toByteArray();
-        return new TorrentProgressComponent(pieceToReceivedBlocks, verifiedPieces);
-    }
-
-    private static byte[] serializeMap(Map<Integer, BitSet> map) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             DataOutputStream dos = new DataOutputStream(baos)) {
-            dos.writeInt(map.size());
-            for (Map.Entry<Integer, BitSet> entry : map.entrySet()) {
-                dos.writeInt(entry.getKey());
-                byte[] bitsetBytes = entry.getValue().toByteArray();
-                dos.writeInt(bitsetBytes.length);
-                dos.write(bitsetBytes);
-            }
-            return baos.toByteArray();
-        } catch (IOException e) {
-            throw new AssertionError(e);
+        byte[] resumeData = ResumeData.of(torrentProgress.getVerifiedPieces(), torrentProgress.getReceivedBlocks())
+                .encode();
+        byte[] filePriorities = serializePriorities(torrentProgress.getFilePriorities());
+        return new TorrentProgressComponent(new byte[0], new byte[0], resumeData, filePriorities,
+                torrentProgress.getVerifiedBytes());
+    }
+
+    private static byte[] serializePriorities(List<FilePriority> priorities) {
+        byte[] bytes = new byte[priorities.size()];
+        for (int i = 0; i < priorities.size(); i++) {
+            bytes[i] = (byte) priorities.get(i).ordinal();
         }
+        return bytes;
     }
 
     public TorrentProgress toDomain(FileInfo fileInfo) {
-        BitSet domainVerifiedPieces = BitSet.valueOf(verifiedPieces);
+        ResumeData domainResumeData = isLegacyFormat()
+                ? ResumeData.of(BitSet.valueOf(verifiedPieces), deserializeMap(pieceToReceivedBlocks))
+                : decodeResumeData();
+        BitSet domainVerifiedPieces = domainResumeData.verifiedPieces();
+        Map<Path, FilePriority> domainFilePriorities = deserializePriorities(fileInfo);
         Map<Path, FileProgress> domainFileProgress = fileInfo.getFileMetaData().stream()
                 .map(FileMetadata::path)
                 .collect(
                         Collectors.toMap(
                                 Function.identity(),
                                 path -> FileProgress.createExisting(fileInfo, fileInfo.getFileMetaData(path),
-                                        domainVerifiedPieces)
+                                        domainVerifiedPieces, domainFilePriorities.get(path))
                         )
                 );
-        Map<Integer, BitSet> domainPieceToReceivedBlocks = deserializeMap(pieceToReceivedBlocks);
+        Map<Integer, BitSet> domainPieceToReceivedBlocks = new HashMap<>(domainResumeData.partialPieces());
+        // all blocks of a verified piece were received, so they are not stored
+        domainVerifiedPieces.stream().forEach(piece -> {
+            BitSet blocks = new BitSet();
+            blocks.set(0, fileInfo.getNumBlocks(piece));
+            domainPieceToReceivedBlocks.put(piece, blocks);
+        });
         return TorrentProgress.createExisting(fileInfo, domainFileProgress, domainVerifiedPieces,
                 domainPieceToReceivedBlocks);
     }
 
+    /**
+     * Decodes the resume data.
+     * Resume data that cannot be decoded is treated as if no piece was verified, so that the torrent is loaded and
+     * the pieces that are present are found again when its files are checked.
+     */
+    private ResumeData decodeResumeData() {
+        try {
+            return ResumeData.decode(resumeData);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn(Markers.TORRENT, "Unreadable resume data, the files will be checked again: {}",
+                    e.getMessage());
+            return ResumeData.of(new BitSet(), Map.of());
+        }
+    }
+
+    /**
+     * Deserializes the priority of each file.
+     * Files without a valid persisted priority fall back to {@link FilePriority#NORMAL}, so that corrupt priorities
+     * do not prevent the torrent from being loaded.
+     */
+    private Map<Path, FilePriority> deserializePriorities(FileInfo fileInfo) {
+        List<FileMetadata> files = fileInfo.getFileMetaData();
+        Map<Path, FilePriority> priorities = new HashMap<>(files.size());
+        if (filePriorities != null && filePriorities.length != files.size()) {
+            LOGGER.warn(Markers.TORRENT, "Persisted {} file priorities for {} files, using the default for the rest",
+                    filePriorities.length, files.size());
+        }
+
+        FilePriority[] values = FilePriority.values();
+        for (int i = 0; i < files.size(); i++) {
+            FilePriority priority = FilePriority.NORMAL;
+            if (filePriorities != null && i < filePriorities.length) {
+                int ordinal = filePriorities[i];
+                if (ordinal >= 0 && ordinal < values.length) {
+                    priority = values[ordinal];
+                } else {
+                    LOGGER.warn(Markers.TORRENT, "Invalid priority {} of {}, using the default", ordinal,
+                            files.get(i).path());
+                }
+            }
+            priorities.put(files.get(i).path(), priority);
+        }
+        return priorities;
+    }
+
+    /**
+     * Checks whether this progress was persisted before {@link #resumeData} existed. Such progress is converted when
+     * it is loaded, and should be persisted again.
+     */
+    public boolean isLegacyFormat() {
+        return resumeData == null;
+    }
+
+    /**
+     * Checks whether this progress is converted when it is loaded, either because it is in the legacy format or
+     * because its resume data is of an unsupported version, and should therefore be persisted again.
+     */
+    public boolean isRewriteNeeded() {
+        return isLegacyFormat() || !ResumeData.isSupportedVersion(resumeData);
+    }
+
     private static Map<Integer, BitSet> deserializeMap(byte[] bytes) {
         try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
              DataInputStream dis = new DataInputStream(bais)) {
@@ -106,10 +213,25 @@ public class TorrentProgressComponent {
         return pieceToReceivedBlocks;
     }
 
+    public byte[] getResumeData() {
+        return resumeData;
+    }
+
+    public byte[] getFilePriorities() {
+        return filePriorities;
+    }
+
+    public Long getVerifiedBytes() {
+        return verifiedBytes;
+    }
+
     @Override
     public int hashCode() {
         int result = Arrays.hashCode(verifiedPieces);
         result = 31 * result + Arrays.hashCode(pieceToReceivedBlocks);
+        result = 31 * result + Arrays.hashCode(resumeData);
+        result = 31 * result + Arrays.hashCode(filePriorities);
+        result = 31 * result + Objects.hashCode(verifiedBytes);
         return result;
     }
 
@@ -124,7 +246,10 @@ public class TorrentProgressComponent {
 
         TorrentProgressComponent that = (TorrentProgressComponent) o;
         return Arrays.equals(verifiedPieces, that.verifiedPieces)
-                && Arrays.equals(pieceToReceivedBlocks, that.pieceToReceivedBlocks);
+                && Arrays.equals(pieceToReceivedBlocks, that.pieceToReceivedBlocks)
+                && Arrays.equals(resumeData, that.resumeData)
+                && Arrays.equals(filePriorities, that.filePriorities)
+                && Objects.equals(verifiedBytes, that.verifiedBytes);
     }
 
     @Override
@@ -132,6 +257,9 @@ public class TorrentProgressComponent {
         return "TorrentProgressComponent{"
                 + ", pieceToReceivedBlocks=" + Arrays.toString(pieceToReceivedBlocks)
                 + ", verifiedPieces=" + Arrays.toString(verifiedPieces)
+                + ", resumeData=" + Arrays.toString(resumeData)
+                + ", filePriorities=" + Arrays.toString(filePriorities)
+                + ", verifiedBytes=" + verifiedBytes
                 + '}';
     }
 }
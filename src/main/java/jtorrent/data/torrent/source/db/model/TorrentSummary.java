@@ -0,0 +1,99 @@
+package jtorrent.data.torrent.source.db.model;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Objects;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.torrent.model.Torrent;
+
+/**
+ * The parts of a persisted {@link TorrentEntity} that are needed to list the torrent, which are read without its
+ * metadata and progress.
+ *
+ * @param infoHash      the info hash of the torrent
+ * @param displayName   the display name of the torrent
+ * @param saveDirectory the save directory of the torrent
+ * @param state         the state of the torrent
+ * @param statistics    the statistics of the torrent
+ * @param totalSize     the total size of the files in the torrent, or {@code null} if it was not persisted
+ * @param verifiedBytes the number of verified bytes, or {@code null} if it was not persisted
+ */
+public record TorrentSummary(byte[] infoHash, String displayName, String saveDirectory, Torrent.State state,
+        TorrentStatisticsComponent statistics, Long totalSize, Long verifiedBytes) {
+
+    public TorrentSummary {
+        requireNonNull(infoHash);
+        requireNonNull(displayName);
+        requireNonNull(saveDirectory);
+        requireNonNull(state);
+        requireNonNull(statistics);
+    }
+
+    /**
+     * Checks whether the torrent was persisted before the summary existed, in which case it can only be created from
+     * the full {@link TorrentEntity}.
+     */
+    public boolean isLegacyFormat() {
+        return totalSize == null || verifiedBytes == null;
+    }
+
+    /**
+     * Creates a torrent whose metadata and progress are loaded when they are first accessed.
+     *
+     * @param contentLoader loads the metadata and progress of the torrent
+     */
+    public Torrent toDomain(Torrent.ContentLoader contentLoader) {
+        if (isLegacyFormat()) {
+            throw new IllegalStateException("Summary of torrent in legacy format");
+        }
+        return new Torrent(new Sha1Hash(infoHash), totalSize, verifiedBytes, statistics.toDomain(), displayName,
+                Paths.get(saveDirectory), state, contentLoader);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(infoHash);
+        result = 31 * result + displayName.hashCode();
+        result = 31 * result + saveDirectory.hashCode();
+        result = 31 * result + state.hashCode();
+        result = 31 * result + statistics.hashCode();
+        result = 31 * result + Objects.hashCode(totalSize);
+        result = 31 * result + Objects.hashCode(verifiedBytes);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        TorrentSummary that = (TorrentSummary) o;
+        return Arrays.equals(infoHash, that.infoHash)
+                && displayName.equals(that.displayName)
+                && saveDirectory.equals(that.saveDirectory)
+                && state == that.state
+                && statistics.equals(that.statistics)
+                && Objects.equals(totalSize, that.totalSize)
+                && Objects.equals(verifiedBytes, that.verifiedBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "TorrentSummary{"
+                + "infoHash=" + Arrays.toString(infoHash)
+                + ", displayName='" + displayName + '\''
+                + ", saveDirectory='" + saveDirectory + '\''
+                + ", state=" + state
+                + ", statistics=" + statistics
+                + ", totalSize=" + totalSize
+                + ", verifiedBytes=" + verifiedBytes
+                + '}';
+    }
+}
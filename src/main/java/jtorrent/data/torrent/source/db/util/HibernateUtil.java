@@ -5,6 +5,7 @@ import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 
+import jtorrent.data.dht.source.db.model.DhtStateEntity;
 import jtorrent.data.torrent.source.db.model.TorrentEntity;
 
 public class HibernateUtil {
@@ -19,6 +20,7 @@ public class HibernateUtil {
             StandardServiceRegistry registry = new StandardServiceRegistryBuilder().build();
             sessionFactory = new MetadataSources(registry)
                     .addAnnotatedClass(TorrentEntity.class)
+                    .addAnnotatedClass(DhtStateEntity.class)
                     .buildMetadata()
                     .buildSessionFactory();
         }
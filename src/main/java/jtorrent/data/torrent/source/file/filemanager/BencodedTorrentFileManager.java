@@ -1,8 +1,6 @@
 package jtorrent.data.torrent.source.file.filemanager;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -24,20 +22,8 @@ public class BencodedTorrentFileManager {
      * @throws IOException if an error occurs while reading the file
      */
     public BencodedTorrent read(URL url) throws IOException {
-        // For some reason decoding directly from the URL stream doesn't work, so we have to read it into a byte array
-        // first.
-        try (BufferedInputStream in = new BufferedInputStream(url.openStream());
-             ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ) {
-            byte[] dataBuffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-                out.write(dataBuffer, 0, bytesRead);
-            }
-
-            try (InputStream inputStream = new ByteArrayInputStream(out.toByteArray())) {
-                return BencodedTorrent.decode(inputStream);
-            }
+        try (InputStream inputStream = url.openStream()) {
+            return BencodedTorrent.decode(inputStream);
         }
     }
 
@@ -49,8 +35,9 @@ public class BencodedTorrentFileManager {
      * @throws IOException if an error occurs while reading the file
      */
     public BencodedTorrent read(File file) throws IOException {
-        InputStream inputStream = new FileInputStream(file);
-        return BencodedTorrent.decode(inputStream);
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return BencodedTorrent.decode(inputStream);
+        }
     }
 
     /**
@@ -61,8 +48,8 @@ public class BencodedTorrentFileManager {
      * @throws IOException if an error occurs while writing the file
      */
     public void write(Path path, BencodedTorrent bencodedTorrent) throws IOException {
-        try (OutputStream outputStream = Files.newOutputStream(path)) {
-            outputStream.write(bencodedTorrent.bencode());
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(path))) {
+            bencodedTorrent.writeTo(outputStream);
         }
     }
 }
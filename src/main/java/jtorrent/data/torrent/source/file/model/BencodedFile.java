@@ -2,6 +2,7 @@ package jtorrent.data.torrent.source.file.model;
 
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -16,13 +17,28 @@ public class BencodedFile extends BencodedObject {
 
     public static final String KEY_LENGTH = "length";
     public static final String KEY_PATH = "path";
+    /**
+     * Optional field.
+     * Contains {@link #ATTR_PADDING} if the file is a padding file.
+     *
+     * @see <a href="https://www.bittorrent.org/beps/bep_0047.html">BEP 47 - Padding files and extended file
+     * attributes</a>
+     */
+    public static final String KEY_ATTR = "attr";
+    public static final String ATTR_PADDING = "p";
 
     private final long length;
     private final List<String> path;
+    private final String attr;
 
     public BencodedFile(long length, List<String> path) {
+        this(length, path, null);
+    }
+
+    public BencodedFile(long length, List<String> path, String attr) {
         this.length = length;
         this.path = path;
+        this.attr = attr;
     }
 
     public static BencodedFile fromMap(Map<String, Object> map) {
@@ -31,7 +47,17 @@ public class BencodedFile extends BencodedObject {
         List<String> path = pathRaw.stream()
                 .map(buffer -> new String(buffer.array()))
                 .collect(Collectors.toList());
-        return new BencodedFile(length, path);
+        String attr = MapUtil.getValueAsString(map, KEY_ATTR).orElse(null);
+        return new BencodedFile(length, path, attr);
+    }
+
+    /**
+     * Creates a padding file that aligns the next file to a piece boundary.
+     *
+     * @param length the length of the padding
+     */
+    public static BencodedFile padding(long length) {
+        return new BencodedFile(length, List.of(".pad", String.valueOf(length)), ATTR_PADDING);
     }
 
     public static BencodedFile fromPath(Path relativePath, long length) {
@@ -43,7 +69,12 @@ public class BencodedFile extends BencodedObject {
         return new BencodedFile(fileMetadata.size(), getPathComponents(fileMetadata.path()));
     }
 
-    private static List<String> getPathComponents(Path path) {
+    public static BencodedFile fromDomain(FileMetadata fileMetadata, boolean isPadding) {
+        String attr = isPadding ? ATTR_PADDING : null;
+        return new BencodedFile(fileMetadata.size(), getPathComponents(fileMetadata.path()), attr);
+    }
+
+    static List<String> getPathComponents(Path path) {
         List<String> pathComponents = new LinkedList<>();
         Path current = path;
         while (current != null) {
@@ -61,17 +92,28 @@ public class BencodedFile extends BencodedObject {
         return path;
     }
 
+    public String getAttr() {
+        return attr;
+    }
+
+    public boolean isPadding() {
+        return attr != null && attr.contains(ATTR_PADDING);
+    }
+
     @Override
     public Map<String, Object> toMap() {
-        return Map.of(
-                KEY_LENGTH, length,
-                KEY_PATH, path
-        );
+        Map<String, Object> map = new HashMap<>();
+        map.put(KEY_LENGTH, length);
+        map.put(KEY_PATH, path);
+        if (attr != null) {
+            map.put(KEY_ATTR, attr);
+        }
+        return map;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(length, path);
+        return Objects.hash(length, path, attr);
     }
 
     @Override
@@ -83,7 +125,9 @@ public class BencodedFile extends BencodedObject {
             return false;
         }
         BencodedFile file = (BencodedFile) o;
-        return length == file.length && Objects.equals(path, file.path);
+        return length == file.length
+                && Objects.equals(path, file.path)
+                && Objects.equals(attr, file.attr);
     }
 
     @Override
@@ -91,6 +135,7 @@ public class BencodedFile extends BencodedObject {
         return "File{"
                 + "length=" + length
                 + ", path=" + path
+                + ", attr=" + attr
                 + '}';
     }
 }
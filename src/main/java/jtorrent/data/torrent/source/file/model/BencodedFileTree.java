@@ -0,0 +1,179 @@
+package jtorrent.data.torrent.source.file.model;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import jtorrent.data.torrent.source.file.model.util.MapUtil;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.common.util.bencode.BencodedObject;
+import jtorrent.domain.torrent.model.FileHashTree;
+import jtorrent.domain.torrent.model.FileInfo;
+import jtorrent.domain.torrent.model.FileMetadata;
+
+/**
+ * Represents the {@code file tree} of a v2 or hybrid info dictionary.
+ * <p>
+ * Each directory is a dictionary keyed by the names of its children. Each file is a dictionary keyed by the empty
+ * string, whose value holds the length of the file and, for non-empty files, the root of its merkle tree.
+ *
+ * @see <a href="https://www.bittorrent.org/beps/bep_0052.html">BEP 52 - The BitTorrent Protocol Specification v2</a>
+ */
+public class BencodedFileTree extends BencodedObject {
+
+    public static final String KEY_FILE = "";
+    public static final String KEY_LENGTH = "length";
+    public static final String KEY_PIECES_ROOT = "pieces root";
+
+    private final Map<String, Object> tree;
+
+    public BencodedFileTree(Map<String, Object> tree) {
+        this.tree = tree;
+    }
+
+    public static BencodedFileTree fromMap(Map<String, Object> map) {
+        return new BencodedFileTree(map);
+    }
+
+    /**
+     * Builds the file tree of the given {@link FileInfo}.
+     * Files which are neither empty nor have a merkle tree are padding files, which are not part of the file tree.
+     *
+     * @param fileInfo the {@link FileInfo} of a v2 or hybrid torrent
+     * @param getPath  maps each file to its path components relative to the root of the file tree
+     */
+    public static BencodedFileTree fromDomain(FileInfo fileInfo, Function<FileMetadata, List<String>> getPath) {
+        Map<String, Object> tree = new TreeMap<>();
+        for (FileMetadata fileMetadata : fileInfo.getFileMetaData()) {
+            FileHashTree fileHashTree = fileInfo.getFileHashTrees().get(fileMetadata.path());
+            if (fileHashTree == null && fileMetadata.size() != 0) {
+                continue;
+            }
+
+            Map<String, Object> fileDict = new TreeMap<>();
+            fileDict.put(KEY_LENGTH, fileMetadata.size());
+            if (fileHashTree != null) {
+                fileDict.put(KEY_PIECES_ROOT, ByteBuffer.wrap(fileHashTree.getPiecesRoot().getBytes()));
+            }
+
+            Map<String, Object> directory = tree;
+            List<String> path = getPath.apply(fileMetadata);
+            for (String component : path) {
+                directory = getOrCreateDirectory(directory, component);
+            }
+            directory.put(KEY_FILE, fileDict);
+        }
+        return new BencodedFileTree(tree);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getOrCreateDirectory(Map<String, Object> parent, String name) {
+        return (Map<String, Object>) parent.computeIfAbsent(name, key -> new TreeMap<>());
+    }
+
+    /**
+     * Gets the files in this tree in the order in which they are laid out in the torrent.
+     */
+    public List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>();
+        collectEntries(tree, new ArrayList<>(), entries);
+        return entries;
+    }
+
+    private static void collectEntries(Map<String, Object> directory, List<String> path, List<Entry> entries) {
+        // files are ordered by the byte order of their names, which is how bencoded dictionaries are sorted
+        Map<String, Object> sorted = new TreeMap<>(directory);
+        for (Map.Entry<String, Object> child : sorted.entrySet()) {
+            Map<String, Object> childDict = MapUtil.getValueAsMap(sorted, child.getKey());
+            if (child.getKey().equals(KEY_FILE)) {
+                long length = MapUtil.getValueAsLong(childDict, KEY_LENGTH).orElseThrow();
+                Sha256Hash piecesRoot = MapUtil.getValueAsByteArray(childDict, KEY_PIECES_ROOT)
+                        .map(Sha256Hash::new)
+                        .orElse(null);
+                entries.add(new Entry(List.copyOf(path), length, piecesRoot));
+            } else {
+                path.add(child.getKey());
+                collectEntries(childDict, path, entries);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Builds the merkle tree of each non-empty file.
+     *
+     * @param pieceLength the piece length of the torrent
+     * @param pieceLayers the piece layers of the torrent, keyed by the pieces root of each file
+     * @param getPath     maps the path components of each file to its path in the domain model
+     * @return the merkle trees keyed by the path of the file
+     * @throws IllegalArgumentException if the piece layer of a file is missing or does not match its pieces root
+     */
+    public Map<Path, FileHashTree> buildFileHashTrees(int pieceLength, Map<Sha256Hash, List<Sha256Hash>> pieceLayers,
+            Function<List<String>, Path> getPath) {
+        Map<Path, FileHashTree> pathToFileHashTree = new HashMap<>();
+        for (Entry entry : getEntries()) {
+            if (entry.piecesRoot() == null) {
+                continue;
+            }
+
+            List<Sha256Hash> pieceLayer = entry.length() > pieceLength
+                    ? pieceLayers.get(entry.piecesRoot())
+                    : List.of();
+            if (pieceLayer == null) {
+                throw new IllegalArgumentException("Missing piece layer for " + entry.path());
+            }
+
+            FileHashTree fileHashTree = new FileHashTree(entry.length(), entry.piecesRoot(), pieceLayer);
+            if (!fileHashTree.isPieceLayerValid(pieceLength)) {
+                throw new IllegalArgumentException("Invalid piece layer for " + entry.path());
+            }
+            pathToFileHashTree.put(getPath.apply(entry.path()), fileHashTree);
+        }
+        return pathToFileHashTree;
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        return tree;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getEntries());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BencodedFileTree that = (BencodedFileTree) o;
+        return Objects.equals(getEntries(), that.getEntries());
+    }
+
+    @Override
+    public String toString() {
+        return "FileTree{"
+                + "entries=" + getEntries()
+                + '}';
+    }
+
+    /**
+     * A file in the file tree.
+     *
+     * @param path       the path components of the file relative to the root of the tree
+     * @param length     the length of the file in bytes
+     * @param piecesRoot the root of the merkle tree of the file, or null if the file is empty
+     */
+    public record Entry(List<String> path, long length, Sha256Hash piecesRoot) {
+    }
+}
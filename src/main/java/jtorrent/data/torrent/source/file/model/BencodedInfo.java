@@ -1,13 +1,20 @@
 package jtorrent.data.torrent.source.file.model;
 
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
-import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.data.torrent.source.file.model.util.MapUtil;
+import jtorrent.domain.common.util.PackedSha1Hashes;
+import jtorrent.domain.common.util.Sha256Hash;
 import jtorrent.domain.common.util.bencode.BencodedObject;
+import jtorrent.domain.torrent.model.FileHashTree;
 import jtorrent.domain.torrent.model.FileInfo;
 
 public abstract class BencodedInfo extends BencodedObject {
@@ -17,22 +24,64 @@ public abstract class BencodedInfo extends BencodedObject {
     public static final String KEY_NAME = "name";
     public static final String KEY_LENGTH = "length";
     public static final String KEY_FILES = "files";
+    public static final String KEY_META_VERSION = "meta version";
+    public static final String KEY_FILE_TREE = "file tree";
+    public static final long META_VERSION_2 = 2;
 
     protected final int pieceLength;
-    protected final byte[] pieces;
+    protected final PackedSha1Hashes pieces;
     /**
      * The name of the file or directory
      */
     protected final String name;
+    /**
+     * Optional field.
+     * Present in v2 and hybrid torrents.
+     *
+     * @see <a href="https://www.bittorrent.org/beps/bep_0052.html">BEP 52 - The BitTorrent Protocol Specification v2</a>
+     */
+    protected final BencodedFileTree fileTree;
+    /**
+     * The v1 and v2 info hashes computed over the raw bytes of the info dictionary when it was decoded, or null if
+     * this info dictionary was not decoded. Hashing the raw bytes preserves any keys that are not modelled here.
+     */
+    private byte[] decodedInfoHash;
+    private Sha256Hash decodedInfoHashV2;
 
-    protected BencodedInfo(int pieceLength, byte[] pieces, String name) {
+    protected BencodedInfo(int pieceLength, PackedSha1Hashes pieces, String name, BencodedFileTree fileTree) {
         this.pieceLength = pieceLength;
         this.pieces = pieces;
         this.name = name;
+        this.fileTree = fileTree;
+    }
+
+    /**
+     * Gets the piece hashes from the given info dictionary, which may already have been read into packed storage by
+     * {@link BencodedInfoFactory#read(jtorrent.domain.common.util.bencode.BencodeReader)}.
+     */
+    protected static PackedSha1Hashes getPieces(Map<String, Object> map) {
+        Object pieces = map.get(KEY_PIECES);
+        if (pieces instanceof PackedSha1Hashes packedSha1Hashes) {
+            return packedSha1Hashes;
+        }
+        return new PackedSha1Hashes(MapUtil.getValueAsByteArray(map, KEY_PIECES).orElseThrow());
+    }
+
+    protected static BencodedFileTree getFileTree(Map<String, Object> map) {
+        if (!map.containsKey(KEY_FILE_TREE)) {
+            return null;
+        }
+        return BencodedFileTree.fromMap(MapUtil.getValueAsMap(map, KEY_FILE_TREE));
+    }
+
+    protected static List<String> sanitizePath(List<String> path) {
+        return path.stream()
+                .map(part -> part.replaceAll("[\\\\/:*?\"<>|]", "_"))
+                .toList();
     }
 
     public int getNumPieces() {
-        return pieces.length / Sha1Hash.HASH_SIZE;
+        return pieces.size();
     }
 
     public int getPieceLength() {
@@ -40,6 +89,10 @@ public abstract class BencodedInfo extends BencodedObject {
     }
 
     public byte[] getPieces() {
+        return pieces.getBytes();
+    }
+
+    public PackedSha1Hashes getPieceHashes() {
         return pieces;
     }
 
@@ -47,7 +100,27 @@ public abstract class BencodedInfo extends BencodedObject {
         return name;
     }
 
+    public BencodedFileTree getFileTree() {
+        return fileTree;
+    }
+
+    public boolean hasFileTree() {
+        return fileTree != null;
+    }
+
+    /**
+     * Sets the info hashes computed over the raw bytes of this info dictionary as it was decoded.
+     */
+    void setDecodedInfoHashes(byte[] infoHash, Sha256Hash infoHashV2) {
+        this.decodedInfoHash = infoHash;
+        this.decodedInfoHashV2 = infoHashV2;
+    }
+
     public byte[] getInfoHash() {
+        if (decodedInfoHash != null) {
+            return decodedInfoHash.clone();
+        }
+
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-1");
             return md.digest(bencode());
@@ -56,17 +129,63 @@ public abstract class BencodedInfo extends BencodedObject {
         }
     }
 
+    /**
+     * Gets the v2 info hash, which is the SHA-256 hash of the info dictionary.
+     */
+    public Sha256Hash getInfoHashV2() {
+        if (decodedInfoHashV2 != null) {
+            return decodedInfoHashV2;
+        }
+        return Sha256Hash.of(bencode());
+    }
+
     public abstract List<BencodedFile> getFiles();
 
     public abstract long getTotalSize();
 
-    public abstract FileInfo toDomain();
+    public FileInfo toDomain() {
+        return toDomain(Collections.emptyMap());
+    }
+
+    /**
+     * Maps this info dictionary to a {@link FileInfo}.
+     *
+     * @param pieceLayers the piece layers of a v2 or hybrid torrent, keyed by the pieces root of each file.
+     *                    Ignored for v1 torrents.
+     */
+    public abstract FileInfo toDomain(Map<Sha256Hash, List<Sha256Hash>> pieceLayers);
+
+    /**
+     * Builds the merkle trees of the files of a v2 or hybrid torrent.
+     *
+     * @param pieceLayers the piece layers of the torrent, keyed by the pieces root of each file
+     * @param getPath     maps the path components of each file in the file tree to its path in the domain model
+     * @return the merkle trees keyed by the path of the file, or an empty map if this is a v1 torrent
+     */
+    protected Map<Path, FileHashTree> buildFileHashTrees(Map<Sha256Hash, List<Sha256Hash>> pieceLayers,
+            Function<List<String>, Path> getPath) {
+        if (!hasFileTree()) {
+            return Collections.emptyMap();
+        }
+        return fileTree.buildFileHashTrees(pieceLength, pieceLayers, getPath);
+    }
+
+    /**
+     * Adds the v2 fields of this info dictionary to the given v1 fields.
+     */
+    protected Map<String, Object> withFileTree(Map<String, Object> map) {
+        if (!hasFileTree()) {
+            return map;
+        }
+        Map<String, Object> mapWithFileTree = new HashMap<>(map);
+        mapWithFileTree.put(KEY_META_VERSION, META_VERSION_2);
+        mapWithFileTree.put(KEY_FILE_TREE, fileTree.toMap());
+        return mapWithFileTree;
+    }
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(pieceLength, name);
-        result = 31 * result + Arrays.hashCode(pieces);
-        return result;
+        return Objects.hash(pieceLength, pieces, name, fileTree);
     }
 
     @Override
@@ -79,7 +198,8 @@ public abstract class BencodedInfo extends BencodedObject {
         }
         BencodedInfo info = (BencodedInfo) o;
         return pieceLength == info.pieceLength
-                && Arrays.equals(pieces, info.pieces)
-                && Objects.equals(name, info.name);
+                && pieces.equals(info.pieces)
+                && Objects.equals(name, info.name)
+                && Objects.equals(fileTree, info.fileTree);
     }
 }
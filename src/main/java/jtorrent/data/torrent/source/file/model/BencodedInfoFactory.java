@@ -1,10 +1,19 @@
 package jtorrent.data.torrent.source.file.model;
 
 import static jtorrent.data.torrent.source.file.model.BencodedInfo.KEY_FILES;
+import static jtorrent.data.torrent.source.file.model.BencodedInfo.KEY_FILE_TREE;
 import static jtorrent.data.torrent.source.file.model.BencodedInfo.KEY_LENGTH;
+import static jtorrent.data.torrent.source.file.model.BencodedInfo.KEY_PIECES;
 
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
 import java.util.Map;
 
+import jtorrent.domain.common.util.PackedSha1Hashes;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.common.util.bencode.BencodeReader;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.MultiFileInfo;
 import jtorrent.domain.torrent.model.SingleFileInfo;
@@ -19,13 +28,58 @@ public class BencodedInfoFactory {
             return BencodedSingleFileInfo.fromMap(map);
         } else if (map.containsKey(KEY_FILES)) {
             return BencodedMultiFileInfo.fromMap(map);
+        } else if (map.containsKey(KEY_FILE_TREE)) {
+            return BencodedV2Info.fromMap(map);
         }
 
         throw new IllegalArgumentException("Invalid info dictionary");
     }
 
+    /**
+     * Reads an info dictionary from the given reader.
+     * <p>
+     * The info hashes are computed over the raw bytes of the dictionary as they are read, and the piece hashes are
+     * read straight into packed storage instead of being materialised as an intermediate string.
+     *
+     * @param reader the reader positioned at the start of the info dictionary
+     * @return the info dictionary
+     * @throws IOException if the info dictionary cannot be read
+     */
+    public static BencodedInfo read(BencodeReader reader) throws IOException {
+        MessageDigest sha1 = getDigest("SHA-1");
+        MessageDigest sha256 = getDigest("SHA-256");
+        Map<String, Object> map = new HashMap<>();
+
+        reader.startDigest(sha1, sha256);
+        reader.beginDictionary();
+        while (reader.hasNext()) {
+            String key = reader.readKey();
+            if (key.equals(KEY_PIECES)) {
+                map.put(key, reader.readString(PackedSha1Hashes::read));
+            } else {
+                map.put(key, reader.readValue());
+            }
+        }
+        reader.endDictionary();
+        reader.stopDigest();
+
+        BencodedInfo info = fromMap(map);
+        info.setDecodedInfoHashes(sha1.digest(), new Sha256Hash(sha256.digest()));
+        return info;
+    }
+
+    private static MessageDigest getDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     public static BencodedInfo fromDomain(FileInfo fileInfo) {
-        if (fileInfo instanceof SingleFileInfo singleFileInfo) {
+        if (fileInfo.getPieceHashes().isEmpty() && fileInfo.hasFileHashTrees()) {
+            return BencodedV2Info.fromDomain(fileInfo);
+        } else if (fileInfo instanceof SingleFileInfo singleFileInfo) {
             return BencodedSingleFileInfo.fromDomain(singleFileInfo);
         } else {
             return BencodedMultiFileInfo.fromDomain((MultiFileInfo) fileInfo);
@@ -1,16 +1,17 @@
 package jtorrent.data.torrent.source.file.model;
 
-import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 import jtorrent.data.torrent.source.file.model.util.MapUtil;
+import jtorrent.domain.common.util.PackedSha1Hashes;
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.torrent.model.FileHashTree;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.FileMetadata;
 import jtorrent.domain.torrent.model.MultiFileInfo;
@@ -20,30 +21,55 @@ public class BencodedMultiFileInfo extends BencodedInfo {
     private final List<BencodedFile> files;
 
     public BencodedMultiFileInfo(int pieceLength, byte[] pieces, String name, List<BencodedFile> files) {
-        super(pieceLength, pieces, name);
+        this(pieceLength, pieces, name, files, null);
+    }
+
+    public BencodedMultiFileInfo(int pieceLength, byte[] pieces, String name, List<BencodedFile> files,
+            BencodedFileTree fileTree) {
+        this(pieceLength, new PackedSha1Hashes(pieces), name, files, fileTree);
+    }
+
+    public BencodedMultiFileInfo(int pieceLength, PackedSha1Hashes pieces, String name, List<BencodedFile> files,
+            BencodedFileTree fileTree) {
+        super(pieceLength, pieces, name, fileTree);
         this.files = files;
     }
 
     public static BencodedMultiFileInfo fromMap(Map<String, Object> map) {
         int pieceLength = MapUtil.getValueAsLong(map, KEY_PIECE_LENGTH).orElseThrow().intValue();
-        byte[] pieces = MapUtil.getValueAsByteArray(map, KEY_PIECES).orElseThrow();
+        PackedSha1Hashes pieces = getPieces(map);
         String name = MapUtil.getValueAsString(map, KEY_NAME).orElseThrow();
         List<Map<String, Object>> filesRaw = MapUtil.getValueAsList(map, KEY_FILES);
         List<BencodedFile> files = filesRaw.stream()
                 .map(BencodedFile::fromMap)
                 .collect(Collectors.toList());
+        BencodedFileTree fileTree = getFileTree(map);
 
-        return new BencodedMultiFileInfo(pieceLength, pieces, name, files);
+        return new BencodedMultiFileInfo(pieceLength, pieces, name, files, fileTree);
     }
 
     public static BencodedMultiFileInfo fromDomain(MultiFileInfo fileInfo) {
-        byte[] pieces = Sha1Hash.concatHashes(fileInfo.getPieceHashes());
+        PackedSha1Hashes pieces = fileInfo.getPieceHashes();
         int pieceLength = fileInfo.getPieceSize();
         String name = fileInfo.getName();
         List<BencodedFile> files = fileInfo.getFileMetaData().stream()
-                .map(BencodedFile::fromDomain)
+                .map(fileMetadata -> BencodedFile.fromDomain(fileMetadata, isPadding(fileInfo, fileMetadata)))
                 .toList();
-        return new BencodedMultiFileInfo(pieceLength, pieces, name, files);
+        BencodedFileTree fileTree = fileInfo.hasFileHashTrees()
+                ? BencodedFileTree.fromDomain(fileInfo,
+                        fileMetadata -> BencodedFile.getPathComponents(fileMetadata.path()))
+                : null;
+        return new BencodedMultiFileInfo(pieceLength, pieces, name, files, fileTree);
+    }
+
+    /**
+     * Checks whether the given file is a padding file of a hybrid torrent.
+     * Padding files are the only non-empty files of a hybrid torrent that do not have a merkle tree.
+     */
+    private static boolean isPadding(FileInfo fileInfo, FileMetadata fileMetadata) {
+        return fileInfo.hasFileHashTrees()
+                && fileMetadata.size() != 0
+                && !fileInfo.getFileHashTrees().containsKey(fileMetadata.path());
     }
 
     @Override
@@ -59,9 +85,11 @@ public class BencodedMultiFileInfo extends BencodedInfo {
     }
 
     @Override
-    public FileInfo toDomain() {
+    public FileInfo toDomain(Map<Sha256Hash, List<Sha256Hash>> pieceLayers) {
         List<FileMetadata> fileMetaData = buildFileMetaData();
-        return new MultiFileInfo(name, fileMetaData, pieceLength, Sha1Hash.splitHashes(pieces),
+        Map<Path, FileHashTree> pathToFileHashTree = buildFileHashTrees(pieceLayers,
+                path -> Path.of(String.join("/", sanitizePath(path))));
+        return new MultiFileInfo(name, fileMetaData, pieceLength, pieces, pathToFileHashTree,
                 new Sha1Hash(getInfoHash()));
     }
 
@@ -102,12 +130,6 @@ public class BencodedMultiFileInfo extends BencodedInfo {
         return fileMetaData;
     }
 
-    protected static List<String> sanitizePath(List<String> path) {
-        return path.stream()
-                .map(part -> part.replaceAll("[\\\\/:*?\"<>|]", "_"))
-                .toList();
-    }
-
     @Override
     public int hashCode() {
         return Objects.hash(super.hashCode(), files);
@@ -130,21 +152,22 @@ public class BencodedMultiFileInfo extends BencodedInfo {
 
     @Override
     public Map<String, Object> toMap() {
-        return Map.of(
+        return withFileTree(Map.of(
                 KEY_PIECE_LENGTH, pieceLength,
-                KEY_PIECES, ByteBuffer.wrap(pieces),
+                KEY_PIECES, pieces,
                 KEY_NAME, name,
                 KEY_FILES, files.stream().map(BencodedFile::toMap).collect(Collectors.toList())
-        );
+        ));
     }
 
     @Override
     public String toString() {
         return "MultiFileInfo{"
                 + "pieceLength=" + pieceLength
-                + ", pieces=" + Arrays.toString(pieces)
+                + ", pieces=" + pieces
                 + ", name='" + name + '\''
                 + ", files=" + files
+                + ", fileTree=" + fileTree
                 + '}';
     }
 }
@@ -1,14 +1,15 @@
 package jtorrent.data.torrent.source.file.model;
 
-import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 import jtorrent.data.torrent.source.file.model.util.MapUtil;
+import jtorrent.domain.common.util.PackedSha1Hashes;
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.torrent.model.FileHashTree;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.FileMetadata;
 import jtorrent.domain.torrent.model.SingleFileInfo;
@@ -18,24 +19,38 @@ public class BencodedSingleFileInfo extends BencodedInfo {
     private final long length;
 
     public BencodedSingleFileInfo(int pieceLength, byte[] pieces, String name, long length) {
-        super(pieceLength, pieces, name);
+        this(pieceLength, pieces, name, length, null);
+    }
+
+    public BencodedSingleFileInfo(int pieceLength, byte[] pieces, String name, long length,
+            BencodedFileTree fileTree) {
+        this(pieceLength, new PackedSha1Hashes(pieces), name, length, fileTree);
+    }
+
+    public BencodedSingleFileInfo(int pieceLength, PackedSha1Hashes pieces, String name, long length,
+            BencodedFileTree fileTree) {
+        super(pieceLength, pieces, name, fileTree);
         this.length = length;
     }
 
     public static BencodedSingleFileInfo fromMap(Map<String, Object> map) {
         int pieceLength = MapUtil.getValueAsLong(map, KEY_PIECE_LENGTH).orElseThrow().intValue();
-        byte[] pieces = MapUtil.getValueAsByteArray(map, KEY_PIECES).orElseThrow();
+        PackedSha1Hashes pieces = getPieces(map);
         String name = MapUtil.getValueAsString(map, KEY_NAME).orElseThrow();
         long length = MapUtil.getValueAsLong(map, KEY_LENGTH).orElseThrow();
+        BencodedFileTree fileTree = getFileTree(map);
 
-        return new BencodedSingleFileInfo(pieceLength, pieces, name, length);
+        return new BencodedSingleFileInfo(pieceLength, pieces, name, length, fileTree);
     }
 
     public static BencodedSingleFileInfo fromDomain(SingleFileInfo fileInfo) {
-        byte[] pieces = Sha1Hash.concatHashes(fileInfo.getPieceHashes());
+        PackedSha1Hashes pieces = fileInfo.getPieceHashes();
         String name = fileInfo.getFileMetaData().get(0).path().getFileName().toString();
         long length = fileInfo.getFileMetaData().get(0).size();
-        return new BencodedSingleFileInfo(fileInfo.getPieceSize(), pieces, name, length);
+        BencodedFileTree fileTree = fileInfo.hasFileHashTrees()
+                ? BencodedFileTree.fromDomain(fileInfo, fileMetadata -> List.of(name))
+                : null;
+        return new BencodedSingleFileInfo(fileInfo.getPieceSize(), pieces, name, length, fileTree);
     }
 
     @Override
@@ -49,9 +64,11 @@ public class BencodedSingleFileInfo extends BencodedInfo {
     }
 
     @Override
-    public FileInfo toDomain() {
+    public FileInfo toDomain(Map<Sha256Hash, List<Sha256Hash>> pieceLayers) {
         FileMetadata fileMetaData = buildFileMetaData();
-        return new SingleFileInfo(fileMetaData, pieceLength, Sha1Hash.splitHashes(pieces), new Sha1Hash(getInfoHash()));
+        Map<Path, FileHashTree> pathToFileHashTree = buildFileHashTrees(pieceLayers, path -> fileMetaData.path());
+        return new SingleFileInfo(fileMetaData, pieceLength, pieces, pathToFileHashTree,
+                new Sha1Hash(getInfoHash()));
     }
 
     private FileMetadata buildFileMetaData() {
@@ -89,21 +106,22 @@ public class BencodedSingleFileInfo extends BencodedInfo {
 
     @Override
     public Map<String, Object> toMap() {
-        return Map.of(
+        return withFileTree(Map.of(
                 KEY_PIECE_LENGTH, pieceLength,
-                KEY_PIECES, ByteBuffer.wrap(pieces),
+                KEY_PIECES, pieces,
                 KEY_NAME, name,
                 KEY_LENGTH, length
-        );
+        ));
     }
 
     @Override
     public String toString() {
         return "SingleFIleInfo{"
                 + "pieceLength=" + pieceLength
-                + ", pieces=" + Arrays.toString(pieces)
+                + ", pieces=" + pieces
                 + ", name='" + name + '\''
                 + ", length=" + length
+                + ", fileTree=" + fileTree
                 + '}';
     }
 }
@@ -9,19 +9,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
-import com.dampcake.bencode.BencodeInputStream;
-
 import jtorrent.data.torrent.source.file.model.exception.MappingException;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.common.util.bencode.BencodeReader;
 import jtorrent.domain.common.util.bencode.BencodedObject;
+import jtorrent.domain.torrent.model.FileHashTree;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.TorrentMetadata;
 
@@ -33,6 +35,7 @@ public class BencodedTorrent extends BencodedObject {
     public static final String KEY_COMMENT = "comment";
     public static final String KEY_CREATED_BY = "created by";
     public static final String KEY_INFO = "info";
+    public static final String KEY_PIECE_LAYERS = "piece layers";
 
     private final String announce;
     /**
@@ -47,15 +50,28 @@ public class BencodedTorrent extends BencodedObject {
     private final String comment;
     private final String createdBy;
     private final BencodedInfo info;
+    /**
+     * Optional field.
+     * The piece layers of the merkle trees of v2 and hybrid torrents, keyed by the pieces root of each file.
+     *
+     * @see <a href="https://www.bittorrent.org/beps/bep_0052.html">BEP 52 - The BitTorrent Protocol Specification v2</a>
+     */
+    private final Map<Sha256Hash, List<Sha256Hash>> pieceLayers;
 
     public BencodedTorrent(Long creationDate, String announce, List<List<String>> announceList,
             String comment, String createdBy, BencodedInfo info) {
+        this(creationDate, announce, announceList, comment, createdBy, info, Collections.emptyMap());
+    }
+
+    public BencodedTorrent(Long creationDate, String announce, List<List<String>> announceList,
+            String comment, String createdBy, BencodedInfo info, Map<Sha256Hash, List<Sha256Hash>> pieceLayers) {
         this.announce = announce;
         this.announceList = announceList;
         this.creationDate = creationDate;
         this.comment = comment;
         this.createdBy = createdBy;
         this.info = info;
+        this.pieceLayers = pieceLayers;
     }
 
     public static BencodedTorrent withAnnounceList(Long creationDate, List<List<String>> announceList, String comment,
@@ -72,13 +88,68 @@ public class BencodedTorrent extends BencodedObject {
         return new BencodedTorrent(creationDate, announce, null, comment, createdBy, info);
     }
 
+    /**
+     * Decodes a torrent file from the given stream.
+     * <p>
+     * The file is parsed as it is read. Keys that are not modelled, such as web seeds, are skipped without being
+     * materialised, and the info dictionary is read by {@link BencodedInfoFactory#read(BencodeReader)}.
+     *
+     * @param inputStream the stream to read the torrent file from
+     * @return the decoded torrent
+     * @throws IOException if the torrent file cannot be read or is malformed
+     */
     public static BencodedTorrent decode(InputStream inputStream) throws IOException {
-        BencodeInputStream bis = new BencodeInputStream(inputStream, StandardCharsets.UTF_8, true);
-        Map<String, Object> topLevelDict = bis.readDictionary();
-        return fromMap(topLevelDict);
+        BencodeReader reader = new BencodeReader(inputStream);
+        Map<String, Object> topLevelDict = new HashMap<>();
+        BencodedInfo info = null;
+        Map<Sha256Hash, List<Sha256Hash>> pieceLayers = Collections.emptyMap();
+
+        reader.beginDictionary();
+        while (reader.hasNext()) {
+            String key = reader.readKey();
+            switch (key) {
+            case KEY_INFO:
+                info = BencodedInfoFactory.read(reader);
+                break;
+            case KEY_PIECE_LAYERS:
+                pieceLayers = readPieceLayers(reader);
+                break;
+            case KEY_ANNOUNCE, KEY_ANNOUNCE_LIST, KEY_CREATION_DATE, KEY_COMMENT, KEY_CREATED_BY:
+                topLevelDict.put(key, reader.readValue());
+                break;
+            default:
+                reader.skipValue();
+            }
+        }
+        reader.endDictionary();
+
+        if (info == null) {
+            throw new IOException("Torrent file has no info dictionary");
+        }
+        return fromMap(topLevelDict, info, pieceLayers);
+    }
+
+    /**
+     * Reads the piece layers, whose keys are raw hashes rather than UTF-8 strings.
+     */
+    private static Map<Sha256Hash, List<Sha256Hash>> readPieceLayers(BencodeReader reader) throws IOException {
+        Map<Sha256Hash, List<Sha256Hash>> pieceLayers = new HashMap<>();
+        reader.beginDictionary();
+        while (reader.hasNext()) {
+            Sha256Hash piecesRoot = new Sha256Hash(reader.readBytes());
+            pieceLayers.put(piecesRoot, Sha256Hash.splitHashes(reader.readBytes()));
+        }
+        reader.endDictionary();
+        return pieceLayers;
     }
 
     public static BencodedTorrent fromMap(Map<String, Object> map) {
+        BencodedInfo info = BencodedInfoFactory.fromMap(getValueAsMap(map, KEY_INFO));
+        return fromMap(map, info, Collections.emptyMap());
+    }
+
+    private static BencodedTorrent fromMap(Map<String, Object> map, BencodedInfo info,
+            Map<Sha256Hash, List<Sha256Hash>> pieceLayers) {
         String announce = getValueAsString(map, KEY_ANNOUNCE).orElseThrow();
 
         List<List<ByteBuffer>> announceListRaw = getValueAsList(map, KEY_ANNOUNCE_LIST);
@@ -92,10 +163,7 @@ public class BencodedTorrent extends BencodedObject {
         String comment = getValueAsString(map, KEY_COMMENT).orElse("");
         String createdBy = getValueAsString(map, KEY_CREATED_BY).orElse("");
 
-        Map<String, Object> infoDict = getValueAsMap(map, KEY_INFO);
-        BencodedInfo info = BencodedInfoFactory.fromMap(infoDict);
-
-        return new BencodedTorrent(creationDate, announce, announceList, comment, createdBy, info);
+        return new BencodedTorrent(creationDate, announce, announceList, comment, createdBy, info, pieceLayers);
     }
 
     public static BencodedTorrent fromDomain(TorrentMetadata torrentMetadata) {
@@ -109,8 +177,13 @@ public class BencodedTorrent extends BencodedObject {
                 )
                 .toList();
         BencodedInfo info = BencodedInfoFactory.fromDomain(torrentMetadata.fileInfo());
+        Map<Sha256Hash, List<Sha256Hash>> pieceLayers = torrentMetadata.fileInfo().getFileHashTrees().values()
+                .stream()
+                .filter(FileHashTree::hasPieceLayer)
+                .collect(Collectors.toMap(FileHashTree::getPiecesRoot, FileHashTree::getPieceLayer,
+                        (first, second) -> first));
         return new BencodedTorrent(creationDate, announce, announceList, torrentMetadata.comment(),
-                torrentMetadata.createdBy(), info);
+                torrentMetadata.createdBy(), info, pieceLayers);
     }
 
     public String getAnnounce() {
@@ -137,6 +210,10 @@ public class BencodedTorrent extends BencodedObject {
         return info;
     }
 
+    public Map<Sha256Hash, List<Sha256Hash>> getPieceLayers() {
+        return pieceLayers;
+    }
+
     public String getName() {
         return getInfo().getName();
     }
@@ -165,28 +242,39 @@ public class BencodedTorrent extends BencodedObject {
 
             LocalDateTime creationDateTime = LocalDateTime.ofEpochSecond(creationDate, 0,
                     OffsetDateTime.now().getOffset());
-            FileInfo fileInfo = info.toDomain();
+            FileInfo fileInfo = info.toDomain(pieceLayers);
             return new TorrentMetadata(trackers, creationDateTime, comment, createdBy, fileInfo);
         } catch (Exception e) {
             throw new MappingException("Failed to map BencodedTorrent to Torrent", e);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The keys of the piece layers are raw hashes which cannot be represented as strings, so they are left as
+     * {@link Sha256Hash}es, which are bencoded as their raw bytes.
+     */
     @Override
     public Map<String, Object> toMap() {
-        return Map.of(
+        Map<String, Object> map = new HashMap<>(Map.of(
                 KEY_ANNOUNCE, announce,
                 KEY_ANNOUNCE_LIST, announceList,
                 KEY_CREATION_DATE, creationDate,
                 KEY_COMMENT, comment,
                 KEY_CREATED_BY, createdBy,
                 KEY_INFO, info.toMap()
-        );
+        ));
+        if (!pieceLayers.isEmpty()) {
+            map.put(KEY_PIECE_LAYERS, pieceLayers.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> Sha256Hash.concatHashes(entry.getValue()))));
+        }
+        return map;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(announce, announceList, creationDate, comment, createdBy, info);
+        return Objects.hash(announce, announceList, creationDate, comment, createdBy, info, pieceLayers);
     }
 
     @Override
@@ -203,7 +291,8 @@ public class BencodedTorrent extends BencodedObject {
                 && Objects.equals(creationDate, that.creationDate)
                 && Objects.equals(comment, that.comment)
                 && Objects.equals(createdBy, that.createdBy)
-                && Objects.equals(info, that.info);
+                && Objects.equals(info, that.info)
+                && Objects.equals(pieceLayers, that.pieceLayers);
     }
 
     @Override
@@ -0,0 +1,119 @@
+package jtorrent.data.torrent.source.file.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jtorrent.data.torrent.source.file.model.util.MapUtil;
+import jtorrent.domain.common.util.PackedSha1Hashes;
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.torrent.model.FileHashTree;
+import jtorrent.domain.torrent.model.FileInfo;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.MultiFileInfo;
+import jtorrent.domain.torrent.model.SingleFileInfo;
+
+/**
+ * Represents the info dictionary of a v2 only torrent, which describes its files solely through a file tree.
+ * <p>
+ * Every file of a v2 torrent starts at a piece boundary. To map the torrent onto the contiguous layout of the domain
+ * model, a padding file is placed after every file that does not end at a piece boundary, as a hybrid torrent would.
+ * Since there are no v1 piece hashes, the torrent is identified by its truncated v2 info hash.
+ */
+public class BencodedV2Info extends BencodedMultiFileInfo {
+
+    public BencodedV2Info(int pieceLength, String name, BencodedFileTree fileTree) {
+        super(pieceLength, PackedSha1Hashes.EMPTY, name, buildFiles(pieceLength, fileTree), fileTree);
+    }
+
+    public static BencodedV2Info fromMap(Map<String, Object> map) {
+        int pieceLength = MapUtil.getValueAsLong(map, KEY_PIECE_LENGTH).orElseThrow().intValue();
+        String name = MapUtil.getValueAsString(map, KEY_NAME).orElseThrow();
+        BencodedFileTree fileTree = getFileTree(map);
+        return new BencodedV2Info(pieceLength, name, fileTree);
+    }
+
+    public static BencodedV2Info fromDomain(FileInfo fileInfo) {
+        String name = fileInfo.getName();
+        BencodedFileTree fileTree = fileInfo instanceof SingleFileInfo
+                ? BencodedFileTree.fromDomain(fileInfo, fileMetadata -> List.of(name))
+                : BencodedFileTree.fromDomain(fileInfo,
+                        fileMetadata -> BencodedFile.getPathComponents(fileMetadata.path()));
+        return new BencodedV2Info(fileInfo.getPieceSize(), name, fileTree);
+    }
+
+    private static List<BencodedFile> buildFiles(int pieceLength, BencodedFileTree fileTree) {
+        List<BencodedFileTree.Entry> entries = fileTree.getEntries();
+        List<BencodedFile> files = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            BencodedFileTree.Entry entry = entries.get(i);
+            files.add(new BencodedFile(entry.length(), entry.path()));
+            long remainder = entry.length() % pieceLength;
+            boolean isLastFile = i == entries.size() - 1;
+            if (remainder != 0 && !isLastFile) {
+                files.add(BencodedFile.padding(pieceLength - remainder));
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public int getNumPieces() {
+        return (int) Math.ceil((double) getFiles().stream().mapToLong(BencodedFile::getLength).sum() / pieceLength);
+    }
+
+    @Override
+    public long getTotalSize() {
+        return fileTree.getEntries().stream()
+                .mapToLong(BencodedFileTree.Entry::length)
+                .sum();
+    }
+
+    /**
+     * Checks whether the file tree consists of a single file named after the torrent,
+     * which is how single file torrents are represented in v2.
+     */
+    private boolean isSingleFile() {
+        List<BencodedFileTree.Entry> entries = fileTree.getEntries();
+        return entries.size() == 1 && entries.get(0).path().equals(List.of(name));
+    }
+
+    @Override
+    public FileInfo toDomain(Map<Sha256Hash, List<Sha256Hash>> pieceLayers) {
+        List<FileMetadata> fileMetaData = buildFileMetaData();
+        Sha1Hash infoHash = getInfoHashV2().truncate();
+
+        if (isSingleFile()) {
+            FileMetadata fileMetadata = fileMetaData.get(0);
+            Map<Path, FileHashTree> pathToFileHashTree = buildFileHashTrees(pieceLayers,
+                    path -> fileMetadata.path());
+            return new SingleFileInfo(fileMetadata, pieceLength, PackedSha1Hashes.EMPTY, pathToFileHashTree, infoHash);
+        }
+
+        Map<Path, FileHashTree> pathToFileHashTree = buildFileHashTrees(pieceLayers,
+                path -> Path.of(String.join("/", sanitizePath(path))));
+        return new MultiFileInfo(name, fileMetaData, pieceLength, PackedSha1Hashes.EMPTY, pathToFileHashTree,
+                infoHash);
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        return Map.of(
+                KEY_META_VERSION, META_VERSION_2,
+                KEY_PIECE_LENGTH, pieceLength,
+                KEY_NAME, name,
+                KEY_FILE_TREE, fileTree.toMap()
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "V2Info{"
+                + "pieceLength=" + pieceLength
+                + ", name='" + name + '\''
+                + ", fileTree=" + fileTree
+                + '}';
+    }
+}
@@ -4,17 +4,27 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.URI;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.reactivex.rxjava3.core.Observable;
+import jtorrent.domain.choke.Choker;
 import jtorrent.domain.common.util.BackgroundTask;
+import jtorrent.domain.common.util.PeriodicTask;
 import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.common.util.rx.RxObservableList;
@@ -25,7 +35,15 @@ import jtorrent.domain.lsd.LocalServiceDiscoveryManager;
 import jtorrent.domain.lsd.model.Announce;
 import jtorrent.domain.peer.communication.PeerSocket;
 import jtorrent.domain.peer.model.PeerContactInfo;
+import jtorrent.domain.statistics.SessionSnapshot;
+import jtorrent.domain.statistics.StatisticsAggregator;
+import jtorrent.domain.statistics.TorrentSnapshot;
+import jtorrent.domain.stream.StreamServer;
+import jtorrent.domain.stream.StreamStatistics;
+import jtorrent.domain.torrent.handler.DataReuseHandler;
 import jtorrent.domain.torrent.handler.TorrentHandler;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.FilePriority;
 import jtorrent.domain.torrent.model.Torrent;
 import jtorrent.domain.torrent.model.TorrentMetadata;
 import jtorrent.domain.torrent.repository.PieceRepository;
@@ -36,15 +54,27 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
         DhtManager.PeerDiscoveryListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Client.class);
+    private static final long CHECKPOINT_PERIOD_SECONDS = 30;
 
     private final InboundConnectionListener inboundConnectionListener;
     private final LocalServiceDiscoveryManager localServiceDiscoveryManager;
     private final DhtClient dhtManager;
-    private final Map<Sha1Hash, TorrentHandler> infoHashToTorrentHandler = new HashMap<>();
+    private final Map<Sha1Hash, TorrentHandler> infoHashToTorrentHandler = new ConcurrentHashMap<>();
     private final TorrentRepository torrentRepository;
     private final TorrentMetadataRepository torrentMetadataRepository;
     private final PieceRepository pieceRepository;
+    private final DataReuseHandler dataReuseHandler;
+    private final StreamServer streamServer;
+    private final Choker choker = new Choker();
+    private final StatisticsAggregator statisticsAggregator;
     private final HandleInboundConnectionsTask handleInboundConnectionsTask = new HandleInboundConnectionsTask();
+    private final ScheduledExecutorService checkpointExecutorService = Executors.newSingleThreadScheduledExecutor();
+    private final CheckpointTask checkpointTask = new CheckpointTask(checkpointExecutorService);
+    private final ExecutorService dataReuseExecutorService = Executors.newSingleThreadExecutor();
+    /**
+     * The info hashes of the torrents that are waiting for their existing data to be checked before being added.
+     */
+    private final Set<Sha1Hash> pendingInfoHashes = ConcurrentHashMap.newKeySet();
 
     public Client(TorrentRepository torrentRepository, TorrentMetadataRepository torrentMetadataRepository,
             PieceRepository pieceRepository, InboundConnectionListener inboundConnectionListener,
@@ -52,6 +82,13 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
         this.torrentRepository = torrentRepository;
         this.torrentMetadataRepository = torrentMetadataRepository;
         this.pieceRepository = pieceRepository;
+        this.dataReuseHandler = new DataReuseHandler(pieceRepository);
+        this.streamServer = new StreamServer(pieceRepository, infoHashToTorrentHandler::get);
+        this.choker.start();
+        this.statisticsAggregator = new StatisticsAggregator(() -> torrentRepository.getTorrents().getCollection(),
+                infoHashToTorrentHandler::get);
+        this.statisticsAggregator.start();
+        checkpointTask.scheduleWithFixedDelay(CHECKPOINT_PERIOD_SECONDS, CHECKPOINT_PERIOD_SECONDS, TimeUnit.SECONDS);
 
         this.inboundConnectionListener = inboundConnectionListener;
         this.inboundConnectionListener.start();
@@ -68,13 +105,17 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
         torrentRepository.getTorrents().subscribe(event -> {
             switch (event.getType()) {
             case ADD:
+                dataReuseHandler.addTorrent(event.getItem());
                 break;
             case REMOVE:
                 stopTorrent(event.getItem());
+                dataReuseHandler.removeTorrent(event.getItem());
+                statisticsAggregator.removeTorrent(event.getItem().getInfoHash());
                 break;
             case CLEAR:
                 infoHashToTorrentHandler.values().forEach(TorrentHandler::stop);
                 infoHashToTorrentHandler.clear();
+                dataReuseHandler.clearTorrents();
                 break;
             default:
                 throw new AssertionError("Unknown event type: " + event.getType());
@@ -87,13 +128,67 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
         handleInboundConnectionsTask.stop();
         localServiceDiscoveryManager.stop();
         dhtManager.stop();
+        streamServer.stop();
         infoHashToTorrentHandler.values().forEach(TorrentHandler::stop);
+        choker.stop();
+        statisticsAggregator.stop();
+        dataReuseExecutorService.shutdownNow();
+        // a checkpoint that is in progress is allowed to complete rather than being interrupted
+        checkpointExecutorService.shutdown();
         torrentRepository.persistTorrents();
     }
 
+    /**
+     * Adds a new torrent.
+     * Existing data that matches the torrent is hash checked in the background, so the torrent is only added once
+     * the check has completed. A torrent that has already been added, or is still being checked, is not added again.
+     */
     public void addTorrent(TorrentMetadata torrentMetaData, String name, Path saveDirectory) {
         Torrent torrent = Torrent.createNew(torrentMetaData, name, saveDirectory);
-        torrentRepository.addTorrent(torrent);
+        Sha1Hash infoHash = torrent.getInfoHash();
+        // marked as pending before checking the repository, as a pending torrent is added to the repository before
+        // it stops being pending
+        if (!pendingInfoHashes.add(infoHash)) {
+            LOGGER.info(Markers.TORRENT, "Torrent {} is already being added", infoHash);
+            return;
+        }
+        if (torrentRepository.getTorrent(infoHash) != null) {
+            pendingInfoHashes.remove(infoHash);
+            LOGGER.info(Markers.TORRENT, "Torrent {} has already been added", infoHash);
+            return;
+        }
+
+        try {
+            dataReuseExecutorService.execute(() -> {
+                try {
+                    dataReuseHandler.reuseExistingData(torrent);
+                } catch (RuntimeException e) {
+                    LOGGER.error(Markers.TORRENT, "Failed to reuse existing data", e);
+                }
+                try {
+                    torrentRepository.addTorrent(torrent);
+                } finally {
+                    pendingInfoHashes.remove(infoHash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingInfoHashes.remove(infoHash);
+            LOGGER.warn(Markers.TORRENT, "Torrent {} not added since the client has been shut down", infoHash);
+        }
+    }
+
+    /**
+     * Adds a directory that is searched for existing data when a new torrent is added.
+     * The files in the save directories of known torrents are always searched.
+     *
+     * @param directory the directory to search
+     */
+    public void addDataSearchPath(Path directory) throws IOException {
+        dataReuseHandler.addSearchPath(directory);
+    }
+
+    public void removeDataSearchPath(Path directory) {
+        dataReuseHandler.removeSearchPath(directory);
     }
 
     public void removeTorrent(Torrent torrent) {
@@ -109,12 +204,12 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
     }
 
     public void startTorrent(Torrent torrent) {
-        TorrentHandler torrentHandler = new TorrentHandler(torrent, pieceRepository);
+        TorrentHandler torrentHandler = new TorrentHandler(torrent, pieceRepository, choker);
         infoHashToTorrentHandler.put(torrent.getInfoHash(), torrentHandler);
         torrentHandler.addListener(this);
         torrentHandler.start();
         localServiceDiscoveryManager.addInfoHash(torrent.getInfoHash());
-        dhtManager.registerInfoHash(torrent.getInfoHash());
+        dhtManager.registerInfoHash(torrent.getInfoHash(), torrentHandler);
         LOGGER.info(Markers.TORRENT, "Torrent started");
     }
 
@@ -128,6 +223,69 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
         LOGGER.info(Markers.TORRENT, "Torrent stopped");
     }
 
+    /**
+     * Sets the priority of a file in a torrent.
+     * Skipped files are not downloaded, apart from their parts of the pieces that they share with wanted files.
+     *
+     * @param torrent  the torrent containing the file
+     * @param file     the metadata of the file
+     * @param priority the new priority of the file
+     */
+    public void setFilePriority(Torrent torrent, FileMetadata file, FilePriority priority) {
+        TorrentHandler torrentHandler = infoHashToTorrentHandler.get(torrent.getInfoHash());
+        if (torrentHandler != null) {
+            torrentHandler.setFilePriority(file, priority);
+            return;
+        }
+
+        // the data stored aside while the file was skipped is restored when the torrent is started
+        boolean wasWanted = torrent.getFilePriority(file.path()).isWanted();
+        torrent.setFilePriority(file.path(), priority);
+        if (wasWanted != priority.isWanted()) {
+            torrent.setUnverifiedPiecesMissing(file.firstPiece(), file.lastPiece());
+        }
+    }
+
+    /**
+     * Enables or disables super seeding for an active torrent.
+     *
+     * @param torrent   the torrent
+     * @param isEnabled whether super seeding should be enabled
+     * @see TorrentHandler#setSuperSeeding(boolean)
+     */
+    public void setSuperSeeding(Torrent torrent, boolean isEnabled) {
+        TorrentHandler torrentHandler = infoHashToTorrentHandler.get(torrent.getInfoHash());
+        if (torrentHandler == null) {
+            throw new IllegalStateException("Torrent is not active");
+        }
+        torrentHandler.setSuperSeeding(isEnabled);
+    }
+
+    /**
+     * Sets the upload rate limit shared by all torrents, which determines the number of peers that are unchoked.
+     *
+     * @param bytesPerSecond the limit in bytes per second, or 0 if the upload rate is unlimited
+     */
+    public void setUploadRateLimit(long bytesPerSecond) {
+        choker.setUploadRateLimit(bytesPerSecond);
+    }
+
+    /**
+     * Gets the URI from which a file of a torrent can be streamed by a media player while it is being downloaded.
+     * The stream server is started on first use. The file can only be streamed while the torrent is active.
+     *
+     * @param torrent   the torrent
+     * @param fileIndex the index of the file within the torrent
+     */
+    public URI getStreamUri(Torrent torrent, int fileIndex) throws IOException {
+        streamServer.start();
+        return streamServer.getUri(torrent, fileIndex);
+    }
+
+    public StreamStatistics getStreamStatistics() {
+        return streamServer.getStatistics();
+    }
+
     public RxObservableList<Torrent> getTorrents() {
         return torrentRepository.getTorrents();
     }
@@ -169,16 +327,18 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
         }
     }
 
-    public double getDownloadRate() {
-        return torrentRepository.getTorrents().getCollection().stream()
-                .mapToDouble(Torrent::getDownloadRate)
-                .sum();
+    /**
+     * Gets an observable that emits a snapshot of the statistics of all torrents once per second.
+     */
+    public Observable<SessionSnapshot> getStatisticsObservable() {
+        return statisticsAggregator.getSnapshotObservable();
     }
 
-    public double getUploadRate() {
-        return torrentRepository.getTorrents().getCollection().stream()
-                .mapToDouble(Torrent::getUploadRate)
-                .sum();
+    /**
+     * Gets an observable that emits a snapshot of the statistics of a torrent once per second.
+     */
+    public Observable<TorrentSnapshot> getStatisticsObservable(Torrent torrent) {
+        return statisticsAggregator.getTorrentSnapshotObservable(torrent.getInfoHash());
     }
 
     public void createNewTorrent(Path savePath, Path source, List<List<String>> trackerUrls, String comment,
@@ -215,4 +375,23 @@ public class Client implements LocalServiceDiscoveryManager.Listener, TorrentHan
             torrentHandler.handleInboundPeerConnection(peerSocket);
         }
     }
+
+    /**
+     * Periodically persists the torrents that changed, so that progress is not lost if the client is not shut down.
+     */
+    private class CheckpointTask extends PeriodicTask {
+
+        public CheckpointTask(ScheduledExecutorService scheduledExecutorService) {
+            super(scheduledExecutorService);
+        }
+
+        @Override
+        public void run() {
+            try {
+                torrentRepository.persistTorrents();
+            } catch (RuntimeException e) {
+                LOGGER.error(Markers.TORRENT, "Failed to persist torrents", e);
+            }
+        }
+    }
 }
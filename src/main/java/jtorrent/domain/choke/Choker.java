@@ -0,0 +1,309 @@
+package jtorrent.domain.choke;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jtorrent.domain.common.util.PeriodicTask;
+import jtorrent.domain.common.util.logging.Markers;
+
+/**
+ * Decides which peers of all active torrents are unchoked, i.e., allowed to download from us.
+ * <p>
+ * Upload slots are shared by all torrents rather than allocated per torrent. The number of slots is derived from the
+ * upload capacity, which is the upload rate limit if one is set, or the peak of the measured total upload rate
+ * otherwise, so that each unchoked peer can be served at a useful rate. One extra slot is opened while there is
+ * capacity to spare, or while the measured peak is being reached and more capacity may be available.
+ * <p>
+ * Every round, the best peer of each torrent is unchoked first so that no torrent is starved, and the remaining slots
+ * go to the best peers overall. Peers of downloading torrents are ranked by the rate at which they upload to us, which
+ * rewards reciprocation. Peers of seeding torrents are ranked by the rate at which we upload to them, but peers that
+ * have been unchoked for longer than {@link #ROUND_ROBIN_MILLIS} are ranked last, so that the slots rotate among all
+ * interested peers. Peers that have stopped sending us data despite our interest are considered to be snubbing us and
+ * are only eligible for the optimistic unchoke, which is given to a random choked peer every few rounds. Peers that
+ * are not allowed to be unchoked, such as peers whose requests were dropped, are choked regardless of their rank.
+ */
+public class Choker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Choker.class);
+
+    static final long ROUND_MILLIS = 10_000;
+    static final int OPTIMISTIC_UNCHOKE_ROUNDS = 3;
+    static final long SNUB_MILLIS = 60_000;
+    static final long ROUND_ROBIN_MILLIS = 30_000;
+    /**
+     * The upload rate in bytes per second that each regular upload slot should be able to sustain.
+     */
+    static final double SLOT_RATE = 16 * 1024;
+    static final int MIN_REGULAR_SLOTS = 3;
+    static final int MAX_REGULAR_SLOTS = 50;
+    /**
+     * The fraction of the upload capacity beyond which the upload is considered to be saturated.
+     */
+    private static final double SATURATION_THRESHOLD = 0.9;
+    /**
+     * The factor by which the measured peak upload rate decays every round, so that it adapts to lower capacities.
+     */
+    private static final double PEAK_DECAY = 0.95;
+
+    private final Set<PeerGroup> peerGroups = new CopyOnWriteArraySet<>();
+    private final LongSupplier clock;
+    private final Random random;
+    private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+    private final RechokeTask rechokeTask = new RechokeTask(executorService);
+    private final Map<Candidate, Long> candidateToUnchokedSince = new HashMap<>();
+    private Candidate optimisticUnchokeCandidate;
+    private double peakUploadRate;
+    private int round;
+    private volatile long uploadRateLimit;
+
+    public Choker() {
+        this(System::currentTimeMillis, new Random());
+    }
+
+    Choker(LongSupplier clock, Random random) {
+        this.clock = requireNonNull(clock);
+        this.random = requireNonNull(random);
+    }
+
+    public void start() {
+        rechokeTask.scheduleAtFixedRate(ROUND_MILLIS, MILLISECONDS);
+    }
+
+    public void stop() {
+        rechokeTask.stop();
+        executorService.shutdownNow();
+    }
+
+    public void register(PeerGroup peerGroup) {
+        peerGroups.add(requireNonNull(peerGroup));
+    }
+
+    public void unregister(PeerGroup peerGroup) {
+        peerGroups.remove(peerGroup);
+    }
+
+    /**
+     * Sets the upload rate limit, which is used as the upload capacity when sizing the upload slots.
+     *
+     * @param bytesPerSecond the limit in bytes per second, or 0 if the upload rate is unlimited
+     */
+    public void setUploadRateLimit(long bytesPerSecond) {
+        uploadRateLimit = requireNonNegative(bytesPerSecond);
+    }
+
+    public long getUploadRateLimit() {
+        return uploadRateLimit;
+    }
+
+    synchronized void rechoke() {
+        long now = clock.getAsLong();
+        List<Entry> entries = new ArrayList<>();
+        for (PeerGroup peerGroup : peerGroups) {
+            boolean isSeeding = peerGroup.isSeeding();
+            peerGroup.getCandidates()
+                    .forEach(candidate -> entries.add(new Entry(peerGroup, candidate, isSeeding, now)));
+        }
+        Set<Candidate> candidates = entries.stream()
+                .map(Entry::candidate)
+                .collect(Collectors.toSet());
+        candidateToUnchokedSince.keySet().retainAll(candidates);
+
+        double totalUploadRate = entries.stream().mapToDouble(Entry::uploadRate).sum();
+        peakUploadRate = Math.max(totalUploadRate, peakUploadRate * PEAK_DECAY);
+        int regularSlots = computeRegularSlots(totalUploadRate);
+
+        Set<Candidate> candidatesToUnchoke = new HashSet<>();
+        updateOptimisticUnchoke(entries);
+        if (optimisticUnchokeCandidate != null) {
+            candidatesToUnchoke.add(optimisticUnchokeCandidate);
+        }
+        selectRegularUnchokes(entries, regularSlots).forEach(candidatesToUnchoke::add);
+
+        entries.forEach(entry -> applyDecision(entry.candidate(), candidatesToUnchoke.contains(entry.candidate()),
+                now));
+        round = (round + 1) % OPTIMISTIC_UNCHOKE_ROUNDS;
+    }
+
+    private int computeRegularSlots(double totalUploadRate) {
+        long limit = uploadRateLimit;
+        double capacity = limit > 0 ? limit : peakUploadRate;
+        int slots = (int) Math.min(MAX_REGULAR_SLOTS, Math.ceil(capacity / SLOT_RATE));
+        slots = Math.max(MIN_REGULAR_SLOTS, slots);
+
+        boolean isSaturated = capacity > 0 && totalUploadRate >= capacity * SATURATION_THRESHOLD;
+        boolean shouldProbe = limit > 0 ? !isSaturated : isSaturated;
+        return shouldProbe ? slots + 1 : slots;
+    }
+
+    private void updateOptimisticUnchoke(List<Entry> entries) {
+        boolean isCurrentValid = entries.stream()
+                .anyMatch(entry -> entry.candidate() == optimisticUnchokeCandidate && entry.isEligible());
+        if (isCurrentValid && round != 0) {
+            return;
+        }
+
+        List<Candidate> choked = entries.stream()
+                .filter(Entry::isEligible)
+                .map(Entry::candidate)
+                .filter(Candidate::isRemoteChoked)
+                .toList();
+        if (!choked.isEmpty()) {
+            optimisticUnchokeCandidate = choked.get(random.nextInt(choked.size()));
+        } else if (!isCurrentValid) {
+            optimisticUnchokeCandidate = null;
+        }
+    }
+
+    /**
+     * Selects the candidates to unchoke through the regular slots, taking the best candidate of each peer group first.
+     */
+    private List<Candidate> selectRegularUnchokes(List<Entry> entries, int slots) {
+        List<Entry> ranked = entries.stream()
+                .filter(Entry::isEligible)
+                .filter(entry -> !entry.isSnubbed())
+                .filter(entry -> entry.candidate() != optimisticUnchokeCandidate)
+                .sorted(Comparator.comparing(this::isRotatedOut)
+                        .thenComparing(Entry::rankingRate, Comparator.reverseOrder()))
+                .toList();
+
+        Set<PeerGroup> groupsWithLeader = new HashSet<>();
+        List<Candidate> leaders = new ArrayList<>();
+        List<Candidate> others = new ArrayList<>();
+        for (Entry entry : ranked) {
+            if (groupsWithLeader.add(entry.peerGroup())) {
+                leaders.add(entry.candidate());
+            } else {
+                others.add(entry.candidate());
+            }
+        }
+
+        List<Candidate> selected = new ArrayList<>(leaders);
+        selected.addAll(others);
+        return selected.subList(0, Math.min(slots, selected.size()));
+    }
+
+    private boolean isRotatedOut(Entry entry) {
+        Long unchokedSince = candidateToUnchokedSince.get(entry.candidate());
+        return entry.isSeeding() && unchokedSince != null && entry.now() - unchokedSince >= ROUND_ROBIN_MILLIS;
+    }
+
+    private void applyDecision(Candidate candidate, boolean shouldUnchoke, long now) {
+        try {
+            if (shouldUnchoke && candidate.isRemoteChoked()) {
+                candidate.sendUnchoke();
+                candidateToUnchokedSince.put(candidate, now);
+                LOGGER.debug(Markers.CHOKE, "Unchoked {}", candidate);
+            } else if (!shouldUnchoke && !candidate.isRemoteChoked()) {
+                candidate.sendChoke();
+                candidateToUnchokedSince.remove(candidate);
+                LOGGER.debug(Markers.CHOKE, "Choked {}", candidate);
+            }
+        } catch (IOException e) {
+            LOGGER.error(Markers.CHOKE, "Failed to send {} to {}", shouldUnchoke ? "unchoke" : "choke", candidate, e);
+        }
+    }
+
+    /**
+     * A peer that may be choked or unchoked.
+     */
+    public interface Candidate {
+
+        boolean isRemoteInterested();
+
+        boolean isLocalInterested();
+
+        boolean isRemoteChoked();
+
+        /**
+         * @return whether the peer may be unchoked, or stay unchoked, if it ranks high enough
+         */
+        boolean isUnchokeAllowed();
+
+        /**
+         * @return the rate in bytes per second at which we upload to the peer
+         */
+        double getUploadRate();
+
+        /**
+         * @return the rate in bytes per second at which the peer uploads to us
+         */
+        double getDownloadRate();
+
+        /**
+         * @return the time in milliseconds at which a block was last received from the peer, or at which the peer was
+         * connected if no block has been received yet
+         */
+        long getLastBlockReceivedMillis();
+
+        void sendChoke() throws IOException;
+
+        void sendUnchoke() throws IOException;
+    }
+
+    /**
+     * The peers of a single torrent.
+     */
+    public interface PeerGroup {
+
+        Collection<? extends Candidate> getCandidates();
+
+        /**
+         * @return whether all wanted pieces of the torrent are available, in which case its peers are ranked by the
+         * rate at which we upload to them
+         */
+        boolean isSeeding();
+    }
+
+    /**
+     * A snapshot of a candidate's state, taken once per round so that its rates do not change while it is ranked.
+     */
+    private record Entry(PeerGroup peerGroup, Candidate candidate, boolean isSeeding, long now, boolean isEligible,
+            boolean isSnubbed, double uploadRate, double downloadRate) {
+
+        Entry(PeerGroup peerGroup, Candidate candidate, boolean isSeeding, long now) {
+            this(peerGroup, candidate, isSeeding, now, candidate.isRemoteInterested() && candidate.isUnchokeAllowed(),
+                    candidate.isLocalInterested() && now - candidate.getLastBlockReceivedMillis() > SNUB_MILLIS,
+                    candidate.getUploadRate(), candidate.getDownloadRate());
+        }
+
+        double rankingRate() {
+            return isSeeding ? uploadRate : downloadRate;
+        }
+    }
+
+    private class RechokeTask extends PeriodicTask {
+
+        public RechokeTask(ScheduledExecutorService scheduledExecutorService) {
+            super(scheduledExecutorService);
+        }
+
+        @Override
+        public void run() {
+            try {
+                rechoke();
+            } catch (RuntimeException e) {
+                LOGGER.error(Markers.CHOKE, "Failed to rechoke", e);
+            }
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package jtorrent.domain.common.util;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.stream.IntStream;
 
+/**
+ * An immutable 160-bit value, such as a SHA-1 hash or a DHT node ID.
+ * <p>
+ * In addition to the bytes, the value is held as two longs and an int, most significant first, so that distances and
+ * common prefixes can be computed without allocating.
+ */
 public class Bit160Value extends ByteArray {
 
     public static final int SIZE_BITS = 160;
@@ -15,8 +21,16 @@ public class Bit160Value extends ByteArray {
         MAX = new Bit160Value(maxBytes);
     }
 
+    private final long high;
+    private final long middle;
+    private final int low;
+
     public Bit160Value(byte[] bytes) {
         super(validateBytes(bytes));
+        ByteBuffer buffer = ByteBuffer.wrap(this.bytes);
+        high = buffer.getLong();
+        middle = buffer.getLong();
+        low = buffer.getInt();
     }
 
     /**
@@ -52,34 +66,45 @@ public class Bit160Value extends ByteArray {
         return new Bit160Value(result);
     }
 
+    /**
+     * Gets the number of leading bits that this value has in common with the given value.
+     *
+     * @param value the value to compare with
+     * @return the length of the common prefix, which is {@value #SIZE_BITS} if the values are equal
+     */
     public int numMatchingBits(Bit160Value value) {
         if (value == null) {
             throw new IllegalArgumentException("Value cannot be null");
         }
 
-        byte[] thisBytes = getBytes();
-        byte[] otherBytes = value.getBytes();
-
-        return IntStream.range(0, SIZE_BYTES)
-                .map(i -> numMatchingBits(thisBytes[i], otherBytes[i]))
-                .sum();
+        long highXor = high ^ value.high;
+        if (highXor != 0) {
+            return Long.numberOfLeadingZeros(highXor);
+        }
+        long middleXor = middle ^ value.middle;
+        if (middleXor != 0) {
+            return Long.SIZE + Long.numberOfLeadingZeros(middleXor);
+        }
+        return 2 * Long.SIZE + Integer.numberOfLeadingZeros(low ^ value.low);
     }
 
-    private static int numMatchingBits(byte b1, byte b2) {
-        int xor = b1 ^ b2;
-        int matchingBits = 0;
-        if (xor == 0) {
-            matchingBits += Byte.SIZE;
-        } else {
-            for (int j = 0; j < Byte.SIZE; j++) {
-                int mask = 1 << (Byte.SIZE - j - 1);
-                if ((xor & mask) == 0) {
-                    matchingBits++;
-                } else {
-                    break;
-                }
-            }
+    /**
+     * Compares the XOR distances of two values to this value, without computing the distances.
+     *
+     * @param first  the first value
+     * @param second the second value
+     * @return a negative integer, zero, or a positive integer as the first value is closer to, as close to, or further
+     * from this value than the second value
+     */
+    public int compareDistances(Bit160Value first, Bit160Value second) {
+        int result = Long.compareUnsigned(first.high ^ high, second.high ^ high);
+        if (result != 0) {
+            return result;
+        }
+        result = Long.compareUnsigned(first.middle ^ middle, second.middle ^ middle);
+        if (result != 0) {
+            return result;
         }
-        return matchingBits;
+        return Integer.compareUnsigned(first.low ^ low, second.low ^ low);
     }
 }
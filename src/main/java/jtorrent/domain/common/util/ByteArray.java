@@ -1,6 +1,7 @@
 package jtorrent.domain.common.util;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -43,6 +44,16 @@ public abstract class ByteArray {
         return Arrays.copyOf(bytes, bytes.length);
     }
 
+    /**
+     * Writes the underlying byte array into the given buffer without copying it first.
+     *
+     * @param buffer the buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space remaining
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(bytes);
+    }
+
     /**
      * Returns the length of the underlying byte array.
      */
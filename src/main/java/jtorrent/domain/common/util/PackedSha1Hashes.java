@@ -0,0 +1,134 @@
+package jtorrent.domain.common.util;
+
+import static jtorrent.domain.common.util.Sha1Hash.HASH_SIZE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable list of SHA-1 hashes that are stored back to back in a single byte array.
+ * <p>
+ * Storing every hash as a {@link Sha1Hash} costs about three times the size of the hash itself, because of the object
+ * and array headers and the reference to each hash. Hashes are only wrapped in a {@link Sha1Hash} when they are
+ * retrieved with {@link #get(int)}, and can be compared against a digest without being wrapped at all.
+ */
+public class PackedSha1Hashes extends ByteArray {
+
+    public static final PackedSha1Hashes EMPTY = new PackedSha1Hashes(new byte[0]);
+    /**
+     * The most bytes that {@link #read(InputStream, int)} allocates before they have been read from the stream.
+     */
+    static final int MAX_UNREAD_ALLOCATION = 1 << 20;
+
+    /**
+     * Creates a new {@link PackedSha1Hashes} from concatenated hashes by copying them.
+     *
+     * @param hashesConcat the concatenated hashes
+     * @throws IllegalArgumentException if the length is not a multiple of the size of a hash
+     */
+    public PackedSha1Hashes(byte[] hashesConcat) {
+        super(validateBytes(hashesConcat));
+    }
+
+    private PackedSha1Hashes(int length) {
+        super(length);
+    }
+
+    /**
+     * Reads concatenated hashes from the given stream into a new {@link PackedSha1Hashes}.
+     * <p>
+     * The length is declared by the data being read and cannot be trusted, so at most {@value #MAX_UNREAD_ALLOCATION}
+     * bytes are allocated before they have been read. Hashes up to that length are read straight into place. Longer
+     * hashes are read in chunks of that size, which are copied into place once the stream has been found to contain
+     * all of them.
+     *
+     * @param inputStream the stream to read from
+     * @param length      the number of bytes to read
+     * @throws IllegalArgumentException if the length is not a multiple of the size of a hash
+     * @throws IOException              if the stream ends before the given number of bytes are read
+     */
+    public static PackedSha1Hashes read(InputStream inputStream, int length) throws IOException {
+        if (length % HASH_SIZE != 0) {
+            throw new IllegalArgumentException("Invalid concatenated hashes length");
+        }
+
+        if (length <= MAX_UNREAD_ALLOCATION) {
+            PackedSha1Hashes hashes = new PackedSha1Hashes(length);
+            readFully(inputStream, hashes.bytes, length);
+            return hashes;
+        }
+
+        List<byte[]> chunks = new ArrayList<>();
+        for (int remaining = length; remaining > 0; remaining -= MAX_UNREAD_ALLOCATION) {
+            byte[] chunk = new byte[Math.min(remaining, MAX_UNREAD_ALLOCATION)];
+            readFully(inputStream, chunk, chunk.length);
+            chunks.add(chunk);
+        }
+
+        PackedSha1Hashes hashes = new PackedSha1Hashes(length);
+        int offset = 0;
+        for (byte[] chunk : chunks) {
+            System.arraycopy(chunk, 0, hashes.bytes, offset, chunk.length);
+            offset += chunk.length;
+        }
+        return hashes;
+    }
+
+    private static void readFully(InputStream inputStream, byte[] bytes, int length) throws IOException {
+        if (inputStream.readNBytes(bytes, 0, length) != length) {
+            throw new EOFException();
+        }
+    }
+
+    public static PackedSha1Hashes of(List<Sha1Hash> hashes) {
+        return new PackedSha1Hashes(Sha1Hash.concatHashes(hashes));
+    }
+
+    private static byte[] validateBytes(byte[] hashesConcat) {
+        if (hashesConcat != null && hashesConcat.length % HASH_SIZE != 0) {
+            throw new IllegalArgumentException("Invalid concatenated hashes length");
+        }
+        return hashesConcat;
+    }
+
+    public int size() {
+        return bytes.length / HASH_SIZE;
+    }
+
+    public boolean isEmpty() {
+        return bytes.length == 0;
+    }
+
+    public Sha1Hash get(int index) {
+        int offset = getOffset(index);
+        return new Sha1Hash(Arrays.copyOfRange(bytes, offset, offset + HASH_SIZE));
+    }
+
+    /**
+     * Checks whether the hash at the given index is equal to the given digest.
+     *
+     * @param index  the index of the hash
+     * @param digest the digest to compare against
+     * @return true if the hash is equal to the digest, false otherwise
+     */
+    public boolean matches(int index, byte[] digest) {
+        int offset = getOffset(index);
+        return Arrays.equals(bytes, offset, offset + HASH_SIZE, digest, 0, digest.length);
+    }
+
+    private int getOffset(int index) {
+        return Objects.checkIndex(index, size()) * HASH_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedSha1Hashes{"
+                + "size=" + size()
+                + '}';
+    }
+}
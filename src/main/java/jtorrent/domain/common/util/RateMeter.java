@@ -0,0 +1,91 @@
+package jtorrent.domain.common.util;
+
+import static jtorrent.domain.common.util.ValidationUtil.requirePositive;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
+
+/**
+ * Measures the rate of data transfer over a sliding window of one second buckets.
+ * <p>
+ * Transferred bytes are accumulated with a single atomic add, without locking or allocating. Once per second, a
+ * {@link RateMeterTicker} moves the accumulated bytes into a fixed-size ring of buckets and recomputes the rate, which
+ * is then available through {@link #getRate()} and emitted by {@link #getRateObservable()} if it changed.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * RateMeter rateMeter = RateMeterTicker.getShared().createMeter(20);
+ * rateMeter.addBytes(1000);
+ * double currentRate = rateMeter.getRate();
+ * Observable<Double> rateObservable = rateMeter.getRateObservable();
+ * }</pre>
+ */
+public class RateMeter {
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+    /**
+     * The bytes transferred during each of the last seconds, indexed circularly. Only accessed by the ticker.
+     */
+    private final long[] buckets;
+    private final BehaviorSubject<Double> rateSubject = BehaviorSubject.createDefault(0.0);
+    private int nextBucket;
+    private int filledBuckets;
+    private long bytesInWindow;
+    private volatile long totalBytes;
+    private volatile double rate;
+
+    /**
+     * Creates a meter that is not ticked automatically. Use {@link RateMeterTicker#createMeter(int)} to create a meter
+     * that is ticked by a ticker.
+     *
+     * @param windowSeconds the duration of the window in seconds
+     */
+    public RateMeter(int windowSeconds) {
+        this.buckets = new long[requirePositive(windowSeconds)];
+    }
+
+    public void addBytes(long bytes) {
+        pendingBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Gets the rate in bytes per second as of the last tick.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Gets the total number of bytes transferred as of the last tick.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Gets an observable that emits the current rate upon subscription, and the new rate whenever it changes.
+     */
+    public Observable<Double> getRateObservable() {
+        return rateSubject;
+    }
+
+    /**
+     * Closes the current bucket and recomputes the rate. Must be called once per second, and never concurrently.
+     */
+    synchronized void tick() {
+        long bytes = pendingBytes.getAndSet(0);
+        bytesInWindow += bytes - buckets[nextBucket];
+        buckets[nextBucket] = bytes;
+        nextBucket = (nextBucket + 1) % buckets.length;
+        filledBuckets = Math.min(filledBuckets + 1, buckets.length);
+        totalBytes += bytes;
+
+        double newRate = (double) bytesInWindow / filledBuckets;
+        if (newRate != rate) {
+            rate = newRate;
+            rateSubject.onNext(newRate);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package jtorrent.domain.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks any number of {@link RateMeter}s once per second from a single thread, so that the cost of measuring rates
+ * does not grow with a timer per meter.
+ * <p>
+ * Meters are held weakly and stop being ticked once they are no longer referenced elsewhere, so they do not need to be
+ * unregistered when the connection that they measure is closed.
+ */
+public class RateMeterTicker {
+
+    private static final RateMeterTicker SHARED = new RateMeterTicker();
+
+    private final Set<RateMeter> meters = Collections.newSetFromMap(new WeakHashMap<>());
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RateMeterTicker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final TickTask tickTask = new TickTask(scheduledExecutorService);
+
+    private RateMeterTicker() {
+        tickTask.scheduleAtFixedRate(1, 1, TimeUnit.SECONDS);
+    }
+
+    public static RateMeterTicker getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Creates a meter that is ticked by this ticker.
+     *
+     * @param windowSeconds the duration of the window in seconds
+     */
+    public RateMeter createMeter(int windowSeconds) {
+        RateMeter meter = new RateMeter(windowSeconds);
+        synchronized (meters) {
+            meters.add(meter);
+        }
+        return meter;
+    }
+
+    private class TickTask extends PeriodicTask {
+
+        public TickTask(ScheduledExecutorService scheduledExecutorService) {
+            super(scheduledExecutorService);
+        }
+
+        @Override
+        public void run() {
+            List<RateMeter> snapshot;
+            synchronized (meters) {
+                snapshot = new ArrayList<>(meters);
+            }
+            snapshot.forEach(RateMeter::tick);
+        }
+    }
+}
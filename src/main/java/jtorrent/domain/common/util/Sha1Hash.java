@@ -2,7 +2,6 @@ package jtorrent.domain.common.util;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.List;
 
 public class Sha1Hash extends Bit160Value {
@@ -20,8 +19,17 @@ public class Sha1Hash extends Bit160Value {
      * @return the SHA-1 hash of the given bytes
      */
     public static Sha1Hash of(byte[] bytes) {
-        byte[] hash = getSha1MessageDigest().digest(bytes);
-        return new Sha1Hash(hash);
+        return new Sha1Hash(digest(bytes));
+    }
+
+    /**
+     * Computes the SHA-1 hash of the given bytes without wrapping it in a {@link Sha1Hash}.
+     *
+     * @param bytes the bytes to hash
+     * @return the SHA-1 hash of the given bytes
+     */
+    public static byte[] digest(byte[] bytes) {
+        return getSha1MessageDigest().digest(bytes);
     }
 
     /**
@@ -50,20 +58,6 @@ public class Sha1Hash extends Bit160Value {
         return new Sha1Hash(hash);
     }
 
-    public static List<Sha1Hash> splitHashes(byte[] hashesConcat) {
-        if (hashesConcat.length % HASH_SIZE != 0) {
-            throw new IllegalArgumentException("Invalid concatenated hashes length");
-        }
-
-        List<Sha1Hash> pieceHashes = new ArrayList<>();
-        for (int i = 0; i < hashesConcat.length; i += Sha1Hash.HASH_SIZE) {
-            byte[] pieceHash = new byte[Sha1Hash.HASH_SIZE];
-            System.arraycopy(hashesConcat, i, pieceHash, 0, Sha1Hash.HASH_SIZE);
-            pieceHashes.add(new Sha1Hash(pieceHash));
-        }
-        return pieceHashes;
-    }
-
     public static byte[] concatHashes(List<Sha1Hash> hashes) {
         byte[] hashesConcat = new byte[hashes.size() * HASH_SIZE];
         for (int i = 0; i < hashes.size(); i++) {
@@ -0,0 +1,130 @@
+package jtorrent.domain.common.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Sha256Hash extends ByteArray {
+
+    public static final int HASH_SIZE = 32;
+
+    /**
+     * The hash consisting of all zeroes, which is used to pad merkle trees.
+     */
+    public static final Sha256Hash ZERO = new Sha256Hash(new byte[HASH_SIZE]);
+
+    public Sha256Hash(byte[] hash) {
+        super(validateBytes(hash));
+    }
+
+    private static byte[] validateBytes(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("Bytes cannot be null");
+        }
+
+        if (bytes.length != HASH_SIZE) {
+            throw new IllegalArgumentException("Byte array must be 32 bytes long");
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given bytes.
+     *
+     * @param bytes the bytes to hash
+     * @return the SHA-256 hash of the given bytes
+     */
+    public static Sha256Hash of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Computes the SHA-256 hash of a range of the given bytes.
+     *
+     * @param bytes  the bytes to hash
+     * @param offset the offset of the range to hash
+     * @param length the length of the range to hash
+     * @return the SHA-256 hash of the given range
+     */
+    public static Sha256Hash of(byte[] bytes, int offset, int length) {
+        MessageDigest md = getSha256MessageDigest();
+        md.update(bytes, offset, length);
+        return new Sha256Hash(md.digest());
+    }
+
+    /**
+     * Computes the hash of a node in a merkle tree from the hashes of its two children.
+     *
+     * @param left  the hash of the left child
+     * @param right the hash of the right child
+     * @return the SHA-256 hash of the concatenation of both hashes
+     */
+    public static Sha256Hash of(Sha256Hash left, Sha256Hash right) {
+        MessageDigest md = getSha256MessageDigest();
+        md.update(left.bytes);
+        md.update(right.bytes);
+        return new Sha256Hash(md.digest());
+    }
+
+    /**
+     * Creates and returns a new SHA-256 {@link MessageDigest}.
+     * {@link MessageDigest}s are not reused because they are not thread-safe.
+     *
+     * @return a new SHA-256 {@link MessageDigest}
+     */
+    private static MessageDigest getSha256MessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public static List<Sha256Hash> splitHashes(byte[] hashesConcat) {
+        if (hashesConcat.length % HASH_SIZE != 0) {
+            throw new IllegalArgumentException("Invalid concatenated hashes length");
+        }
+
+        List<Sha256Hash> hashes = new ArrayList<>();
+        for (int i = 0; i < hashesConcat.length; i += HASH_SIZE) {
+            byte[] hash = new byte[HASH_SIZE];
+            System.arraycopy(hashesConcat, i, hash, 0, HASH_SIZE);
+            hashes.add(new Sha256Hash(hash));
+        }
+        return hashes;
+    }
+
+    public static byte[] concatHashes(List<Sha256Hash> hashes) {
+        byte[] hashesConcat = new byte[hashes.size() * HASH_SIZE];
+        for (int i = 0; i < hashes.size(); i++) {
+            System.arraycopy(hashes.get(i).bytes, 0, hashesConcat, i * HASH_SIZE, HASH_SIZE);
+        }
+        return hashesConcat;
+    }
+
+    /**
+     * Truncates this hash to its first 20 bytes.
+     * v2 torrents are identified by the truncated SHA-256 hash of their info dictionary wherever a 20 byte info hash
+     * is expected, such as in the handshake and in tracker and DHT messages.
+     *
+     * @return the first 20 bytes of this hash as a {@link Sha1Hash}
+     */
+    public Sha1Hash truncate() {
+        byte[] truncated = new byte[Sha1Hash.HASH_SIZE];
+        System.arraycopy(bytes, 0, truncated, 0, Sha1Hash.HASH_SIZE);
+        return new Sha1Hash(truncated);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder hexString = new StringBuilder();
+
+        for (byte b : bytes) {
+            hexString.append(String.format("%02X", b));
+        }
+
+        return hexString.toString();
+    }
+}
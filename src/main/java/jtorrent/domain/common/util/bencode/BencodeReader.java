@@ -0,0 +1,397 @@
+package jtorrent.domain.common.util.bencode;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads bencoded values from a stream one token at a time.
+ * <p>
+ * Unlike {@link com.dampcake.bencode.BencodeInputStream}, values do not have to be materialised as Java objects.
+ * Values that are not needed can be skipped, and the content of a large string can be handed to the caller as a
+ * stream with {@link #readString(ContentReader)} so that it is copied straight into its final storage.
+ * <p>
+ * The raw bytes of a value can be digested while they are read with {@link #startDigest(MessageDigest...)}, which
+ * allows the info hash of a torrent to be computed over the info dictionary exactly as it appears in the file, rather
+ * than by encoding it again.
+ * <p>
+ * The given stream is buffered by the reader, so bytes after the end of the last value read may be consumed from it.
+ */
+public class BencodeReader {
+
+    private static final int NONE = -2;
+
+    private final InputStream in;
+    private final StringContent stringContent = new StringContent();
+    private MessageDigest[] digests = new MessageDigest[0];
+    private int peeked = NONE;
+
+    public BencodeReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+
+    /**
+     * Gets the type of the next value without consuming it.
+     *
+     * @return the type of the next value, or {@link Type#END} if the enclosing list or dictionary has no more values
+     * @throws IOException if the stream ends or the next byte does not start a value
+     */
+    public Type peek() throws IOException {
+        int b = peekByte();
+        switch (b) {
+        case 'i':
+            return Type.INTEGER;
+        case 'l':
+            return Type.LIST;
+        case 'd':
+            return Type.DICTIONARY;
+        case 'e':
+            return Type.END;
+        default:
+            if (b >= '0' && b <= '9') {
+                return Type.STRING;
+            }
+            throw new IOException("Unexpected byte: " + b);
+        }
+    }
+
+    /**
+     * Checks whether the enclosing list or dictionary has more values.
+     */
+    public boolean hasNext() throws IOException {
+        return peek() != Type.END;
+    }
+
+    public void beginList() throws IOException {
+        expect('l');
+    }
+
+    public void endList() throws IOException {
+        expect('e');
+    }
+
+    public void beginDictionary() throws IOException {
+        expect('d');
+    }
+
+    public void endDictionary() throws IOException {
+        expect('e');
+    }
+
+    /**
+     * Reads the next key of a dictionary, which is a string decoded as UTF-8.
+     */
+    public String readKey() throws IOException {
+        return readString();
+    }
+
+    public long readLong() throws IOException {
+        expect('i');
+        boolean isNegative = peekByte() == '-';
+        if (isNegative) {
+            readByte();
+        }
+
+        long value = 0;
+        int numDigits = 0;
+        for (int b = readByte(); b != 'e'; b = readByte()) {
+            if (b < '0' || b > '9') {
+                throw new IOException("Invalid digit in integer: " + b);
+            }
+            try {
+                value = Math.addExact(Math.multiplyExact(value, 10), b - '0');
+            } catch (ArithmeticException e) {
+                throw new IOException("Integer is out of range", e);
+            }
+            numDigits++;
+        }
+
+        if (numDigits == 0) {
+            throw new IOException("Integer has no digits");
+        }
+        return isNegative ? -value : value;
+    }
+
+    public int readInt() throws IOException {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("Integer is out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    public byte[] readBytes() throws IOException {
+        return readString(BencodeReader::readContent);
+    }
+
+    /**
+     * Reads the next string and decodes it as UTF-8.
+     */
+    public String readString() throws IOException {
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next string by handing its content to the given reader as a stream.
+     * The reader may consume as much of the content as it needs. Whatever it leaves unread is skipped.
+     *
+     * @param contentReader reads the content of the string
+     * @return the value returned by the reader
+     */
+    public <T> T readString(ContentReader<T> contentReader) throws IOException {
+        int length = readStringLength();
+        stringContent.remaining = length;
+        T value = contentReader.read(stringContent, length);
+        stringContent.drain();
+        return value;
+    }
+
+    /**
+     * Skips the next value, including every value nested within it.
+     */
+    public void skipValue() throws IOException {
+        switch (peek()) {
+        case INTEGER:
+            readLong();
+            break;
+        case STRING:
+            readString((content, length) -> null);
+            break;
+        case LIST:
+        case DICTIONARY:
+            readByte();
+            while (hasNext()) {
+                skipValue();
+            }
+            readByte();
+            break;
+        case END:
+            throw new IOException("Unexpected end of list or dictionary");
+        default:
+            throw new AssertionError("Unknown type: " + peek());
+        }
+    }
+
+    /**
+     * Reads the next value as a Java object.
+     * Integers are read as {@link Long}, strings as {@link ByteBuffer}, lists as {@link List} and dictionaries as
+     * {@link Map} with {@link String} keys, which is the same representation as a
+     * {@link com.dampcake.bencode.BencodeInputStream} that uses bytes.
+     */
+    public Object readValue() throws IOException {
+        switch (peek()) {
+        case INTEGER:
+            return readLong();
+        case STRING:
+            return ByteBuffer.wrap(readBytes());
+        case LIST:
+            return readList();
+        case DICTIONARY:
+            return readDictionary();
+        case END:
+            throw new IOException("Unexpected end of list or dictionary");
+        default:
+            throw new AssertionError("Unknown type: " + peek());
+        }
+    }
+
+    /**
+     * Reads the next list as a Java object.
+     *
+     * @see #readValue()
+     */
+    public List<Object> readList() throws IOException {
+        List<Object> list = new ArrayList<>();
+        beginList();
+        while (hasNext()) {
+            list.add(readValue());
+        }
+        endList();
+        return list;
+    }
+
+    /**
+     * Reads the next dictionary as a Java object.
+     *
+     * @see #readValue()
+     */
+    public Map<String, Object> readDictionary() throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        beginDictionary();
+        while (hasNext()) {
+            map.put(readKey(), readValue());
+        }
+        endDictionary();
+        return map;
+    }
+
+    /**
+     * Starts updating the given digests with every byte that is read, until {@link #stopDigest()} is called.
+     * Calling this right before reading a value digests the value exactly as it is encoded in the stream.
+     */
+    public void startDigest(MessageDigest... digests) {
+        this.digests = digests.clone();
+    }
+
+    public void stopDigest() {
+        digests = new MessageDigest[0];
+    }
+
+    private static byte[] readContent(InputStream content, int length) throws IOException {
+        byte[] bytes = content.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+
+    private int readStringLength() throws IOException {
+        if (peek() != Type.STRING) {
+            throw new IOException("Expected a string but got " + peek());
+        }
+
+        long length = 0;
+        for (int b = readByte(); b != ':'; b = readByte()) {
+            if (b < '0' || b > '9') {
+                throw new IOException("Invalid digit in string length: " + b);
+            }
+            length = length * 10 + b - '0';
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("String is too long");
+            }
+        }
+        return (int) length;
+    }
+
+    private void expect(int expected) throws IOException {
+        int b = readByte();
+        if (b != expected) {
+            throw new IOException("Expected " + (char) expected + " but got " + b);
+        }
+    }
+
+    private int peekByte() throws IOException {
+        if (peeked == NONE) {
+            peeked = in.read();
+        }
+        if (peeked == -1) {
+            throw new EOFException();
+        }
+        return peeked;
+    }
+
+    private int readByte() throws IOException {
+        int b = peekByte();
+        peeked = NONE;
+        for (MessageDigest digest : digests) {
+            digest.update((byte) b);
+        }
+        return b;
+    }
+
+    public enum Type {
+        INTEGER,
+        STRING,
+        LIST,
+        DICTIONARY,
+        /**
+         * The end of the enclosing list or dictionary.
+         */
+        END
+    }
+
+    /**
+     * Reads the content of a string from a stream.
+     *
+     * @param <T> the type of value read from the content
+     */
+    @FunctionalInterface
+    public interface ContentReader<T> {
+
+        /**
+         * Reads the content of a string.
+         *
+         * @param content the content of the string, which ends after {@code length} bytes
+         * @param length  the length of the content
+         * @return the value read from the content
+         */
+        T read(InputStream content, int length) throws IOException;
+    }
+
+    /**
+     * The content of the string that is currently being read.
+     * Bytes are read straight from the underlying stream, and are digested as they are read.
+     */
+    private class StringContent extends InputStream {
+
+        private int remaining;
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            remaining--;
+            for (MessageDigest digest : digests) {
+                digest.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+            int numRead = in.read(b, off, Math.min(len, remaining));
+            if (numRead == -1) {
+                throw new EOFException();
+            }
+            remaining -= numRead;
+            for (MessageDigest digest : digests) {
+                digest.update(b, off, numRead);
+            }
+            return numRead;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return Math.min(in.available(), remaining);
+        }
+
+        private void drain() throws IOException {
+            if (digests.length == 0) {
+                while (remaining > 0) {
+                    long numSkipped = in.skip(remaining);
+                    if (numSkipped <= 0) {
+                        // skip may return 0 before the end of the stream, so read a byte to tell them apart
+                        read();
+                    } else {
+                        remaining -= (int) numSkipped;
+                    }
+                }
+                return;
+            }
+
+            byte[] buffer = new byte[Math.min(remaining, 8192)];
+            while (remaining > 0) {
+                read(buffer, 0, buffer.length);
+            }
+        }
+    }
+}
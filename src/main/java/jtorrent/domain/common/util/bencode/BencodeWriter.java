@@ -0,0 +1,128 @@
+package jtorrent.domain.common.util.bencode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jtorrent.domain.common.util.ByteArray;
+
+/**
+ * Writes bencoded values to a stream as they are produced, without building the encoded value in memory first.
+ * <p>
+ * The writer does not check that lists and dictionaries are closed, or that the keys of a dictionary are written in
+ * sorted order. {@link #writeValue(Object)} takes care of both when writing a whole value at once.
+ */
+public class BencodeWriter {
+
+    private final OutputStream out;
+
+    public BencodeWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.write('i');
+        writeAscii(Long.toString(value));
+        out.write('e');
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        writeAscii(Integer.toString(length));
+        out.write(':');
+        out.write(bytes, offset, length);
+    }
+
+    /**
+     * Writes the given string encoded as UTF-8.
+     */
+    public void writeString(String value) throws IOException {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void beginList() throws IOException {
+        out.write('l');
+    }
+
+    public void endList() throws IOException {
+        out.write('e');
+    }
+
+    public void beginDictionary() throws IOException {
+        out.write('d');
+    }
+
+    public void endDictionary() throws IOException {
+        out.write('e');
+    }
+
+    /**
+     * Writes the given Java object.
+     * <p>
+     * Numbers are written as integers, and strings, characters, byte arrays, {@link ByteBuffer}s and
+     * {@link ByteArray}s are written as strings. Iterables are written as lists and maps as dictionaries. The keys of a
+     * map may be strings or anything that is written as a string, and are sorted by their raw bytes as required by
+     * BEP 3.
+     *
+     * @param value the object to write
+     * @throws IllegalArgumentException if the object or any object nested within it cannot be bencoded
+     */
+    public void writeValue(Object value) throws IOException {
+        if (value instanceof Number number) {
+            writeLong(number.longValue());
+        } else if (value instanceof Map<?, ?> map) {
+            writeDictionary(map);
+        } else if (value instanceof Iterable<?> iterable) {
+            beginList();
+            for (Object element : iterable) {
+                writeValue(element);
+            }
+            endList();
+        } else {
+            writeBytes(toBytes(value));
+        }
+    }
+
+    private void writeDictionary(Map<?, ?> map) throws IOException {
+        Map<byte[], Object> sortedMap = new TreeMap<>(Arrays::compareUnsigned);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (sortedMap.put(toBytes(entry.getKey()), entry.getValue()) != null) {
+                throw new IllegalArgumentException("Duplicate key: " + entry.getKey());
+            }
+        }
+
+        beginDictionary();
+        for (Map.Entry<byte[], Object> entry : sortedMap.entrySet()) {
+            writeBytes(entry.getKey());
+            writeValue(entry.getValue());
+        }
+        endDictionary();
+    }
+
+    private static byte[] toBytes(Object value) {
+        if (value instanceof String || value instanceof Character) {
+            return value.toString().getBytes(StandardCharsets.UTF_8);
+        } else if (value instanceof byte[] bytes) {
+            return bytes;
+        } else if (value instanceof ByteBuffer buffer) {
+            ByteBuffer duplicate = buffer.duplicate().rewind();
+            byte[] bytes = new byte[duplicate.remaining()];
+            duplicate.get(bytes);
+            return bytes;
+        } else if (value instanceof ByteArray byteArray) {
+            return byteArray.getBytes();
+        }
+        throw new IllegalArgumentException("Cannot bencode " + (value == null ? null : value.getClass().getName()));
+    }
+
+    private void writeAscii(String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
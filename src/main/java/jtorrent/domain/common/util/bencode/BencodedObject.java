@@ -2,24 +2,31 @@ package jtorrent.domain.common.util.bencode;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.util.Map;
 
-import com.dampcake.bencode.BencodeOutputStream;
-
 public abstract class BencodedObject {
 
     public byte[] bencode() {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        BencodeOutputStream bos = new BencodeOutputStream(baos, StandardCharsets.UTF_8);
         try {
-            bos.writeDictionary(toMap());
+            writeTo(baos);
         } catch (IOException e) {
-            // This should never happen since IOException is only thrown if the underlying stream is closed.
+            // This should never happen since a ByteArrayOutputStream never throws IOException.
             throw new AssertionError(e);
         }
         return baos.toByteArray();
     }
 
+    /**
+     * Writes the bencoded form of this object to the given stream.
+     *
+     * @param outputStream the stream to write to
+     * @throws IOException if an error occurs while writing to the stream
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        new BencodeWriter(outputStream).writeValue(toMap());
+    }
+
     public abstract Map<String, Object> toMap();
 }
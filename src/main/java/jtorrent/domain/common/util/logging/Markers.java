@@ -11,6 +11,8 @@ public class Markers {
     public static final Marker INBOUND = MarkerFactory.getMarker("INBOUND");
     public static final Marker LSD = MarkerFactory.getMarker("LSD");
     public static final Marker DHT = MarkerFactory.getMarker("DHT");
+    public static final Marker STREAM = MarkerFactory.getMarker("STREAM");
+    public static final Marker CHOKE = MarkerFactory.getMarker("CHOKE");
 
     private Markers() {
     }
@@ -0,0 +1,92 @@
+package jtorrent.domain.common.util.rx;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireAtLeast;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A batch of changes to a bit set, given as ranges of consecutive bits that now all have the same value.
+ * <p>
+ * Each range carries the value of its bits rather than the fact that they were flipped, so applying a change to a bit
+ * set that already reflects part of it is harmless.
+ *
+ * @param ranges      the ranges of changed bits, in ascending order and not overlapping
+ * @param cardinality the number of set bits in the bit set after the change
+ */
+public record BitSetChange(List<Range> ranges, int cardinality) {
+
+    public BitSetChange {
+        ranges = List.copyOf(ranges);
+        requireNonNegative(cardinality);
+    }
+
+    /**
+     * Creates a change that covers the given bits, taking the value of each bit from {@code values}.
+     *
+     * @param indices the indices of the changed bits
+     * @param values  the values of the bits after the change
+     */
+    public static BitSetChange of(BitSet indices, BitSet values) {
+        requireNonNull(indices);
+        requireNonNull(values);
+
+        List<Range> ranges = new ArrayList<>();
+        int start = indices.nextSetBit(0);
+        while (start >= 0) {
+            int end = indices.nextClearBit(start);
+            addRanges(ranges, start, end, values);
+            start = indices.nextSetBit(end);
+        }
+        return new BitSetChange(ranges, values.cardinality());
+    }
+
+    /**
+     * Creates a change that covers the bits between {@code fromIndex} (inclusive) and {@code toIndex} (exclusive),
+     * taking the value of each bit from {@code values}.
+     */
+    public static BitSetChange of(int fromIndex, int toIndex, BitSet values) {
+        requireNonNull(values);
+
+        List<Range> ranges = new ArrayList<>();
+        addRanges(ranges, fromIndex, toIndex, values);
+        return new BitSetChange(ranges, values.cardinality());
+    }
+
+    /**
+     * Adds the ranges of bits with the same value in {@code values}, between {@code start} (inclusive) and
+     * {@code end} (exclusive).
+     */
+    private static void addRanges(List<Range> ranges, int start, int end, BitSet values) {
+        int rangeStart = start;
+        while (rangeStart < end) {
+            boolean isSet = values.get(rangeStart);
+            int next = isSet ? values.nextClearBit(rangeStart) : values.nextSetBit(rangeStart);
+            int rangeEnd = next < 0 ? end : Math.min(next, end);
+            ranges.add(new Range(rangeStart, rangeEnd, isSet));
+            rangeStart = rangeEnd;
+        }
+    }
+
+    public void applyTo(BitSet bitSet) {
+        for (Range range : ranges) {
+            bitSet.set(range.start(), range.end(), range.isSet());
+        }
+    }
+
+    /**
+     * @param start the index of the first bit in the range
+     * @param end   the index after the last bit in the range
+     * @param isSet whether the bits in the range are set
+     */
+    public record Range(int start, int end, boolean isSet) {
+
+        public Range {
+            requireNonNegative(start);
+            requireAtLeast(end, start + 1);
+        }
+    }
+}
@@ -1,13 +0,0 @@
-package jtorrent.domain.common.util.rx;
-
-import java.util.Arrays;
-
-public class CombinedDoubleSumObservable extends CombinedObservable<Double, Double> {
-
-    @Override
-    protected Double combine(Object[] objects) {
-        return Arrays.stream(objects)
-                .mapToDouble(Double.class::cast)
-                .sum();
-    }
-}
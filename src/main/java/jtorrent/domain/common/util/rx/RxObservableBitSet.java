@@ -0,0 +1,170 @@
+package jtorrent.domain.common.util.rx;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.BitSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.rxjava3.annotations.NonNull;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Observer;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+
+/**
+ * An {@link Observable} that wraps a {@link BitSet} of a fixed size and emits {@link BitSetChange}s when it is
+ * modified.
+ * <p>
+ * Modifications only mark the affected bits as changed. The changed bits are emitted together as ranges at most once
+ * per {@value #FLUSH_DELAY_MILLIS} milliseconds, so the cost of observing the bit set does not grow with its size or
+ * with the rate at which it is modified. A bit that is changed and then changed back before the next emission is not
+ * emitted at all.
+ * <p>
+ * Upon subscription, the entire bit set is emitted as a single change, so that an observer can start from an empty bit
+ * set and apply every change that it receives.
+ */
+public class RxObservableBitSet extends Observable<BitSetChange> {
+
+    private static final long FLUSH_DELAY_MILLIS = 250;
+    private static final ScheduledExecutorService FLUSH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RxObservableBitSetFlusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BitSet bitSet;
+    private final int size;
+    /**
+     * The bits whose value differs from the value that was last emitted.
+     */
+    private final BitSet changedBits = new BitSet();
+    private final PublishSubject<BitSetChange> publishSubject = PublishSubject.create();
+    /**
+     * Serializes emissions and subscriptions, so that a new observer receives every change after its snapshot.
+     * It is held instead of the lock of the bit set while emitting, so that observers do not block modifications.
+     */
+    private final Object emissionLock = new Object();
+    private boolean isFlushScheduled;
+
+    /**
+     * @param bitSet the initial value of the bit set, which is owned by this instance and must not be modified
+     *               afterwards
+     * @param size   the number of bits in the bit set
+     */
+    public RxObservableBitSet(BitSet bitSet, int size) {
+        this.bitSet = requireNonNull(bitSet);
+        this.size = (int) requireNonNegative(size);
+    }
+
+    /**
+     * @return {@code true} if the bit was not set before
+     */
+    public synchronized boolean set(int index) {
+        if (bitSet.get(index)) {
+            return false;
+        }
+        bitSet.set(index);
+        markChanged(index);
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the bit was set before
+     */
+    public synchronized boolean clear(int index) {
+        if (!bitSet.get(index)) {
+            return false;
+        }
+        bitSet.clear(index);
+        markChanged(index);
+        return true;
+    }
+
+    public synchronized boolean get(int index) {
+        return bitSet.get(index);
+    }
+
+    public synchronized int cardinality() {
+        return bitSet.cardinality();
+    }
+
+    /**
+     * Checks whether every bit that is set in {@code indices} is also set in this bit set, without copying either.
+     */
+    public synchronized boolean containsAll(BitSet indices) {
+        int index = indices.nextSetBit(0);
+        while (index >= 0) {
+            if (!bitSet.get(index)) {
+                return false;
+            }
+            // every bit up to the next clear bit of this bit set is set, so the search can resume from there
+            index = indices.nextSetBit(bitSet.nextClearBit(index));
+        }
+        return true;
+    }
+
+    /**
+     * Gets a copy of the current value of the bit set, including changes that have not been emitted yet.
+     */
+    public synchronized BitSet getBitSet() {
+        return (BitSet) bitSet.clone();
+    }
+
+    private void markChanged(int index) {
+        // every modification toggles the bit, so a bit that is toggled twice is back at its emitted value
+        changedBits.flip(index);
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            FLUSH_EXECUTOR.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Emits the bits that have changed since the last emission, if any.
+     */
+    void flush() {
+        synchronized (emissionLock) {
+            BitSetChange change;
+            synchronized (this) {
+                change = takeChange();
+            }
+            if (change != null) {
+                publishSubject.onNext(change);
+            }
+        }
+    }
+
+    /**
+     * Takes the bits that have changed since the last emission.
+     *
+     * @return the change to emit, or {@code null} if no bits have changed
+     */
+    private BitSetChange takeChange() {
+        isFlushScheduled = false;
+        if (changedBits.isEmpty()) {
+            return null;
+        }
+        BitSetChange change = BitSetChange.of(changedBits, bitSet);
+        changedBits.clear();
+        return change;
+    }
+
+    @Override
+    protected void subscribeActual(@NonNull Observer<? super BitSetChange> observer) {
+        synchronized (emissionLock) {
+            BitSetChange change;
+            BitSetChange snapshot;
+            synchronized (this) {
+                change = takeChange();
+                snapshot = BitSetChange.of(0, size, bitSet);
+            }
+            // the pending changes are emitted first, so that they are relative to what every observer has received
+            if (change != null) {
+                publishSubject.onNext(change);
+            }
+            publishSubject.startWithItem(snapshot).subscribe(observer);
+        }
+    }
+}
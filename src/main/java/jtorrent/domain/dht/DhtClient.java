@@ -1,8 +1,8 @@
 package jtorrent.domain.dht;
 
-import java.net.DatagramSocket;
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,11 +10,17 @@ import org.slf4j.LoggerFactory;
 import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.dht.communication.DhtSocket;
+import jtorrent.domain.dht.communication.DhtSocketStatistics;
+import jtorrent.domain.dht.handler.AnnounceScheduler;
 import jtorrent.domain.dht.handler.DhtManager;
 import jtorrent.domain.dht.handler.DhtQueryHandler;
 import jtorrent.domain.dht.handler.PeerContactInfoStore;
 import jtorrent.domain.dht.handler.node.Node;
 import jtorrent.domain.dht.handler.routingtable.RoutingTable;
+import jtorrent.domain.dht.model.DhtState;
+import jtorrent.domain.dht.model.node.NodeId;
+import jtorrent.domain.dht.model.node.SavedNode;
+import jtorrent.domain.dht.repository.DhtStateRepository;
 
 public class DhtClient {
 
@@ -22,13 +28,23 @@ public class DhtClient {
 
     private final DhtSocket dhtSocket;
     private final DhtManager dhtManager;
+    private final List<SavedNode> savedNodes;
+
+    public DhtClient(int port, DhtStateRepository dhtStateRepository) throws IOException {
+        // the local node ID must be restored before the routing table is created, as its buckets depend on the ID
+        DhtState savedState = dhtStateRepository.load().orElse(null);
+        if (savedState != null) {
+            NodeId.setLocal(savedState.localNodeId());
+            this.savedNodes = savedState.nodes();
+        } else {
+            this.savedNodes = List.of();
+        }
 
-    public DhtClient(int port) throws SocketException {
         RoutingTable routingTable = new RoutingTable();
         PeerContactInfoStore peerContactInfoStore = new PeerContactInfoStore();
         DhtSocket.QueryHandler queryHandler = new DhtQueryHandler(routingTable, peerContactInfoStore);
-        this.dhtSocket = new DhtSocket(new DatagramSocket(port), queryHandler);
-        this.dhtManager = new DhtManager(routingTable);
+        this.dhtSocket = DhtSocket.open(port, queryHandler);
+        this.dhtManager = new DhtManager(routingTable, dhtStateRepository);
         Node.setDhtSocket(this.dhtSocket);
     }
 
@@ -36,6 +52,7 @@ public class DhtClient {
         LOGGER.info(Markers.DHT, "Starting DHT");
         dhtSocket.start();
         dhtManager.start();
+        dhtManager.restoreNodes(savedNodes);
     }
 
     public void stop() {
@@ -48,14 +65,18 @@ public class DhtClient {
         dhtManager.addPeerDiscoveryListener(peerDiscoveryListener);
     }
 
-    public void registerInfoHash(Sha1Hash infoHash) {
-        dhtManager.registerInfoHash(infoHash);
+    public void registerInfoHash(Sha1Hash infoHash, AnnounceScheduler.TorrentStatusProvider statusProvider) {
+        dhtManager.registerInfoHash(infoHash, statusProvider);
     }
 
     public void deregisterInfoHash(Sha1Hash infoHash) {
         dhtManager.deregisterInfoHash(infoHash);
     }
 
+    public DhtSocketStatistics getSocketStatistics() {
+        return dhtSocket.getStatistics();
+    }
+
     public void addBootstrapNodeAddress(InetSocketAddress address) {
         dhtManager.addBootstrapNodeAddress(address);
     }
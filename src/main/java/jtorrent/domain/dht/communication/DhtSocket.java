@@ -3,14 +3,21 @@ package jtorrent.domain.dht.communication;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -20,8 +27,8 @@ import jtorrent.domain.common.util.BackgroundTask;
 import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.dht.model.message.DhtMessage;
 import jtorrent.domain.dht.model.message.TransactionId;
+import jtorrent.domain.dht.model.message.codec.KrpcCodec;
 import jtorrent.domain.dht.model.message.decoder.DhtDecodingException;
-import jtorrent.domain.dht.model.message.decoder.DhtMessageDecoder;
 import jtorrent.domain.dht.model.message.error.Error;
 import jtorrent.domain.dht.model.message.query.AnnouncePeer;
 import jtorrent.domain.dht.model.message.query.FindNode;
@@ -36,28 +43,91 @@ import jtorrent.domain.dht.model.message.response.PingResponse;
 import jtorrent.domain.dht.model.message.response.Response;
 import jtorrent.domain.dht.model.node.NodeContactInfo;
 
+/**
+ * Sends and receives DHT messages over a {@link DatagramChannel}.
+ * <p>
+ * A single thread receives packets into a fixed pool of reusable buffers, and hands them to a small pool of workers,
+ * which decode and handle them. The receiving thread therefore only waits for the kernel, so that bursts of packets
+ * are taken out of the kernel receive buffer quickly. When every buffer is still waiting to be handled, packets are
+ * received into a scratch buffer and dropped, and counted in the {@link DhtSocketStatistics}.
+ * <p>
+ * Packets are decoded by a {@link KrpcCodec} straight from the receive buffers, and messages are encoded into a send
+ * buffer that each sending thread reuses, so that no intermediate copies of the packets are made.
+ */
 public class DhtSocket {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DhtSocket.class);
     private static final int TIMEOUT_SECS = 3;
-
-    private final DatagramSocket socket;
-    private final HandleIncomingMessagesTask handleIncomingMessagesTask;
+    private static final String FORMAT_UNKNOWN_METHOD = "Unknown method: %s";
+    /**
+     * The size of each receive buffer. KRPC messages fit in a single packet well below this size, and larger packets
+     * are truncated and fail to decode.
+     */
+    private static final int MAX_PACKET_SIZE = 2048;
+    private static final int NUM_RECEIVE_BUFFERS = 256;
+    /**
+     * The requested size of the kernel receive buffer, which is large enough to hold a burst of packets while the
+     * receiving thread is not scheduled.
+     */
+    private static final int KERNEL_RECEIVE_BUFFER_SIZE = 1024 * 1024;
+    private static final int NUM_WORKERS = Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final DatagramChannel channel;
+    private final QueryHandler queryHandler;
+    private final ReceiveTask receiveTask = new ReceiveTask();
+    private final ExecutorService workers = Executors.newFixedThreadPool(NUM_WORKERS, runnable -> {
+        Thread thread = new Thread(runnable, "DhtSocketWorker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(NUM_RECEIVE_BUFFERS);
+    private final DhtSocketStatistics statistics = new DhtSocketStatistics();
     private final Map<TransactionId, Method> txIdToMethod = new ConcurrentHashMap<>();
     private final Map<TransactionId, CompletableFuture<? extends Response>> txIdToFuture =
             new ConcurrentHashMap<>();
-    private final DhtMessageDecoder dhtMessageDecoder = new DhtMessageDecoder(this::getTransactionId);
+    private final KrpcCodec codec = new KrpcCodec(this::getTransactionId);
+    private final ThreadLocal<ByteBuffer> sendBuffers = ThreadLocal.withInitial(() ->
+            ByteBuffer.allocate(MAX_PACKET_SIZE));
+
+    /**
+     * @param channel      a bound channel in blocking mode
+     * @param queryHandler handles the queries received, from the worker threads
+     * @throws IOException if the size of the kernel receive buffer cannot be set
+     */
+    public DhtSocket(DatagramChannel channel, QueryHandler queryHandler) throws IOException {
+        this.channel = requireNonNull(channel);
+        this.queryHandler = requireNonNull(queryHandler);
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, KERNEL_RECEIVE_BUFFER_SIZE);
+        statistics.setReceiveBufferSize(channel.getOption(StandardSocketOptions.SO_RCVBUF));
+        for (int i = 0; i < NUM_RECEIVE_BUFFERS; i++) {
+            freeBuffers.add(ByteBuffer.allocate(MAX_PACKET_SIZE));
+        }
+    }
 
-    public DhtSocket(DatagramSocket socket, QueryHandler queryHandler) {
-        this.socket = requireNonNull(socket);
-        this.handleIncomingMessagesTask = new HandleIncomingMessagesTask(queryHandler);
+    /**
+     * Opens a channel bound to the given port.
+     *
+     * @param port         the port to bind to
+     * @param queryHandler handles the queries received
+     * @return the socket
+     * @throws IOException if the channel cannot be opened or bound
+     */
+    public static DhtSocket open(int port, QueryHandler queryHandler) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(port));
+            return new DhtSocket(channel, queryHandler);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
     }
 
     /**
      * Starts receiving messages from the socket. Without calling this method, no messages will be received.
      */
     public void start() {
-        handleIncomingMessagesTask.start();
+        receiveTask.start();
     }
 
     /**
@@ -65,7 +135,12 @@ public class DhtSocket {
      * Once stopped, the socket cannot be started again.
      */
     public void stop() {
-        handleIncomingMessagesTask.stop();
+        receiveTask.stop();
+        workers.shutdown();
+    }
+
+    public DhtSocketStatistics getStatistics() {
+        return statistics;
     }
 
     public CompletableFuture<PingResponse> sendPing(Ping ping, InetSocketAddress address) {
@@ -120,9 +195,16 @@ public class DhtSocket {
      * @throws IOException if an I/O error occurs
      */
     private void sendMessage(DhtMessage message, InetSocketAddress address) throws IOException {
-        byte[] data = message.bencode();
-        DatagramPacket packet = new DatagramPacket(data, data.length, address);
-        socket.send(packet);
+        ByteBuffer buffer = sendBuffers.get();
+        buffer.clear();
+        try {
+            codec.encode(message, buffer);
+            buffer.flip();
+        } catch (BufferOverflowException e) {
+            LOGGER.debug(Markers.DHT, "Message to {} does not fit in send buffer", address);
+            buffer = ByteBuffer.wrap(message.bencode());
+        }
+        channel.send(buffer, address);
         LOGGER.debug(Markers.DHT, "Sent message to {}: {}", address, message);
     }
 
@@ -141,145 +223,153 @@ public class DhtSocket {
         void handle(AnnouncePeer announcePeer, NodeContactInfo nodeContactInfo);
     }
 
-    private class HandleIncomingMessagesTask extends BackgroundTask {
-
-        private static final String FORMAT_UNKNOWN_METHOD = "Unknown method: %s";
-
-        private final QueryHandler queryHandler;
-
-        private HandleIncomingMessagesTask(QueryHandler queryHandler) {
-            this.queryHandler = requireNonNull(queryHandler);
+    /**
+     * Decodes and handles a packet on a worker thread, returning its buffer to the pool once it has been decoded.
+     *
+     * @param buffer  the buffer containing the packet, ready to be read
+     * @param address the address of the sender
+     */
+    private void handlePacket(ByteBuffer buffer, InetSocketAddress address) {
+        DhtMessage message;
+        try {
+            message = codec.decode(buffer);
+        } catch (DhtDecodingException e) {
+            statistics.recordMalformed();
+            LOGGER.debug(Markers.DHT, "Failed to decode message from {}", address, e);
+            return;
+        } finally {
+            freeBuffers.add(buffer);
         }
 
-        @Override
-        protected void execute() {
-            try {
-                LOGGER.debug(Markers.DHT, "Waiting for message");
-                IncomingMessage incomingMessage = receiveMessage();
-                handleMessage(incomingMessage.getMessage(), incomingMessage.getAddress());
-            } catch (SocketException e) {
-                if (isStopping()) {
-                    LOGGER.debug(Markers.DHT, "Interrupted while waiting for message");
-                } else {
-                    LOGGER.error(Markers.DHT, "Failed to receive message", e);
-                    // TODO: Perhaps we should throw AssertionError since SocketException
-                    //  should only be thrown when the socket is closed due to task stopping
-                }
-            } catch (IOException e) {
-                LOGGER.error(Markers.DHT, "Failed to receive message", e);
-                HandleIncomingMessagesTask.this.stop();
-            } catch (DhtDecodingException e) {
-                LOGGER.error(Markers.DHT, "Failed to decode message", e);
-            }
+        try {
+            handleMessage(message, address);
+        } catch (RuntimeException e) {
+            LOGGER.error(Markers.DHT, "Failed to handle message from {}: {}", address, message, e);
         }
+    }
 
-        @Override
-        protected void doOnStop() {
-            socket.close();
+    private void handleMessage(DhtMessage message, InetSocketAddress address) {
+        switch (message.getMessageType()) {
+        case QUERY:
+            handleQuery((Query) message, address);
+            break;
+        case RESPONSE:
+            handleResponse((Response) message);
+            break;
+        case ERROR:
+            handleError((Error) message);
+            break;
+        default:
+            throw new AssertionError("Unknown message type: " + message.getMessageType());
         }
+    }
 
-        /**
-         * Receives a {@link DhtMessage} from the socket, blocking until a message is received.
-         *
-         * @return the received message
-         * @throws IOException if an I/O error occurs
-         */
-        private IncomingMessage receiveMessage() throws IOException, DhtDecodingException {
-            byte[] buffer = new byte[1024];
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-            socket.receive(packet);
-            InetSocketAddress address = new InetSocketAddress(packet.getAddress(), packet.getPort());
-            DhtMessage message = dhtMessageDecoder.decode(packet.getData());
-            return new IncomingMessage(address, message);
+    private void handleQuery(Query query, InetSocketAddress address) {
+        LOGGER.debug(Markers.DHT, "Received {} query: {}", query.getMethod(), query);
+        NodeContactInfo nodeContactInfo = new NodeContactInfo(query.getId(), address);
+        switch (query.getMethod()) {
+        case PING:
+            queryHandler.handle((Ping) query, nodeContactInfo);
+            break;
+        case FIND_NODE:
+            queryHandler.handle((FindNode) query, nodeContactInfo);
+            break;
+        case ANNOUNCE_PEER:
+            queryHandler.handle((AnnouncePeer) query, nodeContactInfo);
+            break;
+        case GET_PEERS:
+            queryHandler.handle((GetPeers) query, nodeContactInfo);
+            break;
+        default:
+            throw new AssertionError(String.format(FORMAT_UNKNOWN_METHOD, query.getMethod()));
         }
+    }
 
-        private void handleMessage(DhtMessage message, InetSocketAddress address) {
-            switch (message.getMessageType()) {
-            case QUERY:
-                handleQuery((Query) message, address);
-                break;
-            case RESPONSE:
-                handleResponse((Response) message);
-                break;
-            case ERROR:
-                handleError((Error) message);
-                break;
-            default:
-                throw new AssertionError("Unknown message type: " + message.getMessageType());
-            }
-        }
+    @SuppressWarnings("unchecked")
+    private <T extends Response> void handleResponse(T response) {
+        LOGGER.debug(Markers.DHT, "Received {} response: {}", response.getMethod(), response);
+        TransactionId transactionId = response.getTransactionId();
+        txIdToMethod.remove(transactionId);
+        CompletableFuture<T> completableFuture = (CompletableFuture<T>) txIdToFuture.get(transactionId);
 
-        private void handleQuery(Query query, InetSocketAddress address) {
-            LOGGER.debug(Markers.DHT, "Received {} query: {}", query.getMethod(), query);
-            NodeContactInfo nodeContactInfo = new NodeContactInfo(query.getId(), address);
-            switch (query.getMethod()) {
-            case PING:
-                queryHandler.handle((Ping) query, nodeContactInfo);
-                break;
-            case FIND_NODE:
-                queryHandler.handle((FindNode) query, nodeContactInfo);
-                break;
-            case ANNOUNCE_PEER:
-                queryHandler.handle((AnnouncePeer) query, nodeContactInfo);
-                break;
-            case GET_PEERS:
-                queryHandler.handle((GetPeers) query, nodeContactInfo);
-                break;
-            default:
-                throw new AssertionError(String.format(FORMAT_UNKNOWN_METHOD, query.getMethod()));
-            }
+        if (completableFuture == null) {
+            logNoOutstandingQueryFound(transactionId);
+            return;
         }
 
-        @SuppressWarnings("unchecked")
-        private <T extends Response> void handleResponse(T response) {
-            LOGGER.debug(Markers.DHT, "Received {} response: {}", response.getMethod(), response);
-            TransactionId transactionId = response.getTransactionId();
-            txIdToMethod.remove(transactionId);
-            CompletableFuture<T> completableFuture = (CompletableFuture<T>) txIdToFuture.get(transactionId);
+        completableFuture.complete(response);
+    }
 
-            if (completableFuture == null) {
-                logNoOutstandingQueryFound(transactionId);
-                return;
-            }
+    private void handleError(Error error) {
+        LOGGER.debug(Markers.DHT, "Received error: {}", error);
+        TransactionId transactionId = error.getTransactionId();
+        txIdToMethod.remove(transactionId);
+        CompletableFuture<? extends Response> future = txIdToFuture.get(transactionId);
 
-            completableFuture.complete(response);
+        if (future == null) {
+            logNoOutstandingQueryFound(transactionId);
+            return;
         }
 
-        private void handleError(Error error) {
-            LOGGER.debug(Markers.DHT, "Received error: {}", error);
-            TransactionId transactionId = error.getTransactionId();
-            txIdToMethod.remove(transactionId);
-            CompletableFuture<? extends Response> future = txIdToFuture.get(transactionId);
+        future.completeExceptionally(new DhtErrorException(error));
+    }
 
-            if (future == null) {
-                logNoOutstandingQueryFound(transactionId);
-                return;
-            }
+    private void logNoOutstandingQueryFound(TransactionId transactionId) {
+        LOGGER.warn(Markers.DHT, "No outstanding query found for transaction id: {}", transactionId);
+    }
 
-            future.completeExceptionally(new DhtErrorException(error));
-        }
+    private class ReceiveTask extends BackgroundTask {
 
-        private void logNoOutstandingQueryFound(TransactionId transactionId) {
-            LOGGER.warn(Markers.DHT, "No outstanding query found for transaction id: {}", transactionId);
-        }
-    }
+        /**
+         * The buffer into which packets are received and dropped when no receive buffer is free.
+         */
+        private final ByteBuffer scratchBuffer = ByteBuffer.allocate(MAX_PACKET_SIZE);
 
-    private static class IncomingMessage {
+        @Override
+        protected void execute() {
+            ByteBuffer freeBuffer = freeBuffers.poll();
+            ByteBuffer buffer = freeBuffer != null ? freeBuffer : scratchBuffer;
+            buffer.clear();
 
-        private final InetSocketAddress address;
-        private final DhtMessage message;
+            InetSocketAddress address;
+            try {
+                address = (InetSocketAddress) channel.receive(buffer);
+            } catch (IOException e) {
+                if (freeBuffer != null) {
+                    freeBuffers.add(freeBuffer);
+                }
+                if (e instanceof ClosedChannelException && isStopping()) {
+                    LOGGER.debug(Markers.DHT, "Channel closed while waiting for message");
+                } else {
+                    LOGGER.error(Markers.DHT, "Failed to receive message", e);
+                    ReceiveTask.this.stop();
+                }
+                return;
+            }
 
-        public IncomingMessage(InetSocketAddress address, DhtMessage message) {
-            this.address = requireNonNull(address);
-            this.message = requireNonNull(message);
-        }
+            if (freeBuffer == null) {
+                statistics.recordDropped();
+                LOGGER.debug(Markers.DHT, "Dropped packet from {}: no free receive buffer", address);
+                return;
+            }
 
-        public InetSocketAddress getAddress() {
-            return address;
+            statistics.recordReceived();
+            buffer.flip();
+            try {
+                workers.execute(() -> handlePacket(buffer, address));
+            } catch (RejectedExecutionException e) {
+                freeBuffers.add(buffer);
+                LOGGER.debug(Markers.DHT, "Dropped packet from {}: socket is stopping", address);
+            }
         }
 
-        public DhtMessage getMessage() {
-            return message;
+        @Override
+        protected void doOnStop() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.error(Markers.DHT, "Failed to close channel", e);
+            }
         }
     }
 }
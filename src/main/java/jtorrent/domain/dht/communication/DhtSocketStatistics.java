@@ -0,0 +1,62 @@
+package jtorrent.domain.dht.communication;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the packets received by a {@link DhtSocket}.
+ * <p>
+ * A packet is dropped when it arrives while every receive buffer is still waiting to be handled, which means that the
+ * workers cannot keep up. Packets dropped by the kernel because its receive buffer is full are not counted, but become
+ * less likely as more packets are dropped here instead.
+ */
+public class DhtSocketStatistics {
+
+    private final AtomicLong numReceived = new AtomicLong();
+    private final AtomicLong numDropped = new AtomicLong();
+    private final AtomicLong numMalformed = new AtomicLong();
+    private volatile int receiveBufferSize;
+
+    void recordReceived() {
+        numReceived.incrementAndGet();
+    }
+
+    void recordDropped() {
+        numDropped.incrementAndGet();
+    }
+
+    void recordMalformed() {
+        numMalformed.incrementAndGet();
+    }
+
+    void setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    /**
+     * Gets the number of packets that were received and handed to the workers.
+     */
+    public long getNumReceived() {
+        return numReceived.get();
+    }
+
+    /**
+     * Gets the number of packets that were dropped because no receive buffer was free.
+     */
+    public long getNumDropped() {
+        return numDropped.get();
+    }
+
+    /**
+     * Gets the number of packets that could not be decoded.
+     */
+    public long getNumMalformed() {
+        return numMalformed.get();
+    }
+
+    /**
+     * Gets the size of the kernel receive buffer of the socket, which may be smaller than the size that was requested.
+     */
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+}
@@ -0,0 +1,391 @@
+package jtorrent.domain.dht.handler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jtorrent.domain.common.util.PeriodicTask;
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.logging.Markers;
+
+/**
+ * Decides when the peers of each registered torrent are looked up and announced in the DHT.
+ * <p>
+ * Every torrent is given an interval according to its {@link Demand}, which depends on whether it is downloading and
+ * whether it is short of peers. A torrent whose demand stays the same backs off, doubling its interval up to the
+ * maximum for its demand, so that healthy seeds settle at an interval of 15 to 25 minutes. Intervals are randomly
+ * spread by {@link #JITTER}, and newly registered torrents that are not in need of peers start at a random point
+ * within their interval, so that lookups are spread evenly over time. No interval exceeds
+ * {@link #MAX_INTERVAL_MILLIS}, so that announces are refreshed before nodes expire them.
+ * <p>
+ * The demand of the waiting torrents is checked every tick. A torrent whose demand has increased since its lookup was
+ * scheduled is moved forward to the time its new demand calls for, rather than waiting out its backed off interval.
+ * <p>
+ * Every tick, at most {@link #MAX_LOOKUPS_PER_TICK} lookups are started, and at most {@link #MAX_CONCURRENT_LOOKUPS}
+ * are in progress at once. If more lookups are due than can be started, the torrents with the greatest demand go
+ * first, and the rest wait for the next tick.
+ */
+public class AnnounceScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnounceScheduler.class);
+
+    static final long TICK_MILLIS = 1000;
+    static final int MAX_LOOKUPS_PER_TICK = 4;
+    static final int MAX_CONCURRENT_LOOKUPS = 16;
+    /**
+     * The number of peers below which a torrent is considered to be short of peers.
+     */
+    static final int WANTED_PEERS = 20;
+    /**
+     * The fraction by which each interval is randomly lengthened or shortened.
+     */
+    static final double JITTER = 0.1;
+    /**
+     * The longest interval between two lookups of a torrent, which stays below the time after which nodes expire
+     * announced peers, leaving time for the lookup itself.
+     */
+    static final long MAX_INTERVAL_MILLIS = PeerContactInfoStore.PEER_EXPIRATION_MILLIS * 9 / 10;
+
+    private final Function<Sha1Hash, CompletableFuture<?>> lookup;
+    private final LongSupplier clock;
+    private final Random random;
+    private final TickTask tickTask;
+    private final Map<Sha1Hash, Entry> infoHashToEntry = new HashMap<>();
+    /**
+     * The entries of the registered torrents that are not being looked up, in order of the time they are due.
+     */
+    private final Queue<Entry> waitingEntries = new PriorityQueue<>(Comparator.comparingLong(Entry::getDueTime));
+    private int numLookupsInProgress;
+
+    /**
+     * @param scheduledExecutorService the executor on which the ticks are run
+     * @param lookup                   looks up and announces the peers of a torrent, and returns a future that is
+     *                                 completed once the lookup is done
+     */
+    public AnnounceScheduler(ScheduledExecutorService scheduledExecutorService,
+            Function<Sha1Hash, CompletableFuture<?>> lookup) {
+        this(scheduledExecutorService, lookup, System::currentTimeMillis, new Random());
+    }
+
+    AnnounceScheduler(ScheduledExecutorService scheduledExecutorService,
+            Function<Sha1Hash, CompletableFuture<?>> lookup, LongSupplier clock, Random random) {
+        this.tickTask = new TickTask(scheduledExecutorService);
+        this.lookup = requireNonNull(lookup);
+        this.clock = requireNonNull(clock);
+        this.random = requireNonNull(random);
+    }
+
+    public void start() {
+        tickTask.scheduleWithFixedDelay(TICK_MILLIS, TICK_MILLIS, MILLISECONDS);
+    }
+
+    public void stop() {
+        tickTask.stop();
+    }
+
+    /**
+     * Registers a torrent whose peers should be looked up periodically.
+     * A torrent that is short of peers is looked up as soon as possible.
+     *
+     * @param infoHash       the info hash of the torrent
+     * @param statusProvider provides the status of the torrent, which determines how often it is looked up
+     * @return true if the torrent was registered, false if it was already registered
+     */
+    public synchronized boolean register(Sha1Hash infoHash, TorrentStatusProvider statusProvider) {
+        if (infoHashToEntry.containsKey(infoHash)) {
+            return false;
+        }
+
+        Entry entry = new Entry(requireNonNull(infoHash), requireNonNull(statusProvider));
+        Demand demand = entry.getCurrentDemand();
+        long initialDelay = demand.isShortOfPeers() ? 0 : (long) (random.nextDouble() * demand.getBaseIntervalMillis());
+        entry.setDueTime(clock.getAsLong() + initialDelay);
+        entry.setScheduledDemand(demand);
+        infoHashToEntry.put(infoHash, entry);
+        waitingEntries.add(entry);
+        return true;
+    }
+
+    /**
+     * Deregisters a torrent. A lookup of the torrent that is in progress is allowed to complete.
+     *
+     * @param infoHash the info hash of the torrent
+     * @return true if the torrent was deregistered, false if it was not registered
+     */
+    public synchronized boolean deregister(Sha1Hash infoHash) {
+        Entry entry = infoHashToEntry.remove(infoHash);
+        if (entry == null) {
+            return false;
+        }
+        waitingEntries.remove(entry);
+        return true;
+    }
+
+    /**
+     * Starts the lookups that are due, up to the limits on the number of lookups.
+     */
+    void tick() {
+        List<Entry> entriesToLookUp = new ArrayList<>();
+
+        synchronized (this) {
+            long now = clock.getAsLong();
+            rescheduleIncreasedDemand(now);
+            List<Entry> dueEntries = new ArrayList<>();
+            while (!waitingEntries.isEmpty() && waitingEntries.peek().getDueTime() <= now) {
+                dueEntries.add(waitingEntries.poll());
+            }
+
+            dueEntries.forEach(Entry::updateDemand);
+            dueEntries.sort(Comparator.comparing(Entry::getDemand).thenComparingLong(Entry::getDueTime));
+
+            int numToStart = Math.min(MAX_LOOKUPS_PER_TICK, MAX_CONCURRENT_LOOKUPS - numLookupsInProgress);
+            for (Entry entry : dueEntries) {
+                if (entriesToLookUp.size() < numToStart) {
+                    entriesToLookUp.add(entry);
+                } else {
+                    waitingEntries.add(entry);
+                }
+            }
+            numLookupsInProgress += entriesToLookUp.size();
+
+            if (dueEntries.size() > entriesToLookUp.size()) {
+                LOGGER.debug(Markers.DHT, "{} lookups are overdue", dueEntries.size() - entriesToLookUp.size());
+            }
+        }
+
+        entriesToLookUp.forEach(this::startLookup);
+    }
+
+    /**
+     * Moves the waiting entries whose demand has increased since they were scheduled forward to the time their new
+     * demand calls for.
+     */
+    private void rescheduleIncreasedDemand(long now) {
+        List<Entry> rescheduledEntries = new ArrayList<>();
+        for (Entry entry : waitingEntries) {
+            if (entry.getCurrentDemand().compareTo(entry.getScheduledDemand()) < 0) {
+                rescheduledEntries.add(entry);
+            }
+        }
+
+        for (Entry entry : rescheduledEntries) {
+            // removed and added again, since the queue does not notice changes to the due time
+            waitingEntries.remove(entry);
+            Demand demand = entry.getCurrentDemand();
+            long dueTime = entry.getLastLookupTime() == Entry.NEVER
+                    ? now
+                    : Math.max(now, entry.getLastLookupTime() + demand.getBaseIntervalMillis());
+            entry.setDueTime(Math.min(entry.getDueTime(), dueTime));
+            entry.setScheduledDemand(demand);
+            waitingEntries.add(entry);
+            LOGGER.debug(Markers.DHT, "Demand of {} increased to {}", entry.getInfoHash(), demand);
+        }
+    }
+
+    private void startLookup(Entry entry) {
+        LOGGER.debug(Markers.DHT, "Looking up {} with demand {}", entry.getInfoHash(), entry.getDemand());
+        CompletableFuture<?> future;
+        try {
+            future = lookup.apply(entry.getInfoHash());
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                LOGGER.error(Markers.DHT, "Lookup for {} failed", entry.getInfoHash(), throwable);
+            }
+            onLookupCompleted(entry);
+        });
+    }
+
+    private synchronized void onLookupCompleted(Entry entry) {
+        numLookupsInProgress--;
+        if (infoHashToEntry.get(entry.getInfoHash()) != entry) {
+            return;
+        }
+
+        long now = clock.getAsLong();
+        long interval = entry.nextInterval();
+        long jitter = (long) ((random.nextDouble() * 2 - 1) * JITTER * interval);
+        entry.setDueTime(now + Math.min(interval + jitter, MAX_INTERVAL_MILLIS));
+        entry.setLastLookupTime(now);
+        entry.setScheduledDemand(entry.getDemand());
+        waitingEntries.add(entry);
+    }
+
+    synchronized int getNumLookupsInProgress() {
+        return numLookupsInProgress;
+    }
+
+    /**
+     * The need of a torrent for peers, in order of decreasing priority.
+     */
+    enum Demand {
+
+        DOWNLOADING_SHORT_OF_PEERS(60_000, 60_000, true),
+        SEEDING_SHORT_OF_PEERS(5 * 60_000, 15 * 60_000, true),
+        DOWNLOADING(5 * 60_000, 15 * 60_000, false),
+        SEEDING(15 * 60_000, 25 * 60_000, false);
+
+        private final long baseIntervalMillis;
+        private final long maxIntervalMillis;
+        private final boolean isShortOfPeers;
+
+        Demand(long baseIntervalMillis, long maxIntervalMillis, boolean isShortOfPeers) {
+            this.baseIntervalMillis = baseIntervalMillis;
+            this.maxIntervalMillis = maxIntervalMillis;
+            this.isShortOfPeers = isShortOfPeers;
+        }
+
+        static Demand of(boolean isSeeding, int numPeers) {
+            boolean isShortOfPeers = numPeers < WANTED_PEERS;
+            if (isSeeding) {
+                return isShortOfPeers ? SEEDING_SHORT_OF_PEERS : SEEDING;
+            }
+            return isShortOfPeers ? DOWNLOADING_SHORT_OF_PEERS : DOWNLOADING;
+        }
+
+        long getBaseIntervalMillis() {
+            return baseIntervalMillis;
+        }
+
+        long getMaxIntervalMillis() {
+            return maxIntervalMillis;
+        }
+
+        boolean isShortOfPeers() {
+            return isShortOfPeers;
+        }
+    }
+
+    /**
+     * Provides the status of a torrent. It is queried every tick for every waiting torrent while the lock of the
+     * scheduler is held, so it must answer from state that is cheap to read.
+     */
+    public interface TorrentStatusProvider {
+
+        /**
+         * Gets whether all the wanted pieces of the torrent have been downloaded.
+         */
+        boolean isSeeding();
+
+        /**
+         * Gets the number of peers that the torrent is connected to.
+         */
+        int getNumPeers();
+    }
+
+    private static class Entry {
+
+        private static final long NEVER = Long.MIN_VALUE;
+
+        private final Sha1Hash infoHash;
+        private final TorrentStatusProvider statusProvider;
+        private long dueTime;
+        /**
+         * The time at which the last lookup completed, or {@link #NEVER} if the torrent has not been looked up yet.
+         */
+        private long lastLookupTime = NEVER;
+        /**
+         * The demand for which the due time was set.
+         */
+        private Demand scheduledDemand;
+        private Demand demand;
+        /**
+         * The demand of the previous lookup, or null if the torrent has not been looked up yet.
+         */
+        private Demand previousDemand;
+        private long intervalMillis;
+
+        private Entry(Sha1Hash infoHash, TorrentStatusProvider statusProvider) {
+            this.infoHash = infoHash;
+            this.statusProvider = statusProvider;
+        }
+
+        public Sha1Hash getInfoHash() {
+            return infoHash;
+        }
+
+        public long getDueTime() {
+            return dueTime;
+        }
+
+        public void setDueTime(long dueTime) {
+            this.dueTime = dueTime;
+        }
+
+        public long getLastLookupTime() {
+            return lastLookupTime;
+        }
+
+        public void setLastLookupTime(long lastLookupTime) {
+            this.lastLookupTime = lastLookupTime;
+        }
+
+        public Demand getScheduledDemand() {
+            return scheduledDemand;
+        }
+
+        public void setScheduledDemand(Demand scheduledDemand) {
+            this.scheduledDemand = scheduledDemand;
+        }
+
+        public Demand getDemand() {
+            return demand;
+        }
+
+        public Demand getCurrentDemand() {
+            return Demand.of(statusProvider.isSeeding(), statusProvider.getNumPeers());
+        }
+
+        public void updateDemand() {
+            demand = getCurrentDemand();
+        }
+
+        /**
+         * Gets the interval until the next lookup, which is doubled up to the maximum for the demand while the demand
+         * stays the same, and reset to the base interval for the demand when it changes.
+         */
+        public long nextInterval() {
+            if (demand == previousDemand) {
+                intervalMillis = Math.min(intervalMillis * 2, demand.getMaxIntervalMillis());
+            } else {
+                intervalMillis = demand.getBaseIntervalMillis();
+            }
+            previousDemand = demand;
+            return intervalMillis;
+        }
+    }
+
+    private class TickTask extends PeriodicTask {
+
+        public TickTask(ScheduledExecutorService scheduledExecutorService) {
+            super(scheduledExecutorService);
+        }
+
+        @Override
+        public void run() {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                LOGGER.error(Markers.DHT, "Failed to start DHT lookups", e);
+            }
+        }
+    }
+}
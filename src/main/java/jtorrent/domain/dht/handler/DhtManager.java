@@ -7,8 +7,9 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -16,6 +17,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,39 +27,116 @@ import jtorrent.domain.common.util.PeriodicTask;
 import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.dht.handler.lookup.GetPeersLookup;
+import jtorrent.domain.dht.handler.lookup.RecentLookupCache;
 import jtorrent.domain.dht.handler.node.Node;
 import jtorrent.domain.dht.handler.routingtable.Bucket;
 import jtorrent.domain.dht.handler.routingtable.RoutingTable;
 import jtorrent.domain.dht.handler.task.BootstrapTask;
 import jtorrent.domain.dht.handler.task.RefreshBucketTask;
+import jtorrent.domain.dht.model.DhtState;
+import jtorrent.domain.dht.model.node.NodeId;
+import jtorrent.domain.dht.model.node.SavedNode;
+import jtorrent.domain.dht.repository.DhtStateRepository;
 import jtorrent.domain.peer.model.PeerContactInfo;
 
 public class DhtManager {
 
     public static final int K = 8;
     public static final int ALPHA = 3;
+    private static final int RESTORE_BATCH_SIZE = K;
     private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(15);
+    private static final Duration SAVE_INTERVAL = Duration.ofMinutes(5);
     private static final Logger LOGGER = LoggerFactory.getLogger(DhtManager.class);
 
     private final RoutingTable routingTable;
+    private final DhtStateRepository dhtStateRepository;
     private final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
     private final ScheduledExecutorService scheduledThreadPool = Executors.newScheduledThreadPool(1);
     /**
      * Used to prevent multiple bootstrap tasks from running at the same time.
      */
     private final Semaphore bootstrapSemaphore = new Semaphore(1);
-    private final Map<Sha1Hash, PeriodicFindPeersTask> infoHashToFindPeersTask = new ConcurrentHashMap<>();
+    private final AnnounceScheduler announceScheduler =
+            new AnnounceScheduler(scheduledThreadPool, this::findPeersAndAnnounce);
+    private final RecentLookupCache recentLookupCache = new RecentLookupCache();
     private final List<PeerDiscoveryListener> peerDiscoveryListeners = new ArrayList<>();
+    /**
+     * The buckets that are periodically refreshed, so that no bucket is refreshed by more than one task.
+     */
+    private final Set<Bucket> refreshedBuckets = ConcurrentHashMap.newKeySet();
+    private final PeriodicSaveStateTask periodicSaveStateTask = new PeriodicSaveStateTask();
 
-    public DhtManager(RoutingTable routingTable) {
+    public DhtManager(RoutingTable routingTable, DhtStateRepository dhtStateRepository) {
         this.routingTable = requireNonNull(routingTable);
+        this.dhtStateRepository = requireNonNull(dhtStateRepository);
     }
 
     public void start() {
+        // buckets created by splits are refreshed too, and the set of refreshed buckets ignores any duplicates
+        routingTable.addBucketCreatedListener(this::startPeriodicallyRefreshingBucket);
+        routingTable.getBuckets().forEach(this::startPeriodicallyRefreshingBucket);
+        periodicSaveStateTask.scheduleWithFixedDelay(SAVE_INTERVAL.toMillis(), SAVE_INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+        announceScheduler.start();
     }
 
     public void stop() {
+        announceScheduler.stop();
+        periodicSaveStateTask.stop();
         scheduledThreadPool.shutdownNow();
+        saveState();
+    }
+
+    /**
+     * Adds the nodes saved by a previous session to the routing table once they respond to a ping.
+     * The nodes are pinged in batches of {@value #RESTORE_BATCH_SIZE}, most recently seen first, and each batch is
+     * only pinged once every node of the previous batch has responded or timed out, so that restoring does not send
+     * a burst of pings. Nodes that do not respond are dropped.
+     *
+     * @param savedNodes the saved nodes
+     */
+    public void restoreNodes(Collection<SavedNode> savedNodes) {
+        LOGGER.info(Markers.DHT, "Restoring {} saved nodes", savedNodes.size());
+        List<SavedNode> sortedNodes = savedNodes.stream()
+                .sorted(Comparator.comparing(SavedNode::lastSeen).reversed())
+                .toList();
+        restoreNodes(sortedNodes, 0);
+    }
+
+    private void restoreNodes(List<SavedNode> savedNodes, int fromIndex) {
+        if (fromIndex >= savedNodes.size()) {
+            LOGGER.info(Markers.DHT, "Restored saved nodes: {} nodes in routing table", routingTable.size());
+            return;
+        }
+
+        int toIndex = Math.min(fromIndex + RESTORE_BATCH_SIZE, savedNodes.size());
+        CompletableFuture<?>[] futures = savedNodes.subList(fromIndex, toIndex).stream()
+                .map(savedNode -> Node.createNodeFromAddress(savedNode.contactInfo().getSocketAddress())
+                        .thenAccept(routingTable::addNode))
+                .toArray(CompletableFuture<?>[]::new);
+        CompletableFuture.allOf(futures).whenCompleteAsync((unused, throwable) -> {
+            if (!scheduledThreadPool.isShutdown()) {
+                restoreNodes(savedNodes, toIndex);
+            }
+        }, cachedThreadPool);
+    }
+
+    /**
+     * Saves the local node ID and the nodes of the routing table that are not bad, so that they can be restored in
+     * the next session.
+     */
+    private void saveState() {
+        List<SavedNode> savedNodes = routingTable.getBuckets().stream()
+                .flatMap(bucket -> bucket.getNodes().stream())
+                .filter(node -> node.getState() != Node.State.BAD)
+                .map(node -> new SavedNode(node.getNodeContactInfo(), node.getLastSeen()))
+                .collect(Collectors.toList());
+        try {
+            dhtStateRepository.save(new DhtState(NodeId.getLocal(), savedNodes));
+            LOGGER.debug(Markers.DHT, "Saved {} nodes", savedNodes.size());
+        } catch (RuntimeException e) {
+            LOGGER.error(Markers.DHT, "Failed to save DHT state", e);
+        }
     }
 
     public void addPeerDiscoveryListener(PeerDiscoveryListener peerDiscoveryListener) {
@@ -91,41 +170,70 @@ public class DhtManager {
                                 routingTable.size());
                     }
                     bootstrapSemaphore.release();
-                    routingTable.getBuckets().forEach(this::startPeriodicallyRefreshingBucket);
                 });
     }
 
     private void startPeriodicallyRefreshingBucket(Bucket bucket) {
+        if (scheduledThreadPool.isShutdown() || !refreshedBuckets.add(bucket)) {
+            return;
+        }
         PeriodicRefreshBucketTask periodicRefreshBucketTask = new PeriodicRefreshBucketTask(bucket);
         scheduledThreadPool.schedule(periodicRefreshBucketTask, REFRESH_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Registers the given info hash to be periodically searched for peers.
+     * Registers the given info hash to be periodically searched for peers and announced.
+     * How often it is searched for depends on the status of the torrent.
      *
-     * @param infoHash the info hash to register
+     * @param infoHash       the info hash to register
+     * @param statusProvider provides the status of the torrent
+     * @see AnnounceScheduler
      */
-    public void registerInfoHash(Sha1Hash infoHash) {
-        if (infoHashToFindPeersTask.containsKey(infoHash)) {
+    public void registerInfoHash(Sha1Hash infoHash, AnnounceScheduler.TorrentStatusProvider statusProvider) {
+        if (!announceScheduler.register(infoHash, statusProvider)) {
             LOGGER.debug(Markers.DHT, "Info hash already registered: {}", infoHash);
             return;
         }
-
-        PeriodicFindPeersTask periodicFindPeersTask = new PeriodicFindPeersTask(infoHash);
-        infoHashToFindPeersTask.put(infoHash, periodicFindPeersTask);
-        periodicFindPeersTask.scheduleWithFixedDelay(1, TimeUnit.MINUTES);
         LOGGER.info(Markers.DHT, "Registered info hash: {}", infoHash);
     }
 
     public void deregisterInfoHash(Sha1Hash infoHash) {
-        PeriodicFindPeersTask periodicFindPeersTask = infoHashToFindPeersTask.remove(infoHash);
-        if (periodicFindPeersTask != null) {
-            LOGGER.debug(Markers.DHT, "Stopping periodic find peers task for info hash: {}", infoHash);
-            periodicFindPeersTask.stop();
-        }
+        announceScheduler.deregister(infoHash);
         LOGGER.info(Markers.DHT, "Deregistered info hash: {}", infoHash);
     }
 
+    /**
+     * Looks up the peers of the given info hash and announces to the closest nodes found.
+     * The lookup starts from the closest nodes in the routing table, as well as the closest nodes found by recent
+     * lookups for nearby targets.
+     *
+     * @param target the info hash to look up
+     * @return a future that is completed once the peers have been handled and the announces have been sent
+     */
+    private CompletableFuture<Void> findPeersAndAnnounce(Sha1Hash target) {
+        List<Node> initialNodes = new ArrayList<>(routingTable.getClosestNodes(target, K));
+        recentLookupCache.getClosestNodes(target, K).stream()
+                .filter(node -> !initialNodes.contains(node))
+                .forEach(initialNodes::add);
+
+        // the lookup does not block the scheduler, so lookups for many torrents can be in progress at once
+        return new GetPeersLookup().lookupAsync(target, initialNodes)
+                .thenAcceptAsync(result -> {
+                    recentLookupCache.add(target, result.getNodeToToken().keySet());
+                    handleFindPeersResult(target, result);
+                }, cachedThreadPool);
+    }
+
+    private void handleFindPeersResult(Sha1Hash target, GetPeersLookup.Result result) {
+        result.getNodeToToken().forEach((node, token) -> node.announcePeer(target, Constants.PORT, token));
+
+        if (result.getPeers().isEmpty()) {
+            return;
+        }
+
+        peerDiscoveryListeners.forEach(listener -> listener.onPeersDiscovered(target, result.getPeers()));
+    }
+
     public interface PeerDiscoveryListener {
 
         void onPeersDiscovered(Sha1Hash infoHash, Collection<PeerContactInfo> peers);
@@ -168,26 +276,15 @@ public class DhtManager {
         }
     }
 
-    private class PeriodicFindPeersTask extends PeriodicTask {
+    private class PeriodicSaveStateTask extends PeriodicTask {
 
-        private final Sha1Hash target;
-
-        private PeriodicFindPeersTask(Sha1Hash target) {
+        private PeriodicSaveStateTask() {
             super(DhtManager.this.scheduledThreadPool);
-            this.target = target;
         }
 
         @Override
         public void run() {
-            Collection<Node> closestNodes = routingTable.getClosestNodes(target, DhtManager.ALPHA);
-            GetPeersLookup.Result result = new GetPeersLookup().lookup(target, closestNodes);
-
-            if (result.getPeers().isEmpty()) {
-                return;
-            }
-
-            peerDiscoveryListeners.forEach(listener -> listener.onPeersDiscovered(target, result.getPeers()));
-            result.getNodeToToken().forEach((node, token) -> node.announcePeer(target, Constants.PORT, token));
+            saveState();
         }
     }
 }
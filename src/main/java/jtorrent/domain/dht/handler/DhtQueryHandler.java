@@ -110,8 +110,11 @@ public class DhtQueryHandler implements DhtSocket.QueryHandler {
 
         InetAddress address = node.getAddress();
         int port = announcePeer.getPort();
-        peerContactInfoStore.addPeerContactInfo(announcePeer.getInfoHash(), new PeerContactInfo(address, port));
-        LOGGER.info(Markers.DHT, "Added peer contact info for info hash {}", announcePeer.getInfoHash());
+        if (peerContactInfoStore.addPeerContactInfo(announcePeer.getInfoHash(), new PeerContactInfo(address, port))) {
+            LOGGER.info(Markers.DHT, "Added peer contact info for info hash {}", announcePeer.getInfoHash());
+        } else {
+            LOGGER.debug(Markers.DHT, "Ignored announced peer {} without an IPv4 address", address);
+        }
 
         try {
             node.sendAnnouncePeerResponse();
@@ -1,26 +1,330 @@
 package jtorrent.domain.dht.handler;
 
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.peer.model.PeerContactInfo;
 
+/**
+ * Stores the peers that were announced to this node, so that they can be returned to nodes that look up their peers.
+ * <p>
+ * A busy node is announced to for a great number of info hashes, so the store is bounded in several ways. A peer
+ * expires {@link #PEER_EXPIRATION_MILLIS} after it was last announced, since peers are expected to re-announce
+ * periodically. Each info hash keeps a limited number of peers, and replaces the peer that was announced least
+ * recently once it is full. In total, the store keeps a limited number of info hashes and peers, and evicts the info
+ * hash that was announced to least recently, along with its peers, once either limit is exceeded.
+ * <p>
+ * Only IPv4 peers are kept, since get peers responses carry peers in the 6 byte compact form of BEP 5, which has no
+ * room for an IPv6 address. Peers are not kept as {@link PeerContactInfo}s, but packed into arrays in that compact
+ * form, next to the time at which they expire.
+ * <p>
+ * Info hashes are kept in the order in which they were last announced to. Since every peer expires at the same
+ * interval after it was announced, the info hashes whose peers have all expired are always at the front, and are
+ * removed as new peers are announced without scanning the whole store.
+ */
 public class PeerContactInfoStore {
 
-    private final Map<Sha1Hash, Set<PeerContactInfo>> infoHashToPeerContactInfo = new HashMap<>();
+    static final long PEER_EXPIRATION_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    /**
+     * The maximum number of peers returned for a lookup, which keeps get peers responses within a single packet.
+     */
+    static final int MAX_PEERS_IN_RESPONSE = 50;
+
+    private static final int DEFAULT_MAX_INFO_HASHES = 50_000;
+    private static final int DEFAULT_MAX_PEERS_PER_INFO_HASH = 500;
+    private static final int DEFAULT_MAX_PEERS = 500_000;
+    private static final int ENTRY_SIZE = 6;
+
+    private final Map<Sha1Hash, Swarm> infoHashToSwarm = new LinkedHashMap<>();
+    private final int maxInfoHashes;
+    private final int maxPeersPerInfoHash;
+    private final int maxPeers;
+    private final LongSupplier clock;
+    private final Random random;
+    private int numPeers;
+
+    public PeerContactInfoStore() {
+        this(DEFAULT_MAX_INFO_HASHES, DEFAULT_MAX_PEERS_PER_INFO_HASH, DEFAULT_MAX_PEERS, System::currentTimeMillis,
+                new Random());
+    }
+
+    /**
+     * @param maxInfoHashes       the maximum number of info hashes to keep peers for
+     * @param maxPeersPerInfoHash the maximum number of peers to keep for a single info hash
+     * @param maxPeers            the maximum number of peers to keep in total
+     */
+    PeerContactInfoStore(int maxInfoHashes, int maxPeersPerInfoHash, int maxPeers, LongSupplier clock,
+            Random random) {
+        this.maxInfoHashes = maxInfoHashes;
+        this.maxPeersPerInfoHash = maxPeersPerInfoHash;
+        this.maxPeers = maxPeers;
+        this.clock = requireNonNull(clock);
+        this.random = requireNonNull(random);
+    }
+
+    private static byte[] toCompact(PeerContactInfo peerContactInfo) {
+        byte[] address = peerContactInfo.getAddress().getAddress();
+        byte[] compact = Arrays.copyOf(address, address.length + Short.BYTES);
+        compact[address.length] = (byte) (peerContactInfo.getPort() >> 8);
+        compact[address.length + 1] = (byte) peerContactInfo.getPort();
+        return compact;
+    }
+
+    /**
+     * Adds a peer that was announced for the given info hash, or refreshes its expiration if it is already known.
+     * Peers that do not have an IPv4 address are not added, since they cannot be returned in a get peers response.
+     *
+     * @return {@code true} if the peer was added or refreshed, {@code false} if it does not have an IPv4 address
+     */
+    public synchronized boolean addPeerContactInfo(Sha1Hash infoHash, PeerContactInfo peerContactInfo) {
+        if (!(peerContactInfo.getAddress() instanceof Inet4Address)) {
+            return false;
+        }
+
+        long now = clock.getAsLong();
+        removeExpiredInfoHashes(now);
 
-    public void addPeerContactInfo(Sha1Hash infoHash, PeerContactInfo peerContactInfo) {
-        infoHashToPeerContactInfo
-                .computeIfAbsent(infoHash, k -> new HashSet<>())
-                .add(peerContactInfo);
+        // re-inserted so that the info hashes stay in the order in which they were last announced to
+        Swarm swarm = infoHashToSwarm.remove(infoHash);
+        if (swarm == null) {
+            swarm = new Swarm();
+        }
+        infoHashToSwarm.put(infoHash, swarm);
+        numPeers += swarm.add(toCompact(peerContactInfo), now, maxPeersPerInfoHash);
+
+        evictLeastRecentlyAnnounced();
+        return true;
+    }
+
+    /**
+     * Gets a random sample of at most {@link #MAX_PEERS_IN_RESPONSE} unexpired peers of the given info hash.
+     *
+     * @param infoHash the info hash to get the peers of
+     * @return the sampled peers, or an empty collection if there are none
+     */
+    public synchronized Collection<PeerContactInfo> getPeerContactInfos(Sha1Hash infoHash) {
+        Swarm swarm = infoHashToSwarm.get(infoHash);
+        if (swarm == null) {
+            return List.of();
+        }
+
+        // a swarm emptied here is removed once it reaches the front of the store
+        numPeers -= swarm.removeExpired(clock.getAsLong());
+        return swarm.peers.sample(MAX_PEERS_IN_RESPONSE, random);
+    }
+
+    synchronized int getNumInfoHashes() {
+        return infoHashToSwarm.size();
     }
 
-    public Collection<PeerContactInfo> getPeerContactInfos(Sha1Hash infoHash) {
-        return infoHashToPeerContactInfo.getOrDefault(infoHash, Collections.emptySet());
+    synchronized int getNumPeers() {
+        return numPeers;
+    }
+
+    private void removeExpiredInfoHashes(long now) {
+        Iterator<Swarm> iterator = infoHashToSwarm.values().iterator();
+        while (iterator.hasNext()) {
+            Swarm swarm = iterator.next();
+            if (swarm.lastExpiration > now) {
+                return;
+            }
+            numPeers -= swarm.size();
+            iterator.remove();
+        }
+    }
+
+    private void evictLeastRecentlyAnnounced() {
+        Iterator<Swarm> iterator = infoHashToSwarm.values().iterator();
+        while (infoHashToSwarm.size() > maxInfoHashes || numPeers > maxPeers) {
+            numPeers -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * The peers of a single info hash.
+     */
+    private static class Swarm {
+
+        private final PackedPeers peers = new PackedPeers();
+        /**
+         * The time at which the peer that was announced last expires, after which every peer has expired.
+         */
+        private long lastExpiration;
+
+        /**
+         * Adds a peer after removing the peers that have expired.
+         *
+         * @param compact the compact form of the peer
+         * @param now     the current time
+         * @param maxSize the maximum number of peers
+         * @return the change in the number of peers
+         */
+        private int add(byte[] compact, long now, int maxSize) {
+            int numRemoved = removeExpired(now);
+            lastExpiration = now + PEER_EXPIRATION_MILLIS;
+            return peers.add(compact, lastExpiration, maxSize) - numRemoved;
+        }
+
+        /**
+         * Removes the peers that have expired.
+         *
+         * @return the number of peers removed
+         */
+        private int removeExpired(long now) {
+            return peers.removeExpired(now);
+        }
+
+        private int size() {
+            return peers.size;
+        }
+    }
+
+    /**
+     * Peers packed back to back in their compact form.
+     * The arrays grow and shrink with the number of peers, and are not allocated until the first peer is added.
+     */
+    private static class PackedPeers {
+
+        private static final int MIN_CAPACITY = 4;
+        private static final byte[] NO_ENTRIES = new byte[0];
+        private static final long[] NO_EXPIRATIONS = new long[0];
+
+        private byte[] entries = NO_ENTRIES;
+        private long[] expirations = NO_EXPIRATIONS;
+        private int size;
+
+        /**
+         * Adds a peer, or refreshes its expiration if it is already present.
+         * If there are already the maximum number of peers, the peer that expires first is replaced.
+         *
+         * @return the change in the number of peers
+         */
+        private int add(byte[] compact, long expiration, int maxSize) {
+            int index = indexOf(compact);
+            if (index >= 0) {
+                expirations[index] = expiration;
+                return 0;
+            }
+
+            if (size >= maxSize) {
+                if (size == 0) {
+                    return 0;
+                }
+                set(indexOfFirstExpiration(), compact, expiration);
+                return 0;
+            }
+
+            if (size == expirations.length) {
+                resize(Math.min(Math.max(MIN_CAPACITY, size * 2), maxSize));
+            }
+            set(size++, compact, expiration);
+            return 1;
+        }
+
+        /**
+         * Removes the peers that have expired, moving the last peer into the place of each removed peer.
+         *
+         * @return the number of peers removed
+         */
+        private int removeExpired(long now) {
+            int numRemoved = 0;
+            int index = 0;
+            while (index < size) {
+                if (expirations[index] > now) {
+                    index++;
+                    continue;
+                }
+                size--;
+                System.arraycopy(entries, size * ENTRY_SIZE, entries, index * ENTRY_SIZE, ENTRY_SIZE);
+                expirations[index] = expirations[size];
+                numRemoved++;
+            }
+
+            if (size == 0) {
+                entries = NO_ENTRIES;
+                expirations = NO_EXPIRATIONS;
+            } else if (size <= expirations.length / 4) {
+                resize(expirations.length / 2);
+            }
+            return numRemoved;
+        }
+
+        /**
+         * Picks up to the given number of distinct peers at random.
+         */
+        private List<PeerContactInfo> sample(int maxCount, Random random) {
+            int count = Math.min(maxCount, size);
+            int[] indices = new int[size];
+            for (int i = 0; i < size; i++) {
+                indices[i] = i;
+            }
+
+            List<PeerContactInfo> peers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int j = i + random.nextInt(size - i);
+                int index = indices[j];
+                indices[j] = indices[i];
+                peers.add(get(index));
+            }
+            return peers;
+        }
+
+        private PeerContactInfo get(int index) {
+            int offset = index * ENTRY_SIZE;
+            int addressLength = ENTRY_SIZE - Short.BYTES;
+            InetAddress address;
+            try {
+                address = InetAddress.getByAddress(Arrays.copyOfRange(entries, offset, offset + addressLength));
+            } catch (UnknownHostException e) {
+                throw new AssertionError(e);
+            }
+            int port = (entries[offset + addressLength] & 0xFF) << 8 | entries[offset + addressLength + 1] & 0xFF;
+            return new PeerContactInfo(address, port);
+        }
+
+        private void set(int index, byte[] compact, long expiration) {
+            System.arraycopy(compact, 0, entries, index * ENTRY_SIZE, ENTRY_SIZE);
+            expirations[index] = expiration;
+        }
+
+        private int indexOf(byte[] compact) {
+            for (int i = 0; i < size; i++) {
+                int offset = i * ENTRY_SIZE;
+                if (Arrays.equals(entries, offset, offset + ENTRY_SIZE, compact, 0, ENTRY_SIZE)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOfFirstExpiration() {
+            int firstIndex = 0;
+            for (int i = 1; i < size; i++) {
+                if (expirations[i] < expirations[firstIndex]) {
+                    firstIndex = i;
+                }
+            }
+            return firstIndex;
+        }
+
+        private void resize(int capacity) {
+            entries = Arrays.copyOf(entries, capacity * ENTRY_SIZE);
+            expirations = Arrays.copyOf(expirations, capacity);
+        }
     }
 }
@@ -1,5 +1,6 @@
 package jtorrent.domain.dht.handler.lookup;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -12,6 +13,14 @@ public class FindNodeLookup extends IterativeLookup<FindNodeResponse, NodeId, Co
 
     private static final String NAME = "find node lookup";
 
+    public FindNodeLookup() {
+        super();
+    }
+
+    public FindNodeLookup(Duration queryTimeout, Duration lookupTimeout) {
+        super(queryTimeout, lookupTimeout);
+    }
+
     @Override
     protected Collection<Node> getResult() {
         return getClosestNodesSeen();
@@ -1,5 +1,6 @@
 package jtorrent.domain.dht.handler.lookup;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -7,7 +8,6 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import jtorrent.domain.common.util.Sha1Hash;
@@ -20,13 +20,23 @@ public class GetPeersLookup extends IterativeLookup<GetPeersResponse, Sha1Hash,
     private static final String NAME = "get peers";
 
     private final Set<PeerContactInfo> peers = new HashSet<>();
-    private final Map<Node, byte[]> nodeContactInfoToToken = new HashMap<>();
+    private final Map<Node, byte[]> nodeToToken = new HashMap<>();
+
+    public GetPeersLookup() {
+        super();
+    }
+
+    public GetPeersLookup(Duration queryTimeout, Duration lookupTimeout) {
+        super(queryTimeout, lookupTimeout);
+    }
 
     @Override
     protected Result getResult() {
-        Map<Node, byte[]> closestNodeToContactInfo = getClosestNodesSeen().stream()
-                .collect(Collectors.toMap(Function.identity(), nodeContactInfoToToken::get));
-        return new Result(peers, closestNodeToContactInfo);
+        // nodes that are still being queried when the lookup times out have not sent a token yet
+        Map<Node, byte[]> closestNodeToToken = getClosestNodesSeen().stream()
+                .filter(nodeToToken::containsKey)
+                .collect(Collectors.toMap(node -> node, nodeToToken::get));
+        return new Result(peers, closestNodeToToken);
     }
 
     @Override
@@ -43,15 +53,15 @@ public class GetPeersLookup extends IterativeLookup<GetPeersResponse, Sha1Hash,
                 .collect(Collectors.toList());
     }
 
+    @Override
+    protected void handleResponse(Node node, GetPeersResponse response) {
+        response.getPeers().ifPresent(peers::addAll);
+        nodeToToken.put(node, response.getToken());
+    }
+
     @Override
     protected CompletableFuture<GetPeersResponse> doQuery(Node node, Sha1Hash target) {
-        return node.getPeers(target)
-                .whenComplete((response, throwable) -> {
-                    if (response != null) {
-                        response.getPeers().ifPresent(peers::addAll);
-                        nodeContactInfoToToken.put(node, response.getToken());
-                    }
-                });
+        return node.getPeers(target);
     }
 
     public static class Result {
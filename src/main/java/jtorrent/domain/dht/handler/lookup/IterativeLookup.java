@@ -2,7 +2,7 @@ package jtorrent.domain.dht.handler.lookup;
 
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
-import java.math.BigInteger;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -13,7 +13,9 @@ import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -27,58 +29,186 @@ import jtorrent.domain.dht.handler.util.DistanceToTargetComparator;
 import jtorrent.domain.dht.model.message.response.Response;
 import jtorrent.domain.dht.model.node.NodeContactInfo;
 
+/**
+ * An iterative lookup that finds the K closest nodes to a target, as described in BEP 5.
+ * <p>
+ * The lookup does not block or use a thread of its own. It keeps up to {@link DhtManager#ALPHA} queries in flight, and
+ * sends the next query as soon as a response or failure arrives, to the closest node that has not been queried yet.
+ * The lookup completes once each of the K closest nodes seen has responded and no queries are in flight, or once its
+ * deadline has passed, in which case the result is based on the nodes that have responded so far.
+ * <p>
+ * Responses, failures and the deadline are handled on an {@link Executor} rather than on the thread that completed
+ * them. Timeouts in particular are completed by the single timer thread of {@link CompletableFuture}, which must not
+ * be kept busy sending the next queries.
+ * <p>
+ * An instance performs a single lookup, and its methods may be called from any thread.
+ *
+ * @param <T> the type of the responses to the queries
+ * @param <U> the type of the target
+ * @param <R> the type of the result
+ */
 public abstract class IterativeLookup<T extends Response, U extends Bit160Value, R> {
 
+    public static final Duration DEFAULT_QUERY_TIMEOUT = Duration.ofSeconds(3);
+    public static final Duration DEFAULT_LOOKUP_TIMEOUT = Duration.ofSeconds(30);
     private static final Logger LOGGER = LoggerFactory.getLogger(IterativeLookup.class);
 
+    private final Duration queryTimeout;
+    private final Duration lookupTimeout;
+    private final Executor executor;
+    private final CompletableFuture<R> result = new CompletableFuture<>();
+    private final CompletableFuture<Void> deadline = new CompletableFuture<>();
     private U target;
     private NodeStore nodeStore;
+    private int numQueriesInFlight;
+    private boolean isStarted;
 
+    protected IterativeLookup() {
+        this(DEFAULT_QUERY_TIMEOUT, DEFAULT_LOOKUP_TIMEOUT);
+    }
+
+    /**
+     * @param queryTimeout  the time after which a query that has not been answered is treated as failed
+     * @param lookupTimeout the time after which the lookup completes with the nodes that have responded so far
+     */
+    protected IterativeLookup(Duration queryTimeout, Duration lookupTimeout) {
+        this(queryTimeout, lookupTimeout, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param queryTimeout  the time after which a query that has not been answered is treated as failed
+     * @param lookupTimeout the time after which the lookup completes with the nodes that have responded so far
+     * @param executor      the executor on which responses, failures and the deadline are handled
+     */
+    protected IterativeLookup(Duration queryTimeout, Duration lookupTimeout, Executor executor) {
+        this.queryTimeout = requireNonNull(queryTimeout);
+        this.lookupTimeout = requireNonNull(lookupTimeout);
+        this.executor = requireNonNull(executor);
+    }
+
+    /**
+     * Performs the lookup, blocking until it completes.
+     *
+     * @see #lookupAsync(Bit160Value, Collection)
+     */
     public R lookup(U target, Collection<Node> initialNodes) {
-        this.target = requireNonNull(target);
-        this.nodeStore = new NodeStore(target);
-        requireNonNull(initialNodes).forEach(nodeStore::addNewNode);
+        return lookupAsync(target, initialNodes).join();
+    }
 
-        LOGGER.info(Markers.DHT, "Starting {} lookup for {}", getName(), getTarget());
-        BigInteger prevMinDist = Bit160Value.MAX.toBigInteger();
+    /**
+     * Starts the lookup.
+     *
+     * @param target       the target of the lookup
+     * @param initialNodes the nodes to start the lookup from
+     * @return a future that is completed with the result of the lookup
+     * @throws IllegalStateException if the lookup has already been started
+     */
+    public CompletableFuture<R> lookupAsync(U target, Collection<Node> initialNodes) {
+        synchronized (this) {
+            if (isStarted) {
+                throw new IllegalStateException("Lookup already started");
+            }
+            isStarted = true;
+            this.target = requireNonNull(target);
+            this.nodeStore = new NodeStore(target);
+            requireNonNull(initialNodes).forEach(nodeStore::addNewNode);
+        }
 
-        while (!nodeStore.isAllClosestNodesResponded()) {
-            Collection<Node> nodesToQuery = getNodesToQuery(prevMinDist, nodeStore.getMinDist());
-            Collection<T> responses = queryNodes(nodesToQuery);
-            getNodesFromResponses(responses).forEach(nodeStore::addNewNode);
+        LOGGER.info(Markers.DHT, "Starting {} lookup for {}", getName(), target);
+        // the timeout is cancelled when the deadline is completed, so lookups that finish early leave nothing behind
+        deadline.orTimeout(lookupTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((unused, throwable) -> {
+                    if (throwable != null) {
+                        onDeadline();
+                    }
+                }, executor);
+        queryClosestUnqueriedNodes();
+        return result;
+    }
+
+    /**
+     * Queries the closest unqueried nodes until {@link DhtManager#ALPHA} queries are in flight, or completes the lookup
+     * if there is nothing left to query.
+     */
+    private void queryClosestUnqueriedNodes() {
+        Collection<Node> nodesToQuery;
+        synchronized (this) {
+            if (result.isDone()) {
+                return;
+            }
+
+            nodesToQuery = nodeStore.getClosestUnqueriedNodes(DhtManager.ALPHA - numQueriesInFlight);
+            nodesToQuery.forEach(nodeStore::addQueriedNode);
+            numQueriesInFlight += nodesToQuery.size();
+
+            if (numQueriesInFlight == 0) {
+                completeLookup();
+                return;
+            }
         }
 
-        LOGGER.info(Markers.DHT, "Completed {} lookup for {}", getName(), getTarget());
-        return getResult();
+        nodesToQuery.forEach(this::queryNode);
     }
 
-    private Collection<Node> getNodesToQuery(BigInteger prevMinDist, BigInteger curMinDist) {
-        boolean isCloserNodeFound = curMinDist.compareTo(prevMinDist) < 0;
-        if (isCloserNodeFound) {
-            return nodeStore.getClosestUnqueriedNodes(DhtManager.ALPHA);
-        } else {
-            return nodeStore.getClosestUnqueriedNodes();
+    private void queryNode(Node node) {
+        CompletableFuture<T> query;
+        try {
+            query = doQuery(node, target);
+        } catch (RuntimeException e) {
+            query = CompletableFuture.failedFuture(e);
         }
+
+        // a copy, so that the timeout does not complete the future of the query itself
+        query.copy()
+                .orTimeout(queryTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((response, throwable) -> onQueryCompleted(node, response, throwable), executor);
     }
 
-    private Collection<T> queryNodes(Collection<Node> nodes) {
-        List<T> responses = new ArrayList<>();
-        List<CompletableFuture<Void>> futures = nodes.stream()
-                .map(node -> queryNode(node)
-                        .thenAccept(responses::add)
-                        .exceptionally(throwable -> null))
-                .collect(Collectors.toList());
-        futures.forEach(CompletableFuture::join);
-        return responses;
+    private void onQueryCompleted(Node node, T response, Throwable throwable) {
+        synchronized (this) {
+            numQueriesInFlight--;
+            if (result.isDone()) {
+                return;
+            }
+
+            if (throwable != null) {
+                LOGGER.debug(Markers.DHT, "{} query to {} failed", getName(), node, throwable);
+                nodeStore.removeNodeFromConsideration(node);
+            } else {
+                handleResponse(node, response);
+                getNodesFromResponse(response).forEach(nodeStore::addNewNode);
+            }
+        }
+
+        queryClosestUnqueriedNodes();
     }
 
-    private Collection<Node> getNodesFromResponses(Collection<T> responses) {
-        return responses.stream()
-                .map(this::getNodesFromResponse)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+    private void onDeadline() {
+        synchronized (this) {
+            if (result.isDone()) {
+                return;
+            }
+            LOGGER.info(Markers.DHT, "{} lookup for {} timed out with {} queries in flight", getName(), target,
+                    numQueriesInFlight);
+            completeLookup();
+        }
     }
 
+    private void completeLookup() {
+        deadline.complete(null);
+        try {
+            result.complete(getResult());
+            LOGGER.info(Markers.DHT, "Completed {} lookup for {}", getName(), target);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Gets the result of the lookup. Called once, while holding the lock of the lookup.
+     *
+     * @return the result of the lookup
+     */
     protected abstract R getResult();
 
     /**
@@ -92,26 +222,32 @@ public abstract class IterativeLookup<T extends Response, U extends Bit160Value,
         return target;
     }
 
-    private CompletableFuture<T> queryNode(Node node) {
-        nodeStore.addQueriedNode(node);
-        return doQuery(node, target)
-                .whenComplete((response, throwable) -> {
-                    if (throwable != null) {
-                        nodeStore.removeNodeFromConsideration(node);
-                    } else {
-                        nodeStore.addRespondedNode(node);
-                    }
-                });
+    /**
+     * Handles a response before the nodes in it are considered. Called while holding the lock of the lookup.
+     *
+     * @param node     the node that responded
+     * @param response the response
+     */
+    protected void handleResponse(Node node, T response) {
     }
 
     protected abstract Collection<Node> getNodesFromResponse(T response);
 
     protected abstract CompletableFuture<T> doQuery(Node node, U target);
 
+    /**
+     * Gets the K closest nodes seen that have not failed to respond. Must be called while holding the lock of the
+     * lookup, such as from {@link #getResult()}.
+     *
+     * @return the closest nodes seen
+     */
     protected Collection<Node> getClosestNodesSeen() {
-        return nodeStore.getClosetNodes();
+        return new ArrayList<>(nodeStore.getClosetNodes());
     }
 
+    /**
+     * The nodes seen by a lookup. Not thread-safe, and only accessed while holding the lock of the lookup.
+     */
     private static class NodeStore {
 
         private final Bit160Value target;
@@ -126,14 +262,12 @@ public abstract class IterativeLookup<T extends Response, U extends Bit160Value,
         private final Queue<Node> backupNodes;
         private final Set<NodeContactInfo> seenNodes = new HashSet<>();
         private final Set<NodeContactInfo> queriedNodes = new HashSet<>();
-        private final Set<NodeContactInfo> respondedNodes = new HashSet<>();
         private final Set<NodeContactInfo> discardedNodes = new HashSet<>();
-        private BigInteger minDist = Bit160Value.MAX.toBigInteger();
 
         public NodeStore(Bit160Value target) {
             this.target = requireNonNull(target);
             Comparator<Node> nodeComparator = new DistanceToTargetComparator(target);
-            closestNodes = new PriorityBlockingQueue<>(DhtManager.K, nodeComparator.reversed());
+            closestNodes = new PriorityQueue<>(DhtManager.K + 1, nodeComparator.reversed());
             backupNodes = new PriorityQueue<>(DhtManager.K, nodeComparator);
         }
 
@@ -145,11 +279,6 @@ public abstract class IterativeLookup<T extends Response, U extends Bit160Value,
             seenNodes.add(node.getNodeContactInfo());
             closestNodes.add(node);
 
-            BigInteger distance = node.getId().distanceTo(target);
-            if (distance.compareTo(minDist) < 0) {
-                minDist = distance;
-            }
-
             if (closestNodes.size() <= DhtManager.K) {
                 return;
             }
@@ -159,10 +288,6 @@ public abstract class IterativeLookup<T extends Response, U extends Bit160Value,
             backupNodes.add(furthestNode);
         }
 
-        public void addRespondedNode(Node node) {
-            respondedNodes.add(node.getNodeContactInfo());
-        }
-
         public void addQueriedNode(Node node) {
             queriedNodes.add(node.getNodeContactInfo());
         }
@@ -171,26 +296,11 @@ public abstract class IterativeLookup<T extends Response, U extends Bit160Value,
             return closestNodes;
         }
 
-        public BigInteger getMinDist() {
-            return minDist;
-        }
-
-        public boolean isAllClosestNodesResponded() {
-            Set<NodeContactInfo> closestNodeContactInfos = closestNodes.stream()
-                    .map(Node::getNodeContactInfo)
-                    .collect(Collectors.toSet());
-            return respondedNodes.containsAll(closestNodeContactInfos);
-        }
-
-        public Collection<Node> getClosestUnqueriedNodes() {
-            return getClosestUnqueriedNodes(DhtManager.K);
-        }
-
-        public Collection<Node> getClosestUnqueriedNodes(int limit) {
+        public List<Node> getClosestUnqueriedNodes(int limit) {
             return closestNodes.stream()
                     .filter(node -> !queriedNodes.contains(node.getNodeContactInfo()))
                     .sorted(new DistanceToTargetComparator(target))
-                    .limit(limit)
+                    .limit(Math.max(limit, 0))
                     .collect(Collectors.toList());
         }
 
@@ -201,12 +311,6 @@ public abstract class IterativeLookup<T extends Response, U extends Bit160Value,
                 return;
             }
             getClosestBackupNode().ifPresent(closestNodes::add);
-
-            minDist = closestNodes.stream()
-                    .map(Node::getId)
-                    .map(nodeId -> nodeId.distanceTo(target))
-                    .min(BigInteger::compareTo)
-                    .orElse(Bit160Value.MAX.toBigInteger());
         }
 
         private Optional<Node> getClosestBackupNode() {
@@ -0,0 +1,108 @@
+package jtorrent.domain.dht.handler.lookup;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import jtorrent.domain.common.util.Bit160Value;
+import jtorrent.domain.dht.handler.node.Node;
+import jtorrent.domain.dht.handler.util.DistanceToTargetComparator;
+
+/**
+ * Remembers the closest nodes found by recent lookups, so that later lookups for the same or nearby targets can start
+ * from them rather than only from the routing table.
+ * <p>
+ * The routing table holds few nodes that are far from the local ID, so a lookup for such a target usually needs
+ * several rounds of queries before it reaches the target's neighbourhood. The nodes found by a previous lookup for a
+ * target sharing a long prefix with the new one are already in that neighbourhood.
+ * <p>
+ * All methods are thread-safe.
+ */
+public class RecentLookupCache {
+
+    static final long EXPIRY_MILLIS = 30 * 60 * 1000;
+    static final int MAX_ENTRIES = 1024;
+    /**
+     * The number of recent lookups with the nearest targets whose nodes are considered.
+     */
+    static final int NUM_NEAREST_LOOKUPS = 3;
+
+    private final LongSupplier clock;
+    /**
+     * The results of recent lookups, from the least recently added to the most recently added.
+     */
+    private final Map<Bit160Value, Entry> targetToEntry = new LinkedHashMap<>();
+
+    public RecentLookupCache() {
+        this(System::currentTimeMillis);
+    }
+
+    RecentLookupCache(LongSupplier clock) {
+        this.clock = requireNonNull(clock);
+    }
+
+    /**
+     * Adds the closest nodes found by a lookup, replacing those of any previous lookup for the same target.
+     *
+     * @param target the target of the lookup
+     * @param nodes  the closest nodes found
+     */
+    public synchronized void add(Bit160Value target, Collection<Node> nodes) {
+        requireNonNull(target);
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        // re-inserting moves the entry to the most recently added end
+        targetToEntry.remove(target);
+        targetToEntry.put(target, new Entry(target, List.copyOf(nodes), clock.getAsLong()));
+        if (targetToEntry.size() > MAX_ENTRIES) {
+            Iterator<Bit160Value> iterator = targetToEntry.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Gets the nodes found by the recent lookups whose targets are nearest to the given target, in order of increasing
+     * distance to the given target.
+     *
+     * @param target the target
+     * @param limit  the maximum number of nodes to return
+     * @return the nodes closest to the target
+     */
+    public synchronized List<Node> getClosestNodes(Bit160Value target, int limit) {
+        removeExpiredEntries();
+        return targetToEntry.values().stream()
+                .sorted(Comparator.comparingInt((Entry entry) -> entry.target().numMatchingBits(target)).reversed())
+                .limit(NUM_NEAREST_LOOKUPS)
+                .flatMap(entry -> entry.nodes().stream())
+                .distinct()
+                .sorted(new DistanceToTargetComparator(target))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private void removeExpiredEntries() {
+        long now = clock.getAsLong();
+        // the entries are in the order in which they were added, so the expired entries are at the front
+        Iterator<Entry> iterator = targetToEntry.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().addedAt() >= EXPIRY_MILLIS) {
+            iterator.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return targetToEntry.size();
+    }
+
+    private record Entry(Bit160Value target, List<Node> nodes, long addedAt) {
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
@@ -43,8 +44,8 @@ public class Node {
     private static DhtSocket dhtSocket;
 
     private final NodeContactInfo nodeContactInfo;
-    private LocalDateTime lastSeen;
-    private int numFailedQueries;
+    private final AtomicInteger numFailedQueries = new AtomicInteger();
+    private volatile LocalDateTime lastSeen;
 
     private Node(NodeContactInfo nodeContactInfo, LocalDateTime lastSeen) {
         this.nodeContactInfo = requireNonNull(nodeContactInfo);
@@ -59,7 +60,7 @@ public class Node {
      * Otherwise, the future will be completed with an exception.
      */
     public static CompletableFuture<Node> createNodeFromAddress(InetSocketAddress address) {
-        return dhtSocket.sendPing(new Ping(NodeId.LOCAL), address)
+        return dhtSocket.sendPing(new Ping(NodeId.getLocal()), address)
                 .thenApply(PingResponse::getId)
                 .thenApply(nodeId -> new NodeContactInfo(nodeId, address))
                 .thenApply(Node::seenNowWithContactInfo);
@@ -72,14 +73,17 @@ public class Node {
     }
 
     public static Node withContactInfo(NodeContactInfo nodeContactInfo) {
-        WeakReference<Node> nodeReference = NODE_CONTACT_INFO_TO_NODE.get(nodeContactInfo);
-        if (nodeReference == null || nodeReference.get() == null) {
-            Node node = new Node(nodeContactInfo, LocalDateTime.MIN);
-            NODE_CONTACT_INFO_TO_NODE.put(nodeContactInfo, new WeakReference<>(node));
-            return node;
-        } else {
-            return nodeReference.get();
-        }
+        // atomic, as messages from the same node may be handled concurrently
+        Node[] node = new Node[1];
+        NODE_CONTACT_INFO_TO_NODE.compute(nodeContactInfo, (contactInfo, nodeReference) -> {
+            node[0] = nodeReference == null ? null : nodeReference.get();
+            if (node[0] == null) {
+                node[0] = new Node(contactInfo, LocalDateTime.MIN);
+                return new WeakReference<>(node[0]);
+            }
+            return nodeReference;
+        });
+        return node[0];
     }
 
     private void setLastSeenNow() {
@@ -117,7 +121,7 @@ public class Node {
     }
 
     public State getState() {
-        if (numFailedQueries >= 3) {
+        if (numFailedQueries.get() >= 3) {
             return State.BAD;
         }
         if (!isSeenWithin(Duration.ofMinutes(15))) {
@@ -131,11 +135,11 @@ public class Node {
     }
 
     private void incrementNumFailedQueries() {
-        numFailedQueries++;
+        numFailedQueries.incrementAndGet();
     }
 
     private void resetNumFailedQueries() {
-        numFailedQueries = 0;
+        numFailedQueries.set(0);
     }
 
     public boolean isContactable() {
@@ -148,7 +152,7 @@ public class Node {
 
     public CompletableFuture<PingResponse> ping() {
         checkSocketIsSet();
-        return dhtSocket.sendPing(new Ping(NodeId.LOCAL), getSocketAddress())
+        return dhtSocket.sendPing(new Ping(NodeId.getLocal()), getSocketAddress())
                 .whenComplete(new FutureHandler<>(Method.PING));
     }
 
@@ -168,58 +172,58 @@ public class Node {
 
     public CompletableFuture<FindNodeResponse> findNode(NodeId target) {
         checkSocketIsSet();
-        FindNode findNode = new FindNode(NodeId.LOCAL, target);
+        FindNode findNode = new FindNode(NodeId.getLocal(), target);
         return dhtSocket.sendFindNode(findNode, getSocketAddress())
                 .whenComplete(new FutureHandler<>(Method.FIND_NODE));
     }
 
     public CompletableFuture<GetPeersResponse> getPeers(Sha1Hash infoHash) {
         checkSocketIsSet();
-        GetPeers getPeers = new GetPeers(NodeId.LOCAL, infoHash);
+        GetPeers getPeers = new GetPeers(NodeId.getLocal(), infoHash);
         return dhtSocket.sendGetPeers(getPeers, getSocketAddress())
                 .whenComplete(new FutureHandler<>(Method.GET_PEERS));
     }
 
     public CompletableFuture<AnnouncePeerResponse> announcePeer(Sha1Hash infoHash, int port, byte[] token) {
         checkSocketIsSet();
-        AnnouncePeer announcePeer = new AnnouncePeer(NodeId.LOCAL, infoHash, port, token);
+        AnnouncePeer announcePeer = new AnnouncePeer(NodeId.getLocal(), infoHash, port, token);
         return dhtSocket.sendAnnouncePeer(announcePeer, getSocketAddress())
                 .whenComplete(new FutureHandler<>(Method.ANNOUNCE_PEER));
     }
 
     public void sendPingResponse() throws IOException {
         checkSocketIsSet();
-        PingResponse pingResponse = new PingResponse(NodeId.LOCAL);
+        PingResponse pingResponse = new PingResponse(NodeId.getLocal());
         dhtSocket.sendResponse(pingResponse, getSocketAddress());
     }
 
     public void sendFindNodeResponse(Collection<NodeContactInfo> nodes) throws IOException {
         checkSocketIsSet();
-        FindNodeResponse findNodeResponse = new FindNodeResponse(NodeId.LOCAL, nodes);
+        FindNodeResponse findNodeResponse = new FindNodeResponse(NodeId.getLocal(), nodes);
         dhtSocket.sendResponse(findNodeResponse, getSocketAddress());
     }
 
     public void sendGetPeersResponseWithPeers(byte[] token, Collection<PeerContactInfo> peers) throws IOException {
         checkSocketIsSet();
-        GetPeersResponse getPeersResponse = GetPeersResponse.withPeers(NodeId.LOCAL, token, peers);
+        GetPeersResponse getPeersResponse = GetPeersResponse.withPeers(NodeId.getLocal(), token, peers);
         dhtSocket.sendResponse(getPeersResponse, getSocketAddress());
     }
 
     public void sendGetPeersResponseWithNodes(byte[] token, Collection<NodeContactInfo> nodes) throws IOException {
         checkSocketIsSet();
-        GetPeersResponse getPeersResponse = GetPeersResponse.withNodes(NodeId.LOCAL, token, nodes);
+        GetPeersResponse getPeersResponse = GetPeersResponse.withNodes(NodeId.getLocal(), token, nodes);
         dhtSocket.sendResponse(getPeersResponse, getSocketAddress());
     }
 
     public void sendAnnouncePeerResponse() throws IOException {
         checkSocketIsSet();
-        AnnouncePeerResponse announcePeerResponse = new AnnouncePeerResponse(NodeId.LOCAL);
+        AnnouncePeerResponse announcePeerResponse = new AnnouncePeerResponse(NodeId.getLocal());
         dhtSocket.sendResponse(announcePeerResponse, getSocketAddress());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(nodeContactInfo, lastSeen);
+        return Objects.hash(nodeContactInfo);
     }
 
     @Override
@@ -231,7 +235,7 @@ public class Node {
             return false;
         }
         Node that = (Node) o;
-        return Objects.equals(nodeContactInfo, that.nodeContactInfo) && Objects.equals(lastSeen, that.lastSeen);
+        return Objects.equals(nodeContactInfo, that.nodeContactInfo);
     }
 
     @Override
@@ -4,106 +4,224 @@ import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.dht.handler.DhtManager;
 import jtorrent.domain.dht.handler.node.Node;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
 import jtorrent.domain.dht.model.node.NodeIdPrefix;
 
+/**
+ * A bucket of a {@link RoutingTable}, which holds up to {@link DhtManager#K} nodes, and a replacement cache of up to
+ * {@link DhtManager#K} nodes that were seen while the bucket was full.
+ * <p>
+ * All methods are thread-safe. The structure of the bucket is only changed by its {@link RoutingTable}.
+ */
 public class Bucket {
 
-    public static final Logger LOGGER = LoggerFactory.getLogger(Bucket.class);
-
-    private final NodeIdPrefix prefix;
-    private final Set<Node> nodes;
+    private final Map<NodeContactInfo, Node> nodes = new LinkedHashMap<>(DhtManager.K);
+    /**
+     * The replacement nodes, from the least recently seen to the most recently seen.
+     */
+    private final Map<NodeContactInfo, Node> replacements = new LinkedHashMap<>(DhtManager.K);
+    private NodeIdPrefix prefix;
+    /**
+     * Whether a questionable node of this bucket is being pinged to find out whether it can be replaced.
+     */
+    private boolean isPinging;
 
     public Bucket(NodeIdPrefix prefix) {
         this.prefix = requireNonNull(prefix);
-        this.nodes = new HashSet<>(DhtManager.K);
     }
 
-    public int size() {
+    public synchronized int size() {
         return nodes.size();
     }
 
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return nodes.isEmpty();
     }
 
-    public boolean addNode(Node node) {
-        if (isFull()) {
-            LOGGER.debug(Markers.DHT, "Bucket {} is full", getPrefixBitLength());
-            Optional<Node> removedNode = evictBadOrQuestionableNode();
-            if (removedNode.isPresent()) {
-                LOGGER.debug(Markers.DHT, "Removed node {} from bucket {}", removedNode.get(), getPrefixBitLength());
-                return nodes.add(node);
-            }
-            return false;
-        }
+    public synchronized boolean isFull() {
+        return nodes.size() >= DhtManager.K;
+    }
 
-        return nodes.add(node);
+    public synchronized boolean contains(Node node) {
+        return nodes.containsKey(node.getNodeContactInfo());
     }
 
-    public boolean isFull() {
-        return nodes.size() >= DhtManager.K;
+    /**
+     * Gets the prefix shared by the IDs of all nodes that belong in this bucket.
+     */
+    public synchronized NodeIdPrefix getPrefix() {
+        return prefix;
+    }
+
+    synchronized void setPrefix(NodeIdPrefix prefix) {
+        this.prefix = requireNonNull(prefix);
     }
 
-    public int getPrefixBitLength() {
+    public synchronized int getPrefixBitLength() {
         return prefix.getBitLength();
     }
 
-    private Optional<Node> evictBadOrQuestionableNode() {
-        Optional<Node> badNode = getBadNodes().stream().findAny();
-        if (badNode.isPresent()) {
-            nodes.remove(badNode.get());
-            return badNode;
+    public synchronized List<Node> getNodes() {
+        return new ArrayList<>(nodes.values());
+    }
+
+    public synchronized List<Node> getReplacements() {
+        return new ArrayList<>(replacements.values());
+    }
+
+    public synchronized List<Node> getBadNodes() {
+        return getNodesInState(Node.State.BAD);
+    }
+
+    public synchronized List<Node> getQuestionableNodes() {
+        return getNodesInState(Node.State.QUESTIONABLE);
+    }
+
+    private List<Node> getNodesInState(Node.State state) {
+        return nodes.values().stream()
+                .filter(node -> node.getState() == state)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized LocalDateTime getLastUpdated() {
+        return nodes.values().stream()
+                .map(Node::getLastSeen)
+                .max(LocalDateTime::compareTo)
+                .orElse(LocalDateTime.MIN);
+    }
+
+    /**
+     * Adds the node if the bucket is not full, or if it can take the place of a bad node.
+     *
+     * @param node the node to add
+     * @return true if the node is in the bucket after the call, false otherwise
+     */
+    synchronized boolean add(Node node) {
+        if (nodes.containsKey(node.getNodeContactInfo())) {
+            return true;
         }
 
-        Optional<Node> questionableNode = getQuestionableNodes().stream()
-                .filter(Predicate.not(Node::isContactable))
-                .findFirst();
+        if (isFull()) {
+            Optional<Node> badNode = nodes.values().stream()
+                    .filter(existingNode -> existingNode.getState() == Node.State.BAD)
+                    .findFirst();
+            if (badNode.isEmpty()) {
+                return false;
+            }
+            nodes.remove(badNode.get().getNodeContactInfo());
+        }
 
-        if (questionableNode.isPresent()) {
-            nodes.remove(questionableNode.get());
-            return questionableNode;
+        replacements.remove(node.getNodeContactInfo());
+        nodes.put(node.getNodeContactInfo(), node);
+        return true;
+    }
+
+    /**
+     * Adds the node to the replacement cache, evicting the least recently seen replacement if the cache is full.
+     */
+    synchronized void addReplacement(Node node) {
+        if (nodes.containsKey(node.getNodeContactInfo())) {
+            return;
         }
 
-        return Optional.empty();
+        // re-inserting moves the node to the most recently seen end
+        replacements.remove(node.getNodeContactInfo());
+        replacements.put(node.getNodeContactInfo(), node);
+        if (replacements.size() > DhtManager.K) {
+            Iterator<NodeContactInfo> iterator = replacements.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+        }
     }
 
-    public List<Node> getBadNodes() {
-        return nodes.stream()
-                .filter(node -> node.getState() == Node.State.BAD)
-                .collect(Collectors.toList());
+    /**
+     * Replaces the given node with the most recently seen replacement that is not bad.
+     * The node is only removed if there is a replacement for it.
+     *
+     * @param node the node to replace
+     * @return true if the node was replaced, false otherwise
+     */
+    synchronized boolean replace(Node node) {
+        if (!nodes.containsKey(node.getNodeContactInfo())) {
+            return false;
+        }
+
+        List<Node> candidates = new ArrayList<>(replacements.values());
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            Node candidate = candidates.get(i);
+            replacements.remove(candidate.getNodeContactInfo());
+            if (candidate.getState() != Node.State.BAD) {
+                nodes.remove(node.getNodeContactInfo());
+                nodes.put(candidate.getNodeContactInfo(), candidate);
+                return true;
+            }
+        }
+        return false;
     }
 
-    public List<Node> getQuestionableNodes() {
-        return nodes.stream()
-                .filter(node -> node.getState() == Node.State.QUESTIONABLE)
-                .collect(Collectors.toList());
+    /**
+     * Claims the least recently seen questionable node to be pinged, unless a node is already being pinged or there
+     * are no replacements that could take its place.
+     *
+     * @return the node to ping, or an empty {@link Optional} if no node should be pinged
+     */
+    synchronized Optional<Node> claimNodeToPing() {
+        if (isPinging || replacements.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<Node> node = nodes.values().stream()
+                .filter(existingNode -> existingNode.getState() == Node.State.QUESTIONABLE)
+                .min(Comparator.comparing(Node::getLastSeen));
+        isPinging = node.isPresent();
+        return node;
     }
 
-    public List<Node> getNodes() {
-        return new ArrayList<>(nodes);
+    synchronized void releasePing() {
+        isPinging = false;
     }
 
-    public NodeIdPrefix getPrefix() {
-        return prefix;
+    /**
+     * Moves the nodes and replacements that match the predicate to the other bucket, which must not be accessible to
+     * other threads yet.
+     *
+     * @param other     the bucket to move the nodes to
+     * @param predicate the predicate to match
+     */
+    synchronized void moveTo(Bucket other, Predicate<Node> predicate) {
+        moveTo(nodes, other.nodes, predicate);
+        moveTo(replacements, other.replacements, predicate);
     }
 
-    public LocalDateTime getLastUpdated() {
-        return nodes.stream()
-                .map(Node::getLastSeen)
-                .max(LocalDateTime::compareTo)
-                .orElse(LocalDateTime.MIN);
+    private static void moveTo(Map<NodeContactInfo, Node> from, Map<NodeContactInfo, Node> to,
+            Predicate<Node> predicate) {
+        Iterator<Map.Entry<NodeContactInfo, Node>> iterator = from.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<NodeContactInfo, Node> entry = iterator.next();
+            if (predicate.test(entry.getValue())) {
+                to.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Bucket{"
+                + "prefixBitLength=" + prefix.getBitLength()
+                + ", size=" + nodes.size()
+                + ", replacements=" + replacements.size()
+                + '}';
     }
 }
@@ -1,9 +1,15 @@
 package jtorrent.domain.dht.handler.routingtable;
 
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,24 +20,60 @@ import jtorrent.domain.dht.handler.node.Node;
 import jtorrent.domain.dht.handler.util.DistanceToTargetComparator;
 import jtorrent.domain.dht.model.node.NodeId;
 
+/**
+ * A routing table as described in BEP 5, which starts with a single bucket covering the whole ID space.
+ * <p>
+ * Bucket i holds the nodes whose IDs have exactly i leading bits in common with the local ID, except for the last
+ * bucket, which holds all nodes with at least as many bits in common. When the last bucket is full, it is split in two,
+ * so that the table keeps more nodes close to the local ID than far from it.
+ * <p>
+ * When a bucket that cannot be split is full, new nodes are kept in its replacement cache, and its least recently seen
+ * questionable node is pinged. A node that fails to respond is replaced by the most recently seen replacement.
+ * <p>
+ * All methods are thread-safe. Nodes are added one at a time, while reads do not block each other.
+ */
 public class RoutingTable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RoutingTable.class);
-    private static final int NUM_BUCKETS = 160;
+    private static final int MAX_BUCKETS = Bit160Value.SIZE_BITS;
 
-    private final Bucket[] buckets = new Bucket[160];
+    private final NodeId localId = NodeId.getLocal();
+    private final Pinger pinger;
+    /**
+     * The buckets, in order of the number of bits their nodes have in common with the local ID.
+     * Buckets are only ever appended, so a bucket keeps its index once it has been created.
+     */
+    private final List<Bucket> buckets = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Bucket>> bucketCreatedListeners = new CopyOnWriteArrayList<>();
 
     public RoutingTable() {
-        for (int i = 0; i < NUM_BUCKETS; i++) {
-            buckets[i] = new Bucket(NodeId.LOCAL.getPrefix(i));
-        }
+        this(Node::ping);
+    }
+
+    /**
+     * @param pinger used to ping questionable nodes to find out whether they should be replaced
+     */
+    public RoutingTable(Pinger pinger) {
+        this.pinger = requireNonNull(pinger);
+        buckets.add(new Bucket(localId.getPrefix(0)));
+    }
+
+    /**
+     * Adds a listener that is called with every bucket created by a split.
+     * The listener is called while nodes are being added, so it must not block.
+     *
+     * @param listener the listener to add
+     */
+    public void addBucketCreatedListener(Consumer<Bucket> listener) {
+        bucketCreatedListeners.add(requireNonNull(listener));
     }
 
     public Collection<Bucket> getEmptyBucketsFurtherThanNonEmptyBuckets() {
         Collection<Bucket> result = new ArrayList<>();
+        List<Bucket> snapshot = List.copyOf(buckets);
 
-        for (int i = NUM_BUCKETS - 1; i >= 0; i--) {
-            Bucket bucket = getBucket(i);
+        for (int i = snapshot.size() - 1; i >= 0; i--) {
+            Bucket bucket = snapshot.get(i);
             if (!bucket.isEmpty()) {
                 break;
             }
@@ -42,43 +84,147 @@ public class RoutingTable {
     }
 
     public Bucket getBucket(int numMatchingPrefixBits) {
-        return buckets[numMatchingPrefixBits];
+        return buckets.get(numMatchingPrefixBits);
     }
 
-    public Collection<Bucket> getBuckets() {
-        return Arrays.asList(buckets);
+    public List<Bucket> getBuckets() {
+        return List.copyOf(buckets);
     }
 
+    /**
+     * Gets the nodes closest to the target, in order of increasing distance.
+     * <p>
+     * Let c be the index of the bucket that the target belongs in. Nodes in bucket c share at least c + 1 bits with
+     * the target, nodes in buckets further than c share exactly c bits, and nodes in each bucket i closer than c share
+     * exactly i bits. Buckets are therefore visited outward from bucket c, and only the buckets needed to reach the
+     * limit are visited and sorted.
+     *
+     * @param target the target
+     * @param limit  the maximum number of nodes to return
+     * @return the closest nodes to the target
+     */
     public Collection<Node> getClosestNodes(Bit160Value target, int limit) {
-        return Arrays.stream(buckets)
-                .flatMap(bucket -> bucket.getNodes().stream())
-                .sorted(new DistanceToTargetComparator(target))
-                .limit(limit)
-                .collect(Collectors.toList());
+        Comparator<Node> comparator = new DistanceToTargetComparator(target);
+        List<Node> result = new ArrayList<>(limit);
+        List<Bucket> snapshot = List.copyOf(buckets);
+        int targetBucketIndex = getBucketIndex(target, snapshot.size());
+
+        addClosestNodes(result, snapshot.get(targetBucketIndex).getNodes(), comparator, limit);
+
+        List<Node> furtherBucketNodes = new ArrayList<>();
+        for (int i = targetBucketIndex + 1; i < snapshot.size() && result.size() < limit; i++) {
+            furtherBucketNodes.addAll(snapshot.get(i).getNodes());
+        }
+        addClosestNodes(result, furtherBucketNodes, comparator, limit);
+
+        for (int i = targetBucketIndex - 1; i >= 0 && result.size() < limit; i--) {
+            addClosestNodes(result, snapshot.get(i).getNodes(), comparator, limit);
+        }
+
+        return result;
+    }
+
+    /**
+     * Sorts the nodes by their distance to the target and adds the closest of them to the result, up to the limit.
+     * The nodes must all be further from the target than the nodes already in the result.
+     */
+    private static void addClosestNodes(List<Node> result, List<Node> nodes, Comparator<Node> comparator, int limit) {
+        if (result.size() >= limit || nodes.isEmpty()) {
+            return;
+        }
+        nodes.sort(comparator);
+        result.addAll(nodes.subList(0, Math.min(nodes.size(), limit - result.size())));
     }
 
+    /**
+     * Adds the node to the bucket it belongs in, splitting the last bucket if needed.
+     * If the bucket is full, the node is added to its replacement cache instead.
+     *
+     * @param node the node to add
+     * @return true if the node is in the routing table after the call, false otherwise
+     */
     public boolean addNode(Node node) {
-        boolean isAdded = getBucketForNode(node).addNode(node);
+        Bucket bucket;
+        synchronized (this) {
+            while (true) {
+                int index = getBucketIndex(node.getId(), buckets.size());
+                bucket = buckets.get(index);
+                if (bucket.add(node)) {
+                    LOGGER.debug(Markers.DHT, "Added Node {} to routing table", node);
+                    return true;
+                }
+                if (index < MAX_BUCKETS - 1 && index == buckets.size() - 1) {
+                    splitLastBucket();
+                } else {
+                    break;
+                }
+            }
+            bucket.addReplacement(node);
+        }
+
+        LOGGER.debug(Markers.DHT, "Bucket {} is full, added Node {} as a replacement", bucket, node);
+        pingQuestionableNode(bucket);
+        return false;
+    }
+
+    /**
+     * Splits the last bucket, which holds every node with at least as many bits in common with the local ID as its
+     * index. The nodes with more bits in common are moved to a new last bucket.
+     */
+    private void splitLastBucket() {
+        int index = buckets.size() - 1;
+        Bucket lastBucket = buckets.get(index);
+        Bucket newBucket = new Bucket(localId.getPrefix(index + 1));
+        lastBucket.moveTo(newBucket, node -> node.getId().numMatchingBits(localId) > index);
+        lastBucket.setPrefix(localId.withBitFlipped(index).getPrefix(index + 1));
+        buckets.add(newBucket);
+        LOGGER.debug(Markers.DHT, "Split bucket {} into {} and {}", index, lastBucket, newBucket);
+        bucketCreatedListeners.forEach(listener -> listener.accept(newBucket));
+    }
+
+    /**
+     * Pings the least recently seen questionable node of the bucket, and replaces it if it fails to respond.
+     * At most one node of each bucket is pinged at a time.
+     */
+    private void pingQuestionableNode(Bucket bucket) {
+        Optional<Node> node = bucket.claimNodeToPing();
+        if (node.isEmpty()) {
+            return;
+        }
 
-        if (isAdded) {
-            LOGGER.debug(Markers.DHT, "Added Node {} to routing table", node);
-        } else {
-            LOGGER.debug(Markers.DHT, "Failed to add Node {} to routing table", node);
+        CompletableFuture<?> pingFuture;
+        try {
+            pingFuture = pinger.ping(node.get());
+        } catch (RuntimeException e) {
+            bucket.releasePing();
+            LOGGER.error(Markers.DHT, "Failed to ping Node {}", node.get(), e);
+            return;
         }
 
-        return isAdded;
+        pingFuture.whenComplete((response, throwable) -> {
+            bucket.releasePing();
+            if (throwable != null && bucket.replace(node.get())) {
+                LOGGER.debug(Markers.DHT, "Replaced unresponsive Node {} in bucket {}", node.get(), bucket);
+            }
+        });
     }
 
-    private Bucket getBucketForNode(Node node) {
-        int numMatchingBits = node.getId().numMatchingBits(NodeId.LOCAL);
-        return buckets[numMatchingBits];
+    private int getBucketIndex(Bit160Value value, int numBuckets) {
+        // the last bucket holds every node with at least as many bits in common as its index
+        return Math.min(value.numMatchingBits(localId), numBuckets - 1);
     }
 
     public boolean isEmpty() {
-        return Arrays.stream(buckets).allMatch(Bucket::isEmpty);
+        return buckets.stream().allMatch(Bucket::isEmpty);
     }
 
     public int size() {
-        return Arrays.stream(buckets).mapToInt(Bucket::size).sum();
+        return buckets.stream().mapToInt(Bucket::size).sum();
+    }
+
+    @FunctionalInterface
+    public interface Pinger {
+
+        CompletableFuture<?> ping(Node node);
     }
 }
@@ -59,7 +59,7 @@ public class BootstrapTask implements BooleanSupplier {
      */
     private boolean findClosestNodes() {
         new FindNodeLookup()
-                .lookup(NodeId.LOCAL, List.of(bootstrapNode))
+                .lookup(NodeId.getLocal(), List.of(bootstrapNode))
                 .forEach(routingTable::addNode);
 
         if (routingTable.isEmpty()) {
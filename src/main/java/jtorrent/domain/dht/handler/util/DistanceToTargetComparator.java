@@ -2,7 +2,6 @@ package jtorrent.domain.dht.handler.util;
 
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
-import java.math.BigInteger;
 import java.util.Comparator;
 
 import jtorrent.domain.common.util.Bit160Value;
@@ -22,8 +21,6 @@ public class DistanceToTargetComparator implements Comparator<Node> {
 
     @Override
     public int compare(Node o1, Node o2) {
-        BigInteger dist1 = o1.getId().distanceTo(target);
-        BigInteger dist2 = o2.getId().distanceTo(target);
-        return dist1.compareTo(dist2);
+        return target.compareDistances(o1.getId(), o2.getId());
     }
 }
@@ -0,0 +1,22 @@
+package jtorrent.domain.dht.model;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.List;
+
+import jtorrent.domain.dht.model.node.NodeId;
+import jtorrent.domain.dht.model.node.SavedNode;
+
+/**
+ * The state of the DHT that is kept across sessions, so that the DHT can be used without bootstrapping again.
+ *
+ * @param localNodeId the ID of the local node
+ * @param nodes       the nodes of the routing table
+ */
+public record DhtState(NodeId localNodeId, List<SavedNode> nodes) {
+
+    public DhtState {
+        requireNonNull(localNodeId);
+        nodes = List.copyOf(requireNonNull(nodes));
+    }
+}
@@ -0,0 +1,676 @@
+package jtorrent.domain.dht.model.message.codec;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import jtorrent.domain.common.util.Bit160Value;
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.dht.model.message.DhtMessage;
+import jtorrent.domain.dht.model.message.MessageType;
+import jtorrent.domain.dht.model.message.TransactionId;
+import jtorrent.domain.dht.model.message.decoder.DhtDecodingException;
+import jtorrent.domain.dht.model.message.decoder.DhtMessageDecoder;
+import jtorrent.domain.dht.model.message.decoder.DhtMessageDecoder.TransactionIdMethodProvider;
+import jtorrent.domain.dht.model.message.error.Error;
+import jtorrent.domain.dht.model.message.error.ErrorCode;
+import jtorrent.domain.dht.model.message.query.AnnouncePeer;
+import jtorrent.domain.dht.model.message.query.FindNode;
+import jtorrent.domain.dht.model.message.query.GetPeers;
+import jtorrent.domain.dht.model.message.query.Method;
+import jtorrent.domain.dht.model.message.query.Ping;
+import jtorrent.domain.dht.model.message.query.Query;
+import jtorrent.domain.dht.model.message.response.AnnouncePeerResponse;
+import jtorrent.domain.dht.model.message.response.FindNodeResponse;
+import jtorrent.domain.dht.model.message.response.GetPeersResponse;
+import jtorrent.domain.dht.model.message.response.PingResponse;
+import jtorrent.domain.dht.model.message.response.Response;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+import jtorrent.domain.peer.model.PeerContactInfo;
+
+/**
+ * Encodes and decodes KRPC messages directly between their bencoded form and the {@link DhtMessage} model.
+ * <p>
+ * {@link DhtMessageDecoder} first decodes a packet into a map of boxed values and buffers, and {@link
+ * DhtMessage#bencode()} first builds such a map and then encodes it into a new array. This codec instead scans the
+ * dictionaries of a packet in place, noting only where the values of the keys used by KRPC start, and reads those
+ * values straight into the message. The values of other keys are validated and skipped. Messages are encoded
+ * straight into a buffer supplied by the caller, which can be reused for every message.
+ * <p>
+ * The codec accepts and rejects the same packets as {@link DhtMessageDecoder}, decodes them into equal messages, and
+ * encodes messages into the same bytes as {@link DhtMessage#bencode()}. Like {@link DhtMessageDecoder}, it ignores any
+ * bytes that follow the message. It is thread-safe.
+ */
+public class KrpcCodec {
+
+    private static final int ABSENT = -1;
+    private static final int TRANSACTION_ID_BYTES = Character.BYTES;
+    private static final int COMPACT_ADDRESS_BYTES = 4;
+    private static final int COMPACT_PEER_INFO_BYTES = COMPACT_ADDRESS_BYTES + Short.BYTES;
+
+    /**
+     * The keys of the top level dictionary of a message, indexed by the constants that follow.
+     */
+    private static final byte[][] MESSAGE_KEYS = keys("t", "y", "q", "a", "r", "e", "v");
+    private static final int TRANSACTION_ID = 0;
+    private static final int MESSAGE_TYPE = 1;
+    private static final int METHOD_NAME = 2;
+    private static final int ARGS = 3;
+    private static final int RETURN_VALUES = 4;
+    private static final int ERROR = 5;
+    private static final int CLIENT_VERSION = 6;
+
+    /**
+     * The keys of the arguments of a query and the return values of a response, indexed by the constants that follow.
+     */
+    private static final byte[][] BODY_KEYS = keys("id", "target", "info_hash", "port", "token", "nodes", "values");
+    private static final int ID = 0;
+    private static final int TARGET = 1;
+    private static final int INFO_HASH = 2;
+    private static final int PORT = 3;
+    private static final int TOKEN = 4;
+    private static final int NODES = 5;
+    private static final int VALUES = 6;
+
+    private static final Method[] METHODS = Method.values();
+    private static final byte[][] METHOD_NAMES = Arrays.stream(METHODS)
+            .map(method -> method.getValue().getBytes(StandardCharsets.US_ASCII))
+            .toArray(byte[][]::new);
+
+    private final TransactionIdMethodProvider transactionIdMethodProvider;
+
+    /**
+     * @param transactionIdMethodProvider provides the method of the query that a response with a given transaction ID
+     *                                    answers, which determines how the response is decoded
+     */
+    public KrpcCodec(TransactionIdMethodProvider transactionIdMethodProvider) {
+        this.transactionIdMethodProvider = requireNonNull(transactionIdMethodProvider);
+    }
+
+    private static byte[][] keys(String... keys) {
+        return Arrays.stream(keys)
+                .map(key -> key.getBytes(StandardCharsets.US_ASCII))
+                .toArray(byte[][]::new);
+    }
+
+    /**
+     * Decodes the message between the position and the limit of the given buffer.
+     * The position of the buffer is left unchanged.
+     *
+     * @param buffer the buffer containing the message
+     * @return the decoded message
+     * @throws DhtDecodingException if the bytes are not a valid KRPC message, or if the message is a response whose
+     *                              transaction ID is not associated with a method
+     */
+    public DhtMessage decode(ByteBuffer buffer) throws DhtDecodingException {
+        Reader reader = new Reader(buffer);
+        try {
+            int[] message = reader.readDictionary(MESSAGE_KEYS);
+            MessageType messageType = readMessageType(reader, message);
+            TransactionId transactionId = readTransactionId(reader, message);
+            String clientVersion = readClientVersion(reader, message);
+
+            switch (messageType) {
+            case QUERY:
+                return decodeQuery(reader, message, transactionId, clientVersion);
+            case RESPONSE:
+                return decodeResponse(reader, message, transactionId, clientVersion);
+            case ERROR:
+                return decodeError(reader, message, transactionId, clientVersion);
+            default:
+                throw new AssertionError("Unknown message type: " + messageType);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new DhtDecodingException("Invalid DHT message", e);
+        }
+    }
+
+    private static MessageType readMessageType(Reader reader, int[] message) throws DhtDecodingException {
+        reader.seek(require(message, MESSAGE_TYPE, MESSAGE_KEYS));
+        if (reader.readStringLength() != 1) {
+            throw new DhtDecodingException("Message type must be a single character");
+        }
+        return MessageType.fromValue((char) Byte.toUnsignedInt(reader.next()));
+    }
+
+    private static TransactionId readTransactionId(Reader reader, int[] message) throws DhtDecodingException {
+        reader.seek(require(message, TRANSACTION_ID, MESSAGE_KEYS));
+        if (reader.readStringLength() != TRANSACTION_ID_BYTES) {
+            throw new DhtDecodingException(
+                    String.format("Transaction id must be %d bytes long", TRANSACTION_ID_BYTES));
+        }
+        int high = Byte.toUnsignedInt(reader.next());
+        int low = Byte.toUnsignedInt(reader.next());
+        return new TransactionId((char) ((high << 8) | low));
+    }
+
+    private static String readClientVersion(Reader reader, int[] message) throws DhtDecodingException {
+        if (message[CLIENT_VERSION] == ABSENT) {
+            return null;
+        }
+        reader.seek(message[CLIENT_VERSION]);
+        return new String(reader.readString(), StandardCharsets.UTF_8);
+    }
+
+    private static Query decodeQuery(Reader reader, int[] message, TransactionId transactionId, String clientVersion)
+            throws DhtDecodingException {
+        Method method = readMethod(reader, message);
+        reader.seek(require(message, ARGS, MESSAGE_KEYS));
+        int[] args = reader.readDictionary(BODY_KEYS);
+        NodeId id = new NodeId(readBit160Value(reader, args, ID));
+
+        switch (method) {
+        case PING:
+            return new Ping(transactionId, clientVersion, id);
+        case FIND_NODE:
+            NodeId target = new NodeId(readBit160Value(reader, args, TARGET));
+            return new FindNode(transactionId, clientVersion, id, target);
+        case GET_PEERS:
+            Sha1Hash infoHash = new Sha1Hash(readBit160Value(reader, args, INFO_HASH));
+            return new GetPeers(transactionId, clientVersion, id, infoHash);
+        case ANNOUNCE_PEER:
+            Sha1Hash announcedInfoHash = new Sha1Hash(readBit160Value(reader, args, INFO_HASH));
+            reader.seek(require(args, PORT, BODY_KEYS));
+            int port = (int) reader.readInteger();
+            reader.seek(require(args, TOKEN, BODY_KEYS));
+            byte[] token = reader.readString();
+            return new AnnouncePeer(transactionId, clientVersion, id, announcedInfoHash, port, token);
+        default:
+            throw new AssertionError("Unknown method: " + method);
+        }
+    }
+
+    private static Method readMethod(Reader reader, int[] message) throws DhtDecodingException {
+        reader.seek(require(message, METHOD_NAME, MESSAGE_KEYS));
+        int length = reader.readStringLength();
+        for (int i = 0; i < METHODS.length; i++) {
+            if (reader.matches(length, METHOD_NAMES[i])) {
+                return METHODS[i];
+            }
+        }
+        throw new DhtDecodingException("Unknown method");
+    }
+
+    private Response decodeResponse(Reader reader, int[] message, TransactionId transactionId, String clientVersion)
+            throws DhtDecodingException {
+        Method method = transactionIdMethodProvider
+                .getMethod(transactionId)
+                .orElseThrow(() ->
+                        new DhtDecodingException("No method associated with transaction ID: " + transactionId));
+        reader.seek(require(message, RETURN_VALUES, MESSAGE_KEYS));
+        int[] returnValues = reader.readDictionary(BODY_KEYS);
+        NodeId id = new NodeId(readBit160Value(reader, returnValues, ID));
+
+        switch (method) {
+        case PING:
+            return new PingResponse(transactionId, clientVersion, id);
+        case FIND_NODE:
+            reader.seek(require(returnValues, NODES, BODY_KEYS));
+            return new FindNodeResponse(transactionId, clientVersion, id, readNodes(reader));
+        case GET_PEERS:
+            reader.seek(require(returnValues, TOKEN, BODY_KEYS));
+            byte[] token = reader.readString();
+            Collection<PeerContactInfo> peers = null;
+            if (returnValues[VALUES] != ABSENT) {
+                reader.seek(returnValues[VALUES]);
+                peers = readPeers(reader);
+            }
+            Collection<NodeContactInfo> nodes = null;
+            if (returnValues[NODES] != ABSENT) {
+                reader.seek(returnValues[NODES]);
+                nodes = readNodes(reader);
+            }
+            return new GetPeersResponse(transactionId, clientVersion, id, token, peers, nodes);
+        case ANNOUNCE_PEER:
+            return new AnnouncePeerResponse(transactionId, clientVersion, id);
+        default:
+            throw new AssertionError("Unknown method: " + method);
+        }
+    }
+
+    private static Error decodeError(Reader reader, int[] message, TransactionId transactionId, String clientVersion)
+            throws DhtDecodingException {
+        reader.seek(require(message, ERROR, MESSAGE_KEYS));
+        reader.expect('l');
+        int errorCode = (int) reader.readInteger();
+        String errorMessage = new String(reader.readString(), StandardCharsets.UTF_8);
+        if (reader.next() != 'e') {
+            throw new DhtDecodingException("Error list must contain exactly 2 elements");
+        }
+        return new Error(transactionId, clientVersion, ErrorCode.fromValue(errorCode), errorMessage);
+    }
+
+    private static byte[] readBit160Value(Reader reader, int[] dictionary, int key) throws DhtDecodingException {
+        reader.seek(require(dictionary, key, BODY_KEYS));
+        if (reader.readStringLength() != Bit160Value.SIZE_BYTES) {
+            throw new DhtDecodingException(String.format("Value of %s must be %d bytes long",
+                    keyName(BODY_KEYS, key), Bit160Value.SIZE_BYTES));
+        }
+        return reader.readBytes(Bit160Value.SIZE_BYTES);
+    }
+
+    private static List<NodeContactInfo> readNodes(Reader reader) throws DhtDecodingException {
+        int length = reader.readStringLength();
+        if (length % NodeContactInfo.COMPACT_NODE_INFO_BYTES != 0) {
+            throw new DhtDecodingException(
+                    String.format("Nodes length must be a multiple of %d", NodeContactInfo.COMPACT_NODE_INFO_BYTES));
+        }
+
+        int numNodes = length / NodeContactInfo.COMPACT_NODE_INFO_BYTES;
+        List<NodeContactInfo> nodes = new ArrayList<>(numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            NodeId id = new NodeId(reader.readBytes(Bit160Value.SIZE_BYTES));
+            nodes.add(new NodeContactInfo(id, reader.readCompactAddress()));
+        }
+        return nodes;
+    }
+
+    private static List<PeerContactInfo> readPeers(Reader reader) throws DhtDecodingException {
+        reader.expect('l');
+        List<PeerContactInfo> peers = new ArrayList<>();
+        while (reader.peek() != 'e') {
+            if (reader.readStringLength() != COMPACT_PEER_INFO_BYTES) {
+                throw new DhtDecodingException(
+                        String.format("Compact peer info must be %d bytes long", COMPACT_PEER_INFO_BYTES));
+            }
+            InetSocketAddress address = reader.readCompactAddress();
+            peers.add(new PeerContactInfo(address.getAddress(), address.getPort()));
+        }
+        return peers;
+    }
+
+    private static int require(int[] valuePositions, int key, byte[][] keys) throws DhtDecodingException {
+        if (valuePositions[key] == ABSENT) {
+            throw new DhtDecodingException("Key not found: " + keyName(keys, key));
+        }
+        return valuePositions[key];
+    }
+
+    private static String keyName(byte[][] keys, int key) {
+        return new String(keys[key], StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes the given message into the given buffer, starting at its position and advancing it past the message.
+     * The message is encoded into the same bytes as {@link DhtMessage#bencode()}.
+     *
+     * @param message the message to encode
+     * @param buffer  the buffer to encode the message into
+     * @throws java.nio.BufferOverflowException if the message does not fit in the space remaining in the buffer, in
+     *                                          which case the contents of the buffer are undefined
+     */
+    public void encode(DhtMessage message, ByteBuffer buffer) {
+        buffer.put((byte) 'd');
+        switch (message.getMessageType()) {
+        case QUERY:
+            encodeQuery((Query) message, buffer);
+            break;
+        case RESPONSE:
+            encodeResponse((Response) message, buffer);
+            break;
+        case ERROR:
+            encodeError((Error) message, buffer);
+            break;
+        default:
+            throw new AssertionError("Unknown message type: " + message.getMessageType());
+        }
+        // the keys of the transaction ID and the message type sort after the keys of every message type
+        putTransactionIdAndMessageType(message, buffer);
+        buffer.put((byte) 'e');
+    }
+
+    private static void encodeQuery(Query query, ByteBuffer buffer) {
+        putKey(MESSAGE_KEYS, ARGS, buffer);
+        buffer.put((byte) 'd');
+        putKey(BODY_KEYS, ID, buffer);
+        putBit160Value(query.getId(), buffer);
+
+        switch (query.getMethod()) {
+        case PING:
+            break;
+        case FIND_NODE:
+            putKey(BODY_KEYS, TARGET, buffer);
+            putBit160Value(((FindNode) query).getTarget(), buffer);
+            break;
+        case GET_PEERS:
+            putKey(BODY_KEYS, INFO_HASH, buffer);
+            putBit160Value(((GetPeers) query).getInfoHash(), buffer);
+            break;
+        case ANNOUNCE_PEER:
+            AnnouncePeer announcePeer = (AnnouncePeer) query;
+            putKey(BODY_KEYS, INFO_HASH, buffer);
+            putBit160Value(announcePeer.getInfoHash(), buffer);
+            putKey(BODY_KEYS, PORT, buffer);
+            putInteger(announcePeer.getPort(), buffer);
+            putKey(BODY_KEYS, TOKEN, buffer);
+            putString(announcePeer.getToken(), buffer);
+            break;
+        default:
+            throw new AssertionError("Unknown method: " + query.getMethod());
+        }
+
+        buffer.put((byte) 'e');
+        putKey(MESSAGE_KEYS, METHOD_NAME, buffer);
+        putString(METHOD_NAMES[query.getMethod().ordinal()], buffer);
+    }
+
+    private static void encodeResponse(Response response, ByteBuffer buffer) {
+        putKey(MESSAGE_KEYS, RETURN_VALUES, buffer);
+        buffer.put((byte) 'd');
+        putKey(BODY_KEYS, ID, buffer);
+        putBit160Value(response.getId(), buffer);
+
+        switch (response.getMethod()) {
+        case PING:
+        case ANNOUNCE_PEER:
+            break;
+        case FIND_NODE:
+            putKey(BODY_KEYS, NODES, buffer);
+            putNodes(((FindNodeResponse) response).getNodes(), buffer);
+            break;
+        case GET_PEERS:
+            GetPeersResponse getPeersResponse = (GetPeersResponse) response;
+            if (getPeersResponse.getNodes().isPresent()) {
+                putKey(BODY_KEYS, NODES, buffer);
+                putNodes(getPeersResponse.getNodes().get(), buffer);
+            }
+            putKey(BODY_KEYS, TOKEN, buffer);
+            putString(getPeersResponse.getToken(), buffer);
+            if (getPeersResponse.getPeers().isPresent()) {
+                putKey(BODY_KEYS, VALUES, buffer);
+                putPeers(getPeersResponse.getPeers().get(), buffer);
+            }
+            break;
+        default:
+            throw new AssertionError("Unknown method: " + response.getMethod());
+        }
+
+        buffer.put((byte) 'e');
+    }
+
+    private static void encodeError(Error error, ByteBuffer buffer) {
+        putKey(MESSAGE_KEYS, ERROR, buffer);
+        buffer.put((byte) 'l');
+        putInteger(error.getErrorCode().getValue(), buffer);
+        putString(error.getErrorMessage().getBytes(StandardCharsets.UTF_8), buffer);
+        buffer.put((byte) 'e');
+    }
+
+    private static void putTransactionIdAndMessageType(DhtMessage message, ByteBuffer buffer) {
+        putKey(MESSAGE_KEYS, TRANSACTION_ID, buffer);
+        putStringLength(TRANSACTION_ID_BYTES, buffer);
+        buffer.putChar(message.getTransactionId().getValue());
+        putKey(MESSAGE_KEYS, MESSAGE_TYPE, buffer);
+        putStringLength(1, buffer);
+        buffer.put((byte) message.getMessageType().getValue());
+    }
+
+    private static void putNodes(Collection<NodeContactInfo> nodes, ByteBuffer buffer) {
+        putStringLength(nodes.size() * NodeContactInfo.COMPACT_NODE_INFO_BYTES, buffer);
+        for (NodeContactInfo node : nodes) {
+            node.getId().writeTo(buffer);
+            putCompactAddress(node.getAddress(), node.getSocketAddress().getPort(), buffer);
+        }
+    }
+
+    private static void putPeers(Collection<PeerContactInfo> peers, ByteBuffer buffer) {
+        buffer.put((byte) 'l');
+        for (PeerContactInfo peer : peers) {
+            putStringLength(COMPACT_PEER_INFO_BYTES, buffer);
+            putCompactAddress(peer.getAddress(), peer.getPort(), buffer);
+        }
+        buffer.put((byte) 'e');
+    }
+
+    private static void putCompactAddress(InetAddress address, int port, ByteBuffer buffer) {
+        byte[] addressBytes = address.getAddress();
+        if (addressBytes.length != COMPACT_ADDRESS_BYTES) {
+            throw new IllegalArgumentException("Only IPv4 addresses can be encoded in compact form: " + address);
+        }
+        buffer.put(addressBytes);
+        buffer.putShort((short) port);
+    }
+
+    private static void putBit160Value(Bit160Value value, ByteBuffer buffer) {
+        putStringLength(Bit160Value.SIZE_BYTES, buffer);
+        value.writeTo(buffer);
+    }
+
+    private static void putKey(byte[][] keys, int key, ByteBuffer buffer) {
+        putString(keys[key], buffer);
+    }
+
+    private static void putString(byte[] bytes, ByteBuffer buffer) {
+        putStringLength(bytes.length, buffer);
+        buffer.put(bytes);
+    }
+
+    private static void putStringLength(int length, ByteBuffer buffer) {
+        putDecimal(length, buffer);
+        buffer.put((byte) ':');
+    }
+
+    private static void putInteger(int value, ByteBuffer buffer) {
+        buffer.put((byte) 'i');
+        putDecimal(value, buffer);
+        buffer.put((byte) 'e');
+    }
+
+    /**
+     * Writes the decimal digits of the given value without creating a string.
+     */
+    private static void putDecimal(int value, ByteBuffer buffer) {
+        long magnitude = value;
+        if (magnitude < 0) {
+            buffer.put((byte) '-');
+            magnitude = -magnitude;
+        }
+        long divisor = 1;
+        while (divisor * 10 <= magnitude) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + magnitude / divisor % 10));
+        }
+    }
+
+    /**
+     * Reads bencoded values from a buffer using absolute positions, so that the buffer itself is not modified.
+     */
+    private static class Reader {
+
+        private final ByteBuffer buffer;
+        private final int limit;
+        private int position;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            this.position = buffer.position();
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+
+        void seek(int position) {
+            this.position = position;
+        }
+
+        byte peek() throws DhtDecodingException {
+            if (position >= limit) {
+                throw new DhtDecodingException("Unexpected end of message");
+            }
+            return buffer.get(position);
+        }
+
+        byte next() throws DhtDecodingException {
+            byte b = peek();
+            position++;
+            return b;
+        }
+
+        void expect(char expected) throws DhtDecodingException {
+            if (next() != expected) {
+                throw new DhtDecodingException(String.format("Expected '%c' at position %d", expected, position - 1));
+            }
+        }
+
+        /**
+         * Reads a dictionary, skipping the values of its keys and noting where the values of the given keys start.
+         * If a key occurs more than once, its last value is used.
+         *
+         * @param keys the keys whose values to note
+         * @return the position of the value of each of the given keys, or {@link #ABSENT} if the key is absent
+         */
+        int[] readDictionary(byte[][] keys) throws DhtDecodingException {
+            int[] valuePositions = new int[keys.length];
+            Arrays.fill(valuePositions, ABSENT);
+            expect('d');
+            while (peek() != 'e') {
+                int keyLength = readStringLength();
+                int key = indexOf(keys, keyLength);
+                position += keyLength;
+                if (key != ABSENT) {
+                    valuePositions[key] = position;
+                }
+                skipValue();
+            }
+            position++;
+            return valuePositions;
+        }
+
+        private int indexOf(byte[][] keys, int keyLength) {
+            for (int i = 0; i < keys.length; i++) {
+                if (matches(keyLength, keys[i])) {
+                    return i;
+                }
+            }
+            return ABSENT;
+        }
+
+        /**
+         * Checks whether the string of the given length at the current position is equal to the given bytes.
+         */
+        boolean matches(int length, byte[] bytes) {
+            if (length != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(position + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void skipValue() throws DhtDecodingException {
+            byte b = peek();
+            if (b == 'i') {
+                readInteger();
+            } else if (b == 'l') {
+                position++;
+                while (peek() != 'e') {
+                    skipValue();
+                }
+                position++;
+            } else if (b == 'd') {
+                position++;
+                while (peek() != 'e') {
+                    skipString();
+                    skipValue();
+                }
+                position++;
+            } else {
+                skipString();
+            }
+        }
+
+        private void skipString() throws DhtDecodingException {
+            int length = readStringLength();
+            position += length;
+        }
+
+        /**
+         * Reads the length prefix of a string, leaving the position at the start of the string.
+         *
+         * @throws DhtDecodingException if there is no string at the current position, or if the string extends beyond
+         *                              the end of the message
+         */
+        int readStringLength() throws DhtDecodingException {
+            byte b = next();
+            if (!isDigit(b)) {
+                throw new DhtDecodingException(String.format("Expected string at position %d", position - 1));
+            }
+            long length = b - '0';
+            while ((b = next()) != ':') {
+                if (!isDigit(b) || length > limit) {
+                    throw new DhtDecodingException(String.format("Invalid string length at position %d", position - 1));
+                }
+                length = length * 10 + (b - '0');
+            }
+            if (length > limit - position) {
+                throw new DhtDecodingException("String extends beyond end of message");
+            }
+            return (int) length;
+        }
+
+        byte[] readString() throws DhtDecodingException {
+            return readBytes(readStringLength());
+        }
+
+        byte[] readBytes(int length) throws DhtDecodingException {
+            if (length > limit - position) {
+                throw new DhtDecodingException("Unexpected end of message");
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return bytes;
+        }
+
+        long readInteger() throws DhtDecodingException {
+            expect('i');
+            boolean isNegative = peek() == '-';
+            if (isNegative) {
+                position++;
+            }
+
+            long value = 0;
+            int numDigits = 0;
+            byte b;
+            while ((b = next()) != 'e') {
+                if (!isDigit(b) || value > (Long.MAX_VALUE - 9) / 10) {
+                    throw new DhtDecodingException(String.format("Invalid integer at position %d", position - 1));
+                }
+                value = value * 10 + (b - '0');
+                numDigits++;
+            }
+            if (numDigits == 0) {
+                throw new DhtDecodingException(String.format("Invalid integer at position %d", position - 1));
+            }
+            return isNegative ? -value : value;
+        }
+
+        InetSocketAddress readCompactAddress() throws DhtDecodingException {
+            InetAddress address;
+            try {
+                address = InetAddress.getByAddress(readBytes(COMPACT_ADDRESS_BYTES));
+            } catch (UnknownHostException e) {
+                throw new AssertionError(e);
+            }
+            int high = Byte.toUnsignedInt(next());
+            int low = Byte.toUnsignedInt(next());
+            return new InetSocketAddress(address, (high << 8) | low);
+        }
+    }
+}
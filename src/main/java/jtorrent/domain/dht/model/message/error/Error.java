@@ -2,6 +2,9 @@ package jtorrent.domain.dht.model.message.error;
 
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import jtorrent.domain.common.util.bencode.BencodedList;
@@ -55,6 +58,13 @@ public class Error extends DhtMessage {
         return errorMessage;
     }
 
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>(super.toMap());
+        map.put(KEY_LIST, List.of(errorCode.getValue(), errorMessage));
+        return map;
+    }
+
     @Override
     public MessageType getMessageType() {
         return MessageType.ERROR;
@@ -51,9 +51,17 @@ public class GetPeersResponse extends Response {
         this.nodes = nodes;
     }
 
-    private GetPeersResponse(TransactionId transactionId, String clientVersion, NodeId id, byte[] token,
+    /**
+     * Creates a response that contains peers, nodes, or both.
+     *
+     * @throws IllegalArgumentException if both peers and nodes are null
+     */
+    public GetPeersResponse(TransactionId transactionId, String clientVersion, NodeId id, byte[] token,
             Collection<PeerContactInfo> peers, Collection<NodeContactInfo> nodes) {
         super(transactionId, clientVersion, id);
+        if (peers == null && nodes == null) {
+            throw new IllegalArgumentException("Both peers and nodes are null");
+        }
         this.token = token;
         this.peers = peers;
         this.nodes = nodes;
@@ -75,11 +83,6 @@ public class GetPeersResponse extends Response {
         byte[] token = returnValues.getBytes(KEY_TOKEN).array();
         Collection<PeerContactInfo> peers = getPeersFromMap(returnValues).orElse(null);
         Collection<NodeContactInfo> nodes = getNodesFromMap(returnValues).orElse(null);
-
-        if (peers == null && nodes == null) {
-            throw new IllegalArgumentException("Both peers and nodes are null");
-        }
-
         return new GetPeersResponse(txId, clientVersion, nodeId, token, peers, nodes);
     }
 
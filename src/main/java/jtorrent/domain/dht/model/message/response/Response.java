@@ -2,6 +2,7 @@ package jtorrent.domain.dht.model.message.response;
 
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -60,7 +61,7 @@ public abstract class Response extends DhtMessage {
 
     private Map<String, Object> getReturnValues() {
         Map<String, Object> returnValues = new HashMap<>();
-        returnValues.put(KEY_ID, id);
+        returnValues.put(KEY_ID, ByteBuffer.wrap(id.getBytes()));
         returnValues.putAll(getResponseSpecificReturnValues());
         return returnValues;
     }
@@ -8,27 +8,49 @@ import jtorrent.domain.common.util.Bit160Value;
 
 public class NodeId extends Bit160Value {
 
-    public static final NodeId LOCAL;
     public static final NodeId ZERO = NodeId.fromBigInteger(BigInteger.ZERO);
     public static final NodeId MAX =
             NodeId.fromBigInteger(BigInteger.TWO.pow(Bit160Value.SIZE_BITS).subtract(BigInteger.ONE));
     private static final Random RANDOM = new Random();
 
-    static {
-        LOCAL = NodeId.random();
-    }
+    /**
+     * The ID of the local node, which is random unless an ID from a previous session is restored.
+     */
+    private static volatile NodeId local = NodeId.random();
 
     public NodeId(byte[] id) {
         super(id);
     }
 
+    public static NodeId getLocal() {
+        return local;
+    }
+
+    /**
+     * Sets the ID of the local node, so that the ID from a previous session can be reused.
+     * Must be called before any routing table is created, as the buckets of a routing table depend on the ID.
+     *
+     * @param id the ID of the local node
+     */
+    public static void setLocal(NodeId id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Node ID cannot be null");
+        }
+        local = id;
+    }
+
     public static NodeId random() {
         byte[] id = new byte[Bit160Value.SIZE_BYTES];
         RANDOM.nextBytes(id);
         return new NodeId(id);
     }
 
-    // TODO: quick solution to get a random node id with a given prefix. Improve this.
+    /**
+     * Creates a random {@link NodeId} that starts with the given prefix.
+     *
+     * @param prefix the prefix of the ID
+     * @return a random ID with the given prefix
+     */
     public static NodeId randomWithPrefix(NodeIdPrefix prefix) {
         if (prefix == null) {
             throw new IllegalArgumentException("Prefix cannot be null");
@@ -37,8 +59,13 @@ public class NodeId extends Bit160Value {
         byte[] id = new byte[Bit160Value.SIZE_BYTES];
         RANDOM.nextBytes(id);
 
-        for (int i = 0; i < prefix.getLength(); i++) {
-            id[i] |= prefix.getBytes()[i];
+        byte[] prefixBytes = prefix.getBytes();
+        int numFullBytes = prefix.getBitLength() / Byte.SIZE;
+        int numTrailingBits = prefix.getBitLength() % Byte.SIZE;
+        System.arraycopy(prefixBytes, 0, id, 0, numFullBytes);
+        if (numTrailingBits > 0) {
+            int prefixMask = 0xFF << (Byte.SIZE - numTrailingBits);
+            id[numFullBytes] = (byte) ((prefixBytes[numFullBytes] & prefixMask) | (id[numFullBytes] & ~prefixMask));
         }
 
         return new NodeId(id);
@@ -75,6 +102,22 @@ public class NodeId extends Bit160Value {
         return new NodeId(bytes);
     }
 
+    /**
+     * Creates a copy of this {@link NodeId} with the bit at the given index flipped.
+     *
+     * @param index the index of the bit to flip, where 0 is the most significant bit
+     * @return the ID with the bit flipped
+     */
+    public NodeId withBitFlipped(int index) {
+        if (index < 0 || index >= Bit160Value.SIZE_BITS) {
+            throw new IllegalArgumentException("Index must be between 0 and " + (Bit160Value.SIZE_BITS - 1));
+        }
+
+        byte[] bytes = getBytes();
+        bytes[index / Byte.SIZE] ^= (byte) (0x80 >>> (index % Byte.SIZE));
+        return new NodeId(bytes);
+    }
+
     public BigInteger distanceTo(Bit160Value other) {
         return xor(other).toBigInteger();
     }
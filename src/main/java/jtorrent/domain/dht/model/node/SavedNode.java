@@ -0,0 +1,19 @@
+package jtorrent.domain.dht.model.node;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * A node of the routing table that is saved so that it can be contacted again in a later session.
+ *
+ * @param contactInfo the contact info of the node
+ * @param lastSeen    the last time the node was seen
+ */
+public record SavedNode(NodeContactInfo contactInfo, LocalDateTime lastSeen) {
+
+    public SavedNode {
+        requireNonNull(contactInfo);
+        requireNonNull(lastSeen);
+    }
+}
@@ -0,0 +1,22 @@
+package jtorrent.domain.dht.repository;
+
+import java.util.Optional;
+
+import jtorrent.domain.dht.model.DhtState;
+
+public interface DhtStateRepository {
+
+    /**
+     * Loads the state saved by a previous session.
+     *
+     * @return the saved state, or an empty {@link Optional} if no state has been saved
+     */
+    Optional<DhtState> load();
+
+    /**
+     * Saves the given state, replacing any previously saved state.
+     *
+     * @param dhtState the state to save
+     */
+    void save(DhtState dhtState);
+}
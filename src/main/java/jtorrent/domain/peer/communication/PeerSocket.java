@@ -63,7 +63,7 @@ public class PeerSocket {
         }
 
         getReceivedHandshakeInfoHash().ifPresent(receivedInfoHash -> checkInfoHashMatch(receivedInfoHash, infoHash));
-        Handshake handshake = new Handshake(infoHash, PEER_ID.getBytes(), isDhtSupported);
+        Handshake handshake = new Handshake(infoHash, PEER_ID.getBytes(), isDhtSupported, true);
         sendMessage(handshake);
 
         if (!isHandshakeReceived()) {
@@ -89,7 +89,7 @@ public class PeerSocket {
         Optional<Sha1Hash> infoHash = getReceivedHandshakeInfoHash();
         assert infoHash.isPresent();
 
-        Handshake outboundHandshake = new Handshake(infoHash.get(), PEER_ID.getBytes(), isDhtSupported);
+        Handshake outboundHandshake = new Handshake(infoHash.get(), PEER_ID.getBytes(), isDhtSupported, true);
         sendMessage(outboundHandshake);
 
         isConnected = true;
@@ -111,6 +111,14 @@ public class PeerSocket {
         return receivedHandshake.isDhtSupported();
     }
 
+    public boolean isV2SupportedByRemote() {
+        if (!isHandshakeReceived()) {
+            throw new IllegalStateException("Handshake has not been received");
+        }
+
+        return receivedHandshake.isV2Supported();
+    }
+
     public void sendMessage(PeerMessage message) throws IOException {
         socket.getOutputStream().write(message.pack());
         LOGGER.debug(Markers.PEER, "Sent: {}", message);
@@ -6,9 +6,11 @@ import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,9 +25,11 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jtorrent.domain.choke.Choker;
 import jtorrent.domain.common.util.BackgroundTask;
 import jtorrent.domain.common.util.PeriodicTask;
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.Sha256Hash;
 import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.common.util.logging.MdcUtil;
 import jtorrent.domain.peer.communication.PeerSocket;
@@ -36,6 +40,10 @@ import jtorrent.domain.peer.model.message.PeerMessage;
 import jtorrent.domain.peer.model.message.typed.Bitfield;
 import jtorrent.domain.peer.model.message.typed.Cancel;
 import jtorrent.domain.peer.model.message.typed.Choke;
+import jtorrent.domain.peer.model.message.typed.HashMessage;
+import jtorrent.domain.peer.model.message.typed.HashReject;
+import jtorrent.domain.peer.model.message.typed.HashRequest;
+import jtorrent.domain.peer.model.message.typed.Hashes;
 import jtorrent.domain.peer.model.message.typed.Have;
 import jtorrent.domain.peer.model.message.typed.Interested;
 import jtorrent.domain.peer.model.message.typed.NotInterested;
@@ -45,7 +53,7 @@ import jtorrent.domain.peer.model.message.typed.Request;
 import jtorrent.domain.peer.model.message.typed.TypedPeerMessage;
 import jtorrent.domain.peer.model.message.typed.Unchoke;
 
-public class PeerHandler {
+public class PeerHandler implements Choker.Candidate {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PeerHandler.class);
     private static final int MAX_REQUESTS = 5;
@@ -62,6 +70,14 @@ public class PeerHandler {
     private final Map<RequestKey, CompletableFuture<byte[]>> outRequestKeyToFuture =
             new ConcurrentHashMap<>(MAX_REQUESTS);
     private final Map<RequestKey, Future<?>> inRequestKeyToFuture = new ConcurrentHashMap<>();
+    private final Map<HashRequestKey, CompletableFuture<List<Sha256Hash>>> outHashRequestKeyToFuture =
+            new ConcurrentHashMap<>();
+    private volatile long lastBlockReceivedMillis = System.currentTimeMillis();
+    /**
+     * Whether requests of the peer were dropped since it was last choked or unchoked. A peer without the fast
+     * extension only discards its requests once it is choked.
+     */
+    private volatile boolean hasDroppedRequests;
 
     public PeerHandler(Peer peer, PeerSocket peerSocket, EventHandler eventHandler) {
         this.peerSocket = peerSocket;
@@ -119,13 +135,26 @@ public class PeerHandler {
         sendMessage(new KeepAlive());
     }
 
+    @Override
     public void sendChoke() throws IOException {
         sendMessage(new Choke());
         peer.setRemoteChoked(true);
+        hasDroppedRequests = false;
     }
 
+    @Override
     public void sendUnchoke() throws IOException {
         sendMessage(new Unchoke());
+        peer.setRemoteChoked(false);
+        hasDroppedRequests = false;
+    }
+
+    /**
+     * Notes that a request of the peer was dropped rather than served.
+     * The peer is not allowed to stay unchoked until it has been choked, which tells it that its requests are dropped.
+     */
+    public void markRequestDropped() {
+        hasDroppedRequests = true;
     }
 
     public void sendInterested() throws IOException {
@@ -173,20 +202,74 @@ public class PeerHandler {
         sendMessage(cancel);
     }
 
+    /**
+     * Cancels a request previously sent with {@link #sendRequest(int, int, int)}.
+     * The future of the request completes exceptionally with a {@link CancellationException}.
+     */
+    public void cancelRequest(int index, int begin, int length) throws IOException {
+        RequestKey requestKey = new RequestKey(index, begin, length);
+        CompletableFuture<byte[]> future = outRequestKeyToFuture.remove(requestKey);
+        if (future == null) {
+            return;
+        }
+        future.cancel(false);
+        Cancel cancel = new Cancel(index, begin, length);
+        sendMessage(cancel);
+    }
+
     public void sendPort(int port) throws IOException {
         Port portMessage = new Port(port);
         sendMessage(portMessage);
     }
 
+    /**
+     * Requests a range of hashes from the merkle tree of a file.
+     *
+     * @return a future that completes with the requested hashes followed by the uncle hashes,
+     * or completes exceptionally if the peer rejects the request
+     */
+    public CompletableFuture<List<Sha256Hash>> sendHashRequest(Sha256Hash piecesRoot, int baseLayer, int index,
+            int length, int proofLayers) throws IOException {
+        CompletableFuture<List<Sha256Hash>> future = new CompletableFuture<List<Sha256Hash>>()
+                .orTimeout(10, TimeUnit.SECONDS);
+        HashRequestKey requestKey = new HashRequestKey(piecesRoot, baseLayer, index, length);
+        future.whenComplete((result, throwable) -> outHashRequestKeyToFuture.remove(requestKey));
+        outHashRequestKeyToFuture.put(requestKey, future);
+        HashRequest hashRequest = new HashRequest(piecesRoot, baseLayer, index, length, proofLayers);
+        sendMessage(hashRequest);
+        return future;
+    }
+
+    public void sendHashes(Sha256Hash piecesRoot, int baseLayer, int index, int length, int proofLayers,
+            List<Sha256Hash> hashes) throws IOException {
+        Hashes hashesMessage = new Hashes(piecesRoot, baseLayer, index, length, proofLayers, hashes);
+        sendMessage(hashesMessage);
+    }
+
+    public void sendHashReject(Sha256Hash piecesRoot, int baseLayer, int index, int length, int proofLayers)
+            throws IOException {
+        HashReject hashReject = new HashReject(piecesRoot, baseLayer, index, length, proofLayers);
+        sendMessage(hashReject);
+    }
+
+    /**
+     * Checks whether the peer supports the v2 protocol, and can therefore serve merkle tree hashes.
+     */
+    public boolean isV2SupportedByRemote() {
+        return peerSocket.isV2SupportedByRemote();
+    }
+
     private void sendMessage(PeerMessage message) throws IOException {
         peerSocket.sendMessage(message);
         peer.addUploadedBytes(message.getMessageSize());
     }
 
+    @Override
     public double getDownloadRate() {
         return peer.getDownloadRate();
     }
 
+    @Override
     public double getUploadRate() {
         return peer.getUploadRate();
     }
@@ -195,14 +278,46 @@ public class PeerHandler {
         return availablePieces;
     }
 
+    @Override
     public boolean isRemoteChoked() {
         return peer.isRemoteChoked();
     }
 
+    @Override
     public boolean isRemoteInterested() {
         return peer.isRemoteInterested();
     }
 
+    @Override
+    public boolean isLocalInterested() {
+        return peer.isLocalInterested();
+    }
+
+    @Override
+    public boolean isUnchokeAllowed() {
+        // a choked peer has already discarded the requests that were dropped
+        return peer.isRemoteChoked() || !hasDroppedRequests;
+    }
+
+    @Override
+    public long getLastBlockReceivedMillis() {
+        return lastBlockReceivedMillis;
+    }
+
+    /**
+     * Gets the number of blocks requested from the peer that have not been received yet.
+     */
+    public int getOutstandingRequestCount() {
+        return outRequestKeyToFuture.size();
+    }
+
+    /**
+     * Gets the number of blocks requested by the peer that have not been sent yet.
+     */
+    public int getQueuedUploadCount() {
+        return inRequestKeyToFuture.size();
+    }
+
     public boolean isRequestQueueFull() {
         return outRequestKeyToFuture.size() >= MAX_REQUESTS;
     }
@@ -235,6 +350,9 @@ public class PeerHandler {
         void handleBlockRequested(PeerHandler peerHandler, int pieceIndex, int offset, int length);
 
         void handleDhtPortReceived(PeerHandler peerHandler, int port);
+
+        void handleHashesRequested(PeerHandler peerHandler, Sha256Hash piecesRoot, int baseLayer, int index,
+                int length, int proofLayers);
     }
 
     private static class RequestKey {
@@ -269,6 +387,14 @@ public class PeerHandler {
         }
     }
 
+    private record HashRequestKey(Sha256Hash piecesRoot, int baseLayer, int index, int length) {
+
+        public static HashRequestKey of(HashMessage message) {
+            return new HashRequestKey(message.getPiecesRoot(), message.getBaseLayer(), message.getIndex(),
+                    message.getLength());
+        }
+    }
+
     private static class ConnectionThreadPool extends ThreadPoolExecutor {
 
         public ConnectionThreadPool() {
@@ -355,6 +481,15 @@ public class PeerHandler {
             case PORT:
                 handlePort((Port) typedMessage);
                 return;
+            case HASH_REQUEST:
+                handleHashRequest((HashRequest) typedMessage);
+                return;
+            case HASHES:
+                handleHashes((Hashes) typedMessage);
+                return;
+            case HASH_REJECT:
+                handleHashReject((HashReject) typedMessage);
+                return;
             default:
                 throw new AssertionError("Unknown message type: " + typedMessage.getMessageType());
             }
@@ -410,6 +545,7 @@ public class PeerHandler {
                 return;
             }
 
+            lastBlockReceivedMillis = System.currentTimeMillis();
             future.complete(piece.getBlock());
         }
 
@@ -427,6 +563,35 @@ public class PeerHandler {
         private void handlePort(Port port) {
             eventHandler.handleDhtPortReceived(PeerHandler.this, port.getListenPort());
         }
+
+        private void handleHashRequest(HashRequest hashRequest) {
+            MESSAGE_HANDLER_THREAD_POOL.submit(() -> eventHandler.handleHashesRequested(PeerHandler.this,
+                    hashRequest.getPiecesRoot(), hashRequest.getBaseLayer(), hashRequest.getIndex(),
+                    hashRequest.getLength(), hashRequest.getProofLayers()));
+        }
+
+        private void handleHashes(Hashes hashes) {
+            CompletableFuture<List<Sha256Hash>> future = outHashRequestKeyToFuture.remove(HashRequestKey.of(hashes));
+
+            if (future == null) {
+                LOGGER.error(Markers.PEER, "Received non-requested Hashes: {}", hashes);
+                return;
+            }
+
+            future.complete(hashes.getHashes());
+        }
+
+        private void handleHashReject(HashReject hashReject) {
+            CompletableFuture<List<Sha256Hash>> future =
+                    outHashRequestKeyToFuture.remove(HashRequestKey.of(hashReject));
+
+            if (future == null) {
+                LOGGER.error(Markers.PEER, "Received non-requested HashReject: {}", hashReject);
+                return;
+            }
+
+            future.completeExceptionally(new IllegalStateException("Hash request rejected: " + hashReject));
+        }
     }
 
     private class PeriodicKeepAliveTask extends PeriodicTask {
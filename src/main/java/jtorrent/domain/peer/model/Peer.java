@@ -7,22 +7,18 @@ import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 
 import io.reactivex.rxjava3.core.Observable;
-import jtorrent.domain.common.util.RateTracker;
+import jtorrent.domain.common.util.RateMeter;
+import jtorrent.domain.common.util.RateMeterTicker;
 
 public class Peer {
 
-    private static final Duration WINDOW_DURATION = Duration.ofSeconds(20);
+    private static final int WINDOW_SECONDS = 20;
 
     private final PeerContactInfo peerContactInfo;
-    private final RateTracker downloadRateTracker = new RateTracker(WINDOW_DURATION);
-    private final RateTracker uploadRateTracker = new RateTracker(WINDOW_DURATION);
-    private final Observable<Double> downloadRateObservable =
-            downloadRateTracker.getRateObservable(1, TimeUnit.SECONDS); // TODO: fixed rate?
-    private final Observable<Double> uploadRateObservable =
-            uploadRateTracker.getRateObservable(1, TimeUnit.SECONDS); // TODO: fixed rate?
+    private final RateMeter downloadRateMeter = RateMeterTicker.getShared().createMeter(WINDOW_SECONDS);
+    private final RateMeter uploadRateMeter = RateMeterTicker.getShared().createMeter(WINDOW_SECONDS);
     private boolean isLocalChoked = true;
     private boolean isRemoteChoked = true;
     private boolean isLocalInterested = false;
@@ -82,27 +78,35 @@ public class Peer {
     }
 
     public void addDownloadedBytes(int bytes) {
-        downloadRateTracker.addBytes(bytes);
+        downloadRateMeter.addBytes(bytes);
     }
 
     public double getDownloadRate() {
-        return downloadRateTracker.getRate();
+        return downloadRateMeter.getRate();
     }
 
     public Observable<Double> getDownloadRateObservable() {
-        return downloadRateObservable;
+        return downloadRateMeter.getRateObservable();
+    }
+
+    public long getDownloaded() {
+        return downloadRateMeter.getTotalBytes();
     }
 
     public void addUploadedBytes(int bytes) {
-        uploadRateTracker.addBytes(bytes);
+        uploadRateMeter.addBytes(bytes);
     }
 
     public double getUploadRate() {
-        return uploadRateTracker.getRate();
+        return uploadRateMeter.getRate();
     }
 
     public Observable<Double> getUploadRateObservable() {
-        return uploadRateObservable;
+        return uploadRateMeter.getRateObservable();
+    }
+
+    public long getUploaded() {
+        return uploadRateMeter.getTotalBytes();
     }
 
     public boolean isLastSeenWithin(Duration duration) {
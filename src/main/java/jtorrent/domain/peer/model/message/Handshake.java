@@ -22,10 +22,17 @@ public class Handshake implements PeerMessage {
     private final byte[] flags;
 
     public Handshake(Sha1Hash infoHash, byte[] peerId, boolean isDhtSupported) {
+        this(infoHash, peerId, isDhtSupported, false);
+    }
+
+    public Handshake(Sha1Hash infoHash, byte[] peerId, boolean isDhtSupported, boolean isV2Supported) {
         this(infoHash, peerId, new byte[8]);
         if (isDhtSupported) {
             flags[7] = (byte) (flags[7] | 0x01);
         }
+        if (isV2Supported) {
+            flags[7] = (byte) (flags[7] | 0x10);
+        }
     }
 
     public Handshake(Sha1Hash infoHash, byte[] peerId, byte[] flags) {
@@ -82,6 +89,15 @@ public class Handshake implements PeerMessage {
         return (flags[7] & 0x01) == 0x01;
     }
 
+    /**
+     * Checks whether the peer supports the v2 protocol, in particular the exchange of merkle tree hashes.
+     *
+     * @see <a href="https://www.bittorrent.org/beps/bep_0052.html#upgrade-path">BEP 52 - Upgrade Path</a>
+     */
+    public boolean isV2Supported() {
+        return (flags[7] & 0x10) == 0x10;
+    }
+
     @Override
     public byte[] pack() {
         return ByteBuffer.allocate(MESSAGE_SIZE_BYTES)
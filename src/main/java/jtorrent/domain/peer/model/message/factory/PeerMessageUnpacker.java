@@ -7,6 +7,9 @@ import jtorrent.domain.peer.model.message.PeerMessage;
 import jtorrent.domain.peer.model.message.typed.Bitfield;
 import jtorrent.domain.peer.model.message.typed.Cancel;
 import jtorrent.domain.peer.model.message.typed.Choke;
+import jtorrent.domain.peer.model.message.typed.HashReject;
+import jtorrent.domain.peer.model.message.typed.HashRequest;
+import jtorrent.domain.peer.model.message.typed.Hashes;
 import jtorrent.domain.peer.model.message.typed.Have;
 import jtorrent.domain.peer.model.message.typed.Interested;
 import jtorrent.domain.peer.model.message.typed.MessageType;
@@ -69,6 +72,12 @@ public class PeerMessageUnpacker {
             return Cancel.unpack(payload);
         case PORT:
             return Port.unpack(payload);
+        case HASH_REQUEST:
+            return HashRequest.unpack(payload);
+        case HASHES:
+            return Hashes.unpack(payload);
+        case HASH_REJECT:
+            return HashReject.unpack(payload);
         default:
             throw new AssertionError("Unknown message type: " + messageType);
         }
@@ -0,0 +1,122 @@
+package jtorrent.domain.peer.model.message.typed;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+import jtorrent.domain.common.util.Sha256Hash;
+
+/**
+ * Base class of the messages used to exchange the hashes of the merkle trees of v2 torrents.
+ *
+ * @see <a href="https://www.bittorrent.org/beps/bep_0052.html#hash-request">BEP 52 - Hash Request</a>
+ */
+public abstract class HashMessage extends TypedPeerMessage {
+
+    protected static final int PAYLOAD_BYTES = Sha256Hash.HASH_SIZE + Integer.BYTES * 4;
+
+    /**
+     * Root of the merkle tree of the file
+     */
+    protected final Sha256Hash piecesRoot;
+
+    /**
+     * Layer of the requested hashes, counting upwards from the leaf layer at 0
+     */
+    protected final int baseLayer;
+
+    /**
+     * Zero-based index of the first requested hash within the base layer
+     */
+    protected final int index;
+
+    /**
+     * Number of requested hashes
+     */
+    protected final int length;
+
+    /**
+     * Number of ancestor layers for which uncle hashes are requested
+     */
+    protected final int proofLayers;
+
+    protected HashMessage(Sha256Hash piecesRoot, int baseLayer, int index, int length, int proofLayers) {
+        this.piecesRoot = requireNonNull(piecesRoot);
+        this.baseLayer = baseLayer;
+        this.index = index;
+        this.length = length;
+        this.proofLayers = proofLayers;
+    }
+
+    protected static Sha256Hash getPiecesRoot(ByteBuffer buffer) {
+        byte[] piecesRoot = new byte[Sha256Hash.HASH_SIZE];
+        buffer.get(piecesRoot);
+        return new Sha256Hash(piecesRoot);
+    }
+
+    public Sha256Hash getPiecesRoot() {
+        return piecesRoot;
+    }
+
+    public int getBaseLayer() {
+        return baseLayer;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getProofLayers() {
+        return proofLayers;
+    }
+
+    @Override
+    protected int getPayloadSize() {
+        return PAYLOAD_BYTES;
+    }
+
+    @Override
+    protected byte[] getPayload() {
+        return ByteBuffer.allocate(PAYLOAD_BYTES)
+                .order(ByteOrder.BIG_ENDIAN)
+                .put(piecesRoot.getBytes())
+                .putInt(baseLayer)
+                .putInt(index)
+                .putInt(length)
+                .putInt(proofLayers)
+                .array();
+    }
+
+    @Override
+    protected String getPayloadString() {
+        return String.format("piecesRoot=%s, baseLayer=%d, index=%d, length=%d, proofLayers=%d", piecesRoot,
+                baseLayer, index, length, proofLayers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(piecesRoot, baseLayer, index, length, proofLayers);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HashMessage that = (HashMessage) o;
+        return baseLayer == that.baseLayer
+                && index == that.index
+                && length == that.length
+                && proofLayers == that.proofLayers
+                && piecesRoot.equals(that.piecesRoot);
+    }
+}
@@ -0,0 +1,27 @@
+package jtorrent.domain.peer.model.message.typed;
+
+import java.nio.ByteBuffer;
+
+import jtorrent.domain.common.util.Sha256Hash;
+
+public class HashReject extends HashMessage {
+
+    public HashReject(Sha256Hash piecesRoot, int baseLayer, int index, int length, int proofLayers) {
+        super(piecesRoot, baseLayer, index, length, proofLayers);
+    }
+
+    public static HashReject unpack(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        Sha256Hash piecesRoot = getPiecesRoot(buffer);
+        int baseLayer = buffer.getInt();
+        int index = buffer.getInt();
+        int length = buffer.getInt();
+        int proofLayers = buffer.getInt();
+        return new HashReject(piecesRoot, baseLayer, index, length, proofLayers);
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.HASH_REJECT;
+    }
+}
@@ -0,0 +1,79 @@
+package jtorrent.domain.peer.model.message.typed;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Objects;
+
+import jtorrent.domain.common.util.Sha256Hash;
+
+public class Hashes extends HashMessage {
+
+    /**
+     * The requested hashes followed by the uncle hashes, ordered from the lowest layer upwards
+     */
+    private final List<Sha256Hash> hashes;
+
+    public Hashes(Sha256Hash piecesRoot, int baseLayer, int index, int length, int proofLayers,
+            List<Sha256Hash> hashes) {
+        super(piecesRoot, baseLayer, index, length, proofLayers);
+        this.hashes = requireNonNull(hashes);
+    }
+
+    public static Hashes unpack(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        Sha256Hash piecesRoot = getPiecesRoot(buffer);
+        int baseLayer = buffer.getInt();
+        int index = buffer.getInt();
+        int length = buffer.getInt();
+        int proofLayers = buffer.getInt();
+        byte[] hashesBytes = new byte[buffer.remaining()];
+        buffer.get(hashesBytes);
+        List<Sha256Hash> hashes = Sha256Hash.splitHashes(hashesBytes);
+        return new Hashes(piecesRoot, baseLayer, index, length, proofLayers, hashes);
+    }
+
+    public List<Sha256Hash> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.HASHES;
+    }
+
+    @Override
+    protected int getPayloadSize() {
+        return PAYLOAD_BYTES + hashes.size() * Sha256Hash.HASH_SIZE;
+    }
+
+    @Override
+    protected byte[] getPayload() {
+        return ByteBuffer.allocate(getPayloadSize())
+                .order(ByteOrder.BIG_ENDIAN)
+                .put(super.getPayload())
+                .put(Sha256Hash.concatHashes(hashes))
+                .array();
+    }
+
+    @Override
+    protected String getPayloadString() {
+        return String.format("%s, hashes=%d", super.getPayloadString(), hashes.size());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), hashes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o)) {
+            return false;
+        }
+        Hashes that = (Hashes) o;
+        return hashes.equals(that.hashes);
+    }
+}
@@ -11,7 +11,10 @@ public enum MessageType {
     REQUEST((byte) 6),
     PIECE((byte) 7),
     CANCEL((byte) 8),
-    PORT((byte) 9);
+    PORT((byte) 9),
+    HASH_REQUEST((byte) 21),
+    HASHES((byte) 22),
+    HASH_REJECT((byte) 23);
 
     private final byte value;
 
@@ -41,6 +44,12 @@ public enum MessageType {
             return CANCEL;
         case 9:
             return PORT;
+        case 21:
+            return HASH_REQUEST;
+        case 22:
+            return HASHES;
+        case 23:
+            return HASH_REJECT;
         default:
             throw new IllegalArgumentException("Invalid message type: " + value);
         }
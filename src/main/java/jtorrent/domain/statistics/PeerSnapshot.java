@@ -0,0 +1,18 @@
+package jtorrent.domain.statistics;
+
+import jtorrent.domain.peer.model.PeerContactInfo;
+
+/**
+ * The statistics of a connected peer at the time a {@link SessionSnapshot} was taken.
+ *
+ * @param peerContactInfo     the contact info of the peer
+ * @param downloadRate        the rate in bytes per second at which the peer uploads to us
+ * @param uploadRate          the rate in bytes per second at which we upload to the peer
+ * @param downloaded          the number of bytes received from the peer during this connection
+ * @param uploaded            the number of bytes sent to the peer during this connection
+ * @param outstandingRequests the number of blocks requested from the peer that have not been received yet
+ * @param queuedUploads       the number of blocks requested by the peer that have not been sent yet
+ */
+public record PeerSnapshot(PeerContactInfo peerContactInfo, double downloadRate, double uploadRate, long downloaded,
+        long uploaded, int outstandingRequests, int queuedUploads) {
+}
@@ -0,0 +1,55 @@
+package jtorrent.domain.statistics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import jtorrent.domain.common.util.Sha1Hash;
+
+/**
+ * An immutable snapshot of the statistics of all torrents, and their totals across the session.
+ *
+ * @param timestamp   the time in milliseconds at which the snapshot was taken
+ * @param connections the number of connected peers across all torrents
+ */
+public record SessionSnapshot(long timestamp, double downloadRate, double uploadRate, long downloaded, long uploaded,
+        int connections, int outstandingRequests, int queuedUploads, Map<Sha1Hash, TorrentSnapshot> torrents) {
+
+    public static final SessionSnapshot EMPTY = of(0, Collections.emptyList());
+
+    public SessionSnapshot {
+        torrents = Collections.unmodifiableMap(new LinkedHashMap<>(torrents));
+    }
+
+    /**
+     * Creates a snapshot whose totals are summed from the given torrents.
+     */
+    public static SessionSnapshot of(long timestamp, Collection<TorrentSnapshot> torrents) {
+        double downloadRate = 0;
+        double uploadRate = 0;
+        long downloaded = 0;
+        long uploaded = 0;
+        int connections = 0;
+        int outstandingRequests = 0;
+        int queuedUploads = 0;
+        Map<Sha1Hash, TorrentSnapshot> infoHashToTorrent = new LinkedHashMap<>();
+        for (TorrentSnapshot torrent : torrents) {
+            downloadRate += torrent.downloadRate();
+            uploadRate += torrent.uploadRate();
+            downloaded += torrent.downloaded();
+            uploaded += torrent.uploaded();
+            connections += torrent.numPeers();
+            outstandingRequests += torrent.outstandingRequests();
+            queuedUploads += torrent.queuedUploads();
+            infoHashToTorrent.put(torrent.infoHash(), torrent);
+        }
+        return new SessionSnapshot(timestamp, downloadRate, uploadRate, downloaded, uploaded, connections,
+                outstandingRequests, queuedUploads, infoHashToTorrent);
+    }
+
+    public Optional<TorrentSnapshot> getTorrent(Sha1Hash infoHash) {
+        return Optional.ofNullable(torrents.get(infoHash));
+    }
+}
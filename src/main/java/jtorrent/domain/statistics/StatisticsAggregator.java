@@ -0,0 +1,143 @@
+package jtorrent.domain.statistics;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
+import jtorrent.domain.common.util.PeriodicTask;
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.peer.handler.PeerHandler;
+import jtorrent.domain.peer.model.Peer;
+import jtorrent.domain.torrent.handler.TorrentHandler;
+import jtorrent.domain.torrent.model.Torrent;
+
+/**
+ * Periodically takes a {@link SessionSnapshot} of all torrents and publishes it on a single stream.
+ * <p>
+ * Each snapshot is taken in a single pass over the torrents and their connected peers, so consumers that need rates
+ * or totals do not have to combine the observables of every peer, or walk every torrent themselves.
+ */
+public class StatisticsAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsAggregator.class);
+    private static final long PERIOD_MILLIS = 1000;
+
+    private final Supplier<Collection<Torrent>> torrentsSupplier;
+    private final Function<Sha1Hash, TorrentHandler> torrentHandlerLookup;
+    private final BehaviorSubject<SessionSnapshot> snapshotSubject =
+            BehaviorSubject.createDefault(SessionSnapshot.EMPTY);
+    private final Map<Sha1Hash, Observable<TorrentSnapshot>> infoHashToTorrentSnapshotObservable =
+            new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+    private final SnapshotTask snapshotTask = new SnapshotTask(executorService);
+
+    /**
+     * @param torrentsSupplier     supplies all torrents of the session
+     * @param torrentHandlerLookup looks up the handler of a torrent by its info hash, returning {@code null} if the
+     *                             torrent is not active
+     */
+    public StatisticsAggregator(Supplier<Collection<Torrent>> torrentsSupplier,
+            Function<Sha1Hash, TorrentHandler> torrentHandlerLookup) {
+        this.torrentsSupplier = requireNonNull(torrentsSupplier);
+        this.torrentHandlerLookup = requireNonNull(torrentHandlerLookup);
+    }
+
+    public void start() {
+        snapshotTask.scheduleAtFixedRate(PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        snapshotTask.stop();
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Gets an observable that emits the latest snapshot upon subscription, and every new snapshot once per second.
+     */
+    public Observable<SessionSnapshot> getSnapshotObservable() {
+        return snapshotSubject;
+    }
+
+    /**
+     * Gets an observable that emits the latest snapshot of a torrent upon subscription, and every changed snapshot
+     * of the torrent afterwards.
+     * The observable is shared by all subscribers of the same torrent, so that each snapshot is only looked up once.
+     */
+    public Observable<TorrentSnapshot> getTorrentSnapshotObservable(Sha1Hash infoHash) {
+        return infoHashToTorrentSnapshotObservable.computeIfAbsent(infoHash, key -> snapshotSubject
+                .map(snapshot -> snapshot.getTorrent(key))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .distinctUntilChanged()
+                .replay(1)
+                .refCount());
+    }
+
+    /**
+     * Discards the shared observable of a torrent that was removed from the session.
+     */
+    public void removeTorrent(Sha1Hash infoHash) {
+        infoHashToTorrentSnapshotObservable.remove(infoHash);
+    }
+
+    public SessionSnapshot getSnapshot() {
+        return snapshotSubject.getValue();
+    }
+
+    private SessionSnapshot takeSnapshot() {
+        List<TorrentSnapshot> torrentSnapshots = new ArrayList<>();
+        for (Torrent torrent : List.copyOf(torrentsSupplier.get())) {
+            torrentSnapshots.add(takeSnapshot(torrent));
+        }
+        return SessionSnapshot.of(System.currentTimeMillis(), torrentSnapshots);
+    }
+
+    private TorrentSnapshot takeSnapshot(Torrent torrent) {
+        TorrentHandler torrentHandler = torrentHandlerLookup.apply(torrent.getInfoHash());
+        Collection<PeerHandler> peerHandlers = torrentHandler == null
+                ? Collections.emptyList()
+                : torrentHandler.getCandidates();
+
+        List<PeerSnapshot> peerSnapshots = new ArrayList<>(peerHandlers.size());
+        for (PeerHandler peerHandler : peerHandlers) {
+            Peer peer = peerHandler.getPeer();
+            peerSnapshots.add(new PeerSnapshot(peer.getPeerContactInfo(), peer.getDownloadRate(), peer.getUploadRate(),
+                    peer.getDownloaded(), peer.getUploaded(), peerHandler.getOutstandingRequestCount(),
+                    peerHandler.getQueuedUploadCount()));
+        }
+        return TorrentSnapshot.of(torrent.getInfoHash(), torrent.getState(), torrent.getDownloaded(),
+                torrent.getUploaded(), peerSnapshots);
+    }
+
+    private class SnapshotTask extends PeriodicTask {
+
+        public SnapshotTask(ScheduledExecutorService scheduledExecutorService) {
+            super(scheduledExecutorService);
+        }
+
+        @Override
+        public void run() {
+            try {
+                snapshotSubject.onNext(takeSnapshot());
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to take statistics snapshot", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package jtorrent.domain.statistics;
+
+import java.util.List;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.torrent.model.Torrent;
+
+/**
+ * The statistics of a torrent and its connected peers at the time a {@link SessionSnapshot} was taken.
+ * The rates and queue depths are the totals over the connected peers.
+ *
+ * @param downloaded the number of bytes downloaded over the lifetime of the torrent
+ * @param uploaded   the number of bytes uploaded over the lifetime of the torrent
+ */
+public record TorrentSnapshot(Sha1Hash infoHash, Torrent.State state, double downloadRate, double uploadRate,
+        long downloaded, long uploaded, int outstandingRequests, int queuedUploads, List<PeerSnapshot> peers) {
+
+    public TorrentSnapshot {
+        peers = List.copyOf(peers);
+    }
+
+    /**
+     * Creates a snapshot whose rates and queue depths are summed from the given peers.
+     */
+    public static TorrentSnapshot of(Sha1Hash infoHash, Torrent.State state, long downloaded, long uploaded,
+            List<PeerSnapshot> peers) {
+        double downloadRate = 0;
+        double uploadRate = 0;
+        int outstandingRequests = 0;
+        int queuedUploads = 0;
+        for (PeerSnapshot peer : peers) {
+            downloadRate += peer.downloadRate();
+            uploadRate += peer.uploadRate();
+            outstandingRequests += peer.outstandingRequests();
+            queuedUploads += peer.queuedUploads();
+        }
+        return new TorrentSnapshot(infoHash, state, downloadRate, uploadRate, downloaded, uploaded,
+                outstandingRequests, queuedUploads, peers);
+    }
+
+    public int numPeers() {
+        return peers.size();
+    }
+}
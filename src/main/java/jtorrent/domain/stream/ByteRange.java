@@ -0,0 +1,105 @@
+package jtorrent.domain.stream;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+
+import java.util.Optional;
+
+/**
+ * Represents a range of bytes requested through the HTTP {@code Range} header.
+ *
+ * @param start the offset of the first byte of the range
+ * @param end   the offset of the last byte of the range, inclusive
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc9110#name-range-requests">RFC 9110 - Range Requests</a>
+ */
+public record ByteRange(long start, long end) {
+
+    private static final String UNIT_PREFIX = "bytes=";
+
+    public ByteRange {
+        requireNonNegative(start);
+        if (end < start - 1) {
+            throw new IllegalArgumentException("End must not precede start");
+        }
+    }
+
+    /**
+     * Creates a range covering the entire content.
+     *
+     * @param size the size of the content in bytes
+     */
+    public static ByteRange full(long size) {
+        return new ByteRange(0, size - 1);
+    }
+
+    /**
+     * Parses the value of a {@code Range} header containing a single byte range.
+     *
+     * @param header the value of the header
+     * @param size   the size of the content in bytes
+     * @return the range clamped to the size of the content, or an empty {@link Optional} if the range is not
+     * satisfiable
+     * @throws IllegalArgumentException if the header is malformed or contains more than one range, in which case it
+     *                                  should be ignored
+     */
+    public static Optional<ByteRange> parse(String header, long size) {
+        if (!header.startsWith(UNIT_PREFIX)) {
+            throw new IllegalArgumentException("Unsupported range unit: " + header);
+        }
+
+        String spec = header.substring(UNIT_PREFIX.length()).trim();
+        if (spec.contains(",")) {
+            throw new IllegalArgumentException("Multiple ranges are not supported: " + header);
+        }
+
+        int separatorIndex = spec.indexOf('-');
+        if (separatorIndex < 0) {
+            throw new IllegalArgumentException("Malformed range: " + header);
+        }
+
+        String first = spec.substring(0, separatorIndex).trim();
+        String last = spec.substring(separatorIndex + 1).trim();
+
+        if (first.isEmpty()) {
+            long suffixLength = parseNonNegative(last);
+            if (suffixLength == 0 || size == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new ByteRange(Math.max(0, size - suffixLength), size - 1));
+        }
+
+        long start = parseNonNegative(first);
+        long end = last.isEmpty() ? Long.MAX_VALUE : parseNonNegative(last);
+        if (end < start) {
+            throw new IllegalArgumentException("Malformed range: " + header);
+        }
+        if (start >= size) {
+            return Optional.empty();
+        }
+        return Optional.of(new ByteRange(start, Math.min(end, size - 1)));
+    }
+
+    private static long parseNonNegative(String value) {
+        try {
+            long parsed = Long.parseLong(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Negative value in range: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed value in range: " + value, e);
+        }
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * Formats this range as the value of a {@code Content-Range} header.
+     *
+     * @param size the size of the content in bytes
+     */
+    public String toContentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+}
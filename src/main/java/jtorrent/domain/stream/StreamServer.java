@@ -0,0 +1,274 @@
+package jtorrent.domain.stream;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLConnection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.logging.Markers;
+import jtorrent.domain.torrent.handler.StreamingWindow;
+import jtorrent.domain.torrent.handler.TorrentHandler;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.repository.PieceRepository;
+
+/**
+ * Serves the files of active torrents over HTTP on the loopback interface, so that media players can play them while
+ * they are being downloaded.
+ * <p>
+ * Each file is available at {@code /<info hash>/<file index>} and supports single byte range requests, which players
+ * use to seek. Reads block until the pieces containing the requested data have been verified. While a file is being
+ * read, the position of the reader is reported to the {@link TorrentHandler} so that the pieces ahead of it are
+ * downloaded first.
+ */
+public class StreamServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamServer.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    /**
+     * The maximum time to wait for a piece before giving up on a request.
+     */
+    private static final long PIECE_TIMEOUT_SECONDS = 120;
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final PieceRepository repository;
+    private final Function<Sha1Hash, TorrentHandler> getTorrentHandler;
+    private final StreamStatistics statistics = new StreamStatistics();
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+
+    /**
+     * Creates a new {@link StreamServer}.
+     *
+     * @param repository        the repository from which to read the data of torrents
+     * @param getTorrentHandler gets the {@link TorrentHandler} of an active torrent by its info hash, or null if the
+     *                          torrent is not active
+     */
+    public StreamServer(PieceRepository repository, Function<Sha1Hash, TorrentHandler> getTorrentHandler) {
+        this.repository = requireNonNull(repository);
+        this.getTorrentHandler = requireNonNull(getTorrentHandler);
+    }
+
+    public synchronized void start() throws IOException {
+        if (isRunning()) {
+            return;
+        }
+
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executorService = Executors.newCachedThreadPool();
+        httpServer.setExecutor(executorService);
+        httpServer.createContext("/", this::handle);
+        httpServer.start();
+        LOGGER.info(Markers.STREAM, "Stream server started on {}", httpServer.getAddress());
+    }
+
+    public synchronized void stop() {
+        if (!isRunning()) {
+            return;
+        }
+
+        httpServer.stop(0);
+        executorService.shutdownNow();
+        httpServer = null;
+        executorService = null;
+        LOGGER.info(Markers.STREAM, "Stream server stopped");
+    }
+
+    public synchronized boolean isRunning() {
+        return httpServer != null;
+    }
+
+    /**
+     * Gets the URI from which a file of a torrent can be streamed.
+     *
+     * @param torrent   the torrent
+     * @param fileIndex the index of the file within the torrent
+     * @throws IllegalStateException if the server is not running
+     */
+    public synchronized URI getUri(Torrent torrent, int fileIndex) {
+        if (!isRunning()) {
+            throw new IllegalStateException("Stream server is not running");
+        }
+
+        InetSocketAddress address = httpServer.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort()
+                + "/" + torrent.getInfoHash() + "/" + fileIndex);
+    }
+
+    public StreamStatistics getStatistics() {
+        return statistics;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long requestTime = System.nanoTime();
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Optional<StreamTarget> target = resolveTarget(exchange.getRequestURI().getPath());
+            if (target.isEmpty()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            serve(exchange, target.get(), method.equals("HEAD"), requestTime);
+        } catch (IOException e) {
+            LOGGER.error(Markers.STREAM, "Failed to serve {}", exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Optional<StreamTarget> resolveTarget(String path) {
+        String[] segments = path.split("/");
+        if (segments.length != 3) {
+            return Optional.empty();
+        }
+
+        Sha1Hash infoHash;
+        int fileIndex;
+        try {
+            infoHash = Sha1Hash.fromHexString(segments[1]);
+            fileIndex = Integer.parseInt(segments[2]);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        TorrentHandler torrentHandler = getTorrentHandler.apply(infoHash);
+        if (torrentHandler == null) {
+            return Optional.empty();
+        }
+
+        List<FileMetadata> files = torrentHandler.getTorrent().getMetadata().fileInfo().getFileMetaData();
+        if (fileIndex < 0 || fileIndex >= files.size()) {
+            return Optional.empty();
+        }
+        return Optional.of(new StreamTarget(torrentHandler, files.get(fileIndex)));
+    }
+
+    private void serve(HttpExchange exchange, StreamTarget target, boolean isHeadRequest, long requestTime)
+            throws IOException {
+        FileMetadata file = target.file();
+        long size = file.size();
+        String rangeHeader = exchange.getRequestHeaders().getFirst("Range");
+
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("Content-Type", getContentType(file));
+
+        ByteRange range = ByteRange.full(size);
+        int status = 200;
+        if (rangeHeader != null) {
+            try {
+                Optional<ByteRange> requestedRange = ByteRange.parse(rangeHeader, size);
+                if (requestedRange.isEmpty()) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+                range = requestedRange.get();
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range", range.toContentRange(size));
+            } catch (IllegalArgumentException e) {
+                LOGGER.debug(Markers.STREAM, "Ignoring unsupported range {}", rangeHeader, e);
+            }
+        }
+
+        // a response length of 0 denotes a chunked response, while -1 denotes the absence of a body
+        long responseLength = isHeadRequest || range.length() == 0 ? -1 : range.length();
+        if (isHeadRequest) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(range.length()));
+        }
+        exchange.sendResponseHeaders(status, responseLength);
+        if (responseLength == -1) {
+            return;
+        }
+
+        LOGGER.info(Markers.STREAM, "Streaming bytes {}-{} of {}", range.start(), range.end(), file.path());
+        try (StreamingWindow.Cursor cursor = target.torrentHandler().openReadCursor();
+             OutputStream outputStream = exchange.getResponseBody()) {
+            writeRange(target, range, cursor, outputStream, requestTime);
+        }
+    }
+
+    private void writeRange(StreamTarget target, ByteRange range, StreamingWindow.Cursor cursor,
+            OutputStream outputStream, long requestTime) throws IOException {
+        TorrentHandler torrentHandler = target.torrentHandler();
+        Torrent torrent = torrentHandler.getTorrent();
+        boolean isFirstChunk = true;
+
+        long position = target.file().start() + range.start();
+        long end = target.file().start() + range.end();
+        while (position <= end) {
+            int pieceIndex = (int) (position / torrent.getPieceSize());
+            int offsetInPiece = (int) (position - torrent.getPieceOffset(pieceIndex));
+            int length = (int) Math.min(Math.min(end - position + 1, CHUNK_SIZE),
+                    torrent.getPieceSize(pieceIndex) - offsetInPiece);
+
+            cursor.moveTo(position);
+            awaitPiece(torrentHandler, pieceIndex);
+            byte[] data = repository.getBlock(torrent, pieceIndex, offsetInPiece, length);
+            outputStream.write(data);
+
+            if (isFirstChunk) {
+                long timeToFirstByte = System.nanoTime() - requestTime;
+                statistics.recordTimeToFirstByte(timeToFirstByte);
+                LOGGER.info(Markers.STREAM, "Time to first byte: {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(timeToFirstByte));
+                isFirstChunk = false;
+            }
+            position += length;
+        }
+    }
+
+    private void awaitPiece(TorrentHandler torrentHandler, int pieceIndex) throws IOException {
+        CompletableFuture<Void> future = torrentHandler.awaitPieceVerified(pieceIndex);
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            return;
+        }
+
+        LOGGER.debug(Markers.STREAM, "Stalled waiting for piece {}", pieceIndex);
+        long stallStart = System.nanoTime();
+        try {
+            future.get(PIECE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for piece " + pieceIndex, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Piece " + pieceIndex + " is not available", e);
+        } finally {
+            statistics.recordStall(System.nanoTime() - stallStart);
+        }
+    }
+
+    private static String getContentType(FileMetadata file) {
+        String contentType = URLConnection.guessContentTypeFromName(file.path().getFileName().toString());
+        return contentType == null ? DEFAULT_CONTENT_TYPE : contentType;
+    }
+
+    private record StreamTarget(TorrentHandler torrentHandler, FileMetadata file) {
+    }
+}
@@ -0,0 +1,68 @@
+package jtorrent.domain.stream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how well streams are served.
+ * <p>
+ * The time to first byte is the time from receiving a request until the first byte of content is sent, which
+ * includes waiting for the first piece to be downloaded. A stall occurs whenever a stream has to wait for a piece that
+ * has not been verified yet.
+ */
+public class StreamStatistics {
+
+    private final AtomicLong numRequests = new AtomicLong();
+    private final AtomicLong totalTimeToFirstByteNanos = new AtomicLong();
+    private final AtomicLong lastTimeToFirstByteNanos = new AtomicLong();
+    private final AtomicLong numStalls = new AtomicLong();
+    private final AtomicLong totalStallNanos = new AtomicLong();
+
+    void recordTimeToFirstByte(long nanos) {
+        numRequests.incrementAndGet();
+        totalTimeToFirstByteNanos.addAndGet(nanos);
+        lastTimeToFirstByteNanos.set(nanos);
+    }
+
+    void recordStall(long nanos) {
+        numStalls.incrementAndGet();
+        totalStallNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Gets the number of requests for which content was sent.
+     */
+    public long getNumRequests() {
+        return numRequests.get();
+    }
+
+    public Duration getLastTimeToFirstByte() {
+        return Duration.ofNanos(lastTimeToFirstByteNanos.get());
+    }
+
+    public Duration getAverageTimeToFirstByte() {
+        long requests = numRequests.get();
+        if (requests == 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(totalTimeToFirstByteNanos.get() / requests);
+    }
+
+    public long getNumStalls() {
+        return numStalls.get();
+    }
+
+    public Duration getTotalStallTime() {
+        return Duration.ofNanos(totalStallNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "StreamStatistics{"
+                + "numRequests=" + getNumRequests()
+                + ", averageTimeToFirstByte=" + getAverageTimeToFirstByte()
+                + ", numStalls=" + getNumStalls()
+                + ", totalStallTime=" + getTotalStallTime()
+                + '}';
+    }
+}
@@ -0,0 +1,169 @@
+package jtorrent.domain.torrent.handler;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jtorrent.domain.common.util.Sha1Hash;
+
+/**
+ * Attributes corrupt data to the peers that sent it.
+ * <p>
+ * The sender of each received block is recorded until its piece is verified. When a piece fails verification, the
+ * hash of each of its blocks is remembered together with the peer that sent it, and the blocks are downloaded again.
+ * Once the piece passes verification, every remembered block whose hash differs from that of the verified data must
+ * have been corrupt, and its sender receives a strike. Peers that accumulate {@link #MAX_STRIKES} strikes are banned.
+ * <p>
+ * Peers are identified by their address rather than their port, so that a banned peer cannot simply reconnect from a
+ * different port.
+ */
+public class CorruptPeerTracker {
+
+    /**
+     * The number of corrupt blocks after which a peer is banned.
+     * Occasional corrupt blocks are tolerated as they may be the result of transmission errors rather than malice.
+     */
+    public static final int MAX_STRIKES = 3;
+
+    private final Map<Integer, Map<Integer, InetAddress>> pieceIndexToBlockSenders = new HashMap<>();
+    private final Map<Integer, Map<Integer, List<SuspectBlock>>> pieceIndexToSuspectBlocks = new HashMap<>();
+    private final Map<InetAddress, Integer> addressToStrikes = new HashMap<>();
+    private final Set<InetAddress> bannedAddresses = new HashSet<>();
+
+    /**
+     * Records the sender of a received block.
+     */
+    public synchronized void recordBlock(int pieceIndex, int blockIndex, InetAddress sender) {
+        requireNonNull(sender);
+        pieceIndexToBlockSenders.computeIfAbsent(pieceIndex, key -> new HashMap<>()).put(blockIndex, sender);
+    }
+
+    /**
+     * Gets the sender of a block of a piece that has not been verified yet.
+     *
+     * @return the address of the sender, or null if the sender of the block is unknown
+     */
+    public synchronized InetAddress getSender(int pieceIndex, int blockIndex) {
+        return pieceIndexToBlockSenders.getOrDefault(pieceIndex, Collections.emptyMap()).get(blockIndex);
+    }
+
+    /**
+     * Handles a piece that failed verification.
+     * The hash of each block is remembered along with its sender so that the sender can be identified once the
+     * piece has been verified. If every block of the piece was sent by the same peer, that peer is the only possible
+     * source of the corruption and receives a strike immediately.
+     *
+     * @param pieceIndex  the index of the piece
+     * @param blockHashes the hashes of the blocks of the piece as received, in block order
+     * @return the addresses that became banned as a result
+     */
+    public synchronized Set<InetAddress> handlePieceFailed(int pieceIndex, List<Sha1Hash> blockHashes) {
+        Map<Integer, InetAddress> blockSenders = pieceIndexToBlockSenders.remove(pieceIndex);
+        if (blockSenders == null || blockSenders.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Map<Integer, List<SuspectBlock>> suspectBlocks = pieceIndexToSuspectBlocks
+                .computeIfAbsent(pieceIndex, key -> new HashMap<>());
+        blockSenders.forEach((blockIndex, sender) -> {
+            if (blockIndex < blockHashes.size()) {
+                suspectBlocks.computeIfAbsent(blockIndex, key -> new ArrayList<>())
+                        .add(new SuspectBlock(sender, blockHashes.get(blockIndex)));
+            }
+        });
+
+        Set<InetAddress> senders = new HashSet<>(blockSenders.values());
+        if (senders.size() == 1 && blockSenders.size() == blockHashes.size()) {
+            return strike(senders.iterator().next());
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * Handles a piece that passed verification.
+     * Every remembered block of the piece whose hash differs from that of the verified block was corrupt, and its
+     * sender receives a strike.
+     *
+     * @param pieceIndex  the index of the piece
+     * @param blockHashes the hashes of the verified blocks of the piece, in block order
+     * @return the addresses that became banned as a result
+     */
+    public synchronized Set<InetAddress> handlePieceVerified(int pieceIndex, List<Sha1Hash> blockHashes) {
+        pieceIndexToBlockSenders.remove(pieceIndex);
+        Map<Integer, List<SuspectBlock>> suspectBlocks = pieceIndexToSuspectBlocks.remove(pieceIndex);
+        if (suspectBlocks == null) {
+            return Collections.emptySet();
+        }
+
+        Set<InetAddress> newlyBanned = new HashSet<>();
+        suspectBlocks.forEach((blockIndex, suspects) -> {
+            Sha1Hash expected = blockHashes.get(blockIndex);
+            suspects.stream()
+                    .filter(suspect -> !suspect.hash().equals(expected))
+                    .map(SuspectBlock::sender)
+                    // a peer that sent the same corrupt block more than once is only penalized once per block
+                    .distinct()
+                    .forEach(sender -> newlyBanned.addAll(strike(sender)));
+        });
+        return newlyBanned;
+    }
+
+    /**
+     * Gives a strike to a peer that is known to have sent a corrupt block.
+     *
+     * @param address the address of the peer
+     * @return a set containing the address if the peer became banned as a result, or an empty set otherwise
+     */
+    public synchronized Set<InetAddress> strike(InetAddress address) {
+        if (bannedAddresses.contains(address)) {
+            return Collections.emptySet();
+        }
+        int strikes = addressToStrikes.merge(address, 1, Integer::sum);
+        if (strikes < MAX_STRIKES) {
+            return Collections.emptySet();
+        }
+        addressToStrikes.remove(address);
+        bannedAddresses.add(address);
+        return Set.of(address);
+    }
+
+    /**
+     * Checks whether a peer sent any block of a previous attempt at a piece that failed verification.
+     * Such peers should not be used to download the piece again unless there are no other peers that have it.
+     */
+    public synchronized boolean isSuspect(int pieceIndex, InetAddress address) {
+        return pieceIndexToSuspectBlocks.getOrDefault(pieceIndex, Collections.emptyMap()).values().stream()
+                .flatMap(List::stream)
+                .anyMatch(suspect -> suspect.sender().equals(address));
+    }
+
+    public synchronized boolean hasSuspectBlocks(int pieceIndex) {
+        return pieceIndexToSuspectBlocks.containsKey(pieceIndex);
+    }
+
+    public synchronized int getStrikes(InetAddress address) {
+        return addressToStrikes.getOrDefault(address, 0);
+    }
+
+    public synchronized boolean isBanned(InetAddress address) {
+        return bannedAddresses.contains(address);
+    }
+
+    /**
+     * Forgets the received and suspect blocks of a piece.
+     */
+    public synchronized void removePiece(int pieceIndex) {
+        pieceIndexToBlockSenders.remove(pieceIndex);
+        pieceIndexToSuspectBlocks.remove(pieceIndex);
+    }
+
+    private record SuspectBlock(InetAddress sender, Sha1Hash hash) {
+    }
+}
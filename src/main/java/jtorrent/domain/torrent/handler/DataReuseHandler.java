@@ -0,0 +1,309 @@
+package jtorrent.domain.torrent.handler;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.logging.Markers;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.model.TorrentMetadata;
+import jtorrent.domain.torrent.repository.PieceRepository;
+
+/**
+ * Reuses data that already exists on disk when a new torrent is added.
+ * <p>
+ * Candidate files are looked up by size in a {@link FileSizeIndex} over the files of the known torrents and of any
+ * user provided search paths. For each candidate, the pieces that lie entirely within the file are hash checked
+ * against the new torrent. If every such piece matches, the whole file is placed. It is only hard linked if the file
+ * starts and ends on piece boundaries, since a piece that it shares with a neighbouring file is written to later, and
+ * the write would otherwise also change the candidate. If only some pieces match, or if there already is a file at
+ * the target location, only the matching pieces are copied, so that no data that is already present is discarded.
+ * Pieces that are complete after the data has been placed are marked as verified, so that only the missing pieces have
+ * to be downloaded.
+ * <p>
+ * Torrents whose metadata is not loaded are only indexed when data is first reused, which happens in the background.
+ * Their metadata is read one at a time without being kept loaded. The indexed files of each torrent are kept by info
+ * hash, so that removing a torrent never loads its metadata.
+ */
+public class DataReuseHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataReuseHandler.class);
+
+    private final PieceRepository repository;
+    private final FileSizeIndex fileSizeIndex = new FileSizeIndex();
+    private final Map<Path, Map<Path, Long>> searchPathToFileSizes = new HashMap<>();
+    /**
+     * The indexed files of each torrent, with their sizes, as they were when the torrent was indexed.
+     */
+    private final Map<Sha1Hash, Map<Path, Long>> infoHashToFileSizes = new HashMap<>();
+    private final Map<Sha1Hash, Torrent> unindexedTorrents = new HashMap<>();
+
+    public DataReuseHandler(PieceRepository repository) {
+        this.repository = requireNonNull(repository);
+    }
+
+    public void addTorrent(Torrent torrent) {
+        if (torrent.isContentLoaded()) {
+            Map<Path, Long> fileSizes = getFileSizes(torrent, torrent.getMetadata());
+            synchronized (this) {
+                indexTorrent(torrent.getInfoHash(), fileSizes);
+            }
+        } else {
+            synchronized (this) {
+                unindexedTorrents.put(torrent.getInfoHash(), torrent);
+            }
+        }
+    }
+
+    private void indexTorrent(Sha1Hash infoHash, Map<Path, Long> fileSizes) {
+        infoHashToFileSizes.put(infoHash, fileSizes);
+        fileSizes.forEach(fileSizeIndex::add);
+    }
+
+    private void indexUnindexedTorrents() {
+        List<Torrent> torrents;
+        synchronized (this) {
+            torrents = List.copyOf(unindexedTorrents.values());
+        }
+        for (Torrent torrent : torrents) {
+            // read outside the lock, so that removing a torrent does not wait for metadata to be loaded
+            Map<Path, Long> fileSizes;
+            try {
+                fileSizes = getFileSizes(torrent, torrent.peekMetadata());
+            } catch (RuntimeException e) {
+                // the torrent may have been removed while its metadata was being loaded
+                LOGGER.debug(Markers.TORRENT, "Failed to index torrent {}", torrent.getInfoHash(), e);
+                synchronized (this) {
+                    unindexedTorrents.remove(torrent.getInfoHash(), torrent);
+                }
+                continue;
+            }
+            synchronized (this) {
+                // a torrent that was removed in the meantime must not be indexed
+                if (unindexedTorrents.remove(torrent.getInfoHash(), torrent)) {
+                    indexTorrent(torrent.getInfoHash(), fileSizes);
+                }
+            }
+        }
+    }
+
+    public synchronized void removeTorrent(Torrent torrent) {
+        unindexedTorrents.remove(torrent.getInfoHash());
+        Map<Path, Long> fileSizes = infoHashToFileSizes.remove(torrent.getInfoHash());
+        if (fileSizes != null) {
+            fileSizes.forEach(fileSizeIndex::remove);
+        }
+    }
+
+    public synchronized void clearTorrents() {
+        unindexedTorrents.clear();
+        infoHashToFileSizes.clear();
+        fileSizeIndex.clear();
+        synchronized (searchPathToFileSizes) {
+            searchPathToFileSizes.values().forEach(fileSizes -> fileSizes.forEach(fileSizeIndex::add));
+        }
+    }
+
+    /**
+     * Adds a directory whose files should be considered when looking for existing data.
+     *
+     * @param directory the directory to search
+     */
+    public void addSearchPath(Path directory) throws IOException {
+        Map<Path, Long> fileSizes = repository.getFileSizes(directory);
+        synchronized (searchPathToFileSizes) {
+            removeSearchPath(directory);
+            searchPathToFileSizes.put(directory, fileSizes);
+            fileSizes.forEach(fileSizeIndex::add);
+        }
+        LOGGER.info(Markers.TORRENT, "Indexed {} files in search path {}", fileSizes.size(), directory);
+    }
+
+    public void removeSearchPath(Path directory) {
+        synchronized (searchPathToFileSizes) {
+            Map<Path, Long> fileSizes = searchPathToFileSizes.remove(directory);
+            if (fileSizes != null) {
+                fileSizes.forEach(fileSizeIndex::remove);
+            }
+        }
+    }
+
+    /**
+     * Places any existing data matching the files of the given torrent into the torrent's save directory and marks
+     * the pieces that are complete as a result as verified.
+     *
+     * @param torrent the newly added torrent
+     */
+    public void reuseExistingData(Torrent torrent) {
+        indexUnindexedTorrents();
+        BitSet piecesToCheck = new BitSet(torrent.getNumPieces());
+
+        for (FileMetadata fileMetadata : getFileMetadata(torrent)) {
+            if (fileMetadata.size() == 0) {
+                continue;
+            }
+            if (reuseExistingData(torrent, fileMetadata)) {
+                piecesToCheck.set(fileMetadata.firstPiece(), fileMetadata.lastPiece() + 1);
+            }
+        }
+
+        int numVerified = 0;
+        for (int i = piecesToCheck.nextSetBit(0); i >= 0; i = piecesToCheck.nextSetBit(i + 1)) {
+            if (isPieceChecksumValid(torrent, i)) {
+                torrent.setPieceVerified(i);
+                numVerified++;
+            }
+        }
+
+        if (numVerified > 0) {
+            LOGGER.info(Markers.TORRENT, "Reused {} of {} pieces from existing data", numVerified,
+                    torrent.getNumPieces());
+        }
+    }
+
+    /**
+     * Attempts to reuse existing data for a single file.
+     *
+     * @return true if any data was placed, false otherwise
+     */
+    private boolean reuseExistingData(Torrent torrent, FileMetadata fileMetadata) {
+        Path target = getPath(torrent, fileMetadata);
+        int firstContainedPiece = getFirstContainedPiece(torrent, fileMetadata);
+        int lastContainedPiece = getLastContainedPiece(torrent, fileMetadata);
+        int numContainedPieces = lastContainedPiece - firstContainedPiece + 1;
+
+        if (numContainedPieces <= 0) {
+            // the file is too small to be verified on its own
+            return false;
+        }
+
+        List<Path> candidates = fileSizeIndex.getPaths(fileMetadata.size()).stream()
+                .filter(candidate -> !candidate.equals(target))
+                .sorted(Comparator.comparing(candidate -> !candidate.endsWith(fileMetadata.path())))
+                .toList();
+
+        Path bestCandidate = null;
+        BitSet bestMatchingPieces = new BitSet();
+
+        for (Path candidate : candidates) {
+            BitSet matchingPieces = getMatchingPieces(torrent, fileMetadata, candidate, firstContainedPiece,
+                    lastContainedPiece);
+            if (matchingPieces.cardinality() > bestMatchingPieces.cardinality()) {
+                bestCandidate = candidate;
+                bestMatchingPieces = matchingPieces;
+            }
+            if (bestMatchingPieces.cardinality() == numContainedPieces) {
+                break;
+            }
+        }
+
+        if (bestCandidate == null) {
+            return false;
+        }
+
+        // an existing target, such as a partial earlier download, is written to in place rather than replaced
+        boolean isTargetPresent = repository.isFilePresent(torrent, fileMetadata);
+        try {
+            if (bestMatchingPieces.cardinality() == numContainedPieces && !isTargetPresent) {
+                LOGGER.debug(Markers.TORRENT, "Reusing {} for {}", bestCandidate, target);
+                // the pieces shared with neighbouring files are written to later, which must not reach the candidate
+                boolean isPieceAligned = firstContainedPiece == fileMetadata.firstPiece()
+                        && lastContainedPiece == fileMetadata.lastPiece();
+                repository.importFile(torrent, fileMetadata, bestCandidate, isPieceAligned);
+            } else {
+                LOGGER.debug(Markers.TORRENT, "Reusing {} of {} pieces from {} for {}",
+                        bestMatchingPieces.cardinality(), numContainedPieces, bestCandidate, target);
+                copyPieces(torrent, fileMetadata, bestCandidate, bestMatchingPieces);
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.error(Markers.TORRENT, "Failed to reuse {} for {}", bestCandidate, target, e);
+            return false;
+        }
+    }
+
+    private BitSet getMatchingPieces(Torrent torrent, FileMetadata fileMetadata, Path candidate, int firstPiece,
+            int lastPiece) {
+        BitSet matchingPieces = new BitSet();
+        try {
+            for (int i = firstPiece; i <= lastPiece; i++) {
+                long offsetInFile = torrent.getPieceOffset(i) - fileMetadata.start();
+                byte[] data = repository.getData(candidate, offsetInFile, torrent.getPieceSize(i));
+                if (torrent.isPieceValid(i, data)) {
+                    matchingPieces.set(i);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug(Markers.TORRENT, "Failed to read candidate {}", candidate, e);
+        }
+        return matchingPieces;
+    }
+
+    private void copyPieces(Torrent torrent, FileMetadata fileMetadata, Path source, BitSet pieces)
+            throws IOException {
+        for (int i = pieces.nextSetBit(0); i >= 0; i = pieces.nextSetBit(i + 1)) {
+            long offsetInFile = torrent.getPieceOffset(i) - fileMetadata.start();
+            byte[] data = repository.getData(source, offsetInFile, torrent.getPieceSize(i));
+            repository.storeBlock(torrent, i, 0, data);
+        }
+    }
+
+    private boolean isPieceChecksumValid(Torrent torrent, int pieceIndex) {
+        try {
+            byte[] pieceBytes = repository.getPiece(torrent, pieceIndex);
+            return torrent.isPieceValid(pieceIndex, pieceBytes);
+        } catch (IOException e) {
+            // parts of the piece belong to files for which no data could be reused
+            return false;
+        }
+    }
+
+    /**
+     * Gets the index of the first piece that lies entirely within the given file.
+     */
+    private static int getFirstContainedPiece(Torrent torrent, FileMetadata fileMetadata) {
+        int piece = fileMetadata.firstPiece();
+        return torrent.getPieceOffset(piece) < fileMetadata.start() ? piece + 1 : piece;
+    }
+
+    /**
+     * Gets the index of the last piece that lies entirely within the given file.
+     */
+    private static int getLastContainedPiece(Torrent torrent, FileMetadata fileMetadata) {
+        int piece = fileMetadata.lastPiece();
+        long pieceEnd = torrent.getPieceOffset(piece) + torrent.getPieceSize(piece) - 1;
+        return pieceEnd > fileMetadata.end() ? piece - 1 : piece;
+    }
+
+    /**
+     * Gets the size of each file of the given torrent by its path.
+     *
+     * @param metadata the metadata of the torrent, which need not be loaded into the torrent
+     */
+    private static Map<Path, Long> getFileSizes(Torrent torrent, TorrentMetadata metadata) {
+        Path rootSaveDirectory = torrent.getSaveDirectory().resolve(metadata.fileInfo().getFileRoot());
+        Map<Path, Long> fileSizes = new HashMap<>();
+        metadata.fileInfo().getFileMetaData().forEach(fileMetadata ->
+                fileSizes.put(rootSaveDirectory.resolve(fileMetadata.path()), fileMetadata.size()));
+        return fileSizes;
+    }
+
+    private static List<FileMetadata> getFileMetadata(Torrent torrent) {
+        return torrent.getMetadata().fileInfo().getFileMetaData();
+    }
+
+    private static Path getPath(Torrent torrent, FileMetadata fileMetadata) {
+        return torrent.getRootSaveDirectory().resolve(fileMetadata.path());
+    }
+}
@@ -0,0 +1,59 @@
+package jtorrent.domain.torrent.handler;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes files on disk by their size so that files which may contain the data of a newly added torrent can be
+ * found without scanning the disk.
+ * A path may be indexed more than once if it is referenced by more than one source (e.g. by two torrents sharing a
+ * save directory), in which case it remains indexed until every reference has been removed.
+ */
+public class FileSizeIndex {
+
+    private final Map<Long, List<Path>> sizeToPaths = new HashMap<>();
+
+    public synchronized void add(Path path, long size) {
+        requireNonNull(path);
+        requireNonNegative(size);
+        sizeToPaths.computeIfAbsent(size, key -> new ArrayList<>()).add(path);
+    }
+
+    public synchronized void remove(Path path, long size) {
+        List<Path> paths = sizeToPaths.get(size);
+        if (paths == null) {
+            return;
+        }
+        paths.remove(path);
+        if (paths.isEmpty()) {
+            sizeToPaths.remove(size);
+        }
+    }
+
+    /**
+     * Gets the distinct paths of the indexed files with the given size.
+     *
+     * @param size the size of the file in bytes
+     * @return the paths of the indexed files with the given size, or an empty list if there are none
+     */
+    public synchronized List<Path> getPaths(long size) {
+        List<Path> paths = sizeToPaths.get(size);
+        if (paths == null) {
+            return Collections.emptyList();
+        }
+        return paths.stream()
+                .distinct()
+                .toList();
+    }
+
+    public synchronized void clear() {
+        sizeToPaths.clear();
+    }
+}
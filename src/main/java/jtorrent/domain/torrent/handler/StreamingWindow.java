@@ -0,0 +1,181 @@
+package jtorrent.domain.torrent.handler;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireAtLeast;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+import static jtorrent.domain.common.util.ValidationUtil.requirePositive;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Assigns deadlines to the pieces ahead of the positions from which a torrent is being read, so that the data is
+ * downloaded before it is needed.
+ * <p>
+ * Each reader holds a {@link Cursor} that it moves as it reads. The pieces within {@link #WINDOW_BYTES} of a cursor
+ * are given deadlines spaced by the estimated time the reader takes to consume a piece, starting from the time the
+ * cursor was last moved. The read rate of each cursor is estimated from how fast it advances, so that a reader which
+ * consumes data slowly does not cause its pieces to be considered late.
+ */
+public class StreamingWindow {
+
+    /**
+     * The number of bytes ahead of a cursor that are given deadlines.
+     */
+    public static final long WINDOW_BYTES = 16L * 1024 * 1024;
+    /**
+     * The minimum number of pieces ahead of a cursor that are given deadlines.
+     */
+    public static final int MIN_WINDOW_PIECES = 4;
+    /**
+     * The read rate assumed for a cursor before it has advanced, which corresponds to a high bitrate video.
+     */
+    public static final long DEFAULT_BYTES_PER_SECOND = 2L * 1024 * 1024;
+    /**
+     * The lowest read rate that is estimated for a cursor.
+     * Readers that had to wait for data advance slowly, which would otherwise make the deadlines ever more lenient.
+     */
+    public static final long MIN_BYTES_PER_SECOND = 256L * 1024;
+    /**
+     * Pieces whose deadline is less than this many milliseconds away are time critical.
+     */
+    public static final long TIME_CRITICAL_MILLIS = 3000;
+
+    private final int pieceSize;
+    private final int numPieces;
+    private final LongSupplier clock;
+    private final Set<Cursor> cursors = new HashSet<>();
+
+    public StreamingWindow(int pieceSize, int numPieces) {
+        this(pieceSize, numPieces, System::currentTimeMillis);
+    }
+
+    StreamingWindow(int pieceSize, int numPieces, LongSupplier clock) {
+        this.pieceSize = requirePositive(pieceSize);
+        this.numPieces = requireAtLeast(numPieces, 0);
+        this.clock = clock;
+    }
+
+    /**
+     * Opens a new cursor at the start of the torrent.
+     * The cursor only affects the deadlines once it has been moved.
+     */
+    public synchronized Cursor openCursor() {
+        Cursor cursor = new Cursor();
+        cursors.add(cursor);
+        return cursor;
+    }
+
+    public synchronized boolean isActive() {
+        return cursors.stream().anyMatch(Cursor::isPositioned);
+    }
+
+    private int getWindowPieces() {
+        return (int) Math.max(MIN_WINDOW_PIECES, WINDOW_BYTES / pieceSize);
+    }
+
+    /**
+     * Gets the deadline of a piece, which is the earliest deadline assigned to it by any cursor.
+     *
+     * @param pieceIndex the index of the piece
+     * @return the deadline in milliseconds since the epoch, or an empty {@link OptionalLong} if the piece is not
+     * within the window of any cursor
+     */
+    public synchronized OptionalLong getDeadline(int pieceIndex) {
+        return cursors.stream()
+                .filter(Cursor::isPositioned)
+                .map(cursor -> cursor.getDeadline(pieceIndex))
+                .filter(OptionalLong::isPresent)
+                .mapToLong(OptionalLong::getAsLong)
+                .min();
+    }
+
+    /**
+     * Gets the pieces within the window of any cursor, ordered by their deadline.
+     */
+    public synchronized List<Integer> getPiecesByDeadline() {
+        Set<Integer> pieces = new HashSet<>();
+        for (Cursor cursor : cursors) {
+            if (!cursor.isPositioned()) {
+                continue;
+            }
+            int end = Math.min(numPieces, cursor.pieceIndex + getWindowPieces());
+            for (int i = cursor.pieceIndex; i < end; i++) {
+                pieces.add(i);
+            }
+        }
+
+        List<Integer> sortedPieces = new ArrayList<>(pieces);
+        sortedPieces.sort(Comparator.comparingLong(piece -> getDeadline(piece).orElse(Long.MAX_VALUE)));
+        return sortedPieces;
+    }
+
+    public boolean isTimeCritical(int pieceIndex) {
+        OptionalLong deadline = getDeadline(pieceIndex);
+        return deadline.isPresent() && deadline.getAsLong() - clock.getAsLong() < TIME_CRITICAL_MILLIS;
+    }
+
+    public boolean isLate(int pieceIndex) {
+        OptionalLong deadline = getDeadline(pieceIndex);
+        return deadline.isPresent() && deadline.getAsLong() < clock.getAsLong();
+    }
+
+    /**
+     * The position from which a torrent is being read.
+     */
+    public class Cursor implements AutoCloseable {
+
+        private long position = -1;
+        private int pieceIndex;
+        private long movedAt;
+        private double bytesPerSecond = DEFAULT_BYTES_PER_SECOND;
+
+        private Cursor() {
+        }
+
+        private boolean isPositioned() {
+            return position >= 0;
+        }
+
+        /**
+         * Moves the cursor to the given position, updating the estimated read rate if it moved forward.
+         *
+         * @param position the offset from the start of the torrent in bytes
+         */
+        public void moveTo(long position) {
+            requireNonNegative(position);
+            synchronized (StreamingWindow.this) {
+                long now = clock.getAsLong();
+                if (isPositioned() && position > this.position && now > movedAt) {
+                    double sampleBytesPerSecond = (position - this.position) * 1000.0 / (now - movedAt);
+                    // smooth the estimate as reads tend to be bursty
+                    bytesPerSecond = Math.max(MIN_BYTES_PER_SECOND,
+                            0.75 * bytesPerSecond + 0.25 * sampleBytesPerSecond);
+                }
+                this.position = position;
+                this.pieceIndex = (int) (position / pieceSize);
+                this.movedAt = now;
+            }
+        }
+
+        private OptionalLong getDeadline(int pieceIndex) {
+            int distance = pieceIndex - this.pieceIndex;
+            if (distance < 0 || distance >= getWindowPieces()) {
+                return OptionalLong.empty();
+            }
+            long millisPerPiece = (long) (pieceSize * 1000.0 / bytesPerSecond);
+            return OptionalLong.of(movedAt + distance * millisPerPiece);
+        }
+
+        @Override
+        public void close() {
+            synchronized (StreamingWindow.this) {
+                cursors.remove(this);
+            }
+        }
+    }
+}
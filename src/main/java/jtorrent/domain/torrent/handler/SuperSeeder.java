@@ -0,0 +1,205 @@
+package jtorrent.domain.torrent.handler;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireAtLeast;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+import jtorrent.domain.peer.model.PeerContactInfo;
+
+/**
+ * Decides which pieces to reveal to each peer while super seeding, as described in BEP 16.
+ * <p>
+ * Instead of advertising every piece, a super seeder offers each peer a single piece through a Have message. A peer is
+ * only offered another piece once the piece that it downloaded from us has been announced by a different peer that did
+ * not download it from us as well, which shows that it passed the piece on rather than keeping it to itself. Offers
+ * are chosen by ascending availability, preferring pieces that are not currently offered to anyone else, so that each
+ * piece is uploaded as few times as possible before the swarm can distribute it on its own.
+ * <p>
+ * A peer that turns out to already have the offered piece without having downloaded it from us, e.g., because its
+ * bitfield arrived after the offer was made, is offered another piece immediately.
+ *
+ * @see <a href="https://www.bittorrent.org/beps/bep_0016.html">BEP 16 - Superseeding</a>
+ */
+public class SuperSeeder {
+
+    private final int numPieces;
+    /**
+     * The number of tracked peers known to have each piece.
+     */
+    private final int[] pieceAvailability;
+    /**
+     * The number of tracked peers that are currently offered each piece.
+     */
+    private final int[] pieceOfferCount;
+    private final Map<PeerContactInfo, Set<Integer>> peerToAvailablePieces = new HashMap<>();
+    private final Map<PeerContactInfo, Set<Integer>> peerToRevealedPieces = new HashMap<>();
+    private final Map<PeerContactInfo, Set<Integer>> peerToUploadedPieces = new HashMap<>();
+    private final Map<PeerContactInfo, Integer> peerToOfferedPiece = new HashMap<>();
+
+    public SuperSeeder(int numPieces) {
+        this.numPieces = requireAtLeast(numPieces, 0);
+        this.pieceAvailability = new int[numPieces];
+        this.pieceOfferCount = new int[numPieces];
+    }
+
+    /**
+     * Starts tracking a newly connected peer.
+     *
+     * @return the piece to offer to the peer, or an empty {@link OptionalInt} if there is nothing to offer
+     */
+    public synchronized OptionalInt addPeer(PeerContactInfo peer) {
+        requireNonNull(peer);
+        peerToAvailablePieces.putIfAbsent(peer, new HashSet<>());
+        peerToRevealedPieces.putIfAbsent(peer, new HashSet<>());
+        peerToUploadedPieces.putIfAbsent(peer, new HashSet<>());
+        return offerNextPiece(peer);
+    }
+
+    public synchronized void removePeer(PeerContactInfo peer) {
+        Set<Integer> availablePieces = peerToAvailablePieces.remove(peer);
+        if (availablePieces != null) {
+            availablePieces.forEach(piece -> pieceAvailability[piece]--);
+        }
+        Integer offeredPiece = peerToOfferedPiece.remove(peer);
+        if (offeredPiece != null) {
+            pieceOfferCount[offeredPiece]--;
+        }
+        peerToRevealedPieces.remove(peer);
+        peerToUploadedPieces.remove(peer);
+    }
+
+    public synchronized boolean isTracked(PeerContactInfo peer) {
+        return peerToRevealedPieces.containsKey(peer);
+    }
+
+    /**
+     * Checks whether a tracked peer has been offered a piece, and may therefore request it.
+     */
+    public synchronized boolean isRevealed(PeerContactInfo peer, int piece) {
+        return peerToRevealedPieces.getOrDefault(peer, Collections.emptySet()).contains(piece);
+    }
+
+    /**
+     * Records that a block of a piece was uploaded to a peer.
+     */
+    public synchronized void handleBlockUploaded(PeerContactInfo peer, int piece) {
+        Set<Integer> uploadedPieces = peerToUploadedPieces.get(peer);
+        if (uploadedPieces != null) {
+            uploadedPieces.add(piece);
+        }
+    }
+
+    /**
+     * Handles pieces that a peer announced through a Bitfield or Have message.
+     *
+     * @param peer   the peer that announced the pieces
+     * @param pieces the indices of the announced pieces
+     * @return the pieces to offer, mapped by the peers to offer them to
+     */
+    public synchronized Map<PeerContactInfo, Integer> handlePiecesAvailable(PeerContactInfo peer,
+            Set<Integer> pieces) {
+        Set<Integer> availablePieces = peerToAvailablePieces.get(peer);
+        if (availablePieces == null) {
+            return Collections.emptyMap();
+        }
+        pieces.stream()
+                .filter(availablePieces::add)
+                .forEach(piece -> pieceAvailability[piece]++);
+
+        Map<PeerContactInfo, Integer> offers = new HashMap<>();
+        peerToOfferedPiece.entrySet().stream()
+                .filter(entry -> pieces.contains(entry.getValue()))
+                .filter(entry -> shouldOfferNextPiece(entry.getKey(), entry.getValue(), peer))
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(peerToOffer -> offerNextPiece(peerToOffer)
+                        .ifPresent(piece -> offers.put(peerToOffer, piece)));
+
+        if (!peerToOfferedPiece.containsKey(peer)) {
+            // the peer may have had every piece that could have been offered to it so far
+            offerNextPiece(peer).ifPresent(piece -> offers.put(peer, piece));
+        }
+        return offers;
+    }
+
+    /**
+     * Removes every tracked peer, e.g., once super seeding is disabled.
+     *
+     * @return the pieces revealed to each tracked peer
+     */
+    public synchronized Map<PeerContactInfo, Set<Integer>> clear() {
+        Map<PeerContactInfo, Set<Integer>> revealedPieces = new HashMap<>(peerToRevealedPieces);
+        peerToAvailablePieces.clear();
+        peerToRevealedPieces.clear();
+        peerToUploadedPieces.clear();
+        peerToOfferedPiece.clear();
+        Arrays.fill(pieceAvailability, 0);
+        Arrays.fill(pieceOfferCount, 0);
+        return revealedPieces;
+    }
+
+    /**
+     * Checks whether a peer should be offered another piece now that the piece offered to it was announced.
+     *
+     * @param offeredPeer    the peer that was offered the piece
+     * @param piece          the offered piece
+     * @param announcingPeer the peer that announced the piece
+     */
+    private boolean shouldOfferNextPiece(PeerContactInfo offeredPeer, int piece, PeerContactInfo announcingPeer) {
+        if (offeredPeer.equals(announcingPeer)) {
+            // the peer already had the piece if it did not download it from us
+            return !hasUploaded(offeredPeer, piece);
+        }
+        // the piece was only passed on by the offered peer if the announcing peer did not download it from us as well
+        return hasUploaded(offeredPeer, piece) && !hasUploaded(announcingPeer, piece);
+    }
+
+    private boolean hasUploaded(PeerContactInfo peer, int piece) {
+        return peerToUploadedPieces.getOrDefault(peer, Collections.emptySet()).contains(piece);
+    }
+
+    /**
+     * Replaces the piece offered to a peer with the least available piece that the peer neither has nor has been
+     * offered before.
+     */
+    private OptionalInt offerNextPiece(PeerContactInfo peer) {
+        Integer previousPiece = peerToOfferedPiece.remove(peer);
+        if (previousPiece != null) {
+            pieceOfferCount[previousPiece]--;
+        }
+
+        Set<Integer> availablePieces = peerToAvailablePieces.get(peer);
+        Set<Integer> revealedPieces = peerToRevealedPieces.get(peer);
+        int bestPiece = -1;
+        for (int piece = 0; piece < numPieces; piece++) {
+            if (availablePieces.contains(piece) || revealedPieces.contains(piece)) {
+                continue;
+            }
+            if (bestPiece == -1 || isPreferredOffer(piece, bestPiece)) {
+                bestPiece = piece;
+            }
+        }
+
+        if (bestPiece == -1) {
+            return OptionalInt.empty();
+        }
+        peerToOfferedPiece.put(peer, bestPiece);
+        revealedPieces.add(bestPiece);
+        pieceOfferCount[bestPiece]++;
+        return OptionalInt.of(bestPiece);
+    }
+
+    private boolean isPreferredOffer(int piece, int otherPiece) {
+        if (pieceOfferCount[piece] != pieceOfferCount[otherPiece]) {
+            return pieceOfferCount[piece] < pieceOfferCount[otherPiece];
+        }
+        return pieceAvailability[piece] < pieceAvailability[otherPiece];
+    }
+}
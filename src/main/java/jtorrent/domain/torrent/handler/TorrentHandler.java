@@ -1,26 +1,34 @@
 package jtorrent.domain.torrent.handler;
 
-import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -28,40 +36,65 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
+import jtorrent.domain.choke.Choker;
 import jtorrent.domain.common.Constants;
 import jtorrent.domain.common.util.BackgroundTask;
 import jtorrent.domain.common.util.PeriodicTask;
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.Sha256Hash;
 import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.common.util.logging.MdcUtil;
+import jtorrent.domain.dht.handler.AnnounceScheduler;
 import jtorrent.domain.peer.communication.PeerSocket;
 import jtorrent.domain.peer.handler.PeerHandler;
 import jtorrent.domain.peer.model.Peer;
 import jtorrent.domain.peer.model.PeerContactInfo;
 import jtorrent.domain.torrent.model.Block;
+import jtorrent.domain.torrent.model.FileHashTree;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.FilePriority;
 import jtorrent.domain.torrent.model.Torrent;
 import jtorrent.domain.torrent.repository.PieceRepository;
 import jtorrent.domain.tracker.handler.TrackerHandler;
 import jtorrent.domain.tracker.handler.factory.TrackerHandlerFactory;
 import jtorrent.domain.tracker.model.PeerResponse;
 
-public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.EventHandler {
+public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.EventHandler, Choker.PeerGroup,
+        AnnounceScheduler.TorrentStatusProvider {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TorrentHandler.class);
+    /**
+     * The maximum number of hashes that may be requested in a single hash request.
+     */
+    private static final int MAX_HASHES_PER_REQUEST = 512;
 
     private final Torrent torrent;
     private final Set<TrackerHandler> trackerHandlers;
-    private final Set<PeerHandler> peerHandlers = new HashSet<>();
+    private final Set<PeerHandler> peerHandlers = ConcurrentHashMap.newKeySet();
     private final Map<Integer, Set<PeerHandler>> pieceIndexToAvailablePeerHandlers = new HashMap<>();
     private final WorkDispatcher workDispatcher = new WorkDispatcher();
     private final PieceRepository repository;
+    private final Choker choker;
     private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
-    private final UnchokeTask unchokeTask = new UnchokeTask(executorService);
+    private final StreamingTask streamingTask = new StreamingTask(executorService);
     /**
      * Set of peer contacts that are currently being connected to.
      */
     private final Set<PeerContactInfo> pendingContacts = ConcurrentHashMap.newKeySet();
     private final List<Listener> listeners = new ArrayList<>();
+    /**
+     * Verified leaf hashes of the pieces of v2 and hybrid torrents, which are used to verify individual blocks.
+     * Leaf hashes are only requested for pieces that failed verification.
+     */
+    private final Map<Integer, List<Sha256Hash>> pieceIndexToLeafHashes = new ConcurrentHashMap<>();
+    private final CorruptPeerTracker corruptPeerTracker = new CorruptPeerTracker();
+    private final StreamingWindow streamingWindow;
+    private final SuperSeeder superSeeder;
+    private volatile boolean isSuperSeedingEnabled = false;
+    /**
+     * Futures of readers waiting for pieces to be verified.
+     */
+    private final Map<Integer, CompletableFuture<Void>> pieceIndexToVerifiedFuture = new ConcurrentHashMap<>();
     /**
      * Used to prevent concurrent modification to the state of pieces.
      */
@@ -75,9 +108,12 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
      */
     private final Object stateLock = new Object();
 
-    public TorrentHandler(Torrent torrent, PieceRepository pieceRepository) {
+    public TorrentHandler(Torrent torrent, PieceRepository pieceRepository, Choker choker) {
         this.torrent = requireNonNull(torrent);
         this.repository = requireNonNull(pieceRepository);
+        this.choker = requireNonNull(choker);
+        this.streamingWindow = new StreamingWindow(torrent.getPieceSize(), torrent.getNumPieces());
+        this.superSeeder = new SuperSeeder(torrent.getNumPieces());
 
         trackerHandlers = torrent.getTrackers().stream()
                 .map(tracker -> TrackerHandlerFactory.create(torrent, tracker))
@@ -95,12 +131,13 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             if (throwable != null) {
                 LOGGER.error(Markers.TORRENT, "Failed to start", throwable);
             } else {
-                boolean isCompleted = torrent.isAllPiecesVerified();
+                boolean isCompleted = torrent.isAllWantedPiecesVerified();
                 Torrent.State state = isCompleted ? Torrent.State.SEEDING : Torrent.State.DOWNLOADING;
                 torrent.setState(state);
                 workDispatcher.start();
                 trackerHandlers.forEach(TrackerHandler::start);
-                unchokeTask.scheduleAtFixedRate(0, 10, SECONDS);
+                choker.register(this);
+                streamingTask.scheduleAtFixedRate(StreamingTask.PERIOD_MILLIS, MILLISECONDS);
                 LOGGER.info(Markers.TORRENT, "Torrent started");
             }
             MDC.clear();
@@ -115,8 +152,12 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         }
         workDispatcher.stop();
         trackerHandlers.forEach(TrackerHandler::stop);
-        unchokeTask.stop();
+        choker.unregister(this);
+        streamingTask.stop();
         executorService.shutdownNow();
+        pieceIndexToVerifiedFuture.values()
+                .forEach(future -> future.completeExceptionally(new IllegalStateException("Torrent stopped")));
+        pieceIndexToVerifiedFuture.clear();
         peerHandlers.forEach(PeerHandler::stop);
         torrent.clearPeers();
         MdcUtil.removeTorrent();
@@ -126,6 +167,10 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         torrent.setState(Torrent.State.CHECKING);
         torrent.resetCheckedBytes();
         synchronized (pieceStateLock) {
+            // files may have become wanted while the torrent was stopped
+            torrent.getMetadata().fileInfo().getFileMetaData().stream()
+                    .filter(file -> torrent.getFilePriority(file.path()).isWanted())
+                    .forEach(this::restoreSkippedData);
             IntStream.range(0, torrent.getNumPieces())
                     .parallel()
                     .forEach(piece -> {
@@ -143,6 +188,12 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         MdcUtil.putTorrent(torrent);
         PeerContactInfo peerContactInfo = peerSocket.getPeerContactInfo();
 
+        if (isBanned(peerContactInfo)) {
+            LOGGER.debug(Markers.TORRENT, "Rejecting connection from banned peer {}", peerContactInfo);
+            closeSocket(peerSocket);
+            return;
+        }
+
         if (isAlreadyConnectedOrPending(peerContactInfo)) {
             LOGGER.debug(Markers.TORRENT, "Already connected or pending connection {}", peerContactInfo);
             return;
@@ -156,6 +207,11 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
 
     public void handleDiscoveredPeerContact(PeerContactInfo peerContactInfo) {
         MdcUtil.putTorrent(torrent);
+        if (isBanned(peerContactInfo)) {
+            LOGGER.debug(Markers.TORRENT, "Not connecting to banned peer {}", peerContactInfo);
+            return;
+        }
+
         if (isAlreadyConnectedOrPending(peerContactInfo)) {
             LOGGER.debug(Markers.TORRENT, "Already connected or pending connection {}", peerContactInfo);
             return;
@@ -184,13 +240,20 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         try {
             synchronized (verificationLock) {
                 BitSet verifiedPieces = torrent.getVerifiedPieces();
-                if (!verifiedPieces.isEmpty()) {
+                boolean isSuperSeeding = isSuperSeeding();
+                if (!verifiedPieces.isEmpty() && !isSuperSeeding) {
                     peerHandler.sendBitfield(verifiedPieces, torrent.getNumPieces());
                 }
+                if (isSuperSeeding) {
+                    OptionalInt pieceToReveal = superSeeder.addPeer(peerHandler.getPeerContactInfo());
+                    if (pieceToReveal.isPresent()) {
+                        peerHandler.sendHave(pieceToReveal.getAsInt());
+                    }
+                }
                 if (isDhtSupportedByRemote) {
                     peerHandler.sendPort(Constants.PORT);
                 }
-                if (!torrent.isAllPiecesVerified()) {
+                if (!torrent.isAllWantedPiecesVerified()) {
                     peerHandler.sendInterested();
                 }
                 peerHandlers.add(peerHandler);
@@ -215,6 +278,153 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         return torrent.hasPeer(peerContactInfo) || !pendingContacts.add(peerContactInfo);
     }
 
+    private boolean isBanned(PeerContactInfo peerContactInfo) {
+        return corruptPeerTracker.isBanned(peerContactInfo.getAddress());
+    }
+
+    private void closeSocket(PeerSocket peerSocket) {
+        try {
+            peerSocket.close();
+        } catch (IOException e) {
+            LOGGER.error(Markers.TORRENT, "Failed to close socket", e);
+        }
+    }
+
+    /**
+     * Disconnects from all peers with the given addresses.
+     * Peers are disconnected asynchronously as this may be called while holding locks which are also required to
+     * handle the disconnection.
+     */
+    private void disconnectBannedPeers(Set<InetAddress> bannedAddresses) {
+        if (bannedAddresses.isEmpty()) {
+            return;
+        }
+
+        LOGGER.warn(Markers.TORRENT, "Banning peers that sent corrupt data: {}", bannedAddresses);
+        if (executorService.isShutdown()) {
+            // the peers are stopped along with the torrent
+            return;
+        }
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        executorService.execute(() -> {
+            MDC.setContextMap(context);
+            Set<PeerHandler> peerHandlersToStop;
+            synchronized (verificationLock) {
+                peerHandlersToStop = peerHandlers.stream()
+                        .filter(peerHandler -> bannedAddresses.contains(peerHandler.getPeerContactInfo().getAddress()))
+                        .collect(Collectors.toSet());
+            }
+            peerHandlersToStop.forEach(PeerHandler::stop);
+            MDC.clear();
+        });
+    }
+
+    /**
+     * Opens a cursor through which a reader reports the position from which it is reading the torrent.
+     * While any cursor is open, the pieces ahead of it are downloaded in order of their deadlines.
+     * The cursor must be closed once the reader is done.
+     */
+    public StreamingWindow.Cursor openReadCursor() {
+        StreamingWindow.Cursor cursor = streamingWindow.openCursor();
+        LOGGER.info(Markers.TORRENT, "Streaming started");
+        return cursor;
+    }
+
+    /**
+     * Waits for a piece to be verified.
+     *
+     * @param pieceIndex the index of the piece
+     * @return a future that completes once the piece has been verified, or completes exceptionally if the torrent is
+     * stopped before then
+     */
+    public CompletableFuture<Void> awaitPieceVerified(int pieceIndex) {
+        CompletableFuture<Void> future = pieceIndexToVerifiedFuture
+                .computeIfAbsent(pieceIndex, key -> new CompletableFuture<>());
+        // the piece may have been verified before the future was registered
+        if (torrent.isPieceVerified(pieceIndex)) {
+            completeVerifiedFuture(pieceIndex);
+        }
+        return future;
+    }
+
+    private void completeVerifiedFuture(int pieceIndex) {
+        CompletableFuture<Void> future = pieceIndexToVerifiedFuture.remove(pieceIndex);
+        if (future != null) {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Sets the priority of a file in the torrent.
+     * <p>
+     * The part of a shared piece that belongs to a skipped file is stored aside rather than in the file. Received
+     * blocks of unverified pieces overlapping the file are therefore discarded whenever the file becomes skipped or
+     * wanted, and the data stored aside is moved into the file once it becomes wanted.
+     *
+     * @param file     the metadata of the file
+     * @param priority the new priority of the file
+     */
+    public void setFilePriority(FileMetadata file, FilePriority priority) {
+        MdcUtil.putTorrent(torrent);
+        synchronized (pieceStateLock) {
+            boolean wasWanted = torrent.getFilePriority(file.path()).isWanted();
+            torrent.setFilePriority(file.path(), priority);
+            LOGGER.info(Markers.TORRENT, "Set priority of {} to {}", file.path(), priority);
+
+            if (wasWanted != priority.isWanted()) {
+                torrent.setUnverifiedPiecesMissing(file.firstPiece(), file.lastPiece());
+                if (priority.isWanted()) {
+                    restoreSkippedData(file);
+                }
+            }
+        }
+        handleWantedPiecesChanged();
+        MdcUtil.removeTorrent();
+    }
+
+    private void restoreSkippedData(FileMetadata file) {
+        try {
+            repository.restoreSkippedData(torrent, file);
+        } catch (IOException e) {
+            LOGGER.error(Markers.TORRENT, "Failed to restore skipped data of {}", file.path(), e);
+            IntStream.rangeClosed(file.firstPiece(), file.lastPiece())
+                    .filter(torrent::isPieceVerified)
+                    .forEach(torrent::setPieceMissing);
+        }
+    }
+
+    /**
+     * Updates the state of the torrent and the interest in peers after the set of wanted pieces changed.
+     */
+    private void handleWantedPiecesChanged() {
+        boolean isCompleted = torrent.isAllWantedPiecesVerified();
+        boolean isStateChanged = false;
+        synchronized (stateLock) {
+            if (isCompleted && torrent.getState() == Torrent.State.DOWNLOADING) {
+                torrent.setState(Torrent.State.SEEDING);
+                isStateChanged = true;
+            } else if (!isCompleted && torrent.getState() == Torrent.State.SEEDING) {
+                torrent.setState(Torrent.State.DOWNLOADING);
+                isStateChanged = true;
+            }
+        }
+
+        if (isStateChanged) {
+            peerHandlers.forEach(handler -> {
+                try {
+                    if (isCompleted) {
+                        handler.sendNotInterested();
+                    } else {
+                        handler.sendInterested();
+                    }
+                } catch (IOException e) {
+                    LOGGER.error(Markers.TORRENT, "Failed to update interest in {}", handler.getPeerContactInfo(), e);
+                }
+            });
+        }
+        workDispatcher.handleWantedPiecesChanged();
+    }
+
     public void addListener(Listener listener) {
         listeners.add(listener);
     }
@@ -222,14 +432,87 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
     private boolean isPieceChecksumValid(int pieceIndex) {
         try {
             byte[] pieceBytes = repository.getPiece(torrent, pieceIndex);
-            Sha1Hash expected = torrent.getPieceHash(pieceIndex);
-            return Sha1Hash.of(pieceBytes).equals(expected);
+            return torrent.isPieceValid(pieceIndex, pieceBytes);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // expected while checking pieces of files that are skipped or have not been written to yet
+            LOGGER.debug(Markers.TORRENT, "Piece {} is missing a file: {}", pieceIndex, e.getMessage());
+            return false;
         } catch (IOException e) {
             LOGGER.error(Markers.TORRENT, "Failed to retrieve piece {}", pieceIndex, e);
             return false;
         }
     }
 
+    /**
+     * Enables or disables super seeding, in which pieces are revealed to peers one at a time so that the swarm
+     * becomes self-sufficient after as little as possible has been uploaded.
+     * Super seeding only takes effect while all pieces are verified, and only for peers that connect afterwards.
+     * Once it is disabled, the pieces that were not revealed are announced to the peers that were super seeded.
+     *
+     * @see SuperSeeder
+     */
+    public void setSuperSeeding(boolean isEnabled) {
+        MdcUtil.putTorrent(torrent);
+        synchronized (verificationLock) {
+            isSuperSeedingEnabled = isEnabled;
+            if (!isEnabled) {
+                revealRemainingPieces(superSeeder.clear());
+            }
+        }
+        LOGGER.info(Markers.TORRENT, "Super seeding {}", isEnabled ? "enabled" : "disabled");
+        MdcUtil.removeTorrent();
+    }
+
+    /**
+     * Sends Have messages for the verified pieces that were neither revealed to a peer nor announced by it.
+     *
+     * @param peerToRevealedPieces the pieces revealed to each peer that was super seeded
+     */
+    private void revealRemainingPieces(Map<PeerContactInfo, Set<Integer>> peerToRevealedPieces) {
+        BitSet verifiedPieces = torrent.getVerifiedPieces();
+        peerHandlers.stream()
+                .filter(peerHandler -> peerToRevealedPieces.containsKey(peerHandler.getPeerContactInfo()))
+                .forEach(peerHandler -> {
+                    Set<Integer> revealedPieces = peerToRevealedPieces.get(peerHandler.getPeerContactInfo());
+                    Set<Integer> availablePieces = peerHandler.getAvailablePieces();
+                    try {
+                        for (int piece = verifiedPieces.nextSetBit(0); piece >= 0;
+                                piece = verifiedPieces.nextSetBit(piece + 1)) {
+                            if (!revealedPieces.contains(piece) && !availablePieces.contains(piece)) {
+                                peerHandler.sendHave(piece);
+                            }
+                        }
+                    } catch (IOException e) {
+                        LOGGER.error(Markers.TORRENT, "Failed to send have to {}", peerHandler.getPeerContactInfo(),
+                                e);
+                    }
+                });
+    }
+
+    public boolean isSuperSeedingEnabled() {
+        return isSuperSeedingEnabled;
+    }
+
+    private boolean isSuperSeeding() {
+        return isSuperSeedingEnabled && torrent.isAllPiecesVerified();
+    }
+
+    private void revealPieces(Map<PeerContactInfo, Integer> peerToPieceToReveal) {
+        peerHandlers.stream()
+                .filter(peerHandler -> peerToPieceToReveal.containsKey(peerHandler.getPeerContactInfo()))
+                .forEach(peerHandler -> {
+                    int piece = peerToPieceToReveal.get(peerHandler.getPeerContactInfo());
+                    try {
+                        peerHandler.sendHave(piece);
+                        LOGGER.debug(Markers.TORRENT, "Revealed piece {} to {}", piece,
+                                peerHandler.getPeerContactInfo());
+                    } catch (IOException e) {
+                        LOGGER.error(Markers.TORRENT, "Failed to send have to {}", peerHandler.getPeerContactInfo(),
+                                e);
+                    }
+                });
+    }
+
     @Override
     public void onAnnounceResponse(List<PeerResponse> peerResponses) {
         MdcUtil.putTorrent(torrent);
@@ -244,6 +527,7 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         MdcUtil.putTorrent(torrent);
         LOGGER.info(Markers.TORRENT, "Peer disconnected: {}", peerHandler.getPeerContactInfo());
         workDispatcher.removePeerHandler(peerHandler);
+        superSeeder.removePeer(peerHandler.getPeerContactInfo());
         torrent.removePeer(peerHandler.getPeer());
         peerHandlers.remove(peerHandler);
         MdcUtil.removeTorrent();
@@ -284,6 +568,9 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
                 .computeIfAbsent(pieceIndex, key -> new HashSet<>())
                 .add(peerHandler));
         workDispatcher.handlePieceAvailable(peerHandler);
+        if (superSeeder.isTracked(peerHandler.getPeerContactInfo())) {
+            revealPieces(superSeeder.handlePiecesAvailable(peerHandler.getPeerContactInfo(), pieceIndices));
+        }
         MdcUtil.removeTorrent();
     }
 
@@ -291,6 +578,16 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
     public void handleBlockRequested(PeerHandler peerHandler, int pieceIndex, int offset, int length) {
         MdcUtil.putTorrent(torrent);
         LOGGER.info(Markers.TORRENT, "Peer requested block ({}, {}) for piece {}", offset, offset + length, pieceIndex);
+        PeerContactInfo peerContactInfo = peerHandler.getPeerContactInfo();
+        if (superSeeder.isTracked(peerContactInfo) && !superSeeder.isRevealed(peerContactInfo, pieceIndex)) {
+            // without the fast extension, choking is the only way to tell the peer that its requests are dropped,
+            // which the choker does in its next round
+            LOGGER.warn(Markers.TORRENT, "Dropping request of {} for unrevealed piece {}", peerContactInfo,
+                    pieceIndex);
+            peerHandler.markRequestDropped();
+            MdcUtil.removeTorrent();
+            return;
+        }
         byte[] data;
         try {
             data = repository.getBlock(torrent, pieceIndex, offset, length);
@@ -303,6 +600,7 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             peerHandler.sendPiece(pieceIndex, offset, data);
             LOGGER.info(Markers.TORRENT, "Sent block ({}, {}) for piece {}", offset, offset + length, pieceIndex);
             torrent.incrementUploaded(data.length);
+            superSeeder.handleBlockUploaded(peerContactInfo, pieceIndex);
         } catch (IOException e) {
             LOGGER.error(Markers.TORRENT, "Failed to send block ({}, {}) for piece {}", offset, offset + length,
                     pieceIndex, e);
@@ -310,6 +608,73 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         MdcUtil.removeTorrent();
     }
 
+    @Override
+    public void handleHashesRequested(PeerHandler peerHandler, Sha256Hash piecesRoot, int baseLayer, int index,
+            int length, int proofLayers) {
+        MdcUtil.putTorrent(torrent);
+        LOGGER.info(Markers.TORRENT, "Peer requested {} hashes of layer {} from {}", length, baseLayer, piecesRoot);
+        Optional<List<Sha256Hash>> hashes = getHashes(piecesRoot, baseLayer, index, length, proofLayers);
+        try {
+            if (hashes.isPresent()) {
+                peerHandler.sendHashes(piecesRoot, baseLayer, index, length, proofLayers, hashes.get());
+            } else {
+                peerHandler.sendHashReject(piecesRoot, baseLayer, index, length, proofLayers);
+            }
+        } catch (IOException e) {
+            LOGGER.error(Markers.TORRENT, "Failed to send hashes to {}", peerHandler.getPeerContactInfo(), e);
+        }
+        MdcUtil.removeTorrent();
+    }
+
+    /**
+     * Gets the requested hashes of the merkle tree of a file.
+     * Hashes at or above the piece layer are served from the stored tree. Leaf hashes are only served for a single
+     * verified piece without proof hashes, since they have to be computed from the stored data.
+     *
+     * @return the requested hashes, or an empty {@link Optional} if the request cannot be served
+     */
+    private Optional<List<Sha256Hash>> getHashes(Sha256Hash piecesRoot, int baseLayer, int index, int length,
+            int proofLayers) {
+        Optional<Map.Entry<Path, FileHashTree>> entryOpt = torrent.getMetadata().fileInfo()
+                .getFileHashTrees().entrySet().stream()
+                .filter(entry -> entry.getValue().getPiecesRoot().equals(piecesRoot))
+                .findFirst();
+        if (entryOpt.isEmpty() || length > MAX_HASHES_PER_REQUEST) {
+            return Optional.empty();
+        }
+
+        FileHashTree fileHashTree = entryOpt.get().getValue();
+        int pieceSize = torrent.getPieceSize();
+        if (baseLayer != 0) {
+            return fileHashTree.getHashes(pieceSize, baseLayer, index, length, proofLayers);
+        }
+
+        int leavesPerPiece = fileHashTree.getNumLeavesPerPiece(pieceSize);
+        if (length != leavesPerPiece || index % leavesPerPiece != 0 || proofLayers != 0) {
+            return Optional.empty();
+        }
+
+        FileMetadata fileMetadata = torrent.getMetadata().fileInfo().getFileMetaData(entryOpt.get().getKey());
+        int pieceIndex = fileMetadata.firstPiece() + index / leavesPerPiece;
+        if (pieceIndex > fileMetadata.lastPiece() || !torrent.isPieceVerified(pieceIndex)) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] pieceBytes = repository.getPiece(torrent, pieceIndex);
+            long fileBytesInPiece = fileMetadata.end() - torrent.getPieceOffset(pieceIndex) + 1;
+            int numBytes = (int) Math.min(pieceBytes.length, fileBytesInPiece);
+            List<Sha256Hash> leafHashes = new ArrayList<>(FileHashTree.hashLeaves(pieceBytes, 0, numBytes));
+            while (leafHashes.size() < leavesPerPiece) {
+                leafHashes.add(Sha256Hash.ZERO);
+            }
+            return Optional.of(leafHashes);
+        } catch (IOException e) {
+            LOGGER.error(Markers.TORRENT, "Failed to retrieve piece {}", pieceIndex, e);
+            return Optional.empty();
+        }
+    }
+
     @Override
     public void handleDhtPortReceived(PeerHandler peerHandler, int port) {
         MdcUtil.putTorrent(torrent);
@@ -323,122 +688,45 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         return torrent;
     }
 
+    @Override
+    public Collection<PeerHandler> getCandidates() {
+        return List.copyOf(peerHandlers);
+    }
+
+    @Override
+    public boolean isSeeding() {
+        // the state follows whether all wanted pieces are verified, and is read without comparing the pieces
+        return torrent.getState() == Torrent.State.SEEDING;
+    }
+
+    @Override
+    public int getNumPeers() {
+        return peerHandlers.size();
+    }
+
     public interface Listener {
 
         void onDhtNodeDiscovered(InetSocketAddress address);
     }
 
-    private class UnchokeTask extends PeriodicTask {
-
-        private static final int MAX_UNCHOKED_PEERS = 3;
+    /**
+     * Periodically gives idle peers another chance to pick up work while streaming, as pieces become time critical
+     * or late as time passes rather than in response to any event.
+     */
+    private class StreamingTask extends PeriodicTask {
 
-        private Set<PeerHandler> unchokedPeerHandlers = new HashSet<>();
-        private PeerHandler optimisticUnchokedPeerHandler;
-        private int iteration;
+        private static final long PERIOD_MILLIS = 500;
 
-        public UnchokeTask(ScheduledExecutorService scheduledExecutorService) {
+        public StreamingTask(ScheduledExecutorService scheduledExecutorService) {
             super(scheduledExecutorService);
         }
 
         @Override
         public void run() {
-            MdcUtil.putTorrent(torrent);
-            if (isThirdIteration()) {
-                selectPeerToOptimisticUnchoke().ifPresent(this::processPeerToOptimisticUnchoke);
-            }
-            Set<PeerHandler> peersToUnchoke = selectPeersToUnchoke();
-            processPeersToUnchoke(peersToUnchoke);
-            unchokedPeerHandlers = peersToUnchoke;
-            iteration = (iteration + 1) % 3;
-            MdcUtil.removeTorrent();
-        }
-
-        private boolean isThirdIteration() {
-            return iteration == 0;
-        }
-
-        private Set<PeerHandler> selectPeersToUnchoke() {
-            return peerHandlers.stream()
-                    .filter(this::isNotOptimisticUnchoke)
-                    .filter(PeerHandler::isRemoteInterested)
-                    .sorted(this::comparePeerHandlersByTransferRate)
-                    .limit(MAX_UNCHOKED_PEERS)
-                    .collect(Collectors.toSet());
-        }
-
-        /**
-         * Compares two PeerHandlers based on their upload or download rates. If all pieces are verified, the upload
-         * rate is used, otherwise the download rate is used. The PeerHandler with the higher rate is considered to be
-         * "less than" the PeerHandler with the lower rate.
-         *
-         * @param peerHandler1 The first PeerHandler to compare
-         * @param peerHandler2 The second PeerHandler to compare
-         * @return A negative integer if peerHandler1 has a higher rate than peerHandler2,
-         * a positive integer if peerHandler1 has a lower rate than peerHandler2,
-         * or zero if both PeerHandlers have the same rate.
-         */
-        private int comparePeerHandlersByTransferRate(PeerHandler peerHandler1, PeerHandler peerHandler2) {
-            if (torrent.isAllPiecesVerified()) {
-                return Double.compare(peerHandler2.getUploadRate(), peerHandler1.getUploadRate());
-            } else {
-                return Double.compare(peerHandler2.getDownloadRate(), peerHandler1.getDownloadRate());
-            }
-        }
-
-        private boolean isNotOptimisticUnchoke(PeerHandler peerHandler) {
-            return peerHandler != optimisticUnchokedPeerHandler;
-        }
-
-        private void processPeersToUnchoke(Set<PeerHandler> peersToUnchoke) {
-            unchokedPeerHandlers.stream()
-                    .filter(Predicate.not(peersToUnchoke::contains))
-                    .forEach(peerHandler -> {
-                        try {
-                            peerHandler.sendChoke();
-                        } catch (IOException e) {
-                            LOGGER.error(Markers.TORRENT, "Failed to send choke to {}",
-                                    peerHandler.getPeerContactInfo(), e);
-                        }
-                    });
-            peersToUnchoke.stream()
-                    .filter(Predicate.not(unchokedPeerHandlers::contains))
-                    .forEach(peerHandler -> {
-                        try {
-                            peerHandler.sendUnchoke();
-                        } catch (IOException e) {
-                            LOGGER.error(Markers.TORRENT, "Failed to send unchoke to {}",
-                                    peerHandler.getPeerContactInfo(), e);
-                        }
-                    });
-        }
-
-        private Optional<PeerHandler> selectPeerToOptimisticUnchoke() {
-            List<PeerHandler> peerHandlersCopy = new ArrayList<>(peerHandlers);
-            Collections.shuffle(peerHandlersCopy);
-            return peerHandlersCopy.stream()
-                    .filter(PeerHandler::isRemoteChoked)
-                    .findFirst();
-        }
-
-        private void processPeerToOptimisticUnchoke(PeerHandler peerHandler) {
-            assert peerHandler != optimisticUnchokedPeerHandler;
-
-            // choke the current optimistic unchoked peer
-            if (optimisticUnchokedPeerHandler != null) {
-                try {
-                    optimisticUnchokedPeerHandler.sendChoke();
-                } catch (IOException e) {
-                    LOGGER.error(Markers.TORRENT, "Failed to send choke to {}",
-                            optimisticUnchokedPeerHandler.getPeerContactInfo(), e);
-                }
-            }
-
-            // unchoke the new optimistic unchoked peer
-            try {
-                peerHandler.sendUnchoke();
-                optimisticUnchokedPeerHandler = peerHandler;
-            } catch (IOException e) {
-                LOGGER.error(Markers.TORRENT, "Failed to send unchoke to {}", peerHandler.getPeerContactInfo(), e);
+            if (streamingWindow.isActive()) {
+                MdcUtil.putTorrent(torrent);
+                workDispatcher.handleDeadlinesChanged();
+                MdcUtil.removeTorrent();
             }
         }
     }
@@ -449,6 +737,17 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
         private final Map<PeerHandler, Boolean> peerHandlerToShouldEnqueueOnCompletion = new HashMap<>();
         private final Set<PeerHandler> chokedPeerHandlers = new HashSet<>();
         private final Set<PeerHandler> noPieceToAssignPeerHandlers = new HashSet<>();
+        /**
+         * The peers from which each block is currently being requested.
+         * A block is requested from more than one peer only if its piece is late while streaming.
+         */
+        private final Map<Block, Set<PeerHandler>> blockToRequesters = new ConcurrentHashMap<>();
+        /**
+         * Orders pieces by descending priority, and then by ascending availability so that the rarest come first.
+         */
+        private final Comparator<Integer> pieceOrder = Comparator
+                .comparing((Integer pieceIndex) -> torrent.getPiecePriority(pieceIndex), Comparator.reverseOrder())
+                .thenComparingInt(this::getPieceAvailability);
 
         @Override
         protected void execute() throws InterruptedException {
@@ -520,6 +819,37 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             enqueuePeerHandler(peerHandler);
         }
 
+        /**
+         * Enqueues the idle peers which have pieces within the streaming window, so that late pieces can be requested
+         * from them again.
+         */
+        public synchronized void handleDeadlinesChanged() {
+            List<Integer> streamingPieces = streamingWindow.getPiecesByDeadline();
+            List<PeerHandler> peerHandlersToEnqueue = noPieceToAssignPeerHandlers.stream()
+                    .filter(peerHandler -> !chokedPeerHandlers.contains(peerHandler))
+                    .filter(peerHandler -> streamingPieces.stream()
+                            .anyMatch(peerHandler.getAvailablePieces()::contains))
+                    .toList();
+            peerHandlersToEnqueue.forEach(peerHandler -> {
+                noPieceToAssignPeerHandlers.remove(peerHandler);
+                enqueuePeerHandler(peerHandler);
+            });
+        }
+
+        /**
+         * Enqueues the idle peers that are not choking us, so that pieces which became wanted can be requested from
+         * them.
+         */
+        public synchronized void handleWantedPiecesChanged() {
+            List<PeerHandler> peerHandlersToEnqueue = noPieceToAssignPeerHandlers.stream()
+                    .filter(peerHandler -> !chokedPeerHandlers.contains(peerHandler))
+                    .toList();
+            peerHandlersToEnqueue.forEach(peerHandler -> {
+                noPieceToAssignPeerHandlers.remove(peerHandler);
+                enqueuePeerHandler(peerHandler);
+            });
+        }
+
         private boolean isPeerHandlerRegistered(PeerHandler peerHandler) {
             return peerHandlerToShouldEnqueueOnCompletion.containsKey(peerHandler);
         }
@@ -553,18 +883,30 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             int blockIndex = block.getBlockIndex();
             int offset = block.getBlockIndex() * torrent.getBlockSize();
             int length = torrent.getBlockSize(block.getPieceIndex(), block.getBlockIndex());
+            Set<PeerHandler> requesters = blockToRequesters.computeIfAbsent(block,
+                    key -> ConcurrentHashMap.newKeySet());
+            requesters.add(peerHandler);
             peerHandler.sendRequest(block.getPieceIndex(), offset, length)
                     .handle((data, throwable) -> {
                         MdcUtil.putTorrent(torrent);
+                        requesters.remove(peerHandler);
                         if (throwable == null) {
-                            handleBlockReceived(pieceIndex, offset, data);
+                            cancelDuplicateRequests(block, requesters);
+                            handleBlockReceived(peerHandler, pieceIndex, offset, data);
+                        } else if (throwable instanceof CancellationException) {
+                            LOGGER.debug(Markers.TORRENT, "Cancelled duplicate request for block {} of piece {} to {}",
+                                    blockIndex, pieceIndex, peerHandler.getPeerContactInfo());
                         } else {
                             LOGGER.error(Markers.TORRENT, "Failed to receive block {} of piece {} from {}",
                                     blockIndex, pieceIndex, peerHandler.getPeerContactInfo(), throwable);
-                            synchronized (pieceStateLock) {
-                                torrent.setBlockNotRequested(pieceIndex, blockIndex);
+                            // the block is still being requested if it was duplicated
+                            if (requesters.isEmpty()) {
+                                synchronized (pieceStateLock) {
+                                    torrent.setBlockNotRequested(pieceIndex, blockIndex);
+                                }
                             }
                         }
+                        blockToRequesters.remove(block, Collections.emptySet());
 
                         if (shouldEnqueueOnCompletion(peerHandler)) {
                             peerHandlerToShouldEnqueueOnCompletion.put(peerHandler, false);
@@ -577,11 +919,31 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             torrent.setBlockRequested(pieceIndex, blockIndex);
         }
 
+        private void cancelDuplicateRequests(Block block, Set<PeerHandler> requesters) {
+            int offset = block.getBlockIndex() * torrent.getBlockSize();
+            int length = torrent.getBlockSize(block.getPieceIndex(), block.getBlockIndex());
+            for (PeerHandler requester : requesters) {
+                try {
+                    requester.cancelRequest(block.getPieceIndex(), offset, length);
+                } catch (IOException e) {
+                    LOGGER.error(Markers.TORRENT, "Failed to cancel request for {} to {}", block,
+                            requester.getPeerContactInfo(), e);
+                }
+            }
+        }
+
         private boolean shouldEnqueueOnCompletion(PeerHandler peerHandler) {
             return peerHandlerToShouldEnqueueOnCompletion.getOrDefault(peerHandler, false);
         }
 
         private synchronized Optional<Block> getBlockToAssign(PeerHandler peerHandler) {
+            if (streamingWindow.isActive()) {
+                Optional<Block> streamingBlock = getStreamingBlockToAssign(peerHandler);
+                if (streamingBlock.isPresent()) {
+                    return streamingBlock;
+                }
+            }
+
             Optional<Integer> pieceIndexToAssignOpt = getPieceIndexToAssign(peerHandler);
             if (pieceIndexToAssignOpt.isEmpty()) {
                 return Optional.empty();
@@ -591,6 +953,77 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             return Optional.of(new Block(pieceIndex, blockIndex));
         }
 
+        /**
+         * Gets a block of the piece within the streaming window with the earliest deadline.
+         * Time critical pieces are left to the fastest peers if any of them have the piece, and blocks of late pieces
+         * that are still being requested from another peer may be requested again from a fast peer.
+         */
+        private Optional<Block> getStreamingBlockToAssign(PeerHandler peerHandler) {
+            Set<Integer> availablePieces = peerHandler.getAvailablePieces();
+            double fastPeerThreshold = getFastPeerThreshold();
+            boolean isFastPeer = peerHandler.getDownloadRate() >= fastPeerThreshold;
+            for (int pieceIndex : streamingWindow.getPiecesByDeadline()) {
+                if (!availablePieces.contains(pieceIndex)
+                        || torrent.isPieceComplete(pieceIndex)
+                        || torrent.isPieceVerified(pieceIndex)
+                        || !isPreferredForPiece(peerHandler, pieceIndex)) {
+                    continue;
+                }
+
+                if (!isFastPeer && streamingWindow.isTimeCritical(pieceIndex)
+                        && isAvailableFromFastPeer(pieceIndex, fastPeerThreshold)) {
+                    continue;
+                }
+
+                BitSet missingBlocks = torrent.getMissingBlocks(pieceIndex);
+                if (!missingBlocks.isEmpty()) {
+                    return Optional.of(new Block(pieceIndex, missingBlocks.nextSetBit(0)));
+                }
+
+                if (isFastPeer && streamingWindow.isLate(pieceIndex)) {
+                    Optional<Block> blockToDuplicate = getBlockToDuplicate(peerHandler, pieceIndex);
+                    if (blockToDuplicate.isPresent()) {
+                        LOGGER.debug(Markers.TORRENT, "Duplicating request for late {}", blockToDuplicate.get());
+                        return blockToDuplicate;
+                    }
+                }
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * Gets a block of a piece that is being requested from exactly one other peer.
+         */
+        private Optional<Block> getBlockToDuplicate(PeerHandler peerHandler, int pieceIndex) {
+            return IntStream.range(0, torrent.getNumBlocks(pieceIndex))
+                    .mapToObj(blockIndex -> new Block(pieceIndex, blockIndex))
+                    .filter(block -> {
+                        Set<PeerHandler> requesters = blockToRequesters.getOrDefault(block, Collections.emptySet());
+                        return requesters.size() == 1 && !requesters.contains(peerHandler);
+                    })
+                    .findFirst();
+        }
+
+        /**
+         * Gets the median download rate of all connected peers, at or above which a peer is considered fast.
+         * It is computed once per pick, rather than for every candidate piece.
+         */
+        private double getFastPeerThreshold() {
+            double[] downloadRates = peerHandlers.stream()
+                    .mapToDouble(PeerHandler::getDownloadRate)
+                    .sorted()
+                    .toArray();
+            if (downloadRates.length == 0) {
+                return 0;
+            }
+            return downloadRates[downloadRates.length / 2];
+        }
+
+        private boolean isAvailableFromFastPeer(int pieceIndex, double fastPeerThreshold) {
+            return pieceIndexToAvailablePeerHandlers.getOrDefault(pieceIndex, Collections.emptySet()).stream()
+                    .anyMatch(peerHandler -> peerHandler.getDownloadRate() >= fastPeerThreshold);
+        }
+
         private synchronized Optional<Integer> getPieceIndexToAssign(PeerHandler peerHandler) {
             return getRarestPartiallyMissingPieceIndexFromPeer(peerHandler)
                     .or(() -> getRarestCompletelyMissingPieceIndexFromPeer(peerHandler));
@@ -601,7 +1034,25 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             return torrent.getPartiallyMissingPiecesWithUnrequestedBlocks().stream()
                     .boxed()
                     .filter(availablePieces::contains)
-                    .min(Comparator.comparingInt(this::getPieceAvailability));
+                    .filter(pieceIndex -> isPreferredForPiece(peerHandler, pieceIndex))
+                    .min(pieceOrder);
+        }
+
+        /**
+         * Checks whether a peer should be assigned blocks of a piece.
+         * Peers that sent blocks of a failed attempt at the piece are avoided, so that the blocks are downloaded from
+         * different peers and the corrupt ones can be told apart. They are only used if no other peer has the piece.
+         */
+        private boolean isPreferredForPiece(PeerHandler peerHandler, int pieceIndex) {
+            if (!isSuspect(peerHandler, pieceIndex)) {
+                return true;
+            }
+            return pieceIndexToAvailablePeerHandlers.getOrDefault(pieceIndex, Collections.emptySet()).stream()
+                    .allMatch(availablePeerHandler -> isSuspect(availablePeerHandler, pieceIndex));
+        }
+
+        private boolean isSuspect(PeerHandler peerHandler, int pieceIndex) {
+            return corruptPeerTracker.isSuspect(pieceIndex, peerHandler.getPeerContactInfo().getAddress());
         }
 
         private int getPieceAvailability(int pieceIndex) {
@@ -613,18 +1064,39 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             return torrent.getCompletelyMissingPiecesWithUnrequestedBlocks().stream()
                     .boxed()
                     .filter(availablePieces::contains)
-                    .min(Comparator.comparingInt(this::getPieceAvailability));
+                    .filter(pieceIndex -> isPreferredForPiece(peerHandler, pieceIndex))
+                    .min(pieceOrder);
         }
 
         private void enqueuePeerHandler(PeerHandler peerHandler) {
             peerHandlersQueue.add(peerHandler);
         }
 
-        public void handleBlockReceived(int pieceIndex, int offset, byte[] data) {
+        public void handleBlockReceived(PeerHandler peerHandler, int pieceIndex, int offset, byte[] data) {
             LOGGER.info(Markers.TORRENT, "Received {} bytes for piece {}, offset {}", data.length, pieceIndex, offset);
 
             int blockIndex = offset / torrent.getBlockSize();
 
+            synchronized (pieceStateLock) {
+                if (torrent.isPieceVerified(pieceIndex) || torrent.isBlockReceived(pieceIndex, blockIndex)) {
+                    // a late block may have been requested from more than one peer
+                    LOGGER.debug(Markers.TORRENT, "Discarding duplicate block {} of piece {}", blockIndex, pieceIndex);
+                    return;
+                }
+            }
+
+            List<Sha256Hash> leafHashes = pieceIndexToLeafHashes.get(pieceIndex);
+            InetAddress sender = peerHandler.getPeerContactInfo().getAddress();
+            if (leafHashes != null && !torrent.isBlockValid(pieceIndex, blockIndex, data, leafHashes)) {
+                LOGGER.error(Markers.TORRENT, "Received corrupt block {} of piece {} from {}", blockIndex, pieceIndex,
+                        peerHandler.getPeerContactInfo());
+                synchronized (pieceStateLock) {
+                    torrent.setBlockNotRequested(pieceIndex, blockIndex);
+                }
+                disconnectBannedPeers(corruptPeerTracker.strike(sender));
+                return;
+            }
+
             try {
                 repository.storeBlock(torrent, pieceIndex, offset, data);
             } catch (IOException e) {
@@ -636,6 +1108,7 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             }
 
             synchronized (pieceStateLock) {
+                corruptPeerTracker.recordBlock(pieceIndex, blockIndex, sender);
                 torrent.setBlockReceived(pieceIndex, blockIndex);
                 torrent.setBlockNotRequested(pieceIndex, blockIndex);
                 torrent.incrementDownloaded(data.length);
@@ -647,6 +1120,9 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
                         synchronized (verificationLock) {
                             LOGGER.info(Markers.TORRENT, "Piece {} verified", pieceIndex);
                             torrent.setPieceVerified(pieceIndex);
+                            pieceIndexToLeafHashes.remove(pieceIndex);
+                            identifyCorruptPeers(pieceIndex);
+                            completeVerifiedFuture(pieceIndex);
                             peerHandlers.forEach(handler -> {
                                 try {
                                     handler.sendHave(pieceIndex);
@@ -659,24 +1135,27 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
                         }
                     } else {
                         LOGGER.error(Markers.TORRENT, "Piece {} verification failed", pieceIndex);
-                        torrent.setPieceMissing(pieceIndex);
-                        enqueueIdlePeerHandlersWithPiece(pieceIndex);
+                        handlePieceVerificationFailed(peerHandler, pieceIndex);
                     }
                 }
             }
 
-            if (torrent.isAllPiecesVerified()) {
-                LOGGER.info(Markers.TORRENT, "All pieces verified");
-                trackerHandlers.forEach(TrackerHandler::announceCompleted);
-                peerHandlers.forEach(peerHandler -> {
+            if (torrent.isAllWantedPiecesVerified()) {
+                if (torrent.isAllPiecesVerified()) {
+                    LOGGER.info(Markers.TORRENT, "All pieces verified");
+                    trackerHandlers.forEach(TrackerHandler::announceCompleted);
+                    trackerHandlers.forEach(TrackerHandler::stop);
+                } else {
+                    LOGGER.info(Markers.TORRENT, "All wanted pieces verified");
+                }
+                peerHandlers.forEach(handler -> {
                     try {
-                        peerHandler.sendNotInterested();
+                        handler.sendNotInterested();
                     } catch (IOException e) {
                         LOGGER.error(Markers.TORRENT, "Failed to send not interested to {}",
-                                peerHandler.getPeerContactInfo(), e);
+                                handler.getPeerContactInfo(), e);
                     }
                 });
-                trackerHandlers.forEach(TrackerHandler::stop);
                 synchronized (stateLock) {
                     // we need to do this check in a synchronized block because the torrent could have been stopped
                     // concurrently right before we set the state. Without this check, the state could be set to
@@ -688,6 +1167,167 @@ public class TorrentHandler implements TrackerHandler.Listener, PeerHandler.Even
             }
         }
 
+        /**
+         * Handles a complete piece that failed verification.
+         * If the leaf hashes of the piece are known or can be requested from the peer, only the corrupt blocks are
+         * discarded. Otherwise, the whole piece is discarded.
+         */
+        private void handlePieceVerificationFailed(PeerHandler peerHandler, int pieceIndex) {
+            if (pieceIndexToLeafHashes.containsKey(pieceIndex)) {
+                discardCorruptBlocks(pieceIndex);
+                return;
+            }
+
+            Optional<CompletableFuture<List<Sha256Hash>>> leafHashesFuture = requestLeafHashes(peerHandler,
+                    pieceIndex);
+            if (leafHashesFuture.isEmpty()) {
+                discardFailedPiece(pieceIndex);
+                return;
+            }
+
+            leafHashesFuture.get().whenComplete((leafHashes, throwable) -> {
+                MdcUtil.putTorrent(torrent);
+                synchronized (pieceStateLock) {
+                    if (throwable == null) {
+                        pieceIndexToLeafHashes.put(pieceIndex, leafHashes);
+                        discardCorruptBlocks(pieceIndex);
+                    } else {
+                        LOGGER.error(Markers.TORRENT, "Failed to retrieve leaf hashes of piece {}", pieceIndex,
+                                throwable);
+                        discardFailedPiece(pieceIndex);
+                    }
+                }
+                MdcUtil.removeTorrent();
+            });
+        }
+
+        /**
+         * Requests the leaf hashes of a piece from the given peer.
+         * Leaf hashes are only requested if the piece is covered by a merkle tree, the peer supports v2, and the piece
+         * consists of more than one block.
+         *
+         * @return a future that completes with the verified leaf hashes, or an empty {@link Optional} if the leaf
+         * hashes cannot be requested
+         */
+        private Optional<CompletableFuture<List<Sha256Hash>>> requestLeafHashes(PeerHandler peerHandler,
+                int pieceIndex) {
+            FileHashTree fileHashTree = torrent.getFileHashTree(pieceIndex);
+            if (fileHashTree == null || !peerHandler.isV2SupportedByRemote()) {
+                return Optional.empty();
+            }
+
+            int pieceSize = torrent.getPieceSize();
+            int leavesPerPiece = fileHashTree.getNumLeavesPerPiece(pieceSize);
+            if (leavesPerPiece <= 1 || leavesPerPiece > MAX_HASHES_PER_REQUEST) {
+                return Optional.empty();
+            }
+
+            int pieceIndexInFile = torrent.getPieceIndexInFile(pieceIndex);
+            try {
+                LOGGER.info(Markers.TORRENT, "Requesting leaf hashes of piece {} from {}", pieceIndex,
+                        peerHandler.getPeerContactInfo());
+                return Optional.of(peerHandler.sendHashRequest(fileHashTree.getPiecesRoot(), 0,
+                                pieceIndexInFile * leavesPerPiece, leavesPerPiece, 0)
+                        .thenApply(leafHashes -> {
+                            if (!fileHashTree.isLeafHashesValid(pieceIndexInFile, pieceSize, leafHashes)) {
+                                throw new IllegalStateException("Invalid leaf hashes for piece " + pieceIndex);
+                            }
+                            return leafHashes;
+                        }));
+            } catch (IOException e) {
+                LOGGER.error(Markers.TORRENT, "Failed to request leaf hashes of piece {}", pieceIndex, e);
+                return Optional.empty();
+            }
+        }
+
+        /**
+         * Checks each block of a complete piece against its leaf hash and marks only the corrupt blocks as missing.
+         */
+        private void discardCorruptBlocks(int pieceIndex) {
+            List<Sha256Hash> leafHashes = pieceIndexToLeafHashes.get(pieceIndex);
+            BitSet corruptBlocks = new BitSet();
+            try {
+                byte[] pieceBytes = repository.getPiece(torrent, pieceIndex);
+                for (int i = 0; i < torrent.getNumBlocks(pieceIndex); i++) {
+                    int blockStart = i * torrent.getBlockSize();
+                    int blockEnd = blockStart + torrent.getBlockSize(pieceIndex, i);
+                    byte[] blockBytes = Arrays.copyOfRange(pieceBytes, blockStart, blockEnd);
+                    if (!torrent.isBlockValid(pieceIndex, i, blockBytes, leafHashes)) {
+                        corruptBlocks.set(i);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error(Markers.TORRENT, "Failed to retrieve piece {}", pieceIndex, e);
+                discardPiece(pieceIndex);
+                return;
+            }
+
+            if (corruptBlocks.isEmpty()) {
+                // the leaf hashes are verified against the piece hash, so this should only happen if the data
+                // changed on disk in the meantime
+                discardPiece(pieceIndex);
+                return;
+            }
+
+            LOGGER.info(Markers.TORRENT, "Discarding {} corrupt blocks of piece {}", corruptBlocks.cardinality(),
+                    pieceIndex);
+            // the leaf hashes identify the corrupt blocks exactly, so their senders can be penalized right away
+            Set<InetAddress> bannedAddresses = new HashSet<>();
+            corruptBlocks.stream()
+                    .mapToObj(blockIndex -> corruptPeerTracker.getSender(pieceIndex, blockIndex))
+                    .filter(Objects::nonNull)
+                    .forEach(sender -> bannedAddresses.addAll(corruptPeerTracker.strike(sender)));
+            disconnectBannedPeers(bannedAddresses);
+            torrent.setBlocksMissing(pieceIndex, corruptBlocks);
+            enqueueIdlePeerHandlersWithPiece(pieceIndex);
+        }
+
+        /**
+         * Discards a piece that failed verification, remembering the blocks that were received so that the peers
+         * which sent corrupt blocks can be identified once the piece has been downloaded again and verified.
+         */
+        private void discardFailedPiece(int pieceIndex) {
+            getBlockHashes(pieceIndex).ifPresent(blockHashes ->
+                    disconnectBannedPeers(corruptPeerTracker.handlePieceFailed(pieceIndex, blockHashes)));
+            discardPiece(pieceIndex);
+        }
+
+        /**
+         * Compares the blocks of a verified piece with those of previous attempts that failed verification, and
+         * penalizes the peers that sent the blocks which differ.
+         */
+        private void identifyCorruptPeers(int pieceIndex) {
+            Optional<List<Sha1Hash>> blockHashes = corruptPeerTracker.hasSuspectBlocks(pieceIndex)
+                    ? getBlockHashes(pieceIndex)
+                    : Optional.empty();
+            if (blockHashes.isEmpty()) {
+                corruptPeerTracker.removePiece(pieceIndex);
+                return;
+            }
+            disconnectBannedPeers(corruptPeerTracker.handlePieceVerified(pieceIndex, blockHashes.get()));
+        }
+
+        private Optional<List<Sha1Hash>> getBlockHashes(int pieceIndex) {
+            try {
+                byte[] pieceBytes = repository.getPiece(torrent, pieceIndex);
+                List<Sha1Hash> blockHashes = new ArrayList<>();
+                for (int i = 0; i < torrent.getNumBlocks(pieceIndex); i++) {
+                    int blockStart = i * torrent.getBlockSize();
+                    int blockEnd = blockStart + torrent.getBlockSize(pieceIndex, i);
+                    blockHashes.add(Sha1Hash.of(Arrays.copyOfRange(pieceBytes, blockStart, blockEnd)));
+                }
+                return Optional.of(blockHashes);
+            } catch (IOException e) {
+                LOGGER.error(Markers.TORRENT, "Failed to retrieve piece {}", pieceIndex, e);
+                return Optional.empty();
+            }
+        }
+
+        private void discardPiece(int pieceIndex) {
+            torrent.setPieceMissing(pieceIndex);
+            enqueueIdlePeerHandlersWithPiece(pieceIndex);
+        }
+
         private void enqueueIdlePeerHandlersWithPiece(int pieceIndex) {
             noPieceToAssignPeerHandlers.stream()
                     .filter(peer -> peer.getAvailablePieces().contains(pieceIndex))
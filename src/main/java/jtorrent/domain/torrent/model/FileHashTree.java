@@ -0,0 +1,345 @@
+package jtorrent.domain.torrent.model;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import jtorrent.domain.common.util.Sha256Hash;
+
+/**
+ * Represents the SHA-256 merkle tree of a single file in a v2 or hybrid torrent.
+ * <p>
+ * The leaves of the tree are the hashes of the 16 KiB blocks of the file. Leaves beyond the end of the file are
+ * zero hashes, so that the number of leaves is a power of two. Only the root of the tree ({@code pieces root}) and,
+ * for files larger than a piece, the layer in which each hash covers exactly one piece ({@code piece layer}) are
+ * stored. The leaves of a single piece can be verified against its hash in the piece layer, which allows
+ * corrupt data to be detected at block granularity once the leaf hashes of a piece are known.
+ *
+ * @see <a href="https://www.bittorrent.org/beps/bep_0052.html">BEP 52 - The BitTorrent Protocol Specification v2</a>
+ */
+public class FileHashTree {
+
+    /**
+     * The number of bytes covered by each leaf hash.
+     */
+    public static final int LEAF_SIZE = 16384;
+
+    private final long size;
+    private final Sha256Hash piecesRoot;
+    private final List<Sha256Hash> pieceLayer;
+    /**
+     * The layers above the piece layer, which are built on the first request for hashes since they are only needed
+     * to serve peers.
+     */
+    private volatile UpperLayers upperLayers;
+
+    /**
+     * Creates a new {@link FileHashTree}.
+     *
+     * @param size       the size of the file in bytes
+     * @param piecesRoot the root hash of the tree
+     * @param pieceLayer the hashes of the piece layer, or an empty list if the file is not larger than a piece
+     */
+    public FileHashTree(long size, Sha256Hash piecesRoot, List<Sha256Hash> pieceLayer) {
+        this.size = requireNonNegative(size);
+        this.piecesRoot = requireNonNull(piecesRoot);
+        this.pieceLayer = requireNonNull(pieceLayer);
+    }
+
+    /**
+     * Builds the {@link FileHashTree} of the given file contents.
+     *
+     * @param data      the contents of the file
+     * @param pieceSize the piece size of the torrent
+     * @return the {@link FileHashTree} of the file
+     */
+    public static FileHashTree of(byte[] data, int pieceSize) {
+        List<Sha256Hash> leafHashes = hashLeaves(data, 0, data.length);
+        int leavesPerPiece = pieceSize / LEAF_SIZE;
+
+        if (data.length <= pieceSize) {
+            Sha256Hash root = computeRoot(leafHashes, nextPowerOfTwo(leafHashes.size()), Sha256Hash.ZERO);
+            return new FileHashTree(data.length, root, List.of());
+        }
+
+        List<Sha256Hash> pieceLayer = new ArrayList<>();
+        for (int i = 0; i < leafHashes.size(); i += leavesPerPiece) {
+            List<Sha256Hash> pieceLeaves = leafHashes.subList(i, Math.min(i + leavesPerPiece, leafHashes.size()));
+            pieceLayer.add(computeRoot(pieceLeaves, leavesPerPiece, Sha256Hash.ZERO));
+        }
+        Sha256Hash root = computeRoot(pieceLayer, nextPowerOfTwo(pieceLayer.size()),
+                getPaddingHash(leavesPerPiece));
+        return new FileHashTree(data.length, root, pieceLayer);
+    }
+
+    /**
+     * Hashes each {@link #LEAF_SIZE} sized block of the given range of bytes.
+     * The last block may be shorter than {@link #LEAF_SIZE}.
+     *
+     * @param data   the data to hash
+     * @param offset the offset of the range to hash
+     * @param length the length of the range to hash
+     * @return the leaf hashes of the range
+     */
+    public static List<Sha256Hash> hashLeaves(byte[] data, int offset, int length) {
+        List<Sha256Hash> leafHashes = new ArrayList<>();
+        for (int i = 0; i < length; i += LEAF_SIZE) {
+            leafHashes.add(Sha256Hash.of(data, offset + i, Math.min(LEAF_SIZE, length - i)));
+        }
+        return leafHashes;
+    }
+
+    /**
+     * Computes the root of a merkle tree.
+     *
+     * @param hashes  the hashes of the bottom layer of the tree
+     * @param width   the number of hashes in the bottom layer after padding. Must be a power of two that is at least
+     *                the number of given hashes.
+     * @param padding the hash used to pad the bottom layer
+     * @return the root of the tree
+     */
+    public static Sha256Hash computeRoot(List<Sha256Hash> hashes, int width, Sha256Hash padding) {
+        if (Integer.bitCount(width) != 1 || width < hashes.size()) {
+            throw new IllegalArgumentException("Invalid width: " + width);
+        }
+
+        List<Sha256Hash> layer = new ArrayList<>(hashes);
+        Sha256Hash layerPadding = padding;
+        while (width > 1) {
+            List<Sha256Hash> parentLayer = new ArrayList<>((layer.size() + 1) / 2);
+            for (int i = 0; i < layer.size(); i += 2) {
+                Sha256Hash left = layer.get(i);
+                Sha256Hash right = i + 1 < layer.size() ? layer.get(i + 1) : layerPadding;
+                parentLayer.add(Sha256Hash.of(left, right));
+            }
+            layer = parentLayer;
+            layerPadding = Sha256Hash.of(layerPadding, layerPadding);
+            width /= 2;
+        }
+        return layer.isEmpty() ? layerPadding : layer.get(0);
+    }
+
+    /**
+     * Gets the root of a tree whose leaves are all zero hashes.
+     * This is used to pad the piece layer beyond the end of the file.
+     *
+     * @param numLeaves the number of leaves of the tree. Must be a power of two.
+     */
+    private static Sha256Hash getPaddingHash(int numLeaves) {
+        return computeRoot(List.of(), numLeaves, Sha256Hash.ZERO);
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static int log2(int powerOfTwo) {
+        return Integer.numberOfTrailingZeros(powerOfTwo);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Sha256Hash getPiecesRoot() {
+        return piecesRoot;
+    }
+
+    public List<Sha256Hash> getPieceLayer() {
+        return pieceLayer;
+    }
+
+    public boolean hasPieceLayer() {
+        return !pieceLayer.isEmpty();
+    }
+
+    /**
+     * Gets the expected hash of a piece of this file.
+     * If the file is not larger than a piece, this is the root of the tree.
+     *
+     * @param pieceIndex the index of the piece relative to the start of the file
+     */
+    public Sha256Hash getPieceHash(int pieceIndex) {
+        return hasPieceLayer() ? pieceLayer.get(pieceIndex) : piecesRoot;
+    }
+
+    /**
+     * Gets the number of leaves below each hash of the piece layer.
+     *
+     * @param pieceSize the piece size of the torrent
+     */
+    public int getNumLeavesPerPiece(int pieceSize) {
+        if (hasPieceLayer()) {
+            return pieceSize / LEAF_SIZE;
+        }
+        return nextPowerOfTwo((int) Math.ceil((double) size / LEAF_SIZE));
+    }
+
+    /**
+     * Gets the layer of the tree in which each hash covers one piece, counting upwards from the leaf layer at 0.
+     *
+     * @param pieceSize the piece size of the torrent
+     */
+    public int getPieceLayerIndex(int pieceSize) {
+        return log2(getNumLeavesPerPiece(pieceSize));
+    }
+
+    /**
+     * Checks that the piece layer of this tree hashes up to the root.
+     *
+     * @param pieceSize the piece size of the torrent
+     * @return true if the piece layer is consistent with the root, false otherwise
+     */
+    public boolean isPieceLayerValid(int pieceSize) {
+        if (!hasPieceLayer()) {
+            return true;
+        }
+        int numPieces = (int) Math.ceil((double) size / pieceSize);
+        if (pieceLayer.size() != numPieces) {
+            return false;
+        }
+        Sha256Hash padding = getPaddingHash(getNumLeavesPerPiece(pieceSize));
+        return computeRoot(pieceLayer, nextPowerOfTwo(pieceLayer.size()), padding).equals(piecesRoot);
+    }
+
+    /**
+     * Checks whether the given data of a piece hashes up to the expected piece hash.
+     *
+     * @param pieceIndex the index of the piece relative to the start of the file
+     * @param pieceSize  the piece size of the torrent
+     * @param data       the buffer containing the data of the piece
+     * @param offset     the offset of the piece data in the buffer
+     * @param length     the number of bytes of the piece that belong to this file
+     * @return true if the data is valid, false otherwise
+     */
+    public boolean isPieceValid(int pieceIndex, int pieceSize, byte[] data, int offset, int length) {
+        List<Sha256Hash> leafHashes = hashLeaves(data, offset, length);
+        return isLeafHashesValid(pieceIndex, pieceSize, leafHashes);
+    }
+
+    /**
+     * Checks whether the given leaf hashes of a piece hash up to the expected piece hash.
+     * Missing trailing leaf hashes are treated as zero hashes.
+     *
+     * @param pieceIndex the index of the piece relative to the start of the file
+     * @param pieceSize  the piece size of the torrent
+     * @param leafHashes the leaf hashes of the piece
+     * @return true if the leaf hashes are valid, false otherwise
+     */
+    public boolean isLeafHashesValid(int pieceIndex, int pieceSize, List<Sha256Hash> leafHashes) {
+        int numLeaves = getNumLeavesPerPiece(pieceSize);
+        if (leafHashes.size() > numLeaves) {
+            return false;
+        }
+        return computeRoot(leafHashes, numLeaves, Sha256Hash.ZERO).equals(getPieceHash(pieceIndex));
+    }
+
+    /**
+     * Gets a range of hashes from a layer at or above the piece layer, together with the uncle hashes needed to
+     * verify them against the root.
+     * The uncle hashes are ordered from the lowest layer upwards and are appended after the requested hashes.
+     *
+     * @param pieceSize   the piece size of the torrent
+     * @param baseLayer   the layer of the requested hashes, counting upwards from the leaf layer at 0
+     * @param index       the index of the first requested hash within its layer
+     * @param length      the number of requested hashes. Must be a power of two.
+     * @param proofLayers the maximum number of uncle hashes to include
+     * @return the requested hashes followed by the uncle hashes,
+     * or an empty {@link Optional} if the range cannot be served from the stored layers
+     */
+    public Optional<List<Sha256Hash>> getHashes(int pieceSize, int baseLayer, int index, int length,
+            int proofLayers) {
+        int pieceLayerIndex = getPieceLayerIndex(pieceSize);
+        if (baseLayer < pieceLayerIndex || Integer.bitCount(length) != 1 || index % length != 0) {
+            return Optional.empty();
+        }
+
+        List<List<Sha256Hash>> layers = getUpperLayers(pieceSize);
+        int layer = baseLayer - pieceLayerIndex;
+        if (layer >= layers.size() || index + length > layers.get(layer).size()) {
+            return Optional.empty();
+        }
+
+        List<Sha256Hash> hashes = new ArrayList<>(layers.get(layer).subList(index, index + length));
+        int proofLayer = layer + log2(length);
+        int nodeIndex = index / length;
+        for (int i = 0; i < proofLayers && proofLayer < layers.size() - 1; i++) {
+            hashes.add(layers.get(proofLayer).get(nodeIndex ^ 1));
+            proofLayer++;
+            nodeIndex /= 2;
+        }
+        return Optional.of(hashes);
+    }
+
+    private List<List<Sha256Hash>> getUpperLayers(int pieceSize) {
+        UpperLayers cached = upperLayers;
+        if (cached == null || cached.pieceSize() != pieceSize) {
+            // building the layers more than once if requested concurrently is harmless
+            cached = new UpperLayers(pieceSize, buildUpperLayers(pieceSize));
+            upperLayers = cached;
+        }
+        return cached.layers();
+    }
+
+    /**
+     * Builds the layers of the tree from the padded piece layer up to the root.
+     */
+    private List<List<Sha256Hash>> buildUpperLayers(int pieceSize) {
+        List<Sha256Hash> layer = new ArrayList<>(hasPieceLayer() ? pieceLayer : List.of(piecesRoot));
+        Sha256Hash padding = getPaddingHash(getNumLeavesPerPiece(pieceSize));
+        int width = nextPowerOfTwo(layer.size());
+        while (layer.size() < width) {
+            layer.add(padding);
+        }
+
+        List<List<Sha256Hash>> layers = new ArrayList<>();
+        layers.add(layer);
+        while (layer.size() > 1) {
+            List<Sha256Hash> parentLayer = new ArrayList<>(layer.size() / 2);
+            for (int i = 0; i < layer.size(); i += 2) {
+                parentLayer.add(Sha256Hash.of(layer.get(i), layer.get(i + 1)));
+            }
+            layers.add(parentLayer);
+            layer = parentLayer;
+        }
+        return layers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileHashTree that = (FileHashTree) o;
+        return size == that.size
+                && piecesRoot.equals(that.piecesRoot)
+                && pieceLayer.equals(that.pieceLayer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, piecesRoot, pieceLayer);
+    }
+
+    @Override
+    public String toString() {
+        return "FileHashTree{"
+                + "size=" + size
+                + ", piecesRoot=" + piecesRoot
+                + ", pieceLayer=" + pieceLayer
+                + '}';
+    }
+
+    /**
+     * The layers of the tree from the padded piece layer up to the root, which depend on the piece size of the torrent.
+     */
+    private record UpperLayers(int pieceSize, List<List<Sha256Hash>> layers) {
+    }
+}
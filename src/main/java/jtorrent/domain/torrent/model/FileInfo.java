@@ -1,29 +1,45 @@
 package jtorrent.domain.torrent.model;
 
-import static jtorrent.domain.common.util.ValidationUtil.requireAtMost;
-import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.IntStream;
 
+import jtorrent.domain.common.util.PackedSha1Hashes;
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.Sha256Hash;
 
 public abstract class FileInfo {
 
     private static final int BLOCK_SIZE = 16384;
 
     protected final List<FileMetadata> fileMetaData;
-    protected final List<Sha1Hash> pieceHashes;
+    protected final PackedSha1Hashes pieceHashes;
+    /**
+     * The merkle trees of the files of a v2 or hybrid torrent, keyed by the path of the file.
+     * Empty for v1 torrents. Padding files and empty files do not have a merkle tree.
+     */
+    protected final Map<Path, FileHashTree> pathToFileHashTree;
     protected final int pieceSize;
     protected final Sha1Hash infoHash;
+    /**
+     * Built when it is first needed, because it is derived from the other fields.
+     */
+    private volatile FileLayout fileLayout;
 
     protected FileInfo(List<FileMetadata> fileMetaData, int pieceSize, List<Sha1Hash> pieceHashes, Sha1Hash infoHash) {
+        this(fileMetaData, pieceSize, PackedSha1Hashes.of(pieceHashes), Collections.emptyMap(), infoHash);
+    }
+
+    protected FileInfo(List<FileMetadata> fileMetaData, int pieceSize, PackedSha1Hashes pieceHashes,
+            Map<Path, FileHashTree> pathToFileHashTree, Sha1Hash infoHash) {
         this.fileMetaData = requireNonNull(fileMetaData);
         this.pieceSize = pieceSize;
         this.pieceHashes = requireNonNull(pieceHashes);
+        this.pathToFileHashTree = requireNonNull(pathToFileHashTree);
         this.infoHash = requireNonNull(infoHash);
     }
 
@@ -36,38 +52,32 @@ public abstract class FileInfo {
      * @return a list of {@link FileMetadataWithState} that fall within the given byte range
      */
     public List<FileMetadata> getInRange(long start, long end) {
-        int startIndex = getFileIndex(start); // inclusive
-        int endIndex = getFileIndex(end); // inclusive
-
-        return IntStream.range(startIndex, endIndex + 1)
-                .mapToObj(fileMetaData::get)
-                .toList();
-    }
-
-    private int getFileIndex(long offset) {
-        requireNonNegative(offset);
-        requireAtMost(offset, getTotalFileSize() - 1);
-
-        int low = 0;
-        int high = getNumFiles() - 1;
-
-        while (low < high) {
-            int mid = low + (high - low) / 2;
-            FileMetadata metaData = fileMetaData.get(mid);
-            long midStart = metaData.start();
-            long midEnd = metaData.end();
-            boolean isOffsetWithinMidFile = offset >= midStart && offset <= midEnd;
-
-            if (isOffsetWithinMidFile) {
-                return mid;
-            } else if (offset < midStart) {
-                high = mid - 1;
-            } else {
-                low = mid + 1;
-            }
-        }
+        FileLayout layout = getFileLayout();
+        int startIndex = layout.getFileIndex(start); // inclusive
+        int endIndex = layout.getFileIndex(end); // inclusive
+        return fileMetaData.subList(startIndex, endIndex + 1);
+    }
+
+    /**
+     * Returns a list of {@link FileMetadata} of the files that contain the bytes of the given piece.
+     * The returned list is sorted by the start byte offset of the file.
+     *
+     * @param piece the index of the piece
+     * @return a list of {@link FileMetadata} of the files that contain the bytes of the piece
+     */
+    public List<FileMetadata> getInPiece(int piece) {
+        FileLayout layout = getFileLayout();
+        return fileMetaData.subList(layout.getFirstFileIndex(piece), layout.getLastFileIndex(piece) + 1);
+    }
 
-        return high;
+    private FileLayout getFileLayout() {
+        FileLayout layout = fileLayout;
+        if (layout == null) {
+            // the layout is immutable, so building it more than once when called concurrently is harmless
+            layout = new FileLayout(fileMetaData, pieceSize);
+            fileLayout = layout;
+        }
+        return layout;
     }
 
     public int getBlockSize() {
@@ -112,9 +122,7 @@ public abstract class FileInfo {
     }
 
     public long getTotalFileSize() {
-        return getFileMetaData().stream()
-                .mapToLong(FileMetadata::size)
-                .sum();
+        return getFileLayout().getTotalSize();
     }
 
     public List<FileMetadata> getFileMetaData() {
@@ -122,13 +130,14 @@ public abstract class FileInfo {
     }
 
     public FileMetadata getFileMetaData(Path path) {
-        return fileMetaData.stream()
-                .filter(file -> file.path().equals(path))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("File not found: " + path));
+        int index = getFileLayout().getFileIndex(path);
+        if (index < 0) {
+            throw new IllegalArgumentException("File not found: " + path);
+        }
+        return fileMetaData.get(index);
     }
 
-    public List<Sha1Hash> getPieceHashes() {
+    public PackedSha1Hashes getPieceHashes() {
         return pieceHashes;
     }
 
@@ -137,9 +146,106 @@ public abstract class FileInfo {
     }
 
     public int getNumPieces() {
+        if (pieceHashes.isEmpty() && hasFileHashTrees()) {
+            // v2 only torrents do not have v1 piece hashes
+            return getFileLayout().getNumPieces();
+        }
         return pieceHashes.size();
     }
 
+    /**
+     * Checks whether this is a v2 or hybrid torrent, i.e. whether its files have merkle trees.
+     */
+    public boolean hasFileHashTrees() {
+        return !pathToFileHashTree.isEmpty();
+    }
+
+    public Map<Path, FileHashTree> getFileHashTrees() {
+        return pathToFileHashTree;
+    }
+
+    /**
+     * Gets the file that contains the first byte of the given piece.
+     * In v2 and hybrid torrents, every file starts at a piece boundary, so each piece belongs to exactly one file
+     * apart from any trailing padding.
+     */
+    private FileMetadata getFileAtPieceStart(int piece) {
+        return fileMetaData.get(getFileLayout().getFirstFileIndex(piece));
+    }
+
+    /**
+     * Gets the merkle tree of the file containing the given piece.
+     *
+     * @param piece the index of the piece
+     * @return the merkle tree of the file, or null if the piece is not covered by a merkle tree
+     */
+    public FileHashTree getFileHashTree(int piece) {
+        if (!hasFileHashTrees()) {
+            return null;
+        }
+        FileMetadata file = getFileAtPieceStart(piece);
+        if (getPieceOffset(piece) < file.start() || (file.start() % pieceSize) != 0) {
+            return null;
+        }
+        return pathToFileHashTree.get(file.path());
+    }
+
+    /**
+     * Gets the index of the given piece relative to the first piece of the file containing it.
+     * Only meaningful for pieces that are covered by a merkle tree.
+     */
+    public int getPieceIndexInFile(int piece) {
+        return piece - getFileAtPieceStart(piece).firstPiece();
+    }
+
+    /**
+     * Gets the number of bytes at the start of the given piece that belong to the file containing the piece.
+     * The remaining bytes, if any, belong to padding files.
+     */
+    private int getFileBytesInPiece(int piece) {
+        FileMetadata file = getFileAtPieceStart(piece);
+        long remainingFileBytes = file.end() - getPieceOffset(piece) + 1;
+        return (int) Math.min(getPieceSize(piece), remainingFileBytes);
+    }
+
+    /**
+     * Checks whether the given data matches the expected hash of a piece.
+     * If the piece is covered by a merkle tree, the data is verified against the tree. Otherwise, the data is
+     * verified against the v1 piece hash.
+     *
+     * @param piece the index of the piece
+     * @param data  the data of the piece
+     * @return true if the data is valid, false otherwise
+     */
+    public boolean isPieceValid(int piece, byte[] data) {
+        FileHashTree fileHashTree = getFileHashTree(piece);
+        if (fileHashTree != null) {
+            return fileHashTree.isPieceValid(getPieceIndexInFile(piece), pieceSize, data, 0,
+                    Math.min(data.length, getFileBytesInPiece(piece)));
+        }
+        return pieceHashes.matches(piece, Sha1Hash.digest(data));
+    }
+
+    /**
+     * Checks whether the given data of a block matches its leaf hash.
+     * Parts of the block that belong to padding files are not covered by the leaf hash and are ignored.
+     *
+     * @param piece      the index of the piece
+     * @param block      the index of the block within the piece
+     * @param data       the data of the block
+     * @param leafHashes the verified leaf hashes of the piece
+     * @return true if the data is valid, false otherwise
+     */
+    public boolean isBlockValid(int piece, int block, byte[] data, List<Sha256Hash> leafHashes) {
+        int blockStart = block * BLOCK_SIZE;
+        int fileBytesInBlock = Math.min(data.length, getFileBytesInPiece(piece) - blockStart);
+        if (fileBytesInBlock <= 0) {
+            return true;
+        }
+        Sha256Hash expected = block < leafHashes.size() ? leafHashes.get(block) : Sha256Hash.ZERO;
+        return Sha256Hash.of(data, 0, fileBytesInBlock).equals(expected);
+    }
+
     public Sha1Hash getInfoHash() {
         return infoHash;
     }
@@ -159,7 +265,7 @@ public abstract class FileInfo {
 
     @Override
     public int hashCode() {
-        return Objects.hash(fileMetaData, pieceHashes, pieceSize);
+        return Objects.hash(fileMetaData, pieceHashes, pathToFileHashTree, pieceSize);
     }
 
     @Override
@@ -173,6 +279,7 @@ public abstract class FileInfo {
         FileInfo fileInfo = (FileInfo) o;
         return pieceSize == fileInfo.pieceSize
                 && Objects.equals(fileMetaData, fileInfo.fileMetaData)
-                && Objects.equals(pieceHashes, fileInfo.pieceHashes);
+                && Objects.equals(pieceHashes, fileInfo.pieceHashes)
+                && Objects.equals(pathToFileHashTree, fileInfo.pathToFileHashTree);
     }
 }
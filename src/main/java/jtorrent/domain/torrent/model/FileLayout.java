@@ -0,0 +1,123 @@
+package jtorrent.domain.torrent.model;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireAtMost;
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNegative;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable index over the files of a {@link FileInfo}, which maps byte offsets, pieces and paths to files without
+ * scanning every file.
+ * <p>
+ * Empty files never contain a byte, so they are never the file at an offset. They are only included in ranges of files
+ * when they lie between two files that are included.
+ */
+class FileLayout {
+
+    private final long totalSize;
+    /**
+     * The offset of the first byte of each file, in the order of the files in the torrent.
+     */
+    private final long[] fileStarts;
+    /**
+     * The index of the file containing the first byte of each piece.
+     */
+    private final int[] pieceToFirstFile;
+    /**
+     * The index of the file containing the last byte of each piece.
+     */
+    private final int[] pieceToLastFile;
+    private final Map<Path, Integer> pathToFileIndex;
+
+    /**
+     * @param files     the files of the torrent, in the order in which they appear in the torrent
+     * @param pieceSize the size of every piece apart from the last
+     */
+    FileLayout(List<FileMetadata> files, int pieceSize) {
+        fileStarts = new long[files.size()];
+        pathToFileIndex = new HashMap<>(files.size() * 2);
+        long offset = 0;
+        for (int i = 0; i < files.size(); i++) {
+            FileMetadata file = files.get(i);
+            fileStarts[i] = offset;
+            offset += file.size();
+            pathToFileIndex.put(file.path(), i);
+        }
+        totalSize = offset;
+
+        int numPieces = (int) ((totalSize + pieceSize - 1) / pieceSize);
+        pieceToFirstFile = new int[numPieces];
+        pieceToLastFile = new int[numPieces];
+        // both the pieces and the files are in the order of their offsets, so every file is visited at most once
+        int fileIndex = 0;
+        for (int piece = 0; piece < numPieces; piece++) {
+            long pieceStart = (long) piece * pieceSize;
+            long pieceEnd = Math.min(pieceStart + pieceSize, totalSize) - 1;
+            fileIndex = advanceToFileContaining(pieceStart, fileIndex);
+            pieceToFirstFile[piece] = fileIndex;
+            fileIndex = advanceToFileContaining(pieceEnd, fileIndex);
+            pieceToLastFile[piece] = fileIndex;
+        }
+    }
+
+    private int advanceToFileContaining(long offset, int fromIndex) {
+        int fileIndex = fromIndex;
+        while (fileIndex + 1 < fileStarts.length && fileStarts[fileIndex + 1] <= offset) {
+            fileIndex++;
+        }
+        return fileIndex;
+    }
+
+    long getTotalSize() {
+        return totalSize;
+    }
+
+    int getNumPieces() {
+        return pieceToFirstFile.length;
+    }
+
+    /**
+     * Gets the index of the file containing the byte at the given offset.
+     *
+     * @param offset the offset of the byte
+     * @return the index of the file
+     */
+    int getFileIndex(long offset) {
+        requireNonNegative(offset);
+        requireAtMost(offset, totalSize - 1);
+
+        int index = Arrays.binarySearch(fileStarts, offset);
+        if (index < 0) {
+            // the insertion point is the first file that starts after the offset
+            return -index - 2;
+        }
+        // skip the empty files that start at the same offset
+        while (index + 1 < fileStarts.length && fileStarts[index + 1] == offset) {
+            index++;
+        }
+        return index;
+    }
+
+    int getFirstFileIndex(int piece) {
+        return pieceToFirstFile[piece];
+    }
+
+    int getLastFileIndex(int piece) {
+        return pieceToLastFile[piece];
+    }
+
+    /**
+     * Gets the index of the file with the given path.
+     *
+     * @param path the path of the file
+     * @return the index of the file, or -1 if there is no such file
+     */
+    int getFileIndex(Path path) {
+        return Objects.requireNonNullElse(pathToFileIndex.get(path), -1);
+    }
+}
@@ -0,0 +1,22 @@
+package jtorrent.domain.torrent.model;
+
+/**
+ * The priority with which the pieces of a file are downloaded.
+ * Pieces shared by several files take the highest priority among them.
+ * The order of the constants is persisted and must not be changed.
+ */
+public enum FilePriority {
+
+    /**
+     * The file is not downloaded at all.
+     * Pieces that it shares with wanted files are still downloaded, but its part of them is stored aside.
+     */
+    SKIP,
+    LOW,
+    NORMAL,
+    HIGH;
+
+    public boolean isWanted() {
+        return this != SKIP;
+    }
+}
@@ -8,6 +8,8 @@ import java.util.stream.IntStream;
 
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
+import jtorrent.domain.common.util.rx.BitSetChange;
+import jtorrent.domain.common.util.rx.RxObservableBitSet;
 
 public class FileProgress {
 
@@ -15,20 +17,24 @@ public class FileProgress {
     private final FileMetadata fileMetaData;
     private final AtomicLong verifiedBytes;
     private final BehaviorSubject<Long> verifiedBytesSubject;
-    private final BitSet verifiedPieces;
-    private final BehaviorSubject<BitSet> verifiedPiecesSubject;
+    private final RxObservableBitSet verifiedPiecesObservable;
+    private final BehaviorSubject<FilePriority> prioritySubject;
+    private volatile FilePriority priority;
 
-    public FileProgress(FileInfo fileInfo, FileMetadata fileMetaData, long verifiedBytes, BitSet verifiedPieces) {
+    public FileProgress(FileInfo fileInfo, FileMetadata fileMetaData, long verifiedBytes, BitSet verifiedPieces,
+            FilePriority priority) {
         this.fileInfo = requireNonNull(fileInfo);
         this.fileMetaData = requireNonNull(fileMetaData);
         this.verifiedBytes = new AtomicLong(verifiedBytes);
         this.verifiedBytesSubject = BehaviorSubject.createDefault(verifiedBytes);
-        this.verifiedPieces = requireNonNull(verifiedPieces);
-        this.verifiedPiecesSubject = BehaviorSubject.createDefault((BitSet) verifiedPieces.clone());
+        this.verifiedPiecesObservable =
+                new RxObservableBitSet(requireNonNull(verifiedPieces), fileMetaData.numPieces());
+        this.priority = requireNonNull(priority);
+        this.prioritySubject = BehaviorSubject.createDefault(priority);
     }
 
     public static FileProgress createNew(FileInfo fileInfo, FileMetadata fileMetaData) {
-        return new FileProgress(fileInfo, fileMetaData, 0, new BitSet());
+        return new FileProgress(fileInfo, fileMetaData, 0, new BitSet(), FilePriority.NORMAL);
     }
 
     /**
@@ -36,9 +42,10 @@ public class FileProgress {
      * @param fileMetaData   the metadata for the file
      * @param verifiedPieces a bitset containing the verified pieces indices for the entire torrent, i.e.,
      *                       indices are global, not relative to the file
+     * @param priority       the priority of the file
      */
     public static FileProgress createExisting(FileInfo fileInfo, FileMetadata fileMetaData,
-            BitSet verifiedPieces) {
+            BitSet verifiedPieces, FilePriority priority) {
         long verifiedBytes = IntStream.range(fileMetaData.firstPiece(), fileMetaData.lastPiece() + 1)
                 .filter(verifiedPieces::get)
                 .mapToLong(piece -> getPieceBytesInFile(fileInfo, fileMetaData, piece))
@@ -47,7 +54,7 @@ public class FileProgress {
         IntStream.range(fileMetaData.firstPiece(), fileMetaData.lastPiece() + 1)
                 .filter(verifiedPieces::get)
                 .forEach(piece -> relativeVerifiedPieces.set(piece - fileMetaData.firstPiece()));
-        return new FileProgress(fileInfo, fileMetaData, verifiedBytes, relativeVerifiedPieces);
+        return new FileProgress(fileInfo, fileMetaData, verifiedBytes, relativeVerifiedPieces, priority);
     }
 
     private static long getPieceBytesInFile(FileInfo fileInfo, FileMetadata fileMetaData, int piece) {
@@ -67,25 +74,38 @@ public class FileProgress {
     }
 
     public BitSet getVerifiedPieces() {
-        return verifiedPieces;
+        return verifiedPiecesObservable.getBitSet();
+    }
+
+    public FilePriority getPriority() {
+        return priority;
+    }
+
+    public Observable<FilePriority> getPriorityObservable() {
+        return prioritySubject;
+    }
+
+    public void setPriority(FilePriority priority) {
+        this.priority = requireNonNull(priority);
+        prioritySubject.onNext(priority);
     }
 
     public Observable<Long> getVerifiedBytesObservable() {
         return verifiedBytesSubject;
     }
 
-    public Observable<BitSet> getVerifiedPiecesObservable() {
-        return verifiedPiecesSubject;
+    /**
+     * Gets an observable that emits all verified pieces upon subscription, and batches of pieces that have since
+     * become verified or not verified. Piece indices are relative to the first piece of the file.
+     */
+    public Observable<BitSetChange> getVerifiedPiecesObservable() {
+        return verifiedPiecesObservable;
     }
 
     public void setPieceVerified(int piece) {
-        int relativePiece = getRelativePieceIndex(piece);
-        if (verifiedPieces.get(relativePiece)) {
-            return;
+        if (verifiedPiecesObservable.set(getRelativePieceIndex(piece))) {
+            incrementVerifiedBytes(getPieceBytesInFile(piece));
         }
-        verifiedPieces.set(relativePiece);
-        verifiedPiecesSubject.onNext((BitSet) verifiedPieces.clone());
-        incrementVerifiedBytes(getPieceBytesInFile(piece));
     }
 
     private void incrementVerifiedBytes(long bytes) {
@@ -97,13 +117,9 @@ public class FileProgress {
     }
 
     public void setPieceNotVerified(int piece) {
-        int relativePiece = getRelativePieceIndex(piece);
-        if (!verifiedPieces.get(relativePiece)) {
-            return;
+        if (verifiedPiecesObservable.clear(getRelativePieceIndex(piece))) {
+            incrementVerifiedBytes(-getPieceBytesInFile(piece));
         }
-        verifiedPieces.clear(relativePiece);
-        verifiedPiecesSubject.onNext((BitSet) verifiedPieces.clone());
-        incrementVerifiedBytes(-getPieceBytesInFile(piece));
     }
 
     @Override
@@ -111,7 +127,8 @@ public class FileProgress {
         int result = fileInfo.hashCode();
         result = 31 * result + fileMetaData.hashCode();
         result = 31 * result + verifiedBytes.hashCode();
-        result = 31 * result + verifiedPieces.hashCode();
+        result = 31 * result + getVerifiedPieces().hashCode();
+        result = 31 * result + priority.hashCode();
         return result;
     }
 
@@ -128,7 +145,8 @@ public class FileProgress {
         return fileInfo.equals(that.fileInfo)
                 && fileMetaData.equals(that.fileMetaData)
                 && (verifiedBytes.get() == that.verifiedBytes.get())
-                && verifiedPieces.equals(that.verifiedPieces);
+                && getVerifiedPieces().equals(that.getVerifiedPieces())
+                && priority == that.priority;
     }
 
     @Override
@@ -137,7 +155,8 @@ public class FileProgress {
                 + "fileInfo=" + fileInfo
                 + ", fileMetaData=" + fileMetaData
                 + ", verifiedBytes=" + verifiedBytes
-                + ", verifiedPieces=" + verifiedPieces
+                + ", verifiedPieces=" + getVerifiedPieces()
+                + ", priority=" + priority
                 + '}';
     }
 }
@@ -4,8 +4,10 @@ import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import jtorrent.domain.common.util.PackedSha1Hashes;
 import jtorrent.domain.common.util.Sha1Hash;
 
 public class MultiFileInfo extends FileInfo {
@@ -18,6 +20,12 @@ public class MultiFileInfo extends FileInfo {
         this.directory = requireNonNull(directory);
     }
 
+    public MultiFileInfo(String directory, List<FileMetadata> fileMetaData, int pieceSize,
+            PackedSha1Hashes pieceHashes, Map<Path, FileHashTree> pathToFileHashTree, Sha1Hash infoHash) {
+        super(fileMetaData, pieceSize, pieceHashes, pathToFileHashTree, infoHash);
+        this.directory = requireNonNull(directory);
+    }
+
     @Override
     public Path getFileRoot() {
         return Path.of(directory);
@@ -58,6 +66,7 @@ public class MultiFileInfo extends FileInfo {
                 + "directory='" + directory + '\''
                 + ", fileMetaData=" + fileMetaData
                 + ", pieceHashes=" + pieceHashes
+                + ", pathToFileHashTree=" + pathToFileHashTree
                 + ", pieceSize=" + pieceSize
                 + ", infoHash=" + infoHash
                 + '}';
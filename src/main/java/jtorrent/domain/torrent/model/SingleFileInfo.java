@@ -2,7 +2,9 @@ package jtorrent.domain.torrent.model;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
+import jtorrent.domain.common.util.PackedSha1Hashes;
 import jtorrent.domain.common.util.Sha1Hash;
 
 public class SingleFileInfo extends FileInfo {
@@ -11,6 +13,11 @@ public class SingleFileInfo extends FileInfo {
         super(List.of(fileMetaData), pieceSize, pieceHashes, infoHash);
     }
 
+    public SingleFileInfo(FileMetadata fileMetaData, int pieceSize, PackedSha1Hashes pieceHashes,
+            Map<Path, FileHashTree> pathToFileHashTree, Sha1Hash infoHash) {
+        super(List.of(fileMetaData), pieceSize, pieceHashes, pathToFileHashTree, infoHash);
+    }
+
     @Override
     public Path getFileRoot() {
         return Path.of("");
@@ -26,6 +33,7 @@ public class SingleFileInfo extends FileInfo {
         return "SingleFileInfo{"
                 + "fileMetaData=" + fileMetaData
                 + ", pieceHashes=" + pieceHashes
+                + ", pathToFileHashTree=" + pathToFileHashTree
                 + ", pieceSize=" + pieceSize
                 + ", infoHash=" + infoHash
                 + '}';
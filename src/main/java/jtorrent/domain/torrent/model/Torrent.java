@@ -9,12 +9,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
+import io.reactivex.rxjava3.subjects.PublishSubject;
 import jtorrent.domain.common.util.Sha1Hash;
-import jtorrent.domain.common.util.rx.CombinedDoubleSumObservable;
+import jtorrent.domain.common.util.Sha256Hash;
+import jtorrent.domain.common.util.rx.BitSetChange;
 import jtorrent.domain.common.util.rx.MutableRxObservableSet;
 import jtorrent.domain.common.util.rx.RxObservableSet;
 import jtorrent.domain.peer.model.Peer;
@@ -25,33 +29,66 @@ import jtorrent.domain.tracker.model.factory.TrackerFactory;
 
 public class Torrent implements TrackerHandler.TorrentProgressProvider {
 
-    private final TorrentMetadata torrentMetaData;
+    private final Sha1Hash infoHash;
+    private final long totalSize;
     private final TorrentStatistics torrentStatistics;
-    private final TorrentProgress torrentProgress;
-    private final Set<Tracker> trackers = new HashSet<>();
+    /**
+     * Emits the verified bytes of the progress while it is loaded, and keeps the last value while it is released.
+     */
+    private final BehaviorSubject<Long> verifiedBytesSubject;
+    private final BehaviorSubject<Long> checkedBytesSubject = BehaviorSubject.createDefault(0L);
+    private final PublishSubject<TorrentProgress> progressLoadedSubject = PublishSubject.create();
+    /**
+     * The metadata and progress, or {@code null} if they have been released and must be loaded when next accessed.
+     */
+    private volatile TorrentContent content;
+    private volatile Set<Tracker> trackers;
+    /**
+     * The number of times the content has been accessed. It is counted without the lock of this torrent, so that
+     * accessing content that is loaded never blocks.
+     */
+    private final AtomicLong accessCount = new AtomicLong();
+    /**
+     * The access count when {@link #releaseContentIfIdle} was last called.
+     */
+    private long checkedAccessCount;
+    private ContentLoader contentLoader;
+    private CompositeDisposable contentDisposables;
+    private int idleCheckCount;
     private final MutableRxObservableSet<Peer> peers = new MutableRxObservableSet<>(new HashSet<>());
-    private final CombinedDoubleSumObservable downloadRateObservable = new CombinedDoubleSumObservable();
-    private final CombinedDoubleSumObservable uploadRateObservable = new CombinedDoubleSumObservable();
     private final BehaviorSubject<String> nameSubject = BehaviorSubject.createDefault("");
     private String name;
     private Path saveDirectory;
 
-    private State state;
+    private volatile State state;
     private final BehaviorSubject<State> stateSubject;
 
     public Torrent(TorrentMetadata torrentMetaData, TorrentStatistics torrentStatistics,
             TorrentProgress torrentProgress, String name, Path saveDirectory, State state) {
-        this.torrentMetaData = requireNonNull(torrentMetaData);
+        this(torrentMetaData.fileInfo().getInfoHash(), torrentMetaData.fileInfo().getTotalFileSize(),
+                torrentProgress.getVerifiedBytes(), torrentStatistics, name, saveDirectory, state, null);
+        setContent(new TorrentContent(torrentMetaData, torrentProgress));
+    }
+
+    /**
+     * Creates a torrent whose metadata and progress are not loaded until they are first accessed.
+     *
+     * @param infoHash      the info hash of the torrent
+     * @param totalSize     the total size of the files in the torrent
+     * @param verifiedBytes the number of verified bytes, which is reported until the progress is loaded
+     * @param contentLoader loads the metadata and progress of the torrent
+     */
+    public Torrent(Sha1Hash infoHash, long totalSize, long verifiedBytes, TorrentStatistics torrentStatistics,
+            String name, Path saveDirectory, State state, ContentLoader contentLoader) {
+        this.infoHash = requireNonNull(infoHash);
+        this.totalSize = totalSize;
+        this.verifiedBytesSubject = BehaviorSubject.createDefault(verifiedBytes);
         this.torrentStatistics = requireNonNull(torrentStatistics);
-        this.torrentProgress = requireNonNull(torrentProgress);
         this.name = name;
         this.saveDirectory = requireNonNull(saveDirectory);
         this.state = requireNonNull(state);
         this.stateSubject = BehaviorSubject.createDefault(state);
-
-        torrentMetaData.trackerTiers().get(0).stream()
-                .map(TrackerFactory::fromUri)
-                .collect(Collectors.toCollection(() -> trackers));
+        this.contentLoader = contentLoader;
     }
 
     public static Torrent createNew(TorrentMetadata torrentMetaData, String name, Path saveDirectory) {
@@ -77,7 +114,7 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
      * @return the root save directory for this torrent
      */
     public Path getRootSaveDirectory() {
-        return saveDirectory.resolve(torrentMetaData.fileInfo().getFileRoot());
+        return saveDirectory.resolve(getMetadata().fileInfo().getFileRoot());
     }
 
     /**
@@ -86,43 +123,70 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
      * If the torrent is a multi-file torrent, then the returned path is the path to the directory containing the files.
      */
     public Path getSaveAsPath() {
-        return saveDirectory.resolve(torrentMetaData.fileInfo().getName());
+        return saveDirectory.resolve(getMetadata().fileInfo().getName());
     }
 
-    public Set<Tracker> getTrackers() {
+    public synchronized Set<Tracker> getTrackers() {
+        // under the lock, so that the trackers are not released between loading and reading them
+        getContent();
         return trackers;
     }
 
     public LocalDateTime getCreationDate() {
-        return torrentMetaData.creationDate();
+        return getMetadata().creationDate();
     }
 
     public String getComment() {
-        return torrentMetaData.comment();
+        return getMetadata().comment();
     }
 
     public String getCreatedBy() {
-        return torrentMetaData.createdBy();
+        return getMetadata().createdBy();
     }
 
     public int getPieceSize() {
-        return torrentMetaData.fileInfo().getPieceSize();
+        return getMetadata().fileInfo().getPieceSize();
     }
 
     public int getPieceSize(int pieceIndex) {
-        return torrentMetaData.fileInfo().getPieceSize(pieceIndex);
+        return getMetadata().fileInfo().getPieceSize(pieceIndex);
     }
 
     public int getBlockSize() {
-        return torrentMetaData.fileInfo().getBlockSize();
+        return getMetadata().fileInfo().getBlockSize();
     }
 
     public int getBlockSize(int pieceIndex, int blockIndex) {
-        return torrentMetaData.fileInfo().getBlockSize(pieceIndex, blockIndex);
+        return getMetadata().fileInfo().getBlockSize(pieceIndex, blockIndex);
+    }
+
+    public int getNumBlocks(int pieceIndex) {
+        return getMetadata().fileInfo().getNumBlocks(pieceIndex);
     }
 
     public Sha1Hash getPieceHash(int piece) {
-        return torrentMetaData.fileInfo().getPieceHash(piece);
+        return getMetadata().fileInfo().getPieceHash(piece);
+    }
+
+    public boolean isPieceValid(int piece, byte[] data) {
+        return getMetadata().fileInfo().isPieceValid(piece, data);
+    }
+
+    public boolean isBlockValid(int piece, int block, byte[] data, List<Sha256Hash> leafHashes) {
+        return getMetadata().fileInfo().isBlockValid(piece, block, data, leafHashes);
+    }
+
+    /**
+     * Gets the merkle tree of the file containing the given piece.
+     *
+     * @return the merkle tree, or null if the piece is not covered by a merkle tree
+     */
+    public FileHashTree getFileHashTree(int piece) {
+        return getMetadata().fileInfo().getFileHashTree(piece);
+    }
+
+    public int getPieceIndexInFile(int piece) {
+        return getMetadata().fileInfo().getPieceIndexInFile(piece);
     }
 
     public String getName() {
@@ -134,20 +198,36 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
     }
 
     public List<FileMetadata> getFileMetadataInRange(long start, long end) {
-        return torrentMetaData.fileInfo().getInRange(start, end);
+        return getMetadata().fileInfo().getInRange(start, end);
     }
 
     public List<FileMetadataWithState> getFileMetaDataWithState() {
-        return torrentMetaData.fileInfo().getFileMetaData()
+        return getMetadata().fileInfo().getFileMetaData()
                 .stream()
                 .map(fileMetaData -> new FileMetadataWithState(fileMetaData,
-                        torrentProgress.getFileProgress(fileMetaData.path())))
+                        getProgress().getFileProgress(fileMetaData.path())))
                 .toList();
     }
 
+    public FilePriority getFilePriority(Path path) {
+        return getProgress().getFilePriority(path);
+    }
+
+    public void setFilePriority(Path path, FilePriority priority) {
+        getProgress().setFilePriority(path, priority);
+    }
+
+    public FilePriority getPiecePriority(int piece) {
+        return getProgress().getPiecePriority(piece);
+    }
+
+    public boolean isPieceWanted(int piece) {
+        return getProgress().isPieceWanted(piece);
+    }
+
     @Override
     public Sha1Hash getInfoHash() {
-        return torrentMetaData.fileInfo().getInfoHash();
+        return infoHash;
     }
 
     @Override
@@ -166,19 +246,19 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
     }
 
     public long getTotalSize() {
-        return torrentMetaData.fileInfo().getTotalFileSize();
+        return totalSize;
     }
 
-    private long getVerifiedBytes() {
-        return torrentProgress.getVerifiedBytes();
+    public long getVerifiedBytes() {
+        return verifiedBytesSubject.getValue();
     }
 
     public int getNumPieces() {
-        return torrentMetaData.fileInfo().getNumPieces();
+        return getMetadata().fileInfo().getNumPieces();
     }
 
     public long getPieceOffset(int index) {
-        return torrentMetaData.fileInfo().getPieceOffset(index);
+        return getMetadata().fileInfo().getPieceOffset(index);
     }
 
     public void incrementDownloaded(int amount) {
@@ -190,99 +270,113 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
     }
 
     public void setBlockReceived(int pieceIndex, int blockIndex) {
-        torrentProgress.setBlockReceived(pieceIndex, blockIndex);
+        getProgress().setBlockReceived(pieceIndex, blockIndex);
+    }
+
+    public boolean isBlockReceived(int pieceIndex, int blockIndex) {
+        return getProgress().isBlockReceived(pieceIndex, blockIndex);
     }
 
     public void setBlockNotRequested(int pieceIndex, int blockIndex) {
-        torrentProgress.setBlockNotRequested(pieceIndex, blockIndex);
+        getProgress().setBlockNotRequested(pieceIndex, blockIndex);
     }
 
     public void setPieceMissing(int piece) {
-        torrentProgress.setPieceMissing(piece);
+        getProgress().setPieceMissing(piece);
+    }
+
+    public boolean isPieceVerified(int piece) {
+        return getProgress().isPieceVerified(piece);
+    }
+
+    public void setUnverifiedPiecesMissing(int fromPiece, int toPiece) {
+        getProgress().setUnverifiedPiecesMissing(fromPiece, toPiece);
+    }
+
+    public void setBlocksMissing(int piece, BitSet blocks) {
+        getProgress().setBlocksMissing(piece, blocks);
     }
 
     public BitSet getCompletelyMissingPiecesWithUnrequestedBlocks() {
-        return torrentProgress.getCompletelyMissingPiecesWithUnrequestedBlocks();
+        return getProgress().getCompletelyMissingPiecesWithUnrequestedBlocks();
     }
 
     public BitSet getPartiallyMissingPiecesWithUnrequestedBlocks() {
-        return torrentProgress.getPartiallyMissingPiecesWithUnrequestedBlocks();
+        return getProgress().getPartiallyMissingPiecesWithUnrequestedBlocks();
     }
 
     public BitSet getVerifiedPieces() {
-        return torrentProgress.getVerifiedPieces();
+        return getProgress().getVerifiedPieces();
     }
 
-    public Observable<BitSet> getVerifiedPiecesObservable() {
-        return torrentProgress.getVerifiedPiecesObservable();
+    /**
+     * Gets an observable that emits the verified pieces of the progress, and of the progress that replaces it whenever
+     * the progress is loaded again. Subscribing loads the progress.
+     */
+    public Observable<BitSetChange> getVerifiedPiecesObservable() {
+        return getProgressObservable().switchMap(TorrentProgress::getVerifiedPiecesObservable);
     }
 
-    public Observable<BitSet> getAvailablePiecesObservable() {
-        return torrentProgress.getAvailablePiecesObservable();
+    public Observable<BitSetChange> getAvailablePiecesObservable() {
+        return getProgressObservable().switchMap(TorrentProgress::getAvailablePiecesObservable);
+    }
+
+    private Observable<TorrentProgress> getProgressObservable() {
+        return Observable.defer(() -> progressLoadedSubject.startWithItem(getProgress()));
     }
 
     public void setPieceVerified(int piece) {
-        torrentProgress.setPieceVerified(piece);
+        getProgress().setPieceVerified(piece);
     }
 
     public void setPieceChecked(int pieceIndex) {
-        torrentProgress.setPieceChecked(pieceIndex);
+        getProgress().setPieceChecked(pieceIndex);
     }
 
     public void resetCheckedBytes() {
-        torrentProgress.resetCheckedBytes();
+        getProgress().resetCheckedBytes();
     }
 
     public boolean isPieceComplete(int pieceIndex) {
-        return torrentProgress.isPieceComplete(pieceIndex);
+        return getProgress().isPieceComplete(pieceIndex);
     }
 
     public boolean isAllPiecesVerified() {
-        return torrentProgress.isAllPiecesVerified();
-    }
-
-    public BitSet getMissingBlocks(int pieceIndex) {
-        return torrentProgress.getMissingBlocks(pieceIndex);
+        return getProgress().isAllPiecesVerified();
     }
 
-    public void setBlockRequested(int pieceIndex, int blockIndex) {
-        torrentProgress.setBlockRequested(pieceIndex, blockIndex);
+    public boolean isAllWantedPiecesVerified() {
+        return getProgress().isAllWantedPiecesVerified();
     }
 
-    public double getDownloadRate() {
-        return peers.getCollection().stream()
-                .mapToDouble(Peer::getDownloadRate)
-                .sum();
+    public BitSet getMissingBlocks(int pieceIndex) {
+        return getProgress().getMissingBlocks(pieceIndex);
     }
 
-    public Observable<Double> getDownloadRateObservable() {
-        return downloadRateObservable;
+    public void setBlockRequested(int pieceIndex, int blockIndex) {
+        getProgress().setBlockRequested(pieceIndex, blockIndex);
     }
 
     public Observable<Long> getDownloadedObservable() {
         return torrentStatistics.getDownloadedObservable();
     }
 
-    public double getUploadRate() {
-        return peers.getCollection().stream()
-                .mapToDouble(Peer::getUploadRate)
-                .sum();
-    }
-
-    public Observable<Double> getUploadRateObservable() {
-        return uploadRateObservable;
-    }
-
     public Observable<Long> getUploadedObservable() {
         return torrentStatistics.getUploadedObservable();
     }
 
+    /**
+     * Gets an observable that emits the number of verified bytes, without loading the progress.
+     */
     public Observable<Long> getVerifiedBytesObservable() {
-        return torrentProgress.getVerifiedBytesObservable();
+        return verifiedBytesSubject;
     }
 
+    /**
+     * Gets an observable that emits the number of checked bytes, without loading the progress.
+     */
     public Observable<Long> getCheckedBytesObservable() {
-        return torrentProgress.getCheckedBytesObservable();
+        return checkedBytesSubject;
     }
 
     public RxObservableSet<Peer> getPeersObservable() {
@@ -291,20 +385,14 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
 
     public void addPeer(Peer peer) {
         peers.add(peer);
-        downloadRateObservable.addSource(peer.getDownloadRateObservable());
-        uploadRateObservable.addSource(peer.getUploadRateObservable());
     }
 
     public void removePeer(Peer peer) {
         peers.remove(peer);
-        downloadRateObservable.removeSource(peer.getDownloadRateObservable());
-        uploadRateObservable.removeSource(peer.getUploadRateObservable());
     }
 
     public void clearPeers() {
         peers.clear();
-        downloadRateObservable.clearSources();
-        uploadRateObservable.clearSources();
     }
 
     public boolean hasPeer(PeerContactInfo peerContactInfo) {
@@ -325,7 +413,7 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
     }
 
     public TorrentMetadata getMetadata() {
-        return torrentMetaData;
+        return getContent().metadata();
     }
 
     public TorrentStatistics getStatistics() {
@@ -333,7 +421,109 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
     }
 
     public TorrentProgress getProgress() {
-        return torrentProgress;
+        return getContent().progress();
+    }
+
+    public boolean isContentLoaded() {
+        return content != null;
+    }
+
+    /**
+     * Gets the progress if it is loaded, without loading it or counting as an access.
+     *
+     * @return the progress, or {@code null} if it is not loaded
+     */
+    public TorrentProgress getProgressIfLoaded() {
+        TorrentContent loadedContent = content;
+        return loadedContent != null ? loadedContent.progress() : null;
+    }
+
+    /**
+     * Gets the metadata without keeping it loaded. If the content is not loaded, it is loaded and discarded, so that
+     * reading the metadata of many torrents does not keep all of them in memory.
+     */
+    public TorrentMetadata peekMetadata() {
+        ContentLoader loader;
+        synchronized (this) {
+            if (content != null) {
+                return content.metadata();
+            }
+            loader = contentLoader;
+        }
+        return loader.load(infoHash).metadata();
+    }
+
+    /**
+     * Gets the content, loading it if necessary.
+     * The access is counted before the content is read, so that {@link #releaseContentIfIdle} can tell whether
+     * content that it is about to release was handed out in the meantime. Only loading the content takes the lock.
+     */
+    private TorrentContent getContent() {
+        accessCount.incrementAndGet();
+        TorrentContent loadedContent = content;
+        return loadedContent != null ? loadedContent : loadContent();
+    }
+
+    private synchronized TorrentContent loadContent() {
+        if (content == null) {
+            setContent(contentLoader.load(infoHash));
+        }
+        return content;
+    }
+
+    private void setContent(TorrentContent content) {
+        trackers = content.metadata().trackerTiers().get(0).stream()
+                .map(TrackerFactory::fromUri)
+                .collect(Collectors.toCollection(HashSet::new));
+        contentDisposables = new CompositeDisposable();
+        contentDisposables.add(content.progress().getVerifiedBytesObservable().subscribe(verifiedBytesSubject::onNext));
+        contentDisposables.add(content.progress().getCheckedBytesObservable().subscribe(checkedBytesSubject::onNext));
+        this.content = content;
+        progressLoadedSubject.onNext(content.progress());
+    }
+
+    /**
+     * Releases the metadata and progress of this torrent if it is stopped, its progress has been persisted, and they
+     * have not been accessed during the given number of consecutive calls. They are loaded again when next accessed.
+     * <p>
+     * Every call that does not release them counts towards the idle calls, unless they were accessed since the last
+     * call, in which case the count starts over.
+     *
+     * @param persistedModificationCount the modification count of the progress when it was last persisted
+     * @param requiredIdleChecks         the number of consecutive calls during which they must not be accessed
+     * @param contentLoader              loads the metadata and progress when they are next accessed
+     * @return true if they were released
+     */
+    public synchronized boolean releaseContentIfIdle(long persistedModificationCount, int requiredIdleChecks,
+            ContentLoader contentLoader) {
+        TorrentContent releasedContent = content;
+        if (releasedContent == null) {
+            return false;
+        }
+
+        long currentAccessCount = accessCount.get();
+        idleCheckCount = currentAccessCount != checkedAccessCount ? 0 : idleCheckCount + 1;
+        checkedAccessCount = currentAccessCount;
+        if (idleCheckCount < requiredIdleChecks
+                || state != State.STOPPED
+                || releasedContent.progress().getModificationCount() != persistedModificationCount) {
+            return false;
+        }
+
+        content = null;
+        // an access that read the content before it was cleared has been counted by now, so it is checked again
+        if (accessCount.get() != currentAccessCount) {
+            content = releasedContent;
+            return false;
+        }
+
+        contentDisposables.dispose();
+        contentDisposables = null;
+        content = null;
+        trackers = null;
+        idleCheckCount = 0;
+        this.contentLoader = requireNonNull(contentLoader);
+        return true;
     }
 
     @Override
@@ -346,10 +536,12 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
         }
 
         Torrent torrent = (Torrent) o;
-        return torrentMetaData.equals(torrent.torrentMetaData)
+        // checked first, so that the content is only loaded to compare torrents with the same info hash
+        return infoHash.equals(torrent.infoHash)
+                && getMetadata().equals(torrent.getMetadata())
                 && torrentStatistics.equals(torrent.torrentStatistics)
-                && torrentProgress.equals(torrent.torrentProgress)
-                && trackers.equals(torrent.trackers)
+                && getProgress().equals(torrent.getProgress())
+                && getTrackers().equals(torrent.getTrackers())
                 && peers.equals(torrent.peers)
                 && Objects.equals(name, torrent.name)
                 && saveDirectory.equals(torrent.saveDirectory)
@@ -358,23 +550,17 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
 
     @Override
     public int hashCode() {
-        int result = torrentMetaData.hashCode();
-        result = 31 * result + torrentStatistics.hashCode();
-        result = 31 * result + torrentProgress.hashCode();
-        result = 31 * result + trackers.hashCode();
-        result = 31 * result + peers.hashCode();
-        result = 31 * result + Objects.hashCode(name);
-        result = 31 * result + saveDirectory.hashCode();
-        result = 31 * result + state.hashCode();
-        return result;
+        // only the info hash, so that hashing does not load the content
+        return infoHash.hashCode();
     }
 
     @Override
     public String toString() {
         return "Torrent{"
-                + "torrentMetaData=" + torrentMetaData
+                + "infoHash=" + infoHash
+                + ", totalSize=" + totalSize
                 + ", torrentStatistics=" + torrentStatistics
-                + ", torrentProgress=" + torrentProgress
+                + ", content=" + content
                 + ", trackers=" + trackers
                 + ", peers=" + peers
                 + ", name='" + name + '\''
@@ -383,6 +569,15 @@ public class Torrent implements TrackerHandler.TorrentProgressProvider {
                 + '}';
     }
 
+    /**
+     * Loads the metadata and progress of a torrent.
+     */
+    @FunctionalInterface
+    public interface ContentLoader {
+
+        TorrentContent load(Sha1Hash infoHash);
+    }
+
     public enum State {
         STOPPED,
         CHECKING,
@@ -0,0 +1,17 @@
+package jtorrent.domain.torrent.model;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+
+/**
+ * The parts of a {@link Torrent} that are only loaded when they are needed.
+ *
+ * @param metadata the metadata of the torrent
+ * @param progress the progress of the torrent
+ */
+public record TorrentContent(TorrentMetadata metadata, TorrentProgress progress) {
+
+    public TorrentContent {
+        requireNonNull(metadata);
+        requireNonNull(progress);
+    }
+}
@@ -3,6 +3,7 @@ package jtorrent.domain.torrent.model;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
@@ -12,6 +13,8 @@ import java.util.stream.IntStream;
 
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
+import jtorrent.domain.common.util.rx.BitSetChange;
+import jtorrent.domain.common.util.rx.RxObservableBitSet;
 
 public class TorrentProgress {
 
@@ -22,9 +25,8 @@ public class TorrentProgress {
     private final BehaviorSubject<Long> verifiedBytesSubject;
     private final BehaviorSubject<Long> checkedBytesSubject;
     private final BitSet completePieces;
-    private final BitSet verifiedPieces;
-    private final BehaviorSubject<BitSet> verifiedPiecesSubject;
-    private final BehaviorSubject<BitSet> availablePiecesSubject = BehaviorSubject.createDefault(new BitSet());
+    private final RxObservableBitSet verifiedPiecesObservable;
+    private final RxObservableBitSet availablePiecesObservable;
     private final Map<Integer, BitSet> pieceIndexToRequestedBlocks = new HashMap<>();
     private final Map<Integer, BitSet> pieceIndexToAvailableBlocks;
     private final BitSet partiallyMissingPieces;
@@ -32,6 +34,20 @@ public class TorrentProgress {
     private final BitSet completelyMissingPieces;
     private final BitSet completelyMissingPiecesWithUnrequestedBlocks;
     private long checkedBytes;
+    /**
+     * Incremented whenever the state that is persisted changes, i.e., the verified pieces, the received blocks, or the
+     * file priorities.
+     */
+    private long modificationCount;
+    /**
+     * The priority of each piece, which is the highest priority among the files that the piece overlaps.
+     * The array is replaced rather than modified, so that it can be read without holding the lock.
+     */
+    private volatile FilePriority[] piecePriorities;
+    /**
+     * The pieces that overlap at least one file that is not skipped.
+     */
+    private BitSet wantedPieces;
 
     public TorrentProgress(FileInfo fileInfo, Map<Path, FileProgress> pathToFileProgress, long verifiedBytes,
             BitSet completePieces, BitSet verifiedPieces, Map<Integer, BitSet> pieceIndexToAvailableBlocks,
@@ -43,14 +59,15 @@ public class TorrentProgress {
         this.verifiedBytesSubject = BehaviorSubject.createDefault(verifiedBytes);
         this.checkedBytesSubject = BehaviorSubject.createDefault(checkedBytes);
         this.completePieces = completePieces;
-        this.verifiedPieces = verifiedPieces;
-        this.verifiedPiecesSubject = BehaviorSubject.createDefault((BitSet) verifiedPieces.clone());
+        this.verifiedPiecesObservable = new RxObservableBitSet(verifiedPieces, fileInfo.getNumPieces());
+        this.availablePiecesObservable = new RxObservableBitSet(new BitSet(), fileInfo.getNumPieces());
         this.pieceIndexToAvailableBlocks = pieceIndexToAvailableBlocks;
         this.partiallyMissingPieces = partiallyMissingPieces;
         this.partiallyMissingPiecesWithUnrequestedBlocks = partiallyMissingPiecesWithUnrequestedBlocks;
         this.completelyMissingPieces = completelyMissingPieces;
         this.completelyMissingPiecesWithUnrequestedBlocks = completelyMissingPiecesWithUnrequestedBlocks;
         this.checkedBytes = checkedBytes;
+        updatePiecePriorities();
     }
 
     public static TorrentProgress createNew(FileInfo fileInfo) {
@@ -119,6 +136,57 @@ public class TorrentProgress {
         return pathToFileProgress.get(path);
     }
 
+    public FilePriority getFilePriority(Path path) {
+        return pathToFileProgress.get(path).getPriority();
+    }
+
+    /**
+     * Gets the priorities of the files in the order in which they appear in the torrent.
+     */
+    public List<FilePriority> getFilePriorities() {
+        return fileInfo.getFileMetaData().stream()
+                .map(FileMetadata::path)
+                .map(this::getFilePriority)
+                .toList();
+    }
+
+    public synchronized void setFilePriority(Path path, FilePriority priority) {
+        pathToFileProgress.get(path).setPriority(priority);
+        updatePiecePriorities();
+        modificationCount++;
+    }
+
+    private synchronized void updatePiecePriorities() {
+        FilePriority[] priorities = new FilePriority[fileInfo.getNumPieces()];
+        Arrays.fill(priorities, FilePriority.SKIP);
+        for (FileMetadata file : fileInfo.getFileMetaData()) {
+            if (file.size() == 0) {
+                continue;
+            }
+            FilePriority filePriority = getFilePriority(file.path());
+            for (int piece = file.firstPiece(); piece <= file.lastPiece(); piece++) {
+                if (filePriority.compareTo(priorities[piece]) > 0) {
+                    priorities[piece] = filePriority;
+                }
+            }
+        }
+
+        BitSet pieces = new BitSet(priorities.length);
+        IntStream.range(0, priorities.length)
+                .filter(piece -> priorities[piece].isWanted())
+                .forEach(pieces::set);
+        piecePriorities = priorities;
+        wantedPieces = pieces;
+    }
+
+    public FilePriority getPiecePriority(int piece) {
+        return piecePriorities[piece];
+    }
+
+    public synchronized boolean isPieceWanted(int piece) {
+        return wantedPieces.get(piece);
+    }
+
     public Observable<Long> getVerifiedBytesObservable() {
         return verifiedBytesSubject;
     }
@@ -151,15 +219,11 @@ public class TorrentProgress {
         partiallyMissingPieces.clear(piece);
         partiallyMissingPiecesWithUnrequestedBlocks.clear(piece);
         completePieces.set(piece);
-        verifiedPieces.set(piece);
-        verifiedPiecesSubject.onNext((BitSet) verifiedPieces.clone());
+        verifiedPiecesObservable.set(piece);
+        modificationCount++;
         incrementVerified(fileInfo.getPieceSize(piece));
 
-        long pieceStart = fileInfo.getPieceOffset(piece);
-        long pieceEnd = pieceStart + fileInfo.getPieceSize(piece) - 1;
-        List<FileMetadata> filesInRange = fileInfo.getInRange(pieceStart, pieceEnd);
-
-        filesInRange.stream()
+        fileInfo.getInPiece(piece).stream()
                 .map(FileMetadata::path)
                 .map(pathToFileProgress::get)
                 .forEach(fileProgress -> fileProgress.setPieceVerified(piece));
@@ -170,25 +234,21 @@ public class TorrentProgress {
     }
 
     public synchronized boolean isPieceVerified(int piece) {
-        return verifiedPieces.get(piece);
+        return verifiedPiecesObservable.get(piece);
     }
 
     public synchronized void setPieceMissing(int piece) {
         if (isPieceVerified(piece)) {
             incrementVerified(-fileInfo.getPieceSize(piece));
 
-            long pieceStart = fileInfo.getPieceOffset(piece);
-            long pieceEnd = pieceStart + fileInfo.getPieceSize(piece) - 1;
-            List<FileMetadata> filesInRange = fileInfo.getInRange(pieceStart, pieceEnd);
-
-            filesInRange.stream()
+            fileInfo.getInPiece(piece).stream()
                     .map(FileMetadata::path)
                     .map(pathToFileProgress::get)
                     .forEach(fileProgress -> fileProgress.setPieceNotVerified(piece));
         }
 
-        verifiedPieces.clear(piece);
-        verifiedPiecesSubject.onNext((BitSet) verifiedPieces.clone());
+        verifiedPiecesObservable.clear(piece);
+        modificationCount++;
         completePieces.clear(piece);
         getAvailableBlocks(piece).clear();
         partiallyMissingPieces.clear(piece);
@@ -202,6 +262,53 @@ public class TorrentProgress {
         }
     }
 
+    /**
+     * Discards the received blocks of the unverified pieces within a range.
+     *
+     * @param fromPiece the index of the first piece, inclusive
+     * @param toPiece   the index of the last piece, inclusive
+     */
+    public synchronized void setUnverifiedPiecesMissing(int fromPiece, int toPiece) {
+        List<Integer> piecesToDiscard = pieceIndexToAvailableBlocks.entrySet().stream()
+                .filter(entry -> entry.getKey() >= fromPiece && entry.getKey() <= toPiece)
+                .filter(entry -> !entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .filter(piece -> !isPieceVerified(piece))
+                .toList();
+        piecesToDiscard.forEach(this::setPieceMissing);
+    }
+
+    /**
+     * Marks the given blocks of an unverified piece as missing, while keeping the remaining blocks of the piece.
+     * This allows a piece that failed verification to be repaired by downloading only the corrupt blocks.
+     *
+     * @param piece  the piece index
+     * @param blocks the indices of the blocks to mark as missing
+     */
+    public synchronized void setBlocksMissing(int piece, BitSet blocks) {
+        if (isPieceVerified(piece)) {
+            throw new IllegalStateException("Piece " + piece + " is already verified");
+        }
+
+        completePieces.clear(piece);
+        getAvailableBlocks(piece).andNot(blocks);
+        modificationCount++;
+
+        if (getAvailableBlocks(piece).isEmpty()) {
+            partiallyMissingPieces.clear(piece);
+            partiallyMissingPiecesWithUnrequestedBlocks.clear(piece);
+            completelyMissingPieces.set(piece);
+
+            if (hasUnavailableAndUnrequestedBlocks(piece)) {
+                completelyMissingPiecesWithUnrequestedBlocks.set(piece);
+            } else {
+                completelyMissingPiecesWithUnrequestedBlocks.clear(piece);
+            }
+        } else {
+            setPiecePartiallyMissing(piece);
+        }
+    }
+
     /**
      * Checks whether the piece has any blocks that are both unavailable and unrequested.
      *
@@ -221,8 +328,21 @@ public class TorrentProgress {
         return unavailableBlocks;
     }
 
-    public Map<Integer, BitSet> getReceivedBlocks() {
-        return pieceIndexToAvailableBlocks;
+    /**
+     * Gets a copy of the received blocks of each piece.
+     */
+    public synchronized Map<Integer, BitSet> getReceivedBlocks() {
+        Map<Integer, BitSet> copy = new HashMap<>(pieceIndexToAvailableBlocks.size());
+        pieceIndexToAvailableBlocks.forEach((piece, blocks) -> copy.put(piece, (BitSet) blocks.clone()));
+        return copy;
+    }
+
+    /**
+     * Gets the number of changes that have been made to the persisted state of this progress.
+     * A persisted copy of this progress is up to date if the count has not changed since the copy was made.
+     */
+    public synchronized long getModificationCount() {
+        return modificationCount;
     }
 
     private BitSet getAvailableBlocks(int piece) {
@@ -280,6 +400,7 @@ public class TorrentProgress {
         }
 
         boolean isAllBlocksReceived = setBlockAvailable(pieceIndex, blockIndex);
+        modificationCount++;
 
         if (isAllBlocksReceived) {
             setPieceComplete(pieceIndex);
@@ -288,6 +409,10 @@ public class TorrentProgress {
         }
     }
 
+    public synchronized boolean isBlockReceived(int piece, int blockIndex) {
+        return isBlockAvailable(piece, blockIndex);
+    }
+
     private boolean isBlockAvailable(int piece, int blockIndex) {
         return getAvailableBlocks(piece).get(blockIndex);
     }
@@ -330,27 +455,48 @@ public class TorrentProgress {
     }
 
     public synchronized boolean isAllPiecesVerified() {
-        return verifiedPieces.cardinality() == fileInfo.getNumPieces();
+        return verifiedPiecesObservable.cardinality() == fileInfo.getNumPieces();
+    }
+
+    /**
+     * Checks whether all pieces that overlap files which are not skipped have been verified.
+     */
+    public synchronized boolean isAllWantedPiecesVerified() {
+        return verifiedPiecesObservable.containsAll(wantedPieces);
     }
 
     public synchronized BitSet getVerifiedPieces() {
-        return (BitSet) verifiedPieces.clone();
+        return verifiedPiecesObservable.getBitSet();
     }
 
-    public Observable<BitSet> getVerifiedPiecesObservable() {
-        return verifiedPiecesSubject;
+    /**
+     * Gets an observable that emits all verified pieces upon subscription, and batches of pieces that have since
+     * become verified or missing.
+     */
+    public Observable<BitSetChange> getVerifiedPiecesObservable() {
+        return verifiedPiecesObservable;
     }
 
-    public Observable<BitSet> getAvailablePiecesObservable() {
-        return availablePiecesSubject;
+    public Observable<BitSetChange> getAvailablePiecesObservable() {
+        return availablePiecesObservable;
     }
 
+    /**
+     * Gets the wanted pieces that have some blocks available and some blocks that are neither available nor requested.
+     */
     public synchronized BitSet getPartiallyMissingPiecesWithUnrequestedBlocks() {
-        return (BitSet) partiallyMissingPiecesWithUnrequestedBlocks.clone();
+        BitSet pieces = (BitSet) partiallyMissingPiecesWithUnrequestedBlocks.clone();
+        pieces.and(wantedPieces);
+        return pieces;
     }
 
+    /**
+     * Gets the wanted pieces that have no blocks available and some blocks that are not requested.
+     */
     public synchronized BitSet getCompletelyMissingPiecesWithUnrequestedBlocks() {
-        return (BitSet) completelyMissingPiecesWithUnrequestedBlocks.clone();
+        BitSet pieces = (BitSet) completelyMissingPiecesWithUnrequestedBlocks.clone();
+        pieces.and(wantedPieces);
+        return pieces;
     }
 
     public synchronized BitSet getMissingBlocks(int piece) {
@@ -386,7 +532,7 @@ public class TorrentProgress {
                 && pathToFileProgress.equals(that.pathToFileProgress)
                 && (verifiedBytes.get() == that.verifiedBytes.get())
                 && completePieces.equals(that.completePieces)
-                && verifiedPieces.equals(that.verifiedPieces)
+                && getVerifiedPieces().equals(that.getVerifiedPieces())
                 && pieceIndexToRequestedBlocks.equals(that.pieceIndexToRequestedBlocks)
                 && pieceIndexToAvailableBlocks.equals(that.pieceIndexToAvailableBlocks)
                 && partiallyMissingPieces.equals(that.partiallyMissingPieces)
@@ -402,7 +548,7 @@ public class TorrentProgress {
         result = 31 * result + pathToFileProgress.hashCode();
         result = 31 * result + verifiedBytes.hashCode();
         result = 31 * result + completePieces.hashCode();
-        result = 31 * result + verifiedPieces.hashCode();
+        result = 31 * result + getVerifiedPieces().hashCode();
         result = 31 * result + pieceIndexToRequestedBlocks.hashCode();
         result = 31 * result + pieceIndexToAvailableBlocks.hashCode();
         result = 31 * result + partiallyMissingPieces.hashCode();
@@ -420,7 +566,7 @@ public class TorrentProgress {
                 + ", pathToFileProgress=" + pathToFileProgress
                 + ", verifiedBytes=" + verifiedBytes
                 + ", completePieces=" + completePieces
-                + ", verifiedPieces=" + verifiedPieces
+                + ", verifiedPieces=" + getVerifiedPieces()
                 + ", pieceIndexToRequestedBlocks=" + pieceIndexToRequestedBlocks
                 + ", pieceIndexToAvailableBlocks=" + pieceIndexToAvailableBlocks
                 + ", partiallyMissingPieces=" + partiallyMissingPieces
@@ -1,7 +1,10 @@
 package jtorrent.domain.torrent.repository;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
 
+import jtorrent.domain.torrent.model.FileMetadata;
 import jtorrent.domain.torrent.model.Torrent;
 
 
@@ -29,4 +32,55 @@ public interface PieceRepository {
      * @param data    the block of data to be stored as a byte array
      */
     void storeBlock(Torrent torrent, int index, int offset, byte[] data) throws IOException;
+
+    /**
+     * Retrieves a range of data from a file that does not necessarily belong to any torrent.
+     *
+     * @param path   the path of the file
+     * @param offset the offset within the file where the data starts
+     * @param length the length of the data to retrieve
+     * @return the data as a byte array
+     */
+    byte[] getData(Path path, long offset, int length) throws IOException;
+
+    /**
+     * Retrieves the sizes of all regular files within a directory and its subdirectories.
+     *
+     * @param directory the directory to search
+     * @return a map of the path of each file to its size in bytes
+     */
+    Map<Path, Long> getFileSizes(Path directory) throws IOException;
+
+    /**
+     * Checks whether there is a file at the location of a file in a torrent.
+     *
+     * @param torrent      the torrent containing the file
+     * @param fileMetadata the metadata of the file in the torrent
+     * @return true if the file exists, false otherwise
+     */
+    boolean isFilePresent(Torrent torrent, FileMetadata fileMetadata);
+
+    /**
+     * Places an existing file at the location of a file in a torrent, where there must not be a file yet.
+     * The file is hard linked if allowed and possible, and copied otherwise.
+     * A hard link shares its data with the existing file, so linking must only be allowed if the torrent never writes
+     * to the file after it has been placed.
+     *
+     * @param torrent       the torrent in which to place the file
+     * @param fileMetadata  the metadata of the file in the torrent
+     * @param source        the path of the existing file
+     * @param isLinkAllowed whether the file may be hard linked rather than copied
+     */
+    void importFile(Torrent torrent, FileMetadata fileMetadata, Path source, boolean isLinkAllowed)
+            throws IOException;
+
+    /**
+     * Moves the data that was stored aside while a file was skipped into the file itself.
+     * Data that belongs to a skipped file is not written to the file, so that the file is not created when pieces
+     * that it shares with wanted files are downloaded.
+     *
+     * @param torrent      the torrent containing the file
+     * @param fileMetadata the metadata of the file, which must no longer be skipped
+     */
+    void restoreSkippedData(Torrent torrent, FileMetadata fileMetadata) throws IOException;
 }
@@ -12,6 +12,10 @@ public interface TorrentRepository {
 
     void addTorrent(Torrent torrent);
 
+    /**
+     * Persists the changes made to the torrents since they were last persisted.
+     * May be called concurrently with the other methods of this repository.
+     */
     void persistTorrents();
 
     void removeTorrent(Torrent torrent);
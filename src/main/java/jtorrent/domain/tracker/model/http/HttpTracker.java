@@ -1,6 +1,7 @@
 package jtorrent.domain.tracker.model.http;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
@@ -12,10 +13,9 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.dampcake.bencode.BencodeInputStream;
-
 import jtorrent.domain.common.Constants;
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.bencode.BencodeReader;
 import jtorrent.domain.common.util.logging.Markers;
 import jtorrent.domain.tracker.model.Event;
 import jtorrent.domain.tracker.model.Tracker;
@@ -25,7 +25,6 @@ import jtorrent.domain.tracker.model.http.response.HttpAnnounceResponse;
 public class HttpTracker implements Tracker {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpTracker.class);
-    private static final String KEY_FAILURE_REASON = "failure reason";
 
     private final URI uri;
 
@@ -68,16 +67,11 @@ public class HttpTracker implements Tracker {
                     + connection.getResponseMessage());
         }
 
-        BencodeInputStream bis = new BencodeInputStream(connection.getInputStream(), StandardCharsets.UTF_8);
-        Map<String, Object> map = bis.readDictionary();
-        connection.disconnect();
-
-        if (map.containsKey(KEY_FAILURE_REASON)) {
-            String failureReason = (String) map.get(KEY_FAILURE_REASON);
-            throw new IOException("Announce failed with reason: " + failureReason);
+        try (InputStream inputStream = connection.getInputStream()) {
+            return HttpAnnounceResponse.read(new BencodeReader(inputStream));
+        } finally {
+            connection.disconnect();
         }
-
-        return HttpAnnounceResponse.fromMap(map);
     }
 
     @Override
@@ -1,15 +1,16 @@
 package jtorrent.domain.tracker.model.http.response;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
+import jtorrent.domain.common.util.bencode.BencodeReader;
 import jtorrent.domain.tracker.model.AnnounceResponse;
 import jtorrent.domain.tracker.model.PeerResponse;
 
 public class HttpAnnounceResponse implements AnnounceResponse {
 
+    private static final String KEY_FAILURE_REASON = "failure reason";
     private static final String KEY_COMPLETE = "complete";
     private static final String KEY_INCOMPLETE = "incomplete";
     private static final String KEY_INTERVAL = "interval";
@@ -27,13 +28,54 @@ public class HttpAnnounceResponse implements AnnounceResponse {
         this.peers = peers;
     }
 
-    public static HttpAnnounceResponse fromMap(Map<String, Object> map) {
-        int interval = ((Long) map.get(KEY_INTERVAL)).intValue();
-        int complete = ((Long) map.get(KEY_COMPLETE)).intValue();
-        int incomplete = ((Long) map.get(KEY_INCOMPLETE)).intValue();
-        List<HttpPeerResponse> peers = ((List<Map<String, Object>>) map.get(KEY_PEERS)).stream()
-                .map(HttpPeerResponse::fromMap)
-                .collect(Collectors.toList());
+    /**
+     * Reads an announce response from the given reader as it is received. Keys that are not modelled are skipped.
+     *
+     * @param reader the reader positioned at the start of the response
+     * @return the announce response
+     * @throws IOException if the response cannot be read, or if the tracker responded with a failure reason
+     */
+    public static HttpAnnounceResponse read(BencodeReader reader) throws IOException {
+        String failureReason = null;
+        Integer interval = null;
+        int complete = 0;
+        int incomplete = 0;
+        List<HttpPeerResponse> peers = new ArrayList<>();
+
+        reader.beginDictionary();
+        while (reader.hasNext()) {
+            switch (reader.readKey()) {
+            case KEY_FAILURE_REASON:
+                failureReason = reader.readString();
+                break;
+            case KEY_INTERVAL:
+                interval = reader.readInt();
+                break;
+            case KEY_COMPLETE:
+                complete = reader.readInt();
+                break;
+            case KEY_INCOMPLETE:
+                incomplete = reader.readInt();
+                break;
+            case KEY_PEERS:
+                reader.beginList();
+                while (reader.hasNext()) {
+                    peers.add(HttpPeerResponse.read(reader));
+                }
+                reader.endList();
+                break;
+            default:
+                reader.skipValue();
+            }
+        }
+        reader.endDictionary();
+
+        if (failureReason != null) {
+            throw new IOException("Announce failed with reason: " + failureReason);
+        }
+        if (interval == null) {
+            throw new IOException("Announce response has no interval");
+        }
         return new HttpAnnounceResponse(interval, complete, incomplete, peers);
     }
 
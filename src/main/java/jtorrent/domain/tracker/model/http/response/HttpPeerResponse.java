@@ -2,11 +2,12 @@ package jtorrent.domain.tracker.model.http.response;
 
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.Map;
 import java.util.Optional;
 
+import jtorrent.domain.common.util.bencode.BencodeReader;
 import jtorrent.domain.tracker.model.PeerResponse;
 
 public class HttpPeerResponse implements PeerResponse {
@@ -25,10 +26,36 @@ public class HttpPeerResponse implements PeerResponse {
         this.peerId = requireNonNull(peerId);
     }
 
-    public static HttpPeerResponse fromMap(Map<String, Object> map) {
-        String ip = (String) map.get(KEY_IP);
-        int port = ((Long) map.get(KEY_PORT)).intValue();
-        String peerId = (String) map.get(KEY_PEER_ID);
+    /**
+     * Reads a peer from the given reader. Keys that are not modelled are skipped.
+     *
+     * @param reader the reader positioned at the start of the peer dictionary
+     * @return the peer
+     * @throws IOException if the peer cannot be read
+     */
+    public static HttpPeerResponse read(BencodeReader reader) throws IOException {
+        String ip = null;
+        int port = 0;
+        String peerId = null;
+
+        reader.beginDictionary();
+        while (reader.hasNext()) {
+            switch (reader.readKey()) {
+            case KEY_IP:
+                ip = reader.readString();
+                break;
+            case KEY_PORT:
+                port = reader.readInt();
+                break;
+            case KEY_PEER_ID:
+                peerId = reader.readString();
+                break;
+            default:
+                reader.skipValue();
+            }
+        }
+        reader.endDictionary();
+
         return new HttpPeerResponse(ip, port, peerId);
     }
 
@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 
 import javafx.application.Application;
 import javafx.stage.Stage;
+import jtorrent.data.dht.repository.AppDhtStateRepository;
 import jtorrent.data.torrent.repository.AppPieceRepository;
 import jtorrent.data.torrent.repository.AppTorrentMetadataRepository;
 import jtorrent.data.torrent.repository.AppTorrentRepository;
@@ -32,7 +33,7 @@ public class JTorrent extends Application {
         ServerSocket serverSocket = new ServerSocket(Constants.PORT);
         InboundConnectionListener inboundConnectionListener = new InboundConnectionListener(serverSocket);
 
-        DhtClient dhtClient = new DhtClient(Constants.PORT);
+        DhtClient dhtClient = new DhtClient(Constants.PORT, new AppDhtStateRepository());
 
         TorrentRepository torrentRepository = new AppTorrentRepository();
         TorrentMetadataRepository torrentMetadataRepository = new AppTorrentMetadataRepository();
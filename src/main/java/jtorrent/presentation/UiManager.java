@@ -19,6 +19,8 @@ public class UiManager {
         Scene scene = new Scene(mainView, 1200, 1000);
         primaryStage.setTitle("JTorrent");
         primaryStage.setScene(scene);
+        primaryStage.setOnShown(event -> viewModel.startUiUpdates());
+        primaryStage.setOnHidden(event -> viewModel.stopUiUpdates());
         setTheme(new PrimerDark());
     }
 
@@ -3,6 +3,9 @@ package jtorrent.presentation.common.component;
 import java.util.BitSet;
 import java.util.List;
 
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -16,7 +19,15 @@ import javafx.scene.image.ImageView;
 import javafx.scene.image.WritableImage;
 import javafx.scene.layout.Region;
 import javafx.scene.paint.Color;
-
+import jtorrent.domain.common.util.rx.BitSetChange;
+
+/**
+ * A bar that shows which segments of some data are available, with each pixel colored by the ratio of available
+ * segments that it covers.
+ * <p>
+ * The availability is given as an observable of {@link BitSetChange}s, which is subscribed to while it is set. Only
+ * the pixels covered by the ranges of each change are redrawn.
+ */
 public class DataStatusBar extends Region {
 
     private static final StyleablePropertyFactory<DataStatusBar> FACTORY =
@@ -27,16 +38,18 @@ public class DataStatusBar extends Region {
     private final StyleableProperty<Color> unavailableColor = FACTORY.createStyleableColorProperty(
             this, "color", "-color-danger-fg", s -> s.unavailableColor, Color.RED);
     private final IntegerProperty totalSegments = new SimpleIntegerProperty();
-    private final ObjectProperty<BitSet> availability = new SimpleObjectProperty<>(new BitSet());
+    private final ObjectProperty<Observable<BitSetChange>> availabilitySource = new SimpleObjectProperty<>();
+    private final BitSet availability = new BitSet();
     private final ImageView imageView = new ImageView();
     private WritableImage writableImage;
+    private Disposable availabilitySubscription;
 
     public DataStatusBar() {
         setPrefHeight(24);
         imageView.visibleProperty().bind(totalSegments.greaterThan(0));
         widthProperty().addListener((observable, oldValue, newValue) -> redraw());
         totalSegments.addListener((observable, oldValue, newValue) -> redraw());
-        availability.addListener((observable, oldValue, newValue) -> updateAvailability(oldValue, newValue));
+        availabilitySource.addListener((observable, oldValue, newValue) -> subscribeAvailability(newValue));
         availableColorProperty().addListener(observable -> redraw());
         unavailableColorProperty().addListener(observable -> redraw());
         imageView.fitHeightProperty().bind(heightProperty());
@@ -65,12 +78,6 @@ public class DataStatusBar extends Region {
         return number % 1 == 0;
     }
 
-    private static BitSet computeChangedBits(BitSet previous, BitSet current) {
-        BitSet changed = (BitSet) previous.clone();
-        changed.xor(current);
-        return changed;
-    }
-
     private Color getColor(double availabilityRatio) {
         return unavailableColor.getValue().interpolate(availableColor.getValue(), availabilityRatio);
     }
@@ -105,19 +112,45 @@ public class DataStatusBar extends Region {
         imageView.setImage(newImage);
     }
 
-    private void updateAvailability(BitSet previous, BitSet current) {
-        BitSet changed = computeChangedBits(previous, current);
-        changed.stream()
-                .filter(i -> i < totalSegments.get())
-                .mapToObj(this::segmentToPixels)
-                .flatMapToInt(BitSet::stream)
-                .distinct()
-                .filter(i -> i < writableImage.getWidth())
-                .forEach(i -> {
-                    double availableRatio = calculatePixelAvailabilityRatio(i);
-                    Color color = getColor(availableRatio);
-                    writableImage.getPixelWriter().setColor(i, 0, color);
-                });
+    private void subscribeAvailability(Observable<BitSetChange> source) {
+        if (availabilitySubscription != null) {
+            availabilitySubscription.dispose();
+            availabilitySubscription = null;
+        }
+
+        availability.clear();
+        redraw();
+
+        if (source != null) {
+            availabilitySubscription = source.subscribe(change -> Platform.runLater(() -> {
+                // changes from a previous source may still be queued after the source is replaced
+                if (availabilitySource.get() == source) {
+                    updateAvailability(change);
+                }
+            }));
+        }
+    }
+
+    private void updateAvailability(BitSetChange change) {
+        change.applyTo(availability);
+
+        if (writableImage == null) {
+            return;
+        }
+
+        for (BitSetChange.Range range : change.ranges()) {
+            int lastSegment = Math.min(range.end(), totalSegments.get()) - 1;
+            if (range.start() > lastSegment) {
+                continue;
+            }
+            int firstPixel = segmentToPixels(range.start()).nextSetBit(0);
+            int lastPixel = Math.min(segmentToPixels(lastSegment).length(), (int) writableImage.getWidth()) - 1;
+            for (int i = firstPixel; i <= lastPixel; i++) {
+                double availableRatio = calculatePixelAvailabilityRatio(i);
+                Color color = getColor(availableRatio);
+                writableImage.getPixelWriter().setColor(i, 0, color);
+            }
+        }
     }
 
     /**
@@ -129,7 +162,7 @@ public class DataStatusBar extends Region {
     private double calculatePixelAvailabilityRatio(int pixel) {
         BitSet segments = pixelToSegments(pixel);
         BitSet availableSegmentsInPixel = (BitSet) segments.clone();
-        availableSegmentsInPixel.and(availability.get());
+        availableSegmentsInPixel.and(availability);
         int totalSegmentsInPixel = segments.cardinality();
         int availableSegmentsInPixelCount = availableSegmentsInPixel.cardinality();
         return (double) availableSegmentsInPixelCount / totalSegmentsInPixel;
@@ -139,8 +172,8 @@ public class DataStatusBar extends Region {
         return totalSegments;
     }
 
-    public ObjectProperty<BitSet> availabilityProperty() {
-        return availability;
+    public ObjectProperty<Observable<BitSetChange>> availabilityProperty() {
+        return availabilitySource;
     }
 
     public int getTotalSegments() {
@@ -151,12 +184,12 @@ public class DataStatusBar extends Region {
         this.totalSegments.set(totalSegments);
     }
 
-    public BitSet getAvailability() {
-        return availability.get();
+    public Observable<BitSetChange> getAvailability() {
+        return availabilitySource.get();
     }
 
-    public void setAvailability(BitSet availability) {
-        this.availability.set(availability);
+    public void setAvailability(Observable<BitSetChange> availability) {
+        availabilitySource.set(availability);
     }
 
     @SuppressWarnings("unchecked")
@@ -1,7 +1,6 @@
 package jtorrent.presentation.common.component;
 
-import java.util.BitSet;
-
+import io.reactivex.rxjava3.core.Observable;
 import javafx.beans.property.ReadOnlyIntegerProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.value.ObservableValue;
@@ -9,6 +8,7 @@ import javafx.geometry.Pos;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.layout.VBox;
+import jtorrent.domain.common.util.rx.BitSetChange;
 import jtorrent.presentation.main.model.UiFileInfo;
 
 public class DataStatusBarTableCell extends TableCell<UiFileInfo, DataStatusBarTableCell.State> {
@@ -19,6 +19,8 @@ public class DataStatusBarTableCell extends TableCell<UiFileInfo, DataStatusBarT
     protected void updateItem(State item, boolean empty) {
         super.updateItem(item, empty);
         if (empty) {
+            dataStatusBar.availabilityProperty().unbind();
+            dataStatusBar.setAvailability(null);
             setGraphic(null);
         } else {
             dataStatusBar.availabilityProperty().unbind();
@@ -41,6 +43,7 @@ public class DataStatusBarTableCell extends TableCell<UiFileInfo, DataStatusBarT
         }
     }
 
-    public record State(ReadOnlyIntegerProperty totalSegments, ReadOnlyObjectProperty<BitSet> availability) {
+    public record State(ReadOnlyIntegerProperty totalSegments,
+            ReadOnlyObjectProperty<Observable<BitSetChange>> availability) {
     }
 }
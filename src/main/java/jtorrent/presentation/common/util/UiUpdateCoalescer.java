@@ -0,0 +1,166 @@
+package jtorrent.presentation.common.util;
+
+import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
+import static jtorrent.domain.common.util.ValidationUtil.requirePositive;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.Property;
+
+/**
+ * Coalesces updates to the properties of table rows and applies them on the JavaFX application thread in batches.
+ * <p>
+ * Instead of posting every emission with {@link javafx.application.Platform#runLater(Runnable)}, only the latest value
+ * of each property is kept until the next frame, and all dirty rows are then applied together. Frames are capped at a
+ * fixed rate, so the load on the application thread does not grow with the rate of emissions.
+ * <p>
+ * Rows that are not currently shown by a table keep their latest values without being applied, and are applied in the
+ * next frame once they are shown. Consequently, sorting a table by a column whose values change reflects the values
+ * that the hidden rows had when they were last shown.
+ * <p>
+ * A single coalescer is meant to be shared by all tables of a scene, and is started and stopped along with the scene.
+ */
+public class UiUpdateCoalescer {
+
+    private final Set<Row> dirtyRows = ConcurrentHashMap.newKeySet();
+    private final long minFrameIntervalNanos;
+    /**
+     * Created when first started, so that a coalescer can be used without the JavaFX toolkit until then.
+     */
+    private FrameTimer frameTimer;
+    private boolean hasAppliedFrame;
+    private long lastFrameNanos;
+
+    /**
+     * Creates a coalescer, which does not apply any updates until it is started.
+     *
+     * @param maxFramesPerSecond the maximum number of batches applied per second
+     */
+    public UiUpdateCoalescer(int maxFramesPerSecond) {
+        this.minFrameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / requirePositive(maxFramesPerSecond);
+    }
+
+    public Row createRow() {
+        return new Row();
+    }
+
+    /**
+     * Starts applying updates every frame. Must be called on the JavaFX application thread.
+     */
+    public void start() {
+        if (frameTimer == null) {
+            frameTimer = new FrameTimer();
+        }
+        frameTimer.start();
+    }
+
+    /**
+     * Stops applying updates. Updates that arrive in the meantime are kept until the coalescer is started again.
+     * Must be called on the JavaFX application thread.
+     */
+    public void stop() {
+        if (frameTimer != null) {
+            frameTimer.stop();
+        }
+    }
+
+    /**
+     * Applies the dirty rows, unless the previous batch was applied less than the minimum frame interval ago.
+     * Called on the JavaFX application thread for every frame while the coalescer is started.
+     *
+     * @param nowNanos the time of the frame in nanoseconds
+     */
+    void handleFrame(long nowNanos) {
+        if (hasAppliedFrame && nowNanos - lastFrameNanos < minFrameIntervalNanos) {
+            return;
+        }
+        hasAppliedFrame = true;
+        lastFrameNanos = nowNanos;
+        applyDirtyRows();
+    }
+
+    private void applyDirtyRows() {
+        for (Row row : dirtyRows) {
+            dirtyRows.remove(row);
+            row.apply();
+        }
+    }
+
+    /**
+     * The properties of a single table row, whose updates are applied only while it is shown.
+     * A row is hidden until {@link #show()} is called.
+     */
+    public class Row {
+
+        private final Map<Property<Object>, Object> propertyToPendingValue = new ConcurrentHashMap<>();
+        private final CompositeDisposable disposables = new CompositeDisposable();
+        /**
+         * The number of table cells currently showing this row. Only modified on the JavaFX application thread.
+         */
+        private volatile int viewCount;
+
+        private Row() {
+        }
+
+        /**
+         * Subscribes to an observable, updating a property of this row with its latest value in the next frame.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> void subscribe(Observable<T> observable, Property<? super T> property) {
+            requireNonNull(property);
+            Property<Object> target = (Property<Object>) property;
+            disposables.add(observable.subscribe(value -> {
+                propertyToPendingValue.put(target, value);
+                if (viewCount > 0) {
+                    dirtyRows.add(this);
+                }
+            }));
+        }
+
+        /**
+         * Marks this row as shown by a table cell. Must be called on the JavaFX application thread.
+         */
+        public void show() {
+            viewCount++;
+            if (!propertyToPendingValue.isEmpty()) {
+                dirtyRows.add(this);
+            }
+        }
+
+        /**
+         * Marks this row as no longer shown by a table cell. Must be called on the JavaFX application thread.
+         */
+        public void hide() {
+            viewCount = Math.max(0, viewCount - 1);
+        }
+
+        public void dispose() {
+            disposables.dispose();
+            dirtyRows.remove(this);
+            propertyToPendingValue.clear();
+        }
+
+        private void apply() {
+            for (Property<Object> property : propertyToPendingValue.keySet()) {
+                Object value = propertyToPendingValue.remove(property);
+                if (value != null) {
+                    property.setValue(value);
+                }
+            }
+        }
+    }
+
+    private class FrameTimer extends AnimationTimer {
+
+        @Override
+        public void handle(long now) {
+            handleFrame(now);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package jtorrent.presentation.main.model;
 
-import java.util.BitSet;
-
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import javafx.beans.property.ReadOnlyIntegerProperty;
@@ -10,6 +8,7 @@ import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.beans.property.ReadOnlyStringWrapper;
+import jtorrent.domain.common.util.rx.BitSetChange;
 import jtorrent.domain.torrent.model.FileMetadata;
 import jtorrent.domain.torrent.model.FileMetadataWithState;
 import jtorrent.domain.torrent.model.FileProgress;
@@ -24,7 +23,7 @@ public class UiFileInfo {
     private final ReadOnlyStringWrapper percentDone;
     private final ReadOnlyIntegerWrapper firstPiece;
     private final ReadOnlyIntegerWrapper numPieces;
-    private final ReadOnlyObjectWrapper<BitSet> downloadedPieces;
+    private final ReadOnlyObjectWrapper<Observable<BitSetChange>> downloadedPieces;
     private final ReadOnlyStringWrapper priority;
     private final ReadOnlyStringWrapper mode;
     private final ReadOnlyStringWrapper rate;
@@ -37,10 +36,10 @@ public class UiFileInfo {
 
     private UiFileInfo(ReadOnlyStringWrapper path, ReadOnlyStringWrapper size, ReadOnlyStringWrapper done,
             ReadOnlyStringWrapper percentDone, ReadOnlyIntegerWrapper firstPiece, ReadOnlyIntegerWrapper numPieces,
-            ReadOnlyObjectWrapper<BitSet> downloadedPieces, ReadOnlyStringWrapper priority, ReadOnlyStringWrapper mode,
-            ReadOnlyStringWrapper rate, ReadOnlyStringWrapper resolution, ReadOnlyStringWrapper duration,
-            ReadOnlyStringWrapper streamable, ReadOnlyStringWrapper hasHeader, ReadOnlyStringWrapper codecs,
-            CompositeDisposable disposables) {
+            ReadOnlyObjectWrapper<Observable<BitSetChange>> downloadedPieces, ReadOnlyStringWrapper priority,
+            ReadOnlyStringWrapper mode, ReadOnlyStringWrapper rate, ReadOnlyStringWrapper resolution,
+            ReadOnlyStringWrapper duration, ReadOnlyStringWrapper streamable, ReadOnlyStringWrapper hasHeader,
+            ReadOnlyStringWrapper codecs, CompositeDisposable disposables) {
         this.path = path;
         this.size = size;
         this.done = done;
@@ -69,7 +68,8 @@ public class UiFileInfo {
         ReadOnlyStringWrapper percentDone = new ReadOnlyStringWrapper("");
         ReadOnlyIntegerWrapper firstPiece = new ReadOnlyIntegerWrapper(fileMetadata.firstPiece());
         ReadOnlyIntegerWrapper numPieces = new ReadOnlyIntegerWrapper(fileMetadata.numPieces());
-        ReadOnlyObjectWrapper<BitSet> pieces = new ReadOnlyObjectWrapper<>(new BitSet());
+        ReadOnlyObjectWrapper<Observable<BitSetChange>> pieces =
+                new ReadOnlyObjectWrapper<>(fileProgress.getVerifiedPiecesObservable());
         ReadOnlyStringWrapper priority = new ReadOnlyStringWrapper("");
         ReadOnlyStringWrapper mode = new ReadOnlyStringWrapper("");
         ReadOnlyStringWrapper rate = new ReadOnlyStringWrapper("");
@@ -90,9 +90,6 @@ public class UiFileInfo {
                 .map(percent -> String.format("%.1f%%", percent * 100));
         BindingUtils.subscribe(percentDoneObservable, percentDone, disposables);
 
-        Observable<BitSet> fileVerifiedPiecesObservable = fileProgress.getVerifiedPiecesObservable();
-        BindingUtils.subscribe(fileVerifiedPiecesObservable, pieces, disposables);
-
         return new UiFileInfo(path, size, done, percentDone, firstPiece, numPieces, pieces, priority, mode,
                 rate, resolution, duration, streamable, hasHeader, codecs, disposables);
     }
@@ -121,7 +118,7 @@ public class UiFileInfo {
         return numPieces.getReadOnlyProperty();
     }
 
-    public ReadOnlyObjectProperty<BitSet> downloadedPiecesProperty() {
+    public ReadOnlyObjectProperty<Observable<BitSetChange>> downloadedPiecesProperty() {
         return downloadedPieces.getReadOnlyProperty();
     }
 
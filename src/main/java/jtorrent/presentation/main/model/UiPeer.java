@@ -3,12 +3,11 @@ package jtorrent.presentation.main.model;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import io.reactivex.rxjava3.core.Observable;
-import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import jtorrent.domain.peer.model.Peer;
-import jtorrent.presentation.common.util.BindingUtils;
 import jtorrent.presentation.common.util.DataSize;
+import jtorrent.presentation.common.util.UiUpdateCoalescer;
 
 public class UiPeer {
 
@@ -17,35 +16,33 @@ public class UiPeer {
     private final ReadOnlyStringWrapper client;
     private final ReadOnlyStringWrapper downSpeed;
     private final ReadOnlyStringWrapper upSpeed;
-    private final CompositeDisposable disposables;
+    private final UiUpdateCoalescer.Row row;
 
     public UiPeer(ReadOnlyStringWrapper ip, ReadOnlyStringWrapper port, ReadOnlyStringWrapper client,
-            ReadOnlyStringWrapper downSpeed, ReadOnlyStringWrapper upSpeed, CompositeDisposable disposables) {
+            ReadOnlyStringWrapper downSpeed, ReadOnlyStringWrapper upSpeed, UiUpdateCoalescer.Row row) {
         this.ip = requireNonNull(ip);
         this.port = requireNonNull(port);
         this.client = requireNonNull(client);
         this.downSpeed = requireNonNull(downSpeed);
         this.upSpeed = requireNonNull(upSpeed);
-        this.disposables = requireNonNull(disposables);
+        this.row = requireNonNull(row);
     }
 
-    public static UiPeer fromDomain(Peer peer) {
+    public static UiPeer fromDomain(Peer peer, UiUpdateCoalescer coalescer) {
         ReadOnlyStringWrapper ip = new ReadOnlyStringWrapper(peer.getAddress().getHostAddress());
         ReadOnlyStringWrapper port = new ReadOnlyStringWrapper(String.valueOf(peer.getPort()));
         ReadOnlyStringWrapper client = new ReadOnlyStringWrapper("Placeholder");
         ReadOnlyStringWrapper downSpeed = new ReadOnlyStringWrapper("");
         ReadOnlyStringWrapper upSpeed = new ReadOnlyStringWrapper("");
-        CompositeDisposable disposables = new CompositeDisposable();
+        UiUpdateCoalescer.Row row = coalescer.createRow();
 
         Observable<Double> downloadRateObservable = peer.getDownloadRateObservable();
-        BindingUtils.subscribe(downloadRateObservable.map(DataSize::bestFitBytes).map(DataSize::toRateString),
-                downSpeed, disposables);
+        row.subscribe(downloadRateObservable.map(DataSize::bestFitBytes).map(DataSize::toRateString), downSpeed);
 
         Observable<Double> uploadRateObservable = peer.getUploadRateObservable();
-        BindingUtils.subscribe(uploadRateObservable.map(DataSize::bestFitBytes).map(DataSize::toRateString),
-                upSpeed, disposables);
+        row.subscribe(uploadRateObservable.map(DataSize::bestFitBytes).map(DataSize::toRateString), upSpeed);
 
-        return new UiPeer(ip, port, client, downSpeed, upSpeed, disposables);
+        return new UiPeer(ip, port, client, downSpeed, upSpeed, row);
     }
 
     public ReadOnlyStringProperty ipProperty() {
@@ -68,7 +65,18 @@ public class UiPeer {
         return upSpeed.getReadOnlyProperty();
     }
 
+    /**
+     * Marks this peer as shown by a table row, so that updates to its properties are applied.
+     */
+    public void show() {
+        row.show();
+    }
+
+    public void hide() {
+        row.hide();
+    }
+
     public void dispose() {
-        disposables.dispose();
+        row.dispose();
     }
 }
@@ -3,17 +3,17 @@ package jtorrent.presentation.main.model;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import io.reactivex.rxjava3.core.Observable;
-import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleDoubleProperty;
+import jtorrent.domain.statistics.TorrentSnapshot;
 import jtorrent.domain.torrent.model.Torrent;
 import jtorrent.presentation.common.component.TorrentStatusCell;
-import jtorrent.presentation.common.util.BindingUtils;
 import jtorrent.presentation.common.util.DataSize;
+import jtorrent.presentation.common.util.UiUpdateCoalescer;
 import jtorrent.presentation.main.util.CalculateEtaCombiner;
 
 public class UiTorrent {
@@ -25,11 +25,11 @@ public class UiTorrent {
     private final ReadOnlyStringWrapper eta;
     private final ReadOnlyStringWrapper saveDirectory;
     private final ReadOnlyObjectWrapper<TorrentStatusCell.Status> status;
-    private final CompositeDisposable disposables;
+    private final UiUpdateCoalescer.Row row;
 
     public UiTorrent(ReadOnlyStringWrapper name, ReadOnlyStringWrapper size, ReadOnlyStringWrapper downSpeed,
             ReadOnlyStringWrapper upSpeed, ReadOnlyStringWrapper eta, ReadOnlyStringWrapper saveDirectory,
-            ReadOnlyObjectWrapper<TorrentStatusCell.Status> status, CompositeDisposable disposables) {
+            ReadOnlyObjectWrapper<TorrentStatusCell.Status> status, UiUpdateCoalescer.Row row) {
         this.name = requireNonNull(name);
         this.size = requireNonNull(size);
         this.downSpeed = requireNonNull(downSpeed);
@@ -37,10 +37,11 @@ public class UiTorrent {
         this.eta = requireNonNull(eta);
         this.saveDirectory = requireNonNull(saveDirectory);
         this.status = requireNonNull(status);
-        this.disposables = requireNonNull(disposables);
+        this.row = requireNonNull(row);
     }
 
-    public static UiTorrent fromDomain(Torrent torrent) {
+    public static UiTorrent fromDomain(Torrent torrent, Observable<TorrentSnapshot> statisticsObservable,
+            UiUpdateCoalescer coalescer) {
         long torrentSize = torrent.getTotalSize();
 
         ReadOnlyStringWrapper name = new ReadOnlyStringWrapper(torrent.getName());
@@ -53,18 +54,18 @@ public class UiTorrent {
         DoubleProperty progress = new SimpleDoubleProperty(0.0);
         ReadOnlyObjectWrapper<TorrentStatusCell.Status> status =
                 new ReadOnlyObjectWrapper<>(new TorrentStatusCell.Status(state, progress));
-        CompositeDisposable disposables = new CompositeDisposable();
+        UiUpdateCoalescer.Row row = coalescer.createRow();
 
-        Observable<Double> downloadRateObservable = torrent.getDownloadRateObservable();
-        BindingUtils.subscribe(downloadRateObservable.map(UiTorrent::formatRate), downSpeed, disposables);
+        Observable<Double> downloadRateObservable = statisticsObservable.map(TorrentSnapshot::downloadRate);
+        row.subscribe(downloadRateObservable.map(UiTorrent::formatRate), downSpeed);
 
-        Observable<Double> uploadRateObservable = torrent.getUploadRateObservable();
-        BindingUtils.subscribe(uploadRateObservable.map(UiTorrent::formatRate), upSpeed, disposables);
+        Observable<Double> uploadRateObservable = statisticsObservable.map(TorrentSnapshot::uploadRate);
+        row.subscribe(uploadRateObservable.map(UiTorrent::formatRate), upSpeed);
 
         Observable<Long> verifiedBytesObservable = torrent.getVerifiedBytesObservable();
         Observable<String> etaObservable = Observable.combineLatest(verifiedBytesObservable, downloadRateObservable,
                 new CalculateEtaCombiner(torrentSize));
-        BindingUtils.subscribe(etaObservable, eta, disposables);
+        row.subscribe(etaObservable, eta);
 
         Observable<Double> downloadProgressObservable = torrent.getVerifiedBytesObservable()
                 .map(verifiedBytes -> (double) verifiedBytes / torrentSize);
@@ -77,13 +78,13 @@ public class UiTorrent {
         Observable<Double> progressObservable = Observable.combineLatest(
                 stateObservable, downloadProgressObservable, checkProgressObservable,
                 UiTorrent::combineProgress);
-        BindingUtils.subscribe(progressObservable, progress, disposables);
+        row.subscribe(progressObservable, progress);
 
         Observable<String> statusObservable = Observable.combineLatest(
                 stateObservable, progressObservable, UiTorrent::combineStatus);
-        BindingUtils.subscribe(statusObservable, state, disposables);
+        row.subscribe(statusObservable, state);
 
-        return new UiTorrent(name, size, downSpeed, upSpeed, eta, saveDirectory, status, disposables);
+        return new UiTorrent(name, size, downSpeed, upSpeed, eta, saveDirectory, status, row);
     }
 
     private static String formatRate(double bytes) {
@@ -132,7 +133,18 @@ public class UiTorrent {
         return status.getReadOnlyProperty();
     }
 
+    /**
+     * Marks this torrent as shown by a table row, so that updates to its properties are applied.
+     */
+    public void show() {
+        row.show();
+    }
+
+    public void hide() {
+        row.hide();
+    }
+
     public void dispose() {
-        disposables.dispose();
+        row.dispose();
     }
 }
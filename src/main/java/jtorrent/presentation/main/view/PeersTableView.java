@@ -15,6 +15,7 @@ import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.input.ContextMenuEvent;
 import jtorrent.presentation.common.util.JTorrentFxmlLoader;
@@ -72,6 +73,22 @@ public class PeersTableView extends TableView<UiPeer> {
         client.setCellValueFactory(param -> param.getValue().clientProperty());
         peerDownSpeed.setCellValueFactory(param -> param.getValue().downSpeedProperty());
         peerUpSpeed.setCellValueFactory(param -> param.getValue().upSpeedProperty());
+        setRowFactory(param -> new PeerTableRow());
+    }
+
+    private static class PeerTableRow extends TableRow<UiPeer> {
+
+        public PeerTableRow() {
+            // only the peers shown by a row receive updates
+            itemProperty().addListener((observable, oldValue, newValue) -> {
+                if (oldValue != null) {
+                    oldValue.hide();
+                }
+                if (newValue != null) {
+                    newValue.show();
+                }
+            });
+        }
     }
 
     private class AddPeerMenuItem extends MenuItem {
@@ -1,7 +1,6 @@
 package jtorrent.presentation.main.view;
 
 import java.io.IOException;
-import java.util.BitSet;
 
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -83,13 +82,13 @@ public class TorrentInfoView extends VBox {
     public void initialize() {
 
         downloadedDataStatusBar.availabilityProperty().bind(
-                viewModel.flatMap(TorrentInfoViewModel::downloadedPiecesProperty).orElse(new BitSet()));
+                viewModel.flatMap(TorrentInfoViewModel::downloadedPiecesProperty));
         downloadedDataStatusBar.totalSegmentsProperty().bind(
                 viewModel.flatMap(TorrentInfoViewModel::totalPiecesProperty).orElse(0));
         downloadedPercentage.textProperty().bind(viewModel.flatMap(TorrentInfoViewModel::downloadedPercentageProperty));
 
         availableDataStatusBar.availabilityProperty().bind(
-                viewModel.flatMap(TorrentInfoViewModel::availablePiecesProperty).orElse(new BitSet()));
+                viewModel.flatMap(TorrentInfoViewModel::availablePiecesProperty));
         availableDataStatusBar.totalSegmentsProperty().bind(
                 viewModel.flatMap(TorrentInfoViewModel::totalPiecesProperty).orElse(0));
         availablePercentage.textProperty().bind(viewModel.flatMap(TorrentInfoViewModel::availablePercentageProperty));
@@ -78,6 +78,15 @@ public class TorrentsTableView extends TableView<UiTorrent> {
 
         public TorrentTableRow() {
             onMouseClickedProperty().bind(viewModel.map(MouseEventHandler::new));
+            // only the torrents shown by a row receive updates
+            itemProperty().addListener((observable, oldValue, newValue) -> {
+                if (oldValue != null) {
+                    oldValue.hide();
+                }
+                if (newValue != null) {
+                    newValue.show();
+                }
+            });
         }
 
         private class MouseEventHandler implements EventHandler<MouseEvent> {
@@ -3,11 +3,8 @@ package jtorrent.presentation.main.viewmodel;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import java.util.LinkedList;
-import java.util.concurrent.TimeUnit;
 
-import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.disposables.Disposable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyLongProperty;
 import javafx.beans.property.ReadOnlyLongWrapper;
@@ -33,6 +30,7 @@ public class ChartViewModel {
     private final ReadOnlyObjectWrapper<StringConverter<Number>> rateAxisFormatter =
             new ReadOnlyObjectWrapper<>(new RateAxisFormatter());
     private final Disposable disposable;
+    private long tick;
 
     public ChartViewModel(Client client) {
         this.client = requireNonNull(client);
@@ -47,16 +45,17 @@ public class ChartViewModel {
         chartData.add(uploadRateSeries);
         ObservableList<XYChart.Data<Number, Number>> uploadRateData = uploadRateSeries.getData();
 
-        disposable = Observable.interval(1000, TimeUnit.MILLISECONDS, Schedulers.computation())
-                .subscribe(tick -> {
-                    double downloadRate = client.getDownloadRate();
-                    double uploadRate = client.getUploadRate();
+        disposable = client.getStatisticsObservable()
+                .subscribe(snapshot -> {
+                    long x = tick++;
+                    double downloadRate = snapshot.downloadRate();
+                    double uploadRate = snapshot.uploadRate();
 
                     Platform.runLater(() -> {
-                        addDataPoint(downloadRateData, tick, downloadRate);
-                        addDataPoint(uploadRateData, tick, uploadRate);
+                        addDataPoint(downloadRateData, x, downloadRate);
+                        addDataPoint(uploadRateData, x, uploadRate);
 
-                        lowerBound.set(Math.max(0, tick - BOUND_GAP));
+                        lowerBound.set(Math.max(0, x - BOUND_GAP));
                     });
                 });
     }
@@ -11,10 +11,17 @@ import jtorrent.domain.Client;
 import jtorrent.domain.torrent.model.Torrent;
 import jtorrent.domain.torrent.model.TorrentMetadata;
 import jtorrent.presentation.addnewtorrent.view.AddNewTorrentDialog;
+import jtorrent.presentation.common.util.UiUpdateCoalescer;
 
 public class MainViewModel {
 
+    private static final int MAX_UPDATES_PER_SECOND = 4;
+
     private final Client client;
+    /**
+     * Applies the row updates of every table in the main window.
+     */
+    private final UiUpdateCoalescer uiUpdateCoalescer = new UiUpdateCoalescer(MAX_UPDATES_PER_SECOND);
     private final TorrentControlsViewModel torrentControlsViewModel;
     private final TorrentsTableViewModel torrentsTableViewModel;
     private final TorrentInfoViewModel torrentInfoViewModel;
@@ -25,13 +32,27 @@ public class MainViewModel {
     public MainViewModel(Client client) {
         this.client = requireNonNull(client);
         torrentControlsViewModel = new TorrentControlsViewModel(client);
-        torrentsTableViewModel = new TorrentsTableViewModel(client, this::onTorrentSelected);
+        torrentsTableViewModel = new TorrentsTableViewModel(client, this::onTorrentSelected, uiUpdateCoalescer);
         torrentInfoViewModel = new TorrentInfoViewModel(client);
         fileInfoViewModel = new FileInfoViewModel(client);
-        peersTableViewModel = new PeersTableViewModel(client);
+        peersTableViewModel = new PeersTableViewModel(client, uiUpdateCoalescer);
         chartViewModel = new ChartViewModel(client);
     }
 
+    /**
+     * Starts applying updates to the tables. Must be called on the JavaFX application thread.
+     */
+    public void startUiUpdates() {
+        uiUpdateCoalescer.start();
+    }
+
+    /**
+     * Stops applying updates to the tables. Must be called on the JavaFX application thread.
+     */
+    public void stopUiUpdates() {
+        uiUpdateCoalescer.stop();
+    }
+
     private void onTorrentSelected(Torrent torrent) {
         torrentControlsViewModel.setSelectedTorrent(torrent);
         torrentInfoViewModel.setSelectedTorrent(torrent);
@@ -16,6 +16,7 @@ import jtorrent.domain.Client;
 import jtorrent.domain.peer.model.Peer;
 import jtorrent.domain.peer.model.PeerContactInfo;
 import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.presentation.common.util.UiUpdateCoalescer;
 import jtorrent.presentation.main.model.UiPeer;
 
 public class PeersTableViewModel {
@@ -23,12 +24,14 @@ public class PeersTableViewModel {
     private final Client client;
     private final ObservableList<UiPeer> uiPeers = FXCollections.observableList(new ArrayList<>());
     private final Map<Peer, UiPeer> peerToUiPeer = new HashMap<>();
+    private final UiUpdateCoalescer uiUpdateCoalescer;
 
     private Torrent selectedTorrent;
     private Disposable selectedTorrentPeersSubscription;
 
-    public PeersTableViewModel(Client client) {
+    public PeersTableViewModel(Client client, UiUpdateCoalescer uiUpdateCoalescer) {
         this.client = requireNonNull(client);
+        this.uiUpdateCoalescer = requireNonNull(uiUpdateCoalescer);
     }
 
     public void setSelectedTorrent(Torrent torrent) {
@@ -61,7 +64,7 @@ public class PeersTableViewModel {
         return torrent.getPeersObservable().subscribe(event -> {
             switch (event.getType()) {
             case ADD:
-                UiPeer uiPeer = UiPeer.fromDomain(event.getItem());
+                UiPeer uiPeer = UiPeer.fromDomain(event.getItem(), uiUpdateCoalescer);
                 peerToUiPeer.put(event.getItem(), uiPeer);
                 Platform.runLater(() -> uiPeers.add(uiPeer));
                 break;
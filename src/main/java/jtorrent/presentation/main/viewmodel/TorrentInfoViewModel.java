@@ -3,7 +3,6 @@ package jtorrent.presentation.main.viewmodel;
 import static jtorrent.domain.common.util.ValidationUtil.requireNonNull;
 
 import java.time.LocalDateTime;
-import java.util.BitSet;
 
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
@@ -15,6 +14,8 @@ import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import jtorrent.domain.Client;
+import jtorrent.domain.common.util.rx.BitSetChange;
+import jtorrent.domain.statistics.TorrentSnapshot;
 import jtorrent.domain.torrent.model.Torrent;
 import jtorrent.presentation.common.util.BindingUtils;
 import jtorrent.presentation.common.util.DataSize;
@@ -24,9 +25,9 @@ import jtorrent.presentation.main.util.CalculateEtaCombiner;
 public class TorrentInfoViewModel {
 
     private final Client client;
-    private final ReadOnlyObjectWrapper<BitSet> downloadedPieces = new ReadOnlyObjectWrapper<>();
+    private final ReadOnlyObjectWrapper<Observable<BitSetChange>> downloadedPieces = new ReadOnlyObjectWrapper<>();
     private final ReadOnlyStringWrapper downloadedPercentage = new ReadOnlyStringWrapper();
-    private final ReadOnlyObjectWrapper<BitSet> availablePieces = new ReadOnlyObjectWrapper<>();
+    private final ReadOnlyObjectWrapper<Observable<BitSetChange>> availablePieces = new ReadOnlyObjectWrapper<>();
     private final ReadOnlyStringWrapper availablePercentage = new ReadOnlyStringWrapper();
     private final ReadOnlyIntegerWrapper totalPieces = new ReadOnlyIntegerWrapper();
     private final ReadOnlyStringWrapper timeElapsed = new ReadOnlyStringWrapper();
@@ -69,6 +70,8 @@ public class TorrentInfoViewModel {
 
         Platform.runLater(() -> {
             totalPieces.set(torrent.getNumPieces());
+            downloadedPieces.set(torrent.getVerifiedPiecesObservable());
+            availablePieces.set(torrent.getAvailablePiecesObservable());
             saveAs.set(torrent.getSaveAsPath().toString());
             createdBy.set(torrent.getCreatedBy());
             createdOn.set(formatDate(torrent.getCreationDate()));
@@ -77,22 +80,19 @@ public class TorrentInfoViewModel {
         });
 
         disposables = new CompositeDisposable();
-
-        BindingUtils.subscribe(torrent.getVerifiedPiecesObservable(), downloadedPieces, disposables);
+        Observable<TorrentSnapshot> statisticsObservable = client.getStatisticsObservable(torrent);
 
         Observable<String> downloadedPercentageObservable = torrent.getVerifiedPiecesObservable()
-                .map(BitSet::cardinality)
+                .map(BitSetChange::cardinality)
                 .map(downloadedSize -> formatPercentage(downloadedSize, torrent.getNumPieces()));
         BindingUtils.subscribe(downloadedPercentageObservable, downloadedPercentage, disposables);
 
-        BindingUtils.subscribe(torrent.getAvailablePiecesObservable(), availablePieces, disposables);
-
         Observable<String> availablePercentageObservable = Observable.just(""); // placeholder
         BindingUtils.subscribe(availablePercentageObservable, availablePercentage, disposables);
 
         Observable<String> remainingObservable = Observable.combineLatest(
                 torrent.getVerifiedBytesObservable(),
-                torrent.getDownloadRateObservable(),
+                statisticsObservable.map(TorrentSnapshot::downloadRate),
                 new CalculateEtaCombiner(torrent.getTotalSize())
         ).map(Object::toString);
         BindingUtils.subscribe(remainingObservable, remaining, disposables);
@@ -107,18 +107,18 @@ public class TorrentInfoViewModel {
                 .map(DataSize::toString);
         BindingUtils.subscribe(uploadedObservable, uploaded, disposables);
 
-        Observable<String> downloadRateObservable = torrent.getDownloadRateObservable()
+        Observable<String> downloadRateObservable = statisticsObservable.map(TorrentSnapshot::downloadRate)
                 .map(DataSize::bestFitBytes)
                 .map(DataSize::toRateString);
         BindingUtils.subscribe(downloadRateObservable, downloadSpeed, disposables);
 
-        Observable<String> uploadRateObservable = torrent.getUploadRateObservable()
+        Observable<String> uploadRateObservable = statisticsObservable.map(TorrentSnapshot::uploadRate)
                 .map(DataSize::bestFitBytes)
                 .map(DataSize::toRateString);
         BindingUtils.subscribe(uploadRateObservable, uploadSpeed, disposables);
 
         Observable<String> piecesObservable = torrent.getVerifiedPiecesObservable()
-                .map(BitSet::cardinality)
+                .map(BitSetChange::cardinality)
                 .map(numVerified -> formatPieces(torrent.getNumPieces(), torrent.getPieceSize(), numVerified));
         BindingUtils.subscribe(piecesObservable, pieces, disposables);
 
@@ -175,7 +175,7 @@ public class TorrentInfoViewModel {
         return String.format("%.1f%%", value / (double) total * 100);
     }
 
-    public ReadOnlyObjectProperty<BitSet> downloadedPiecesProperty() {
+    public ReadOnlyObjectProperty<Observable<BitSetChange>> downloadedPiecesProperty() {
         return downloadedPieces.getReadOnlyProperty();
     }
 
@@ -183,7 +183,7 @@ public class TorrentInfoViewModel {
         return downloadedPercentage.getReadOnlyProperty();
     }
 
-    public ReadOnlyObjectProperty<BitSet> availablePiecesProperty() {
+    public ReadOnlyObjectProperty<Observable<BitSetChange>> availablePiecesProperty() {
         return availablePieces.getReadOnlyProperty();
     }
 
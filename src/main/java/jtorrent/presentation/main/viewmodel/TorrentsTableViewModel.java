@@ -15,6 +15,7 @@ import javafx.collections.ObservableList;
 import jtorrent.domain.Client;
 import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.presentation.common.util.UiUpdateCoalescer;
 import jtorrent.presentation.main.model.UiTorrent;
 
 public class TorrentsTableViewModel {
@@ -27,17 +28,21 @@ public class TorrentsTableViewModel {
     private final Map<UiTorrent, Sha1Hash> uiTorrentToInfoHash = new HashMap<>();
     private final Map<Sha1Hash, UiTorrent> infoHashToUiTorrent = new HashMap<>();
     private final Consumer<Torrent> torrentSelectedConsumer;
+    private final UiUpdateCoalescer uiUpdateCoalescer;
 
-    public TorrentsTableViewModel(Client client, Consumer<Torrent> torrentSelectedConsumer) {
+    public TorrentsTableViewModel(Client client, Consumer<Torrent> torrentSelectedConsumer,
+            UiUpdateCoalescer uiUpdateCoalescer) {
         this.client = requireNonNull(client);
         this.torrentSelectedConsumer = requireNonNull(torrentSelectedConsumer);
+        this.uiUpdateCoalescer = requireNonNull(uiUpdateCoalescer);
 
         client.getTorrents().subscribe(event -> {
             Optional<Integer> indexOptional = event.getIndex();
             Sha1Hash infoHash;
             switch (event.getType()) {
             case ADD:
-                UiTorrent uiTorrent = UiTorrent.fromDomain(event.getItem());
+                UiTorrent uiTorrent = UiTorrent.fromDomain(event.getItem(),
+                        client.getStatisticsObservable(event.getItem()), uiUpdateCoalescer);
                 infoHash = event.getItem().getInfoHash();
                 uiTorrentToInfoHash.put(uiTorrent, infoHash);
                 infoHashToUiTorrent.put(infoHash, uiTorrent);
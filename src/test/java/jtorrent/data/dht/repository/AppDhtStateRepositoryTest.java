@@ -0,0 +1,74 @@
+package jtorrent.data.dht.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.data.dht.source.db.dao.DhtStateDao;
+import jtorrent.data.dht.source.db.model.DhtStateEntity;
+import jtorrent.domain.dht.model.DhtState;
+import jtorrent.domain.dht.model.node.NodeId;
+
+class AppDhtStateRepositoryTest {
+
+    @Test
+    void load_validState_returnsState() {
+        DhtState expected = new DhtState(NodeId.random(), List.of());
+        FakeDhtStateDao dhtStateDao = new FakeDhtStateDao(DhtStateEntity.fromDomain(expected));
+
+        Optional<DhtState> actual = new AppDhtStateRepository(dhtStateDao).load();
+
+        assertEquals(Optional.of(expected), actual);
+        assertNotNull(dhtStateDao.dhtStateEntity);
+    }
+
+    @Test
+    void load_corruptLocalNodeId_stateDiscarded() {
+        FakeDhtStateDao dhtStateDao = new FakeDhtStateDao(new DhtStateEntity(new byte[3], new byte[0]));
+
+        Optional<DhtState> actual = new AppDhtStateRepository(dhtStateDao).load();
+
+        assertFalse(actual.isPresent());
+        assertNull(dhtStateDao.dhtStateEntity);
+    }
+
+    @Test
+    void load_noState_returnsEmpty() {
+        assertTrue(new AppDhtStateRepository(new FakeDhtStateDao(null)).load().isEmpty());
+    }
+
+    /**
+     * Keeps the saved state in memory.
+     */
+    private static class FakeDhtStateDao extends DhtStateDao {
+
+        private DhtStateEntity dhtStateEntity;
+
+        private FakeDhtStateDao(DhtStateEntity dhtStateEntity) {
+            super(null);
+            this.dhtStateEntity = dhtStateEntity;
+        }
+
+        @Override
+        public DhtStateEntity read() {
+            return dhtStateEntity;
+        }
+
+        @Override
+        public void save(DhtStateEntity dhtStateEntity) {
+            this.dhtStateEntity = dhtStateEntity;
+        }
+
+        @Override
+        public void delete() {
+            dhtStateEntity = null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package jtorrent.data.dht.source.db.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.dht.model.DhtState;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+import jtorrent.domain.dht.model.node.SavedNode;
+
+class DhtStateEntityTest {
+
+    @Test
+    void fromDomainToDomain_returnsSameState() {
+        SavedNode node1 = new SavedNode(new NodeContactInfo(NodeId.random(), new InetSocketAddress("1.2.3.4", 6881)),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        SavedNode node2 = new SavedNode(new NodeContactInfo(NodeId.random(), new InetSocketAddress("5.6.7.8", 65535)),
+                LocalDateTime.MIN.withNano(0));
+        DhtState expected = new DhtState(NodeId.random(), List.of(node1, node2));
+
+        assertEquals(expected, DhtStateEntity.fromDomain(expected).toDomain());
+    }
+
+    @Test
+    void fromDomain_ipv6Node_dropped() {
+        SavedNode ipv4Node = new SavedNode(new NodeContactInfo(NodeId.random(), new InetSocketAddress("1.2.3.4", 1)),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        SavedNode ipv6Node = new SavedNode(new NodeContactInfo(NodeId.random(), new InetSocketAddress("::1", 1)),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        NodeId localNodeId = NodeId.random();
+
+        DhtState actual = DhtStateEntity.fromDomain(new DhtState(localNodeId, List.of(ipv4Node, ipv6Node))).toDomain();
+
+        assertEquals(new DhtState(localNodeId, List.of(ipv4Node)), actual);
+    }
+
+    @Test
+    void toDomain_shortLocalNodeId_throwsIllegalStateException() {
+        DhtStateEntity dhtStateEntity = new DhtStateEntity(new byte[NodeId.SIZE_BYTES - 1], new byte[0]);
+
+        assertThrows(IllegalStateException.class, dhtStateEntity::toDomain);
+    }
+
+    @Test
+    void toDomain_truncatedNodes_throwsIllegalStateException() {
+        DhtStateEntity dhtStateEntity = new DhtStateEntity(NodeId.random().getBytes(),
+                new byte[NodeContactInfo.COMPACT_NODE_INFO_BYTES]);
+
+        assertThrows(IllegalStateException.class, dhtStateEntity::toDomain);
+    }
+}
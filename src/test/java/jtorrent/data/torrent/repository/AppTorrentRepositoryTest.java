@@ -0,0 +1,192 @@
+package jtorrent.data.torrent.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.data.torrent.source.db.dao.TorrentDao;
+import jtorrent.data.torrent.source.db.model.TorrentEntity;
+import jtorrent.data.torrent.source.db.model.TorrentEntityUpdate;
+import jtorrent.data.torrent.source.db.model.TorrentProgressComponent;
+import jtorrent.data.torrent.source.db.model.TorrentSummary;
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.SingleFileInfo;
+import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.model.TorrentMetadata;
+
+class AppTorrentRepositoryTest {
+
+    private FakeTorrentDao torrentDao;
+    private AppTorrentRepository repository;
+
+    private static Torrent createTorrent(int i) {
+        byte[] bytes = new byte[Sha1Hash.HASH_SIZE];
+        bytes[0] = (byte) i;
+        Sha1Hash infoHash = new Sha1Hash(bytes);
+        SingleFileInfo fileInfo = new SingleFileInfo(new FileMetadata(Path.of("file" + i), 0, 20, 0, 0, 1, 9), 10,
+                List.of(infoHash, infoHash), infoHash);
+        TorrentMetadata metadata = new TorrentMetadata(List.of(List.of(URI.create("http://tracker"))),
+                LocalDateTime.of(2020, 1, 1, 0, 0), "", "", fileInfo);
+        return Torrent.createNew(metadata, "torrent" + i, Path.of("dir"));
+    }
+
+    @BeforeEach
+    void setUp() {
+        torrentDao = new FakeTorrentDao();
+        repository = new AppTorrentRepository(torrentDao);
+    }
+
+    @Test
+    void persistTorrents_unchanged_nothingWritten() {
+        repository.addTorrent(createTorrent(1));
+        repository.addTorrent(createTorrent(2));
+
+        repository.persistTorrents();
+
+        assertTrue(torrentDao.updates.isEmpty());
+    }
+
+    @Test
+    void persistTorrents_changed_onlyChangedTorrentsAndPartsWritten() {
+        Torrent unchanged = createTorrent(1);
+        Torrent statisticsChanged = createTorrent(2);
+        Torrent progressChanged = createTorrent(3);
+        List.of(unchanged, statisticsChanged, progressChanged).forEach(repository::addTorrent);
+
+        statisticsChanged.incrementUploaded(10);
+        progressChanged.setPieceVerified(0);
+        repository.persistTorrents();
+
+        assertEquals(1, torrentDao.updates.size());
+        List<TorrentEntityUpdate> updates = torrentDao.updates.get(0);
+        assertEquals(2, updates.size());
+
+        TorrentEntityUpdate statisticsUpdate = getUpdate(updates, statisticsChanged);
+        assertNull(statisticsUpdate.attributes());
+        assertNotNull(statisticsUpdate.statistics());
+        assertNull(statisticsUpdate.progress());
+
+        TorrentEntityUpdate progressUpdate = getUpdate(updates, progressChanged);
+        assertNull(progressUpdate.attributes());
+        assertNull(progressUpdate.statistics());
+        assertNotNull(progressUpdate.progress());
+    }
+
+    @Test
+    void persistTorrents_persistedChanges_notWrittenAgain() {
+        Torrent torrent = createTorrent(1);
+        repository.addTorrent(torrent);
+        torrent.setName("renamed");
+        repository.persistTorrents();
+
+        repository.persistTorrents();
+
+        assertEquals(1, torrentDao.updates.size());
+        assertEquals("renamed", torrentDao.updates.get(0).get(0).attributes().displayName());
+    }
+
+    @Test
+    void persistTorrents_legacyProgressLoaded_progressRewritten() {
+        BitSet verifiedPieces = new BitSet();
+        verifiedPieces.set(0);
+        // no pieces with received blocks
+        byte[] pieceToReceivedBlocks = new byte[Integer.BYTES];
+        Torrent torrent = loadPersistedTorrent(new TorrentProgressComponent(pieceToReceivedBlocks,
+                verifiedPieces.toByteArray(), null, null, null));
+
+        repository.persistTorrents();
+        repository.persistTorrents();
+
+        assertEquals(verifiedPieces, torrent.getVerifiedPieces());
+        assertEquals(1, torrentDao.updates.size());
+        TorrentProgressComponent progress = torrentDao.updates.get(0).get(0).progress();
+        assertNotNull(progress);
+        assertFalse(progress.isRewriteNeeded());
+    }
+
+    @Test
+    void persistTorrents_unsupportedResumeDataLoaded_progressRewritten() {
+        Torrent torrent = loadPersistedTorrent(new TorrentProgressComponent(new byte[0], new byte[0],
+                new byte[] {Byte.MAX_VALUE}, null, 0L));
+
+        repository.persistTorrents();
+
+        assertTrue(torrent.getVerifiedPieces().isEmpty());
+        assertEquals(1, torrentDao.updates.size());
+        assertFalse(torrentDao.updates.get(0).get(0).progress().isRewriteNeeded());
+    }
+
+    /**
+     * Persists a torrent with the given progress, and loads it into a new repository along with its progress.
+     */
+    private Torrent loadPersistedTorrent(TorrentProgressComponent progress) {
+        TorrentEntity created = TorrentEntity.fromDomain(createTorrent(1));
+        TorrentEntity torrentEntity = new TorrentEntity(created.getInfoHash(), created.getDisplayName(),
+                created.getSaveDirectory(), created.getMetadata(), created.getStatistics(), progress,
+                created.getState(), created.getTotalSize());
+        torrentDao.entities.put(new Sha1Hash(torrentEntity.getInfoHash()), torrentEntity);
+        repository = new AppTorrentRepository(torrentDao);
+
+        Torrent torrent = repository.getTorrent(new Sha1Hash(torrentEntity.getInfoHash()));
+        torrent.getProgress();
+        return torrent;
+    }
+
+    private static TorrentEntityUpdate getUpdate(List<TorrentEntityUpdate> updates, Torrent torrent) {
+        return updates.stream()
+                .filter(update -> new Sha1Hash(update.infoHash()).equals(torrent.getInfoHash()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Records the updates instead of writing them to a database.
+     */
+    private static class FakeTorrentDao extends TorrentDao {
+
+        private final List<List<TorrentEntityUpdate>> updates = new ArrayList<>();
+        private final Map<Sha1Hash, TorrentEntity> entities = new HashMap<>();
+
+        private FakeTorrentDao() {
+            super(null);
+        }
+
+        @Override
+        public List<TorrentSummary> readAllSummaries() {
+            return entities.values().stream()
+                    .map(entity -> new TorrentSummary(entity.getInfoHash(), entity.getDisplayName(),
+                            entity.getSaveDirectory(), entity.getState(), entity.getStatistics(),
+                            entity.getTotalSize(), 0L))
+                    .toList();
+        }
+
+        @Override
+        public TorrentEntity read(byte[] infoHash) {
+            return entities.get(new Sha1Hash(infoHash));
+        }
+
+        @Override
+        public void create(TorrentEntity torrentEntity) {
+        }
+
+        @Override
+        public void update(List<TorrentEntityUpdate> updates) {
+            this.updates.add(List.copyOf(updates));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package jtorrent.data.torrent.source.db.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.data.torrent.source.db.model.TorrentEntity;
+import jtorrent.data.torrent.source.db.model.TorrentEntityUpdate;
+import jtorrent.data.torrent.source.db.model.TorrentStatisticsComponent;
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.SingleFileInfo;
+import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.model.TorrentMetadata;
+
+class TorrentDaoTest {
+
+    private SessionFactory sessionFactory;
+    private TorrentDao torrentDao;
+
+    private static TorrentEntity createTorrentEntity(int i) {
+        byte[] bytes = new byte[Sha1Hash.HASH_SIZE];
+        bytes[0] = (byte) (i >> 8);
+        bytes[1] = (byte) i;
+        Sha1Hash infoHash = new Sha1Hash(bytes);
+        SingleFileInfo fileInfo = new SingleFileInfo(new FileMetadata(Path.of("file"), 0, 10, 0, 0, 0, 9), 10,
+                List.of(infoHash), infoHash);
+        TorrentMetadata metadata = new TorrentMetadata(List.of(List.of(URI.create("http://tracker"))),
+                LocalDateTime.of(2020, 1, 1, 0, 0), "", "", fileInfo);
+        return TorrentEntity.fromDomain(Torrent.createNew(metadata, "torrent" + i, Path.of("dir")));
+    }
+
+    @BeforeEach
+    void setUp() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.connection.url", "jdbc:h2:mem:torrent-dao-test;DB_CLOSE_DELAY=-1")
+                .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(TorrentEntity.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        torrentDao = new TorrentDao(sessionFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void update_moreTorrentsThanBatchSize_everyTorrentUpdated() {
+        int numTorrents = TorrentDao.UPDATE_BATCH_SIZE * 2 + 1;
+        List<TorrentEntity> torrentEntities = new ArrayList<>();
+        List<TorrentEntityUpdate> updates = new ArrayList<>();
+        for (int i = 0; i < numTorrents; i++) {
+            TorrentEntity torrentEntity = createTorrentEntity(i);
+            torrentDao.create(torrentEntity);
+            torrentEntities.add(torrentEntity);
+            updates.add(new TorrentEntityUpdate(torrentEntity.getInfoHash(), null,
+                    new TorrentStatisticsComponent(i, 2L * i), null));
+        }
+
+        torrentDao.update(updates);
+
+        for (int i = 0; i < numTorrents; i++) {
+            TorrentEntity actual = torrentDao.read(torrentEntities.get(i).getInfoHash());
+            assertEquals(new TorrentStatisticsComponent(i, 2L * i), actual.getStatistics());
+            // parts that are not part of the update are left unchanged
+            assertEquals("torrent" + i, actual.getDisplayName());
+            assertEquals(torrentEntities.get(i).getProgress(), actual.getProgress());
+        }
+    }
+
+    @Test
+    void update_torrentDoesNotExist_noEffect() {
+        TorrentEntity torrentEntity = createTorrentEntity(1);
+        torrentDao.create(torrentEntity);
+        TorrentEntityUpdate missing = new TorrentEntityUpdate(createTorrentEntity(2).getInfoHash(), null,
+                new TorrentStatisticsComponent(1, 1), null);
+
+        torrentDao.update(List.of(missing));
+
+        assertEquals(1, torrentDao.readAll().size());
+        assertEquals(torrentEntity.getStatistics(), torrentDao.read(torrentEntity.getInfoHash()).getStatistics());
+    }
+}
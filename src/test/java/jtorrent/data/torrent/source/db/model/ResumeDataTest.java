@@ -0,0 +1,105 @@
+package jtorrent.data.torrent.source.db.model;
+
+import static jtorrent.data.torrent.source.db.model.testutil.TestUtil.createBitSet;
+import static jtorrent.data.torrent.source.db.model.testutil.TestUtil.createBitSetWithRange;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ResumeDataTest {
+
+    @Test
+    void of_dropsVerifiedAndEmptyPieces() {
+        Map<Integer, BitSet> receivedBlocks = Map.of(
+                0, createBitSetWithRange(0, 4),
+                1, createBitSet(1, 2),
+                2, new BitSet()
+        );
+
+        ResumeData resumeData = ResumeData.of(createBitSet(0), receivedBlocks);
+
+        assertEquals(Map.of(1, createBitSet(1, 2)), resumeData.partialPieces());
+    }
+
+    @Test
+    void encode_decode_roundTrip() {
+        BitSet verifiedPieces = createBitSetWithRange(0, 1000);
+        verifiedPieces.clear(500);
+        verifiedPieces.set(2000, 2100);
+        Map<Integer, BitSet> receivedBlocks = Map.of(
+                500, createBitSet(0, 3),
+                1500, createBitSetWithRange(0, 200),
+                3000, createBitSet(7)
+        );
+        ResumeData expected = ResumeData.of(verifiedPieces, receivedBlocks);
+
+        assertEquals(expected, ResumeData.decode(expected.encode()));
+    }
+
+    @Test
+    void encode_decode_scatteredPieces_roundTrip() {
+        BitSet verifiedPieces = new BitSet();
+        for (int piece = 0; piece < 1000; piece += 2) {
+            verifiedPieces.set(piece);
+        }
+        ResumeData expected = ResumeData.of(verifiedPieces, Map.of());
+
+        assertEquals(expected, ResumeData.decode(expected.encode()));
+    }
+
+    @Test
+    void encode_mostlyCompleteTorrent_smallerThanLegacyFormat() {
+        int numPieces = 100_000;
+        BitSet verifiedPieces = createBitSetWithRange(0, numPieces);
+        Map<Integer, BitSet> receivedBlocks = new HashMap<>();
+        for (int piece = 0; piece < numPieces; piece++) {
+            receivedBlocks.put(piece, createBitSetWithRange(0, 16));
+        }
+        for (int piece = 50_000; piece < 50_010; piece++) {
+            verifiedPieces.clear(piece);
+            receivedBlocks.put(piece, createBitSetWithRange(0, 8));
+        }
+
+        byte[] encoded = ResumeData.of(verifiedPieces, receivedBlocks).encode();
+
+        // the legacy format stores a raw bit set, and 12 bytes plus the block bit set for every piece
+        int legacySize = verifiedPieces.toByteArray().length + 4 + numPieces * (4 + 4 + 2);
+        assertTrue(encoded.length < 100, "Encoded size: " + encoded.length);
+        assertTrue(encoded.length * 10_000 < legacySize);
+    }
+
+    @Test
+    void decode_unknownSection_skipped() {
+        ResumeData expected = ResumeData.of(createBitSet(1, 2, 3), Map.of(5, createBitSet(0)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(expected.encode());
+        // a section with tag 100 and a payload of 3 bytes
+        out.writeBytes(new byte[] {100, 3, 1, 2, 3});
+
+        assertEquals(expected, ResumeData.decode(out.toByteArray()));
+    }
+
+    @Test
+    void decode_unsupportedVersion_throwsException() {
+        byte[] encoded = ResumeData.of(createBitSet(1), Map.of()).encode();
+        encoded[0] = ResumeData.VERSION + 1;
+
+        assertThrows(IllegalArgumentException.class, () -> ResumeData.decode(encoded));
+    }
+
+    @Test
+    void decode_truncated_throwsException() {
+        byte[] encoded = ResumeData.of(createBitSetWithRange(0, 100), Map.of(200, createBitSet(0))).encode();
+        byte[] truncated = new byte[encoded.length - 1];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+
+        assertThrows(IllegalArgumentException.class, () -> ResumeData.decode(truncated));
+    }
+}
@@ -19,6 +19,8 @@ import org.instancio.Instancio;
 import org.instancio.Model;
 import org.junit.jupiter.api.Test;
 
+import jtorrent.domain.common.util.PackedSha1Hashes;
+import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.common.util.rx.MutableRxObservableSet;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.FileMetadata;
@@ -26,6 +28,7 @@ import jtorrent.domain.torrent.model.FileProgress;
 import jtorrent.domain.torrent.model.MultiFileInfo;
 import jtorrent.domain.torrent.model.SingleFileInfo;
 import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.model.TorrentContent;
 import jtorrent.domain.torrent.model.TorrentMetadata;
 import jtorrent.domain.torrent.model.TorrentProgress;
 import jtorrent.domain.tracker.model.factory.TrackerFactory;
@@ -64,8 +67,10 @@ class TorrentEntityTest {
 
         SingleFileInfo fileInfo = Instancio.of(SingleFileInfo.class)
                 .generate(all(byte[].class), gen -> gen.array().length(20))
-                .generate(field(FileInfo.class, "pieceHashes"), gen -> gen.collection().size(10))
+                .set(field(FileInfo.class, "pieceHashes"), new PackedSha1Hashes(new byte[10 * Sha1Hash.HASH_SIZE]))
                 .set(field(FileInfo.class, "pieceSize"), 10)
+                .set(field(FileInfo.class, "pathToFileHashTree"), Map.of())
+                .ignore(field(FileInfo.class, "fileLayout"))
                 .set(field(FileInfo.class, "fileMetaData"), List.of(fileMetadata))
                 .create();
 
@@ -80,8 +85,10 @@ class TorrentEntityTest {
                         )
                 )
                 .set(field("peers"), new MutableRxObservableSet<>(Set.of()))
+                .set(field(Torrent.class, "infoHash"), fileInfo.getInfoHash())
+                .set(field(Torrent.class, "totalSize"), fileInfo.getTotalFileSize())
                 .set(field(TorrentMetadata.class, "fileInfo"), fileInfo)
-                .set(field("torrentProgress"),
+                .set(field(TorrentContent.class, "progress"),
                         Instancio.of(TORRENT_PROGRESS_MODEL)
                                 .set(field("fileInfo"), fileInfo)
                                 .set(field("completelyMissingPieces"), createBitSetWithRange(0, 10))
@@ -130,8 +137,10 @@ class TorrentEntityTest {
 
         MultiFileInfo fileInfo = Instancio.of(MultiFileInfo.class)
                 .generate(all(byte[].class), gen -> gen.array().length(20))
-                .generate(field(FileInfo.class, "pieceHashes"), gen -> gen.collection().size(20))
+                .set(field(FileInfo.class, "pieceHashes"), new PackedSha1Hashes(new byte[20 * Sha1Hash.HASH_SIZE]))
                 .set(field(FileInfo.class, "pieceSize"), 10)
+                .set(field(FileInfo.class, "pathToFileHashTree"), Map.of())
+                .ignore(field(FileInfo.class, "fileLayout"))
                 .set(field(FileInfo.class, "fileMetaData"),
                         List.of(
                                 fileMetadata1,
@@ -151,8 +160,10 @@ class TorrentEntityTest {
                         )
                 )
                 .set(field("peers"), new MutableRxObservableSet<>(Set.of()))
+                .set(field(Torrent.class, "infoHash"), fileInfo.getInfoHash())
+                .set(field(Torrent.class, "totalSize"), fileInfo.getTotalFileSize())
                 .set(field(TorrentMetadata.class, "fileInfo"), fileInfo)
-                .set(field("torrentProgress"),
+                .set(field(TorrentContent.class, "progress"),
                         Instancio.of(TORRENT_PROGRESS_MODEL)
                                 .set(field("fileInfo"), fileInfo)
                                 .set(field("completelyMissingPieces"), createBitSetWithRange(0, 20))
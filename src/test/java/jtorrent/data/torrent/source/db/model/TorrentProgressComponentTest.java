@@ -4,9 +4,15 @@ import static jtorrent.data.torrent.source.db.model.testutil.TestUtil.createBitS
 import static org.instancio.Select.all;
 import static org.instancio.Select.field;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
@@ -14,9 +20,13 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.Test;
 
+import jtorrent.domain.common.util.PackedSha1Hashes;
+import jtorrent.domain.common.util.Sha1Hash;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.FilePriority;
 import jtorrent.domain.torrent.model.FileProgress;
+import jtorrent.domain.torrent.model.MultiFileInfo;
 import jtorrent.domain.torrent.model.SingleFileInfo;
 import jtorrent.domain.torrent.model.TorrentProgress;
 
@@ -37,7 +47,9 @@ class TorrentProgressComponentTest {
         SingleFileInfo fileInfo = Instancio.of(SingleFileInfo.class)
                 .generate(all(byte[].class), gen -> gen.array().length(20))
                 .set(field(FileInfo.class, "pieceSize"), 10)
-                .generate(field(FileInfo.class, "pieceHashes"), gen -> gen.collection().size(5))
+                .set(field(FileInfo.class, "pathToFileHashTree"), Map.of())
+                .ignore(field(FileInfo.class, "fileLayout"))
+                .set(field(FileInfo.class, "pieceHashes"), new PackedSha1Hashes(new byte[5 * Sha1Hash.HASH_SIZE]))
                 .set(field(FileInfo.class, "fileMetaData"), List.of(fileMetadata))
                 .create();
 
@@ -78,4 +90,76 @@ class TorrentProgressComponentTest {
 
         assertEquals(expected, actual);
     }
+
+    @Test
+    void toDomain_invalidFilePriorities_defaultUsed() {
+        FileMetadata first = new FileMetadata(Path.of("first"), 0, 10, 0, 0, 0, 9);
+        FileMetadata second = new FileMetadata(Path.of("second"), 10, 10, 1, 0, 1, 9);
+        FileMetadata third = new FileMetadata(Path.of("third"), 20, 10, 2, 0, 2, 9);
+        Sha1Hash infoHash = new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]);
+        MultiFileInfo fileInfo = new MultiFileInfo("dir", List.of(first, second, third), 10,
+                Collections.nCopies(3, infoHash), infoHash);
+        byte[] resumeData = ResumeData.of(new BitSet(), Map.of()).encode();
+        // a valid priority, an out of range priority, and no priority for the last file
+        byte[] filePriorities = {(byte) FilePriority.HIGH.ordinal(), 99};
+
+        TorrentProgress actual = new TorrentProgressComponent(new byte[0], new byte[0], resumeData, filePriorities, 0L)
+                .toDomain(fileInfo);
+
+        assertEquals(List.of(FilePriority.HIGH, FilePriority.NORMAL, FilePriority.NORMAL),
+                actual.getFilePriorities());
+    }
+
+    @Test
+    void toDomain_legacyFormat_progressConverted() throws IOException {
+        SingleFileInfo fileInfo = createSingleFileInfo(4);
+        // piece 0 is verified, and piece 1 has received its first block
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(1);
+        dos.writeInt(1);
+        byte[] blocks = createBitSet(0).toByteArray();
+        dos.writeInt(blocks.length);
+        dos.write(blocks);
+        TorrentProgressComponent component = new TorrentProgressComponent(out.toByteArray(),
+                createBitSet(0).toByteArray(), null, null, null);
+
+        TorrentProgress actual = component.toDomain(fileInfo);
+
+        assertTrue(component.isRewriteNeeded());
+        assertEquals(createBitSet(0), actual.getVerifiedPieces());
+        assertEquals(createBitSet(0), actual.getReceivedBlocks().get(0));
+        assertEquals(createBitSet(0), actual.getReceivedBlocks().get(1));
+        assertEquals(List.of(FilePriority.NORMAL), actual.getFilePriorities());
+    }
+
+    @Test
+    void toDomain_unsupportedResumeDataVersion_noPiecesVerified() {
+        SingleFileInfo fileInfo = createSingleFileInfo(4);
+        byte[] resumeData = ResumeData.of(createBitSet(0, 1), Map.of()).encode();
+        resumeData[0] = ResumeData.VERSION + 1;
+        TorrentProgressComponent component = new TorrentProgressComponent(new byte[0], new byte[0], resumeData,
+                null, 20L);
+
+        TorrentProgress actual = component.toDomain(fileInfo);
+
+        assertTrue(component.isRewriteNeeded());
+        assertTrue(actual.getVerifiedPieces().isEmpty());
+    }
+
+    @Test
+    void isRewriteNeeded_supportedResumeData_false() {
+        byte[] resumeData = ResumeData.of(createBitSet(0), Map.of()).encode();
+
+        assertFalse(new TorrentProgressComponent(new byte[0], new byte[0], resumeData, null, 10L).isRewriteNeeded());
+    }
+
+    /**
+     * Creates a single file torrent of the given number of pieces of 10 bytes, each consisting of a single block.
+     */
+    private static SingleFileInfo createSingleFileInfo(int numPieces) {
+        FileMetadata fileMetadata = new FileMetadata(Path.of("file"), 0, numPieces * 10L, 0, 0, numPieces - 1, 9);
+        Sha1Hash infoHash = new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]);
+        return new SingleFileInfo(fileMetadata, 10, Collections.nCopies(numPieces, infoHash), infoHash);
+    }
 }
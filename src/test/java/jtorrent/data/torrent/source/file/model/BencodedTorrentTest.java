@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
@@ -22,6 +23,7 @@ import org.junit.jupiter.api.Test;
 import com.dampcake.bencode.BencodeOutputStream;
 
 import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.Sha256Hash;
 import jtorrent.domain.torrent.model.FileInfo;
 import jtorrent.domain.torrent.model.FileMetadata;
 import jtorrent.domain.torrent.model.MultiFileInfo;
@@ -122,6 +124,50 @@ class BencodedTorrentTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void decode_infoHashComputedOverRawInfoDictionary() throws IOException, NoSuchAlgorithmException {
+        Map<String, Object> infoDict = Map.of(
+                BencodedInfo.KEY_PIECE_LENGTH, 100,
+                BencodedInfo.KEY_LENGTH, 100,
+                BencodedInfo.KEY_NAME, "name",
+                BencodedInfo.KEY_PIECES, ByteBuffer.allocate(20),
+                "private", 1
+        );
+        ByteArrayOutputStream infoBaos = new ByteArrayOutputStream();
+        new BencodeOutputStream(infoBaos).writeDictionary(infoDict);
+        byte[] expected = MessageDigest.getInstance("SHA-1").digest(infoBaos.toByteArray());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        BencodeOutputStream bos = new BencodeOutputStream(baos);
+        Map<String, Object> map = Map.of(
+                BencodedTorrent.KEY_ANNOUNCE, "announce",
+                BencodedTorrent.KEY_INFO, infoDict,
+                "url-list", List.of("http://example.com")
+        );
+        bos.writeDictionary(map);
+        BencodedTorrent actual = BencodedTorrent.decode(new ByteArrayInputStream(baos.toByteArray()));
+
+        assertArrayEquals(expected, actual.getInfo().getInfoHash());
+    }
+
+    @Test
+    void bencode_pieceLayers_decodedUnchanged() throws IOException {
+        Sha256Hash piecesRoot = Sha256Hash.of(new byte[] {1});
+        List<Sha256Hash> pieceLayer = List.of(Sha256Hash.of(new byte[] {2}), Sha256Hash.of(new byte[] {3}));
+        BencodedSingleFileInfo info = new SingleFileInfoBuilder()
+                .setPieceLength(100)
+                .setLength(100)
+                .setName("name")
+                .setPieces(new byte[20])
+                .build();
+        BencodedTorrent expected = new BencodedTorrent(123456789L, "announce", Collections.emptyList(), "comment",
+                "created by", info, Map.of(piecesRoot, pieceLayer));
+
+        BencodedTorrent actual = BencodedTorrent.decode(new ByteArrayInputStream(expected.bencode()));
+
+        assertEquals(expected, actual);
+    }
+
     @Test
     void bencode_singleFile() throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -0,0 +1,278 @@
+package jtorrent.domain.choke;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.peer.communication.PeerSocket;
+import jtorrent.domain.peer.handler.PeerHandler;
+import jtorrent.domain.peer.model.Peer;
+import jtorrent.domain.peer.model.PeerContactInfo;
+import jtorrent.domain.peer.model.message.PeerMessage;
+import jtorrent.domain.peer.model.message.typed.Choke;
+
+class ChokerTest {
+
+    private long now;
+    private Choker choker;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        choker = new Choker(() -> now, new Random(0));
+    }
+
+    @Test
+    void rechoke_unchokesFastestDownloaders() {
+        FakePeerGroup group = new FakePeerGroup(false);
+        List<FakeCandidate> candidates = group.addCandidates(6);
+        choker.register(group);
+
+        choker.rechoke();
+
+        // candidates are added in descending order of rate
+        assertTrue(candidates.get(0).isUnchoked());
+        assertTrue(candidates.get(1).isUnchoked());
+        assertTrue(candidates.get(2).isUnchoked());
+        // the measured upload rate is at its peak, so a probe slot is opened in addition to the optimistic slot
+        assertEquals(Choker.MIN_REGULAR_SLOTS + 2, countUnchoked(candidates));
+    }
+
+    @Test
+    void rechoke_uninterestedPeersStayChoked() {
+        FakePeerGroup group = new FakePeerGroup(false);
+        List<FakeCandidate> candidates = group.addCandidates(2);
+        candidates.get(0).isRemoteInterested = false;
+        choker.register(group);
+
+        choker.rechoke();
+
+        assertFalse(candidates.get(0).isUnchoked());
+        assertTrue(candidates.get(1).isUnchoked());
+    }
+
+    @Test
+    void rechoke_slotsSizedFromUploadRateLimit() {
+        FakePeerGroup group = new FakePeerGroup(false);
+        List<FakeCandidate> candidates = group.addCandidates(30);
+        choker.register(group);
+        choker.setUploadRateLimit((long) (Choker.SLOT_RATE * 8));
+
+        choker.rechoke();
+
+        // 8 regular slots, 1 probe slot as the limit has not been reached, and 1 optimistic slot
+        assertEquals(10, countUnchoked(candidates));
+    }
+
+    @Test
+    void rechoke_snubbingPeerDoesNotGetRegularSlot() {
+        FakePeerGroup group = new FakePeerGroup(false);
+        List<FakeCandidate> candidates = group.addCandidates(5);
+        candidates.forEach(candidate -> candidate.isLocalInterested = true);
+        choker.register(group);
+
+        now = Choker.SNUB_MILLIS + 1;
+        candidates.subList(1, 5).forEach(candidate -> candidate.lastBlockReceivedMillis = now);
+
+        choker.rechoke();
+
+        assertTrue(candidates.get(1).isUnchoked());
+        assertTrue(candidates.get(2).isUnchoked());
+        assertTrue(candidates.get(3).isUnchoked());
+    }
+
+    @Test
+    void rechoke_seeding_rotatesLongUnchokedPeers() {
+        FakePeerGroup group = new FakePeerGroup(true);
+        List<FakeCandidate> candidates = group.addCandidates(8);
+        choker.register(group);
+
+        choker.rechoke();
+        List<FakeCandidate> choked = candidates.stream()
+                .filter(candidate -> !candidate.isUnchoked())
+                .toList();
+        now += Choker.ROUND_ROBIN_MILLIS;
+        choker.rechoke();
+
+        assertEquals(3, choked.size());
+        choked.forEach(candidate -> assertTrue(candidate.isUnchoked()));
+    }
+
+    @Test
+    void rechoke_everyGroupGetsSlot() {
+        FakePeerGroup fastGroup = new FakePeerGroup(false);
+        List<FakeCandidate> fastCandidates = fastGroup.addCandidates(8);
+        fastCandidates.forEach(candidate -> candidate.downloadRate += 1000);
+        FakePeerGroup slowGroup = new FakePeerGroup(false);
+        List<FakeCandidate> slowCandidates = slowGroup.addCandidates(1);
+        choker.register(fastGroup);
+        choker.register(slowGroup);
+
+        choker.rechoke();
+
+        assertTrue(slowCandidates.get(0).isUnchoked());
+    }
+
+    @Test
+    void rechoke_unchokeNotAllowed_chokedDespiteRank() {
+        FakePeerGroup group = new FakePeerGroup(false);
+        List<FakeCandidate> candidates = group.addCandidates(2);
+        choker.register(group);
+        choker.rechoke();
+
+        candidates.get(0).isUnchokeAllowed = false;
+        choker.rechoke();
+
+        assertFalse(candidates.get(0).isUnchoked());
+        assertTrue(candidates.get(1).isUnchoked());
+    }
+
+    @Test
+    void rechoke_afterRequestDropped_chokedOnceThenUnchokedAgain() {
+        List<PeerMessage> sentMessages = new ArrayList<>();
+        PeerSocket peerSocket = new PeerSocket() {
+            @Override
+            public void sendMessage(PeerMessage message) {
+                sentMessages.add(message);
+            }
+        };
+        Peer peer = new Peer(new PeerContactInfo(InetAddress.getLoopbackAddress(), 6881));
+        peer.setRemoteInterested(true);
+        PeerHandler peerHandler = new PeerHandler(peer, peerSocket, null);
+        FakePeerGroup group = new FakePeerGroup(false);
+        group.candidates.add(peerHandler);
+        choker.register(group);
+        choker.rechoke();
+
+        peerHandler.markRequestDropped();
+        choker.rechoke();
+        assertTrue(peerHandler.isRemoteChoked());
+        choker.rechoke();
+        choker.rechoke();
+
+        assertFalse(peerHandler.isRemoteChoked());
+        assertEquals(1, sentMessages.stream().filter(Choke.class::isInstance).count());
+    }
+
+    @Test
+    void rechoke_unregisteredGroupIgnored() {
+        FakePeerGroup group = new FakePeerGroup(false);
+        List<FakeCandidate> candidates = group.addCandidates(1);
+        choker.register(group);
+        choker.unregister(group);
+
+        choker.rechoke();
+
+        assertFalse(candidates.get(0).isUnchoked());
+    }
+
+    private static long countUnchoked(List<FakeCandidate> candidates) {
+        return candidates.stream()
+                .filter(FakeCandidate::isUnchoked)
+                .count();
+    }
+
+    private static class FakePeerGroup implements Choker.PeerGroup {
+
+        private final boolean isSeeding;
+        private final List<Choker.Candidate> candidates = new ArrayList<>();
+
+        private FakePeerGroup(boolean isSeeding) {
+            this.isSeeding = isSeeding;
+        }
+
+        /**
+         * Adds interested candidates in descending order of upload and download rate.
+         */
+        private List<FakeCandidate> addCandidates(int count) {
+            List<FakeCandidate> added = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                FakeCandidate candidate = new FakeCandidate();
+                candidate.uploadRate = count - i;
+                candidate.downloadRate = count - i;
+                added.add(candidate);
+            }
+            candidates.addAll(added);
+            return added;
+        }
+
+        @Override
+        public Collection<? extends Choker.Candidate> getCandidates() {
+            return candidates;
+        }
+
+        @Override
+        public boolean isSeeding() {
+            return isSeeding;
+        }
+    }
+
+    private static class FakeCandidate implements Choker.Candidate {
+
+        private boolean isRemoteInterested = true;
+        private boolean isLocalInterested = false;
+        private boolean isRemoteChoked = true;
+        private boolean isUnchokeAllowed = true;
+        private double uploadRate;
+        private double downloadRate;
+        private long lastBlockReceivedMillis;
+
+        private boolean isUnchoked() {
+            return !isRemoteChoked;
+        }
+
+        @Override
+        public boolean isRemoteInterested() {
+            return isRemoteInterested;
+        }
+
+        @Override
+        public boolean isLocalInterested() {
+            return isLocalInterested;
+        }
+
+        @Override
+        public boolean isRemoteChoked() {
+            return isRemoteChoked;
+        }
+
+        @Override
+        public boolean isUnchokeAllowed() {
+            return isUnchokeAllowed;
+        }
+
+        @Override
+        public double getUploadRate() {
+            return uploadRate;
+        }
+
+        @Override
+        public double getDownloadRate() {
+            return downloadRate;
+        }
+
+        @Override
+        public long getLastBlockReceivedMillis() {
+            return lastBlockReceivedMillis;
+        }
+
+        @Override
+        public void sendChoke() {
+            isRemoteChoked = true;
+        }
+
+        @Override
+        public void sendUnchoke() {
+            isRemoteChoked = false;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package jtorrent.domain.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class Bit160ValueTest {
+
+    private static final Random RANDOM = new Random(0);
+
+    private static Bit160Value fromBigInteger(BigInteger value) {
+        byte[] bytes = new byte[Bit160Value.SIZE_BYTES];
+        byte[] valueBytes = value.toByteArray();
+        int length = Math.min(valueBytes.length, Bit160Value.SIZE_BYTES);
+        System.arraycopy(valueBytes, valueBytes.length - length, bytes, Bit160Value.SIZE_BYTES - length, length);
+        return new Bit160Value(bytes);
+    }
+
+    private static Bit160Value random() {
+        byte[] bytes = new byte[Bit160Value.SIZE_BYTES];
+        RANDOM.nextBytes(bytes);
+        return new Bit160Value(bytes);
+    }
+
+    @Test
+    void numMatchingBits_returnsCommonPrefixLength() {
+        Bit160Value zero = new Bit160Value(new byte[Bit160Value.SIZE_BYTES]);
+
+        assertEquals(Bit160Value.SIZE_BITS, zero.numMatchingBits(zero));
+        assertEquals(0, zero.numMatchingBits(Bit160Value.MAX));
+        for (int i = 0; i < Bit160Value.SIZE_BITS; i++) {
+            // only the bit at index i from the most significant bit is set
+            Bit160Value value = fromBigInteger(BigInteger.ONE.shiftLeft(Bit160Value.SIZE_BITS - 1 - i));
+            assertEquals(i, zero.numMatchingBits(value));
+            assertEquals(i, value.numMatchingBits(zero));
+        }
+    }
+
+    @Test
+    void numMatchingBits_laterBitsMatch_notCounted() {
+        // 0b0101... and 0b0001... only have the first bit in common, even though they also match on the third bit
+        byte[] bytes1 = new byte[Bit160Value.SIZE_BYTES];
+        byte[] bytes2 = new byte[Bit160Value.SIZE_BYTES];
+        bytes1[0] = 0b0101_0000;
+        bytes2[0] = 0b0001_0000;
+
+        assertEquals(1, new Bit160Value(bytes1).numMatchingBits(new Bit160Value(bytes2)));
+    }
+
+    @Test
+    void compareDistances_matchesBigIntegerDistance() {
+        for (int i = 0; i < 1000; i++) {
+            Bit160Value target = random();
+            Bit160Value first = random();
+            // share a random number of leading bits with the first value so that every word is compared
+            BigInteger mask = BigInteger.ONE.shiftLeft(RANDOM.nextInt(Bit160Value.SIZE_BITS)).subtract(BigInteger.ONE);
+            Bit160Value second = fromBigInteger(first.toBigInteger().andNot(mask).or(random().toBigInteger().and(mask)));
+
+            BigInteger firstDistance = first.xor(target).toBigInteger();
+            BigInteger secondDistance = second.xor(target).toBigInteger();
+            assertEquals(Integer.signum(firstDistance.compareTo(secondDistance)),
+                    Integer.signum(target.compareDistances(first, second)));
+        }
+    }
+
+    @Test
+    void compareDistances_sameValue_returnsZero() {
+        Bit160Value target = random();
+        Bit160Value value = random();
+
+        assertEquals(0, target.compareDistances(value, new Bit160Value(value.getBytes())));
+    }
+}
@@ -0,0 +1,94 @@
+package jtorrent.domain.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PackedSha1HashesTest {
+
+    private static final List<Sha1Hash> HASHES = List.of(
+            Sha1Hash.of(new byte[] {1}),
+            Sha1Hash.of(new byte[] {2}),
+            Sha1Hash.of(new byte[] {3})
+    );
+
+    @Test
+    void get_returnsHashAtIndex() {
+        PackedSha1Hashes packedHashes = PackedSha1Hashes.of(HASHES);
+
+        assertEquals(3, packedHashes.size());
+        for (int i = 0; i < HASHES.size(); i++) {
+            assertEquals(HASHES.get(i), packedHashes.get(i));
+        }
+        assertArrayEquals(Sha1Hash.concatHashes(HASHES), packedHashes.getBytes());
+    }
+
+    @Test
+    void matches_comparesDigestWithHashAtIndex() {
+        PackedSha1Hashes packedHashes = PackedSha1Hashes.of(HASHES);
+
+        assertTrue(packedHashes.matches(1, Sha1Hash.digest(new byte[] {2})));
+        assertFalse(packedHashes.matches(1, Sha1Hash.digest(new byte[] {1})));
+        assertFalse(packedHashes.matches(1, new byte[0]));
+    }
+
+    @Test
+    void get_invalidIndex_throwsException() {
+        PackedSha1Hashes packedHashes = PackedSha1Hashes.of(HASHES);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> packedHashes.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> packedHashes.matches(-1, new byte[Sha1Hash.HASH_SIZE]));
+    }
+
+    @Test
+    void constructor_invalidLength_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> new PackedSha1Hashes(new byte[Sha1Hash.HASH_SIZE + 1]));
+    }
+
+    @Test
+    void read_returnsHashes() throws IOException {
+        byte[] bytes = Sha1Hash.concatHashes(HASHES);
+
+        PackedSha1Hashes packedHashes = PackedSha1Hashes.read(new ByteArrayInputStream(bytes), bytes.length);
+
+        assertArrayEquals(bytes, packedHashes.getBytes());
+    }
+
+    @Test
+    void read_longerThanMaxUnreadAllocation_returnsHashes() throws IOException {
+        int length = (PackedSha1Hashes.MAX_UNREAD_ALLOCATION / Sha1Hash.HASH_SIZE * 2 + 1) * Sha1Hash.HASH_SIZE;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+
+        PackedSha1Hashes packedHashes = PackedSha1Hashes.read(new ByteArrayInputStream(bytes), length);
+
+        assertArrayEquals(bytes, packedHashes.getBytes());
+    }
+
+    @Test
+    void read_declaredLengthExceedsStream_throwsBeforeAllocatingDeclaredLength() {
+        int length = Integer.MAX_VALUE / Sha1Hash.HASH_SIZE * Sha1Hash.HASH_SIZE;
+        InputStream inputStream = new ByteArrayInputStream(new byte[Sha1Hash.HASH_SIZE]);
+
+        assertThrows(EOFException.class, () -> PackedSha1Hashes.read(inputStream, length));
+    }
+
+    @Test
+    void read_invalidLength_throwsException() {
+        InputStream inputStream = new ByteArrayInputStream(new byte[Sha1Hash.HASH_SIZE + 1]);
+
+        assertThrows(IllegalArgumentException.class, () -> PackedSha1Hashes.read(inputStream, Sha1Hash.HASH_SIZE + 1));
+    }
+}
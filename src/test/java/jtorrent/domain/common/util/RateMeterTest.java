@@ -0,0 +1,63 @@
+package jtorrent.domain.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RateMeterTest {
+
+    @Test
+    void getRate_beforeFirstTick_isZero() {
+        RateMeter rateMeter = new RateMeter(5);
+        rateMeter.addBytes(1000);
+
+        assertEquals(0, rateMeter.getRate());
+    }
+
+    @Test
+    void getRate_partiallyFilledWindow_averagesOverElapsedSeconds() {
+        RateMeter rateMeter = new RateMeter(5);
+        rateMeter.addBytes(1000);
+        rateMeter.addBytes(500);
+        rateMeter.tick();
+        rateMeter.addBytes(500);
+        rateMeter.tick();
+
+        assertEquals(1000, rateMeter.getRate());
+    }
+
+    @Test
+    void getRate_oldBucketsLeaveWindow() {
+        RateMeter rateMeter = new RateMeter(2);
+        rateMeter.addBytes(3000);
+        rateMeter.tick();
+        rateMeter.addBytes(1000);
+        rateMeter.tick();
+        rateMeter.addBytes(1000);
+        rateMeter.tick();
+
+        assertEquals(1000, rateMeter.getRate());
+
+        rateMeter.tick();
+        rateMeter.tick();
+        assertEquals(0, rateMeter.getRate());
+    }
+
+    @Test
+    void getRateObservable_emitsOnlyOnChange() {
+        RateMeter rateMeter = new RateMeter(1);
+        List<Double> rates = new ArrayList<>();
+        rateMeter.getRateObservable().subscribe(rates::add);
+
+        rateMeter.addBytes(100);
+        rateMeter.tick();
+        rateMeter.addBytes(100);
+        rateMeter.tick();
+        rateMeter.tick();
+
+        assertEquals(List.of(0.0, 100.0, 0.0), rates);
+    }
+}
@@ -0,0 +1,98 @@
+package jtorrent.domain.common.util.bencode;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class BencodeReaderTest {
+
+    private static BencodeReader reader(String encoded) {
+        return new BencodeReader(new ByteArrayInputStream(encoded.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void readValue_materialisesNestedValues() throws IOException {
+        BencodeReader reader = reader("d4:listli-42e3:abce3:numi7ee");
+
+        Map<String, Object> expected = Map.of(
+                "list", List.of(-42L, ByteBuffer.wrap("abc".getBytes(StandardCharsets.US_ASCII))),
+                "num", 7L
+        );
+        assertEquals(expected, reader.readValue());
+    }
+
+    @Test
+    void skipValue_skipsNestedValues() throws IOException {
+        BencodeReader reader = reader("d4:skipd1:ali1ei2ee5:bytes3:xyze4:keepi1ee");
+
+        reader.beginDictionary();
+        assertEquals("skip", reader.readKey());
+        reader.skipValue();
+        assertEquals("keep", reader.readKey());
+        assertEquals(1, reader.readLong());
+        assertFalse(reader.hasNext());
+        reader.endDictionary();
+    }
+
+    @Test
+    void readString_skipsContentLeftUnread() throws IOException {
+        BencodeReader reader = reader("l5:abcdei3ee");
+
+        reader.beginList();
+        int firstByte = reader.readString((content, length) -> content.read());
+        assertEquals('a', firstByte);
+        assertEquals(3, reader.readLong());
+        reader.endList();
+    }
+
+    @Test
+    void startDigest_digestsRawBytesOfValue() throws IOException, NoSuchAlgorithmException {
+        String value = "d1:ai1e1:b5:abcdee";
+        BencodeReader reader = reader("d4:info" + value + "4:restlee");
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+        reader.beginDictionary();
+        reader.readKey();
+        reader.startDigest(digest);
+        reader.beginDictionary();
+        reader.readKey();
+        reader.readLong();
+        reader.readKey();
+        reader.readString((content, length) -> content.read());
+        reader.endDictionary();
+        reader.stopDigest();
+        reader.skipValue();
+        reader.skipValue();
+        reader.endDictionary();
+
+        byte[] expected = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.US_ASCII));
+        assertArrayEquals(expected, digest.digest());
+    }
+
+    @Test
+    void readBytes_truncated_throwsEofException() {
+        BencodeReader reader = reader("5:abc");
+
+        assertThrows(EOFException.class, reader::readBytes);
+    }
+
+    @Test
+    void readLong_invalid_throwsIoException() {
+        assertThrows(IOException.class, () -> reader("ie").readLong());
+        assertThrows(IOException.class, () -> reader("i1x2e").readLong());
+        assertThrows(IOException.class, () -> reader("i99999999999999999999e").readLong());
+    }
+}
@@ -0,0 +1,47 @@
+package jtorrent.domain.common.util.bencode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class BencodeWriterTest {
+
+    private static String write(Object value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new BencodeWriter(baos).writeValue(value);
+        return baos.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void writeValue_nestedValues() throws IOException {
+        Map<String, Object> value = Map.of(
+                "list", List.of(-42, "abc", 'c'),
+                "bytes", new byte[] {'x', 'y'}
+        );
+
+        assertEquals("d5:bytes2:xy4:listli-42e3:abc1:cee", write(value));
+    }
+
+    @Test
+    void writeValue_sortsKeysByRawBytes() throws IOException {
+        Map<Object, Object> value = Map.of(
+                "b", 1,
+                new byte[] {(byte) 0xff}, 2,
+                "a", 3
+        );
+
+        assertEquals("d1:ai3e1:bi1e1:\u00ffi2ee", write(value));
+    }
+
+    @Test
+    void writeValue_unsupportedType_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> write(List.of(new Object())));
+    }
+}
@@ -0,0 +1,155 @@
+package jtorrent.domain.common.util.rx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.rxjava3.core.Observer;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+class RxObservableBitSetTest {
+
+    @Test
+    void subscribe_emitsEntireBitSet() {
+        BitSet initial = new BitSet();
+        initial.set(2, 4);
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(initial, 6);
+        List<BitSetChange> changes = new ArrayList<>();
+
+        observableBitSet.subscribe(changes::add);
+
+        List<BitSetChange.Range> expected = List.of(
+                new BitSetChange.Range(0, 2, false),
+                new BitSetChange.Range(2, 4, true),
+                new BitSetChange.Range(4, 6, false)
+        );
+        assertEquals(List.of(new BitSetChange(expected, 2)), changes);
+    }
+
+    @Test
+    void subscribe_onSubscribeCalledBeforeSnapshot() {
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(new BitSet(), 4);
+        List<String> events = new ArrayList<>();
+
+        observableBitSet.subscribe(new Observer<BitSetChange>() {
+            @Override
+            public void onSubscribe(Disposable d) {
+                events.add("subscribe");
+            }
+
+            @Override
+            public void onNext(BitSetChange change) {
+                events.add("next");
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                events.add("error");
+            }
+
+            @Override
+            public void onComplete() {
+                events.add("complete");
+            }
+        });
+
+        assertEquals(List.of("subscribe", "next"), events);
+    }
+
+    @Test
+    void flush_emitsChangedBitsAsRanges() {
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(new BitSet(), 10);
+        observableBitSet.set(7);
+        List<BitSetChange> changes = new ArrayList<>();
+        observableBitSet.subscribe(changes::add);
+        changes.clear();
+
+        observableBitSet.set(1);
+        observableBitSet.set(2);
+        observableBitSet.clear(7);
+        observableBitSet.set(8);
+        observableBitSet.flush();
+
+        List<BitSetChange.Range> expected = List.of(
+                new BitSetChange.Range(1, 3, true),
+                new BitSetChange.Range(7, 8, false),
+                new BitSetChange.Range(8, 9, true)
+        );
+        assertEquals(List.of(new BitSetChange(expected, 3)), changes);
+    }
+
+    @Test
+    void flush_bitChangedBack_emitsNothing() {
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(new BitSet(), 10);
+        List<BitSetChange> changes = new ArrayList<>();
+        observableBitSet.subscribe(changes::add);
+        changes.clear();
+
+        observableBitSet.set(4);
+        observableBitSet.clear(4);
+        observableBitSet.flush();
+
+        assertEquals(List.of(), changes);
+    }
+
+    @Test
+    void applyTo_appliedChanges_matchBitSet() {
+        BitSet initial = new BitSet();
+        initial.set(0, 5);
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(initial, 20);
+        BitSet observed = new BitSet();
+        observableBitSet.subscribe(change -> change.applyTo(observed));
+
+        observableBitSet.clear(3);
+        observableBitSet.set(10);
+        observableBitSet.set(19);
+        observableBitSet.flush();
+        observableBitSet.set(11);
+        observableBitSet.flush();
+
+        assertEquals(observableBitSet.getBitSet(), observed);
+    }
+
+    @Test
+    void set_alreadySet_returnsFalse() {
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(new BitSet(), 4);
+
+        assertTrue(observableBitSet.set(1));
+        assertFalse(observableBitSet.set(1));
+        assertTrue(observableBitSet.clear(1));
+        assertFalse(observableBitSet.clear(1));
+    }
+
+    @Test
+    void containsAll_allIndicesSet_returnsTrue() {
+        BitSet initial = new BitSet();
+        initial.set(0, 4);
+        initial.set(6, 9);
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(initial, 10);
+        BitSet indices = new BitSet();
+        indices.set(1, 3);
+        indices.set(7);
+
+        assertTrue(observableBitSet.containsAll(indices));
+        assertTrue(observableBitSet.containsAll(new BitSet()));
+    }
+
+    @Test
+    void containsAll_someIndexNotSet_returnsFalse() {
+        BitSet initial = new BitSet();
+        initial.set(0, 4);
+        initial.set(6, 9);
+        RxObservableBitSet observableBitSet = new RxObservableBitSet(initial, 10);
+        BitSet indices = new BitSet();
+        indices.set(2);
+        indices.set(5);
+
+        assertFalse(observableBitSet.containsAll(indices));
+    }
+}
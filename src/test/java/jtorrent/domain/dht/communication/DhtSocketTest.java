@@ -0,0 +1,133 @@
+package jtorrent.domain.dht.communication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.dht.model.message.query.AnnouncePeer;
+import jtorrent.domain.dht.model.message.query.FindNode;
+import jtorrent.domain.dht.model.message.query.GetPeers;
+import jtorrent.domain.dht.model.message.query.Ping;
+import jtorrent.domain.dht.model.message.response.PingResponse;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+
+class DhtSocketTest {
+
+    private static final NodeId LOCAL_ID = NodeId.random();
+    private static final NodeId REMOTE_ID = NodeId.random();
+
+    private DatagramChannel localChannel;
+    private DatagramChannel remoteChannel;
+    private DhtSocket localSocket;
+    private DhtSocket remoteSocket;
+
+    private static DatagramChannel openLoopbackChannel() throws IOException {
+        return DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Creates a socket that responds to pings with the given ID.
+     */
+    private static DhtSocket createSocket(DatagramChannel channel, NodeId id) throws IOException {
+        RespondingQueryHandler queryHandler = new RespondingQueryHandler(id);
+        DhtSocket socket = new DhtSocket(channel, queryHandler);
+        queryHandler.socket = socket;
+        return socket;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        localChannel = openLoopbackChannel();
+        remoteChannel = openLoopbackChannel();
+        localSocket = createSocket(localChannel, LOCAL_ID);
+        remoteSocket = createSocket(remoteChannel, REMOTE_ID);
+        localSocket.start();
+        remoteSocket.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        localSocket.stop();
+        remoteSocket.stop();
+    }
+
+    @Test
+    void sendPing_responseReceived() throws Exception {
+        InetSocketAddress remoteAddress = (InetSocketAddress) remoteChannel.getLocalAddress();
+
+        PingResponse response = localSocket.sendPing(new Ping(LOCAL_ID), remoteAddress).get(5, TimeUnit.SECONDS);
+
+        assertEquals(REMOTE_ID, response.getId());
+        assertEquals(1, remoteSocket.getStatistics().getNumReceived());
+        assertEquals(1, localSocket.getStatistics().getNumReceived());
+    }
+
+    @Test
+    void malformedPacket_counted() throws Exception {
+        byte[] data = "not bencoded".getBytes(StandardCharsets.US_ASCII);
+        try (DatagramChannel sender = openLoopbackChannel()) {
+            sender.send(ByteBuffer.wrap(data), remoteChannel.getLocalAddress());
+        }
+
+        awaitTrue(() -> remoteSocket.getStatistics().getNumMalformed() == 1);
+        assertEquals(1, remoteSocket.getStatistics().getNumReceived());
+        assertEquals(0, remoteSocket.getStatistics().getNumDropped());
+    }
+
+    @Test
+    void getStatistics_receiveBufferSizeSet() {
+        assertTrue(remoteSocket.getStatistics().getReceiveBufferSize() > 0);
+    }
+
+    private static class RespondingQueryHandler implements DhtSocket.QueryHandler {
+
+        private final NodeId id;
+        private DhtSocket socket;
+
+        private RespondingQueryHandler(NodeId id) {
+            this.id = id;
+        }
+
+        @Override
+        public void handle(Ping ping, NodeContactInfo nodeContactInfo) {
+            try {
+                socket.sendResponse(new PingResponse(ping.getTransactionId(), id), nodeContactInfo.getSocketAddress());
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void handle(FindNode findNode, NodeContactInfo nodeContactInfo) {
+        }
+
+        @Override
+        public void handle(GetPeers getPeers, NodeContactInfo nodeContactInfo) {
+        }
+
+        @Override
+        public void handle(AnnouncePeer announcePeer, NodeContactInfo nodeContactInfo) {
+        }
+    }
+}
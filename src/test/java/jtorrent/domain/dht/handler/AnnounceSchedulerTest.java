@@ -0,0 +1,268 @@
+package jtorrent.domain.dht.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+
+class AnnounceSchedulerTest {
+
+    private static final long MINUTE_MILLIS = 60_000;
+
+    private final List<Sha1Hash> lookedUp = new ArrayList<>();
+    private final Map<Sha1Hash, CompletableFuture<Void>> infoHashToLookup = new HashMap<>();
+    private ScheduledExecutorService executorService;
+    private AnnounceScheduler scheduler;
+    private long now;
+    private boolean isCompletingLookups;
+    private int nextInfoHash;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        isCompletingLookups = true;
+        executorService = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new AnnounceScheduler(executorService, this::lookup, () -> now, new Random(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private CompletableFuture<?> lookup(Sha1Hash infoHash) {
+        lookedUp.add(infoHash);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        infoHashToLookup.put(infoHash, future);
+        if (isCompletingLookups) {
+            future.complete(null);
+        }
+        return future;
+    }
+
+    private Sha1Hash register(boolean isSeeding, int numPeers) {
+        byte[] bytes = new byte[Sha1Hash.HASH_SIZE];
+        bytes[0] = (byte) (nextInfoHash >> 8);
+        bytes[1] = (byte) nextInfoHash++;
+        Sha1Hash infoHash = new Sha1Hash(bytes);
+        assertTrue(scheduler.register(infoHash, new FakeStatus(isSeeding, numPeers)));
+        return infoHash;
+    }
+
+    /**
+     * Advances the clock in ticks up to the given time, ticking after every step.
+     */
+    private void tickUntil(long time) {
+        while (now < time) {
+            now = Math.min(now + AnnounceScheduler.TICK_MILLIS, time);
+            scheduler.tick();
+        }
+    }
+
+    @Test
+    void register_shortOfPeers_lookedUpOnFirstTick() {
+        Sha1Hash infoHash = register(false, 0);
+
+        scheduler.tick();
+
+        assertEquals(List.of(infoHash), lookedUp);
+    }
+
+    @Test
+    void register_alreadyRegistered_returnsFalse() {
+        Sha1Hash infoHash = register(false, 0);
+
+        assertFalse(scheduler.register(infoHash, new FakeStatus(false, 0)));
+    }
+
+    @Test
+    void tick_moreLookupsDue_startsGreatestDemandFirst() {
+        for (int i = 0; i < 10; i++) {
+            register(true, AnnounceScheduler.WANTED_PEERS);
+        }
+        Sha1Hash downloading = register(false, AnnounceScheduler.WANTED_PEERS);
+        Sha1Hash shortOfPeers = register(false, 0);
+        now = 30 * MINUTE_MILLIS;
+
+        scheduler.tick();
+
+        assertEquals(AnnounceScheduler.MAX_LOOKUPS_PER_TICK, lookedUp.size());
+        assertEquals(shortOfPeers, lookedUp.get(0));
+        assertEquals(downloading, lookedUp.get(1));
+    }
+
+    @Test
+    void tick_limitsConcurrentLookups() {
+        isCompletingLookups = false;
+        for (int i = 0; i < AnnounceScheduler.MAX_CONCURRENT_LOOKUPS * 2; i++) {
+            register(false, 0);
+        }
+
+        tickUntil(MINUTE_MILLIS);
+
+        assertEquals(AnnounceScheduler.MAX_CONCURRENT_LOOKUPS, lookedUp.size());
+        assertEquals(AnnounceScheduler.MAX_CONCURRENT_LOOKUPS, scheduler.getNumLookupsInProgress());
+
+        infoHashToLookup.get(lookedUp.get(0)).complete(null);
+        scheduler.tick();
+
+        assertEquals(AnnounceScheduler.MAX_CONCURRENT_LOOKUPS + 1, lookedUp.size());
+    }
+
+    @Test
+    void tick_healthySeed_backsOffToMaxInterval() {
+        register(true, AnnounceScheduler.WANTED_PEERS);
+        List<Long> lookupTimes = new ArrayList<>();
+
+        while (lookupTimes.size() < 4) {
+            tickUntil(now + AnnounceScheduler.TICK_MILLIS);
+            if (lookedUp.size() > lookupTimes.size()) {
+                lookupTimes.add(now);
+            }
+        }
+
+        assertTrue(lookupTimes.get(0) <= 15 * MINUTE_MILLIS);
+        assertInterval(15 * MINUTE_MILLIS, lookupTimes.get(1) - lookupTimes.get(0));
+        assertInterval(25 * MINUTE_MILLIS, lookupTimes.get(2) - lookupTimes.get(1));
+        assertInterval(25 * MINUTE_MILLIS, lookupTimes.get(3) - lookupTimes.get(2));
+    }
+
+    @Test
+    void tick_healthySeed_announcedBeforePeerExpiration() {
+        register(true, AnnounceScheduler.WANTED_PEERS);
+        long previousLookupTime = 0;
+
+        for (int i = 0; i < 100; i++) {
+            int numLookups = lookedUp.size();
+            while (lookedUp.size() == numLookups) {
+                tickUntil(now + AnnounceScheduler.TICK_MILLIS);
+            }
+
+            assertTrue(now - previousLookupTime < PeerContactInfoStore.PEER_EXPIRATION_MILLIS,
+                    "Looked up " + (now - previousLookupTime) + " ms after the previous lookup");
+            previousLookupTime = now;
+        }
+    }
+
+    private static void assertInterval(long expected, long actual) {
+        long tolerance = (long) (expected * AnnounceScheduler.JITTER) + AnnounceScheduler.TICK_MILLIS;
+        assertTrue(Math.abs(actual - expected) <= tolerance, "Expected about " + expected + " but was " + actual);
+    }
+
+    @Test
+    void tick_demandIncreases_lookedUpAtNewInterval() {
+        Sha1Hash infoHash = new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]);
+        FakeStatus status = new FakeStatus(true, AnnounceScheduler.WANTED_PEERS);
+        scheduler.register(infoHash, status);
+        tickUntil(45 * MINUTE_MILLIS);
+        int numLookups = lookedUp.size();
+
+        status.numPeers = 0;
+        status.isSeeding = false;
+        // the lookup that was scheduled while the torrent was healthy is moved forward
+        tickUntil(now + MINUTE_MILLIS);
+        int numLookupsAfterDemandIncreased = lookedUp.size();
+        tickUntil(now + 5 * MINUTE_MILLIS);
+
+        assertEquals(numLookups + 1, numLookupsAfterDemandIncreased);
+        assertTrue(lookedUp.size() - numLookupsAfterDemandIncreased >= 4);
+    }
+
+    @Test
+    void tick_demandIncreasesBeforeFirstLookup_lookedUpOnNextTick() {
+        FakeStatus status = new FakeStatus(true, AnnounceScheduler.WANTED_PEERS);
+        Sha1Hash infoHash = new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]);
+        scheduler.register(infoHash, status);
+        scheduler.tick();
+        assertTrue(lookedUp.isEmpty());
+
+        status.numPeers = 0;
+        scheduler.tick();
+
+        assertEquals(List.of(infoHash), lookedUp);
+    }
+
+    @Test
+    void tick_demandDecreases_dueTimeUnchanged() {
+        FakeStatus status = new FakeStatus(false, 0);
+        Sha1Hash infoHash = new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]);
+        scheduler.register(infoHash, status);
+        scheduler.tick();
+        lookedUp.clear();
+
+        status.numPeers = AnnounceScheduler.WANTED_PEERS;
+        // still looked up at the interval it was scheduled at while it was short of peers
+        tickUntil(now + (long) (MINUTE_MILLIS * (1 + AnnounceScheduler.JITTER)) + AnnounceScheduler.TICK_MILLIS);
+
+        assertTrue(lookedUp.contains(infoHash));
+    }
+
+    @Test
+    void register_manyHealthySeeds_lookupsSpreadOverInterval() {
+        int numTorrents = 300;
+        for (int i = 0; i < numTorrents; i++) {
+            register(true, AnnounceScheduler.WANTED_PEERS);
+        }
+
+        int[] lookupsPerMinute = new int[15];
+        for (int minute = 0; minute < lookupsPerMinute.length; minute++) {
+            int numLookupsBefore = lookedUp.size();
+            tickUntil((minute + 1) * MINUTE_MILLIS);
+            lookupsPerMinute[minute] = lookedUp.size() - numLookupsBefore;
+        }
+
+        assertEquals(numTorrents, new HashSet<>(lookedUp).size());
+        for (int numLookups : lookupsPerMinute) {
+            // an even spread would be 20 lookups per minute
+            assertTrue(numLookups < 40, "Too many lookups in one minute: " + numLookups);
+        }
+    }
+
+    @Test
+    void deregister_noMoreLookups() {
+        Sha1Hash infoHash = register(false, 0);
+        scheduler.tick();
+
+        assertTrue(scheduler.deregister(infoHash));
+        tickUntil(60 * MINUTE_MILLIS);
+
+        assertEquals(1, lookedUp.size());
+        assertFalse(scheduler.deregister(infoHash));
+    }
+
+    private static class FakeStatus implements AnnounceScheduler.TorrentStatusProvider {
+
+        private boolean isSeeding;
+        private int numPeers;
+
+        private FakeStatus(boolean isSeeding, int numPeers) {
+            this.isSeeding = isSeeding;
+            this.numPeers = numPeers;
+        }
+
+        @Override
+        public boolean isSeeding() {
+            return isSeeding;
+        }
+
+        @Override
+        public int getNumPeers() {
+            return numPeers;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package jtorrent.domain.dht.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.peer.model.PeerContactInfo;
+
+class PeerContactInfoStoreTest {
+
+    private static final Sha1Hash INFO_HASH = infoHash(0);
+    private static final int MAX_INFO_HASHES = 3;
+    private static final int MAX_PEERS_PER_INFO_HASH = 100;
+    private static final int MAX_PEERS = 150;
+
+    private PeerContactInfoStore store;
+    private long now;
+
+    private static Sha1Hash infoHash(int i) {
+        byte[] bytes = new byte[Sha1Hash.HASH_SIZE];
+        bytes[0] = (byte) i;
+        return new Sha1Hash(bytes);
+    }
+
+    private static PeerContactInfo ipv4Peer(int i) throws UnknownHostException {
+        return new PeerContactInfo(InetAddress.getByAddress(new byte[] {10, 0, (byte) (i >> 8), (byte) i}), 6881 + i);
+    }
+
+    private static PeerContactInfo ipv6Peer(int i) throws UnknownHostException {
+        byte[] address = new byte[16];
+        address[0] = 0x20;
+        address[1] = 0x01;
+        address[14] = (byte) (i >> 8);
+        address[15] = (byte) i;
+        return new PeerContactInfo(InetAddress.getByAddress(address), 65535 - i);
+    }
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        store = new PeerContactInfoStore(MAX_INFO_HASHES, MAX_PEERS_PER_INFO_HASH, MAX_PEERS, () -> now,
+                new Random(0));
+    }
+
+    @Test
+    void getPeerContactInfos_peerAddedTwice_returnedOnce() throws UnknownHostException {
+        assertTrue(store.addPeerContactInfo(INFO_HASH, ipv4Peer(1)));
+        assertTrue(store.addPeerContactInfo(INFO_HASH, ipv4Peer(1)));
+
+        assertEquals(List.of(ipv4Peer(1)), store.getPeerContactInfos(INFO_HASH));
+        assertEquals(1, store.getNumPeers());
+    }
+
+    @Test
+    void addPeerContactInfo_ipv6Peer_notAdded() throws UnknownHostException {
+        store.addPeerContactInfo(INFO_HASH, ipv4Peer(1));
+
+        assertFalse(store.addPeerContactInfo(INFO_HASH, ipv6Peer(1)));
+
+        assertEquals(List.of(ipv4Peer(1)), store.getPeerContactInfos(INFO_HASH));
+        assertEquals(1, store.getNumPeers());
+    }
+
+    @Test
+    void getPeerContactInfos_manyPeers_returnsDistinctRandomSample() throws UnknownHostException {
+        for (int i = 0; i < MAX_PEERS_PER_INFO_HASH; i++) {
+            store.addPeerContactInfo(INFO_HASH, ipv4Peer(i));
+        }
+
+        Collection<PeerContactInfo> first = store.getPeerContactInfos(INFO_HASH);
+        Collection<PeerContactInfo> second = store.getPeerContactInfos(INFO_HASH);
+
+        assertEquals(PeerContactInfoStore.MAX_PEERS_IN_RESPONSE, new HashSet<>(first).size());
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void getPeerContactInfos_peerExpired_notReturned() throws UnknownHostException {
+        store.addPeerContactInfo(INFO_HASH, ipv4Peer(1));
+        now = PeerContactInfoStore.PEER_EXPIRATION_MILLIS / 2;
+        store.addPeerContactInfo(INFO_HASH, ipv4Peer(2));
+        now = PeerContactInfoStore.PEER_EXPIRATION_MILLIS;
+
+        assertEquals(List.of(ipv4Peer(2)), store.getPeerContactInfos(INFO_HASH));
+        assertEquals(1, store.getNumPeers());
+    }
+
+    @Test
+    void addPeerContactInfo_reannounced_expirationRefreshed() throws UnknownHostException {
+        store.addPeerContactInfo(INFO_HASH, ipv4Peer(1));
+        now = PeerContactInfoStore.PEER_EXPIRATION_MILLIS - 1;
+        store.addPeerContactInfo(INFO_HASH, ipv4Peer(1));
+        now = PeerContactInfoStore.PEER_EXPIRATION_MILLIS + 1;
+
+        assertEquals(List.of(ipv4Peer(1)), store.getPeerContactInfos(INFO_HASH));
+    }
+
+    @Test
+    void addPeerContactInfo_infoHashExpired_removed() throws UnknownHostException {
+        store.addPeerContactInfo(infoHash(1), ipv4Peer(1));
+        now = PeerContactInfoStore.PEER_EXPIRATION_MILLIS;
+        store.addPeerContactInfo(infoHash(2), ipv4Peer(2));
+
+        assertEquals(1, store.getNumInfoHashes());
+        assertEquals(1, store.getNumPeers());
+    }
+
+    @Test
+    void addPeerContactInfo_infoHashFull_replacesLeastRecentlyAnnounced() throws UnknownHostException {
+        for (int i = 0; i < MAX_PEERS_PER_INFO_HASH; i++) {
+            store.addPeerContactInfo(INFO_HASH, ipv4Peer(i));
+            now++;
+        }
+        store.addPeerContactInfo(INFO_HASH, ipv4Peer(MAX_PEERS_PER_INFO_HASH));
+
+        Set<PeerContactInfo> peers = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            peers.addAll(store.getPeerContactInfos(INFO_HASH));
+        }
+        assertEquals(MAX_PEERS_PER_INFO_HASH, store.getNumPeers());
+        assertTrue(peers.contains(ipv4Peer(MAX_PEERS_PER_INFO_HASH)));
+        assertFalse(peers.contains(ipv4Peer(0)));
+    }
+
+    @Test
+    void addPeerContactInfo_tooManyInfoHashes_evictsLeastRecentlyAnnounced() throws UnknownHostException {
+        for (int i = 0; i <= MAX_INFO_HASHES; i++) {
+            store.addPeerContactInfo(infoHash(i), ipv4Peer(i));
+        }
+
+        assertEquals(MAX_INFO_HASHES, store.getNumInfoHashes());
+        assertTrue(store.getPeerContactInfos(infoHash(0)).isEmpty());
+        assertEquals(List.of(ipv4Peer(1)), store.getPeerContactInfos(infoHash(1)));
+    }
+
+    @Test
+    void addPeerContactInfo_tooManyPeers_evictsLeastRecentlyAnnounced() throws UnknownHostException {
+        for (int i = 0; i < MAX_PEERS_PER_INFO_HASH; i++) {
+            store.addPeerContactInfo(infoHash(1), ipv4Peer(i));
+        }
+        int numPeers = MAX_PEERS - MAX_PEERS_PER_INFO_HASH + 1;
+        for (int i = 0; i < numPeers; i++) {
+            store.addPeerContactInfo(infoHash(2), ipv4Peer(i));
+        }
+
+        assertEquals(1, store.getNumInfoHashes());
+        assertEquals(numPeers, store.getNumPeers());
+        assertTrue(store.getPeerContactInfos(infoHash(1)).isEmpty());
+    }
+}
@@ -0,0 +1,228 @@
+package jtorrent.domain.dht.handler.lookup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Bit160Value;
+import jtorrent.domain.dht.handler.DhtManager;
+import jtorrent.domain.dht.handler.node.Node;
+import jtorrent.domain.dht.handler.util.DistanceToTargetComparator;
+import jtorrent.domain.dht.model.message.response.FindNodeResponse;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+
+class IterativeLookupTest {
+
+    private static final int NUM_NODES = 500;
+    private static final Duration SHORT_TIMEOUT = Duration.ofMillis(100);
+
+    private final Random random = new Random(0);
+    private ScheduledExecutorService network;
+    private List<Node> nodes;
+
+    @BeforeEach
+    void setUp() {
+        network = Executors.newScheduledThreadPool(2);
+        nodes = new ArrayList<>(NUM_NODES);
+        for (int i = 0; i < NUM_NODES; i++) {
+            NodeId id = randomId();
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", i + 1);
+            nodes.add(Node.withContactInfo(new NodeContactInfo(id, address)));
+        }
+    }
+
+    private NodeId randomId() {
+        return NodeId.fromBigInteger(new BigInteger(Bit160Value.SIZE_BITS, random));
+    }
+
+    @AfterEach
+    void tearDown() {
+        network.shutdownNow();
+    }
+
+    private static Set<NodeId> getIds(Collection<Node> nodes) {
+        return nodes.stream()
+                .map(Node::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<NodeId> getClosestIds(NodeId target, Predicate<Node> filter) {
+        return nodes.stream()
+                .filter(filter)
+                .sorted(new DistanceToTargetComparator(target))
+                .limit(DhtManager.K)
+                .map(Node::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private List<Node> getInitialNodes() {
+        // the furthest nodes from the target are as likely as any other, so a fixed sample is enough
+        return nodes.subList(0, DhtManager.ALPHA);
+    }
+
+    @Test
+    void lookup_findsClosestNodes() {
+        NodeId target = randomId();
+        SimulatedLookup lookup = new SimulatedLookup(node -> true, IterativeLookup.DEFAULT_QUERY_TIMEOUT,
+                IterativeLookup.DEFAULT_LOOKUP_TIMEOUT);
+
+        Collection<Node> result = lookup.lookup(target, getInitialNodes());
+
+        assertEquals(getClosestIds(target, node -> true), getIds(result));
+        assertTrue(lookup.maxQueriesInFlight.get() <= DhtManager.ALPHA);
+        assertTrue(lookup.numQueries.get() > DhtManager.K);
+    }
+
+    @Test
+    void lookup_unresponsiveNodes_failAfterQueryTimeout() {
+        NodeId target = randomId();
+        Set<Node> unresponsiveNodes = new HashSet<>(nodes.subList(0, NUM_NODES / 4));
+        Predicate<Node> isResponsive = node -> !unresponsiveNodes.contains(node);
+        SimulatedLookup lookup = new SimulatedLookup(isResponsive, SHORT_TIMEOUT,
+                IterativeLookup.DEFAULT_LOOKUP_TIMEOUT);
+
+        Collection<Node> result = lookup.lookup(target, nodes.subList(0, NUM_NODES / 4 + DhtManager.ALPHA));
+
+        assertEquals(getClosestIds(target, isResponsive), getIds(result));
+    }
+
+    @Test
+    void lookup_unresponsiveNodes_queriesNotSentFromTimerThread() {
+        NodeId target = randomId();
+        Set<Node> unresponsiveNodes = new HashSet<>(nodes.subList(0, NUM_NODES / 4));
+        SimulatedLookup lookup = new SimulatedLookup(node -> !unresponsiveNodes.contains(node), SHORT_TIMEOUT,
+                IterativeLookup.DEFAULT_LOOKUP_TIMEOUT);
+
+        lookup.lookup(target, nodes.subList(0, NUM_NODES / 4 + DhtManager.ALPHA));
+
+        assertTrue(lookup.queryThreadNames.stream().noneMatch(name -> name.contains("Delay")),
+                "Queried from " + lookup.queryThreadNames);
+    }
+
+    @Test
+    void lookup_deadlinePassed_completesWithNodesSeen() {
+        NodeId target = randomId();
+        Set<Node> initialNodes = new HashSet<>(getInitialNodes());
+        // only the initial nodes respond, and the nodes they return never do
+        SimulatedLookup lookup = new SimulatedLookup(initialNodes::contains, IterativeLookup.DEFAULT_LOOKUP_TIMEOUT,
+                SHORT_TIMEOUT);
+
+        long start = System.nanoTime();
+        Collection<Node> result = lookup.lookup(target, getInitialNodes());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < IterativeLookup.DEFAULT_QUERY_TIMEOUT.toMillis());
+        assertFalse(result.isEmpty());
+        assertTrue(result.size() <= DhtManager.K);
+    }
+
+    @Test
+    void lookupAsync_manyConcurrentLookups_allComplete() {
+        int numLookups = 1000;
+        List<NodeId> targets = new ArrayList<>(numLookups);
+        List<SimulatedLookup> lookups = new ArrayList<>(numLookups);
+        List<CompletableFuture<Collection<Node>>> results = new ArrayList<>(numLookups);
+
+        for (int i = 0; i < numLookups; i++) {
+            NodeId target = randomId();
+            SimulatedLookup lookup = new SimulatedLookup(node -> true, IterativeLookup.DEFAULT_QUERY_TIMEOUT,
+                    IterativeLookup.DEFAULT_LOOKUP_TIMEOUT);
+            targets.add(target);
+            lookups.add(lookup);
+            results.add(lookup.lookupAsync(target, getInitialNodes()));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .orTimeout(20, TimeUnit.SECONDS)
+                .join();
+
+        for (int i = 0; i < numLookups; i++) {
+            assertEquals(getClosestIds(targets.get(i), node -> true), getIds(results.get(i).join()));
+            assertTrue(lookups.get(i).maxQueriesInFlight.get() <= DhtManager.ALPHA);
+        }
+    }
+
+    @Test
+    void lookupAsync_alreadyStarted_throwsException() {
+        NodeId target = randomId();
+        SimulatedLookup lookup = new SimulatedLookup(node -> true, IterativeLookup.DEFAULT_QUERY_TIMEOUT,
+                IterativeLookup.DEFAULT_LOOKUP_TIMEOUT);
+
+        lookup.lookup(target, getInitialNodes());
+
+        assertThrows(IllegalStateException.class, () -> lookup.lookupAsync(target, getInitialNodes()));
+    }
+
+    /**
+     * A find node lookup over a simulated network, in which every responsive node answers after a short delay.
+     * <p>
+     * Each node only returns nodes that are about halfway between itself and the target, so a lookup needs several
+     * rounds of queries to reach the closest nodes.
+     */
+    private class SimulatedLookup extends FindNodeLookup {
+
+        private final Predicate<Node> isResponsive;
+        private final AtomicInteger numQueriesInFlight = new AtomicInteger();
+        private final AtomicInteger maxQueriesInFlight = new AtomicInteger();
+        private final AtomicInteger numQueries = new AtomicInteger();
+        private final Set<String> queryThreadNames = ConcurrentHashMap.newKeySet();
+
+        private SimulatedLookup(Predicate<Node> isResponsive, Duration queryTimeout, Duration lookupTimeout) {
+            super(queryTimeout, lookupTimeout);
+            this.isResponsive = isResponsive;
+        }
+
+        @Override
+        protected CompletableFuture<FindNodeResponse> doQuery(Node node, NodeId target) {
+            numQueries.incrementAndGet();
+            queryThreadNames.add(Thread.currentThread().getName());
+            CompletableFuture<FindNodeResponse> future = new CompletableFuture<>();
+            if (!isResponsive.test(node)) {
+                return future;
+            }
+
+            maxQueriesInFlight.accumulateAndGet(numQueriesInFlight.incrementAndGet(), Math::max);
+            network.schedule(() -> {
+                numQueriesInFlight.decrementAndGet();
+                future.complete(new FindNodeResponse(NodeId.random(), getNodesToReturn(node, target)));
+            }, 1, TimeUnit.MILLISECONDS);
+            return future;
+        }
+
+        private List<NodeContactInfo> getNodesToReturn(Node node, NodeId target) {
+            DistanceToTargetComparator comparator = new DistanceToTargetComparator(target);
+            List<Node> closerNodes = nodes.stream()
+                    .filter(other -> comparator.compare(other, node) < 0)
+                    .sorted(comparator)
+                    .collect(Collectors.toList());
+            int from = Math.max(0, Math.min(closerNodes.size() / 2, closerNodes.size() - DhtManager.K));
+            return closerNodes.subList(from, Math.min(from + DhtManager.K, closerNodes.size())).stream()
+                    .map(Node::getNodeContactInfo)
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package jtorrent.domain.dht.handler.lookup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Bit160Value;
+import jtorrent.domain.dht.handler.DhtManager;
+import jtorrent.domain.dht.handler.node.Node;
+import jtorrent.domain.dht.handler.util.DistanceToTargetComparator;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+
+class RecentLookupCacheTest {
+
+    private long now;
+    private RecentLookupCache cache;
+    private int nextPort = 1;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        cache = new RecentLookupCache(() -> now);
+    }
+
+    /**
+     * Creates an ID that has the given number of leading bits in common with the target, followed by a differing bit.
+     */
+    private static NodeId idWithMatchingBits(Bit160Value target, int numMatchingBits, int lowerBits) {
+        int differingBit = Bit160Value.SIZE_BITS - 1 - numMatchingBits;
+        BigInteger lowerBitsMask = BigInteger.ONE.shiftLeft(differingBit).subtract(BigInteger.ONE);
+        BigInteger id = target.toBigInteger()
+                .flipBit(differingBit)
+                .andNot(lowerBitsMask)
+                .or(BigInteger.valueOf(lowerBits).and(lowerBitsMask));
+        return NodeId.fromBigInteger(id);
+    }
+
+    private List<Node> createNodes(Bit160Value target, int numMatchingBits) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < DhtManager.K; i++) {
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", nextPort++);
+            NodeId id = idWithMatchingBits(target, numMatchingBits, i);
+            nodes.add(Node.withContactInfo(new NodeContactInfo(id, address)));
+        }
+        return nodes;
+    }
+
+    @Test
+    void getClosestNodes_prefersLookupsWithNearestTargets() {
+        NodeId target = NodeId.fromBigInteger(BigInteger.ONE.shiftLeft(100));
+        List<Node> nearNodes = createNodes(target, 120);
+        List<Node> farNodes = createNodes(target, 5);
+        cache.add(idWithMatchingBits(target, 130, 0), nearNodes);
+        for (int i = 0; i < RecentLookupCache.NUM_NEAREST_LOOKUPS; i++) {
+            cache.add(idWithMatchingBits(target, 1, i), farNodes);
+        }
+
+        List<Node> result = cache.getClosestNodes(target, DhtManager.K);
+
+        List<Node> expected = nearNodes.stream()
+                .sorted(new DistanceToTargetComparator(target))
+                .collect(Collectors.toList());
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void getClosestNodes_sameTargetAddedAgain_replacesNodes() {
+        NodeId target = NodeId.random();
+        List<Node> oldNodes = createNodes(target, 100);
+        List<Node> newNodes = createNodes(target, 150);
+        cache.add(target, oldNodes);
+        cache.add(target, newNodes);
+
+        List<Node> result = cache.getClosestNodes(target, DhtManager.K * 2);
+
+        assertEquals(1, cache.size());
+        assertEquals(DhtManager.K, result.size());
+        assertTrue(newNodes.containsAll(result));
+    }
+
+    @Test
+    void getClosestNodes_expiredEntriesRemoved() {
+        NodeId target = NodeId.random();
+        cache.add(target, createNodes(target, 100));
+
+        now = RecentLookupCache.EXPIRY_MILLIS;
+
+        assertTrue(cache.getClosestNodes(target, DhtManager.K).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void add_full_evictsOldestEntry() {
+        NodeId firstTarget = NodeId.fromBigInteger(BigInteger.ZERO);
+        cache.add(firstTarget, createNodes(firstTarget, 100));
+        for (int i = 1; i <= RecentLookupCache.MAX_ENTRIES; i++) {
+            NodeId target = NodeId.fromBigInteger(BigInteger.valueOf(i));
+            cache.add(target, createNodes(target, 100).subList(0, 1));
+        }
+
+        assertEquals(RecentLookupCache.MAX_ENTRIES, cache.size());
+        assertTrue(cache.getClosestNodes(firstTarget, DhtManager.K).size() < DhtManager.K);
+    }
+}
@@ -0,0 +1,235 @@
+package jtorrent.domain.dht.handler.routingtable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Bit160Value;
+import jtorrent.domain.dht.handler.DhtManager;
+import jtorrent.domain.dht.handler.node.Node;
+import jtorrent.domain.dht.handler.util.DistanceToTargetComparator;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+
+class RoutingTableTest {
+
+    private static final int NODES_PER_BUCKET = 3;
+
+    private final Random random = new Random(0);
+    private RoutingTable routingTable;
+    private List<Node> nodes;
+    private int nextPort = 1;
+
+    /**
+     * Creates an ID that has exactly the given number of leading bits in common with the local ID.
+     */
+    private NodeId randomIdInBucket(int numMatchingBits) {
+        return randomIdInBucket(numMatchingBits, random);
+    }
+
+    private static NodeId randomIdInBucket(int numMatchingBits, Random random) {
+        int differingBit = Bit160Value.SIZE_BITS - 1 - numMatchingBits;
+        BigInteger lowerBitsMask = BigInteger.ONE.shiftLeft(differingBit).subtract(BigInteger.ONE);
+        BigInteger id = NodeId.getLocal().toBigInteger()
+                .flipBit(differingBit)
+                .andNot(lowerBitsMask)
+                .or(new BigInteger(differingBit, random));
+        return NodeId.fromBigInteger(id);
+    }
+
+    @BeforeEach
+    void setUp() {
+        routingTable = new RoutingTable();
+        nodes = new ArrayList<>();
+        int port = 1;
+        for (int i = 0; i < Bit160Value.SIZE_BITS; i++) {
+            for (int j = 0; j < NODES_PER_BUCKET; j++) {
+                InetSocketAddress address = new InetSocketAddress("127.0.0.1", port++);
+                Node node = Node.withContactInfo(new NodeContactInfo(randomIdInBucket(i), address));
+                assertTrue(routingTable.addNode(node));
+                nodes.add(node);
+            }
+        }
+    }
+
+    private List<NodeId> getClosestIdsBySorting(Bit160Value target, int limit) {
+        return nodes.stream()
+                .sorted(new DistanceToTargetComparator(target))
+                .limit(limit)
+                .map(Node::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static List<NodeId> getIds(Collection<Node> nodes) {
+        return nodes.stream()
+                .map(Node::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void addNode_addedToBucketOfCommonPrefixLength() {
+        List<Bucket> buckets = routingTable.getBuckets();
+        for (int i = 0; i < buckets.size() - 1; i++) {
+            assertEquals(NODES_PER_BUCKET, buckets.get(i).size());
+        }
+        assertEquals(nodes.size(), routingTable.size());
+        assertBucketsValid(routingTable);
+    }
+
+    @Test
+    void addNode_lastBucketFull_split() {
+        RoutingTable table = new RoutingTable(node -> CompletableFuture.completedFuture(null));
+        // every node belongs in the last bucket until it is split
+        for (int i = 0; i < DhtManager.K; i++) {
+            assertTrue(table.addNode(createNode(randomIdInBucket(1))));
+        }
+        assertEquals(1, table.getBuckets().size());
+
+        assertTrue(table.addNode(createNode(randomIdInBucket(0))));
+
+        assertEquals(2, table.getBuckets().size());
+        assertEquals(1, table.getBucket(0).size());
+        assertEquals(DhtManager.K, table.getBucket(1).size());
+        assertBucketsValid(table);
+    }
+
+    @Test
+    void addNode_bucketFull_addedAsReplacementAndPromotedWhenPingFails() {
+        CompletableFuture<Void> pingFuture = new CompletableFuture<>();
+        List<Node> pingedNodes = new ArrayList<>();
+        RoutingTable table = new RoutingTable(node -> {
+            pingedNodes.add(node);
+            return pingFuture;
+        });
+        // the first split moves every node to bucket 1, so bucket 0 can no longer be split
+        table.addNode(createNode(randomIdInBucket(1)));
+        for (int i = 0; i < DhtManager.K; i++) {
+            assertTrue(table.addNode(createNode(randomIdInBucket(0))));
+        }
+
+        Node replacement = createNode(randomIdInBucket(0));
+        assertFalse(table.addNode(replacement));
+        assertEquals(List.of(replacement), table.getBucket(0).getReplacements());
+        assertEquals(1, pingedNodes.size());
+
+        pingFuture.completeExceptionally(new TimeoutException());
+
+        assertTrue(table.getBucket(0).contains(replacement));
+        assertFalse(table.getBucket(0).contains(pingedNodes.get(0)));
+        assertTrue(table.getBucket(0).getReplacements().isEmpty());
+    }
+
+    @Test
+    void addNode_bucketFullAndPingSucceeds_notReplaced() {
+        RoutingTable table = new RoutingTable(node -> CompletableFuture.completedFuture(null));
+        table.addNode(createNode(randomIdInBucket(1)));
+        for (int i = 0; i < DhtManager.K; i++) {
+            table.addNode(createNode(randomIdInBucket(0)));
+        }
+        List<Node> expected = table.getBucket(0).getNodes();
+
+        assertFalse(table.addNode(createNode(randomIdInBucket(0))));
+
+        assertEquals(expected, table.getBucket(0).getNodes());
+    }
+
+    @Test
+    void concurrentAccess_bucketsRemainValid() throws Exception {
+        int numThreads = 8;
+        int numNodesPerThread = 2000;
+        AtomicInteger port = new AtomicInteger(1);
+        RoutingTable table = new RoutingTable(node -> ThreadLocalRandom.current().nextBoolean()
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.failedFuture(new TimeoutException()));
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads * 2);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < numThreads; i++) {
+            futures.add(executorService.submit(() -> {
+                Random threadRandom = new Random();
+                for (int j = 0; j < numNodesPerThread; j++) {
+                    NodeId id = randomIdInBucket(threadRandom.nextInt(Bit160Value.SIZE_BITS), threadRandom);
+                    InetSocketAddress address = new InetSocketAddress("127.0.0.2", port.getAndIncrement());
+                    table.addNode(Node.withContactInfo(new NodeContactInfo(id, address)));
+                }
+            }));
+            futures.add(executorService.submit(() -> {
+                for (int j = 0; j < numNodesPerThread; j++) {
+                    Collection<Node> closestNodes = table.getClosestNodes(NodeId.random(), DhtManager.K);
+                    assertTrue(closestNodes.size() <= DhtManager.K);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        assertBucketsValid(table);
+        assertEquals(Bit160Value.SIZE_BITS, table.getBuckets().size());
+    }
+
+    private Node createNode(NodeId id) {
+        return Node.withContactInfo(new NodeContactInfo(id, new InetSocketAddress("127.0.0.3", nextPort++)));
+    }
+
+    private static void assertBucketsValid(RoutingTable table) {
+        List<Bucket> buckets = table.getBuckets();
+        Set<Node> seenNodes = new HashSet<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            assertTrue(bucket.size() <= DhtManager.K);
+            for (Node node : bucket.getNodes()) {
+                int numMatchingBits = node.getId().numMatchingBits(NodeId.getLocal());
+                if (i == buckets.size() - 1) {
+                    assertTrue(numMatchingBits >= i);
+                } else {
+                    assertEquals(i, numMatchingBits);
+                }
+                assertTrue(seenNodes.add(node));
+            }
+        }
+        assertEquals(seenNodes.size(), table.size());
+    }
+
+    @Test
+    void getClosestNodes_sameAsSortingAllNodes() {
+        for (int i = 0; i < Bit160Value.SIZE_BITS; i++) {
+            NodeId target = randomIdInBucket(i);
+            assertEquals(getClosestIdsBySorting(target, DhtManager.K),
+                    getIds(routingTable.getClosestNodes(target, DhtManager.K)));
+        }
+
+        assertEquals(getClosestIdsBySorting(NodeId.getLocal(), DhtManager.K),
+                getIds(routingTable.getClosestNodes(NodeId.getLocal(), DhtManager.K)));
+    }
+
+    @Test
+    void getClosestNodes_limitGreaterThanSize_returnsAllNodes() {
+        NodeId target = NodeId.random();
+        int limit = nodes.size() + 1;
+
+        assertEquals(getClosestIdsBySorting(target, limit), getIds(routingTable.getClosestNodes(target, limit)));
+    }
+}
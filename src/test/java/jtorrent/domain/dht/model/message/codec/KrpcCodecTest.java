@@ -0,0 +1,336 @@
+package jtorrent.domain.dht.model.message.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.common.util.bencode.BencodedObject;
+import jtorrent.domain.dht.model.message.DhtMessage;
+import jtorrent.domain.dht.model.message.TransactionId;
+import jtorrent.domain.dht.model.message.decoder.DhtDecodingException;
+import jtorrent.domain.dht.model.message.decoder.DhtMessageDecoder;
+import jtorrent.domain.dht.model.message.error.Error;
+import jtorrent.domain.dht.model.message.error.ErrorCode;
+import jtorrent.domain.dht.model.message.query.AnnouncePeer;
+import jtorrent.domain.dht.model.message.query.FindNode;
+import jtorrent.domain.dht.model.message.query.GetPeers;
+import jtorrent.domain.dht.model.message.query.Method;
+import jtorrent.domain.dht.model.message.query.Ping;
+import jtorrent.domain.dht.model.message.response.AnnouncePeerResponse;
+import jtorrent.domain.dht.model.message.response.FindNodeResponse;
+import jtorrent.domain.dht.model.message.response.GetPeersResponse;
+import jtorrent.domain.dht.model.message.response.PingResponse;
+import jtorrent.domain.dht.model.message.response.Response;
+import jtorrent.domain.dht.model.node.NodeContactInfo;
+import jtorrent.domain.dht.model.node.NodeId;
+import jtorrent.domain.peer.model.PeerContactInfo;
+
+/**
+ * Checks that {@link KrpcCodec} behaves exactly like {@link DhtMessageDecoder} and {@link DhtMessage#bencode()} on
+ * randomly generated messages, and on random mutations of them.
+ */
+class KrpcCodecTest {
+
+    private static final int NUM_MESSAGES = 500;
+    private static final int NUM_MUTATIONS = 40;
+    private static final int BUFFER_SIZE = 2048;
+    private static final Set<String> KNOWN_KEYS = Set.of("t", "y", "q", "a", "r", "e", "v",
+            "id", "target", "info_hash", "port", "token", "nodes", "values");
+
+    private final Map<TransactionId, Method> txIdToMethod = new HashMap<>();
+    private final DhtMessageDecoder decoder = new DhtMessageDecoder(this::getMethod);
+    private final KrpcCodec codec = new KrpcCodec(this::getMethod);
+    private final Random random = new Random(0);
+    private char nextTransactionId;
+
+    private Optional<Method> getMethod(TransactionId transactionId) {
+        return Optional.ofNullable(txIdToMethod.get(transactionId));
+    }
+
+    private DhtMessage randomMessage() {
+        TransactionId transactionId = new TransactionId(nextTransactionId++);
+        NodeId id = randomNodeId();
+        switch (random.nextInt(11)) {
+        case 0:
+            return new Ping(transactionId, id);
+        case 1:
+            return new FindNode(transactionId, id, randomNodeId());
+        case 2:
+            return new GetPeers(transactionId, id, randomInfoHash());
+        case 3:
+            return new AnnouncePeer(transactionId, id, randomInfoHash(), random.nextInt(65536), randomToken());
+        case 4:
+            return expectResponse(new PingResponse(transactionId, id));
+        case 5:
+            return expectResponse(new FindNodeResponse(transactionId, id, randomNodes()));
+        case 6:
+            return expectResponse(new GetPeersResponse(transactionId, null, id, randomToken(), randomPeers(), null));
+        case 7:
+            return expectResponse(new GetPeersResponse(transactionId, null, id, randomToken(), null, randomNodes()));
+        case 8:
+            return expectResponse(
+                    new GetPeersResponse(transactionId, null, id, randomToken(), randomPeers(), randomNodes()));
+        case 9:
+            return expectResponse(new AnnouncePeerResponse(transactionId, id));
+        default:
+            ErrorCode errorCode = ErrorCode.values()[random.nextInt(ErrorCode.values().length)];
+            return new Error(transactionId, errorCode, randomErrorMessage());
+        }
+    }
+
+    private Response expectResponse(Response response) {
+        txIdToMethod.put(response.getTransactionId(), response.getMethod());
+        return response;
+    }
+
+    private NodeId randomNodeId() {
+        return new NodeId(randomBytes(20));
+    }
+
+    private Sha1Hash randomInfoHash() {
+        return new Sha1Hash(randomBytes(Sha1Hash.HASH_SIZE));
+    }
+
+    private byte[] randomToken() {
+        return randomBytes(random.nextInt(21));
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private InetAddress randomAddress() {
+        try {
+            return InetAddress.getByAddress(randomBytes(4));
+        } catch (UnknownHostException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private List<NodeContactInfo> randomNodes() {
+        List<NodeContactInfo> nodes = new ArrayList<>();
+        for (int i = random.nextInt(9); i > 0; i--) {
+            InetSocketAddress address = new InetSocketAddress(randomAddress(), random.nextInt(65536));
+            nodes.add(new NodeContactInfo(randomNodeId(), address));
+        }
+        return nodes;
+    }
+
+    private List<PeerContactInfo> randomPeers() {
+        List<PeerContactInfo> peers = new ArrayList<>();
+        for (int i = random.nextInt(30); i > 0; i--) {
+            peers.add(new PeerContactInfo(randomAddress(), random.nextInt(65536)));
+        }
+        return peers;
+    }
+
+    private String randomErrorMessage() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(30); i > 0; i--) {
+            // include some characters that take more than one byte in UTF-8
+            builder.append(random.nextInt(10) == 0 ? '\u00e9' : (char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Bencodes the message with a client version and unknown keys added to its top level dictionary and its body.
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] bencodeWithExtraKeys(DhtMessage message) {
+        Map<String, Object> map = new HashMap<>(message.toMap());
+        for (String bodyKey : List.of("a", "r")) {
+            if (map.get(bodyKey) instanceof Map) {
+                Map<String, Object> body = new HashMap<>((Map<String, Object>) map.get(bodyKey));
+                addUnknownKeys(body);
+                map.put(bodyKey, body);
+            }
+        }
+        map.put("v", ByteBuffer.wrap("JT01".getBytes(StandardCharsets.UTF_8)));
+        addUnknownKeys(map);
+        return bencode(map);
+    }
+
+    private void addUnknownKeys(Map<String, Object> map) {
+        for (int i = random.nextInt(4); i > 0; i--) {
+            String key = randomKey();
+            if (!KNOWN_KEYS.contains(key)) {
+                map.put(key, randomValue(3));
+            }
+        }
+    }
+
+    private String randomKey() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(10) + 1; i > 0; i--) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+
+    private Object randomValue(int maxDepth) {
+        int type = random.nextInt(maxDepth > 0 ? 4 : 2);
+        switch (type) {
+        case 0:
+            return random.nextLong() >> random.nextInt(64);
+        case 1:
+            return ByteBuffer.wrap(randomBytes(random.nextInt(30)));
+        case 2:
+            List<Object> list = new ArrayList<>();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                list.add(randomValue(maxDepth - 1));
+            }
+            return list;
+        default:
+            Map<String, Object> map = new HashMap<>();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                map.put(randomKey(), randomValue(maxDepth - 1));
+            }
+            return map;
+        }
+    }
+
+    private static byte[] bencode(Map<String, Object> map) {
+        return new BencodedObject() {
+            @Override
+            public Map<String, Object> toMap() {
+                return map;
+            }
+        }.bencode();
+    }
+
+    /**
+     * Applies a random bit flip, byte deletion or truncation to the given bytes.
+     */
+    private byte[] mutate(byte[] bytes) {
+        int index = random.nextInt(bytes.length);
+        switch (random.nextInt(3)) {
+        case 0:
+            byte[] flipped = bytes.clone();
+            flipped[index] ^= (byte) (1 << random.nextInt(8));
+            return flipped;
+        case 1:
+            byte[] deleted = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 0, deleted, 0, index);
+            System.arraycopy(bytes, index + 1, deleted, index, bytes.length - index - 1);
+            return deleted;
+        default:
+            return Arrays.copyOf(bytes, index);
+        }
+    }
+
+    private Optional<DhtMessage> decodeWithDecoder(byte[] bytes) {
+        try {
+            return Optional.of(decoder.decode(bytes));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private Optional<DhtMessage> decodeWithCodec(byte[] bytes) {
+        try {
+            return Optional.of(codec.decode(ByteBuffer.wrap(bytes)));
+        } catch (DhtDecodingException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Test
+    void decode_randomMessages_sameAsDecoder() throws DhtDecodingException {
+        for (int i = 0; i < NUM_MESSAGES; i++) {
+            DhtMessage message = randomMessage();
+            byte[] bytes = message.bencode();
+
+            DhtMessage decoded = codec.decode(ByteBuffer.wrap(bytes));
+
+            assertEquals(message, decoded);
+            assertEquals(decoder.decode(bytes), decoded);
+        }
+    }
+
+    @Test
+    void decode_extraKeys_sameAsDecoder() throws DhtDecodingException {
+        for (int i = 0; i < NUM_MESSAGES; i++) {
+            byte[] bytes = bencodeWithExtraKeys(randomMessage());
+
+            assertEquals(decoder.decode(bytes), codec.decode(ByteBuffer.wrap(bytes)));
+        }
+    }
+
+    @Test
+    void decode_mutatedMessages_sameOutcomeAsDecoder() {
+        for (int i = 0; i < NUM_MESSAGES; i++) {
+            byte[] bytes = random.nextBoolean() ? randomMessage().bencode() : bencodeWithExtraKeys(randomMessage());
+            for (int j = 0; j < NUM_MUTATIONS; j++) {
+                byte[] mutated = mutate(bytes);
+
+                assertEquals(decodeWithDecoder(mutated), decodeWithCodec(mutated),
+                        () -> "Outcomes differ for " + Arrays.toString(mutated));
+            }
+        }
+    }
+
+    @Test
+    void decode_messageBetweenPositionAndLimit_decodedAndPositionUnchanged() throws DhtDecodingException {
+        DhtMessage message = randomMessage();
+        byte[] bytes = message.bencode();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 20);
+        buffer.put(randomBytes(10)).put(bytes).put(randomBytes(10));
+        buffer.position(10).limit(10 + bytes.length);
+
+        assertEquals(message, codec.decode(buffer));
+        assertEquals(10, buffer.position());
+    }
+
+    @Test
+    void decode_truncatedAtLimit_throwsDhtDecodingException() {
+        byte[] bytes = randomMessage().bencode();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).limit(bytes.length - 1);
+
+        assertThrows(DhtDecodingException.class, () -> codec.decode(buffer));
+    }
+
+    @Test
+    void encode_randomMessages_sameAsBencode() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 0; i < NUM_MESSAGES; i++) {
+            DhtMessage message = randomMessage();
+            buffer.clear();
+
+            codec.encode(message, buffer);
+
+            buffer.flip();
+            byte[] encoded = new byte[buffer.remaining()];
+            buffer.get(encoded);
+            assertArrayEquals(message.bencode(), encoded);
+        }
+    }
+
+    @Test
+    void encode_bufferTooSmall_throwsBufferOverflowException() {
+        DhtMessage message = new Ping(randomNodeId());
+        ByteBuffer buffer = ByteBuffer.allocate(message.bencode().length - 1);
+
+        assertThrows(BufferOverflowException.class, () -> codec.encode(message, buffer));
+    }
+}
@@ -143,6 +143,22 @@ class NodeIdTest {
     }
 
 
+    @Test
+    void withBitFlipped_flipsOnlyThatBit() {
+        assertEquals(new NodeIdBuilder().setBit(0).build(), NodeId.ZERO.withBitFlipped(0));
+        assertEquals(new NodeIdBuilder().setBit(13).build(), NodeId.ZERO.withBitFlipped(13));
+        assertEquals(new NodeIdBuilder().setAll().clearBit(159).build(), NodeId.MAX.withBitFlipped(159));
+    }
+
+    @Test
+    void randomWithPrefix_startsWithPrefix() {
+        NodeId id = new NodeIdBuilder().setBit(0, 2, 9, 10).build();
+        for (int bitLength = 0; bitLength <= Bit160Value.SIZE_BITS; bitLength++) {
+            NodeId randomId = NodeId.randomWithPrefix(id.getPrefix(bitLength));
+            assertTrue(randomId.numMatchingBits(id) >= bitLength);
+        }
+    }
+
     private static class NodeIdBuilder {
 
         private final Set<Integer> set = new HashSet<>();
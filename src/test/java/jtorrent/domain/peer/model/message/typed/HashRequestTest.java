@@ -0,0 +1,55 @@
+package jtorrent.domain.peer.model.message.typed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha256Hash;
+
+class HashRequestTest {
+
+    @Test
+    void pack() {
+        byte[] piecesRoot = new byte[32];
+        Arrays.fill(piecesRoot, (byte) 1);
+
+        byte[] expected = ByteBuffer.allocate(53)
+                .order(ByteOrder.BIG_ENDIAN)
+                .putInt(49)
+                .put(MessageType.HASH_REQUEST.getValue())
+                .put(piecesRoot)
+                .putInt(0)
+                .putInt(64)
+                .putInt(32)
+                .putInt(2)
+                .array();
+
+        HashRequest hashRequest = new HashRequest(new Sha256Hash(piecesRoot), 0, 64, 32, 2);
+        byte[] actual = hashRequest.pack();
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void unpack() {
+        byte[] piecesRoot = new byte[32];
+        Arrays.fill(piecesRoot, (byte) 1);
+        HashRequest expected = new HashRequest(new Sha256Hash(piecesRoot), 0, 64, 32, 2);
+
+        byte[] payload = ByteBuffer.allocate(48)
+                .put(piecesRoot)
+                .putInt(0)
+                .putInt(64)
+                .putInt(32)
+                .putInt(2)
+                .array();
+        HashRequest actual = HashRequest.unpack(payload);
+
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,70 @@
+package jtorrent.domain.peer.model.message.typed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha256Hash;
+
+class HashesTest {
+
+    @Test
+    void pack() {
+        byte[] piecesRoot = new byte[32];
+        Arrays.fill(piecesRoot, (byte) 1);
+        byte[] hash1 = new byte[32];
+        Arrays.fill(hash1, (byte) 2);
+        byte[] hash2 = new byte[32];
+        Arrays.fill(hash2, (byte) 3);
+
+        byte[] expected = ByteBuffer.allocate(117)
+                .order(ByteOrder.BIG_ENDIAN)
+                .putInt(113)
+                .put(MessageType.HASHES.getValue())
+                .put(piecesRoot)
+                .putInt(0)
+                .putInt(2)
+                .putInt(2)
+                .putInt(0)
+                .put(hash1)
+                .put(hash2)
+                .array();
+
+        Hashes hashes = new Hashes(new Sha256Hash(piecesRoot), 0, 2, 2, 0,
+                List.of(new Sha256Hash(hash1), new Sha256Hash(hash2)));
+        byte[] actual = hashes.pack();
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void unpack() {
+        byte[] piecesRoot = new byte[32];
+        Arrays.fill(piecesRoot, (byte) 1);
+        byte[] hash1 = new byte[32];
+        Arrays.fill(hash1, (byte) 2);
+        byte[] hash2 = new byte[32];
+        Arrays.fill(hash2, (byte) 3);
+        Hashes expected = new Hashes(new Sha256Hash(piecesRoot), 0, 2, 2, 0,
+                List.of(new Sha256Hash(hash1), new Sha256Hash(hash2)));
+
+        byte[] payload = ByteBuffer.allocate(112)
+                .put(piecesRoot)
+                .putInt(0)
+                .putInt(2)
+                .putInt(2)
+                .putInt(0)
+                .put(hash1)
+                .put(hash2)
+                .array();
+        Hashes actual = Hashes.unpack(payload);
+
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,60 @@
+package jtorrent.domain.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.peer.model.PeerContactInfo;
+import jtorrent.domain.torrent.model.Torrent;
+
+class SessionSnapshotTest {
+
+    private static PeerSnapshot peer(int lastByte, double downloadRate, double uploadRate, int outstandingRequests)
+            throws UnknownHostException {
+        PeerContactInfo contactInfo =
+                new PeerContactInfo(InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) lastByte}), 6881);
+        return new PeerSnapshot(contactInfo, downloadRate, uploadRate, 0, 0, outstandingRequests, 1);
+    }
+
+    private static Sha1Hash infoHash(int firstByte) {
+        byte[] bytes = new byte[Sha1Hash.HASH_SIZE];
+        bytes[0] = (byte) firstByte;
+        return new Sha1Hash(bytes);
+    }
+
+    @Test
+    void of_sumsPeersAndTorrents() throws UnknownHostException {
+        TorrentSnapshot first = TorrentSnapshot.of(infoHash(1), Torrent.State.DOWNLOADING, 100, 10,
+                List.of(peer(1, 1000, 50, 3), peer(2, 500, 0, 2)));
+        TorrentSnapshot second = TorrentSnapshot.of(infoHash(2), Torrent.State.SEEDING, 200, 20,
+                List.of(peer(3, 0, 250, 0)));
+
+        SessionSnapshot snapshot = SessionSnapshot.of(42, List.of(first, second));
+
+        assertEquals(1500.0, first.downloadRate());
+        assertEquals(5, first.outstandingRequests());
+        assertEquals(2, first.queuedUploads());
+        assertEquals(1500.0, snapshot.downloadRate());
+        assertEquals(300.0, snapshot.uploadRate());
+        assertEquals(300, snapshot.downloaded());
+        assertEquals(30, snapshot.uploaded());
+        assertEquals(3, snapshot.connections());
+        assertEquals(3, snapshot.queuedUploads());
+        assertEquals(second, snapshot.getTorrent(infoHash(2)).orElseThrow());
+    }
+
+    @Test
+    void getTorrent_unknownInfoHash_isEmpty() {
+        SessionSnapshot snapshot = SessionSnapshot.of(0, Collections.emptyList());
+
+        assertTrue(snapshot.getTorrent(infoHash(1)).isEmpty());
+        assertEquals(0, snapshot.connections());
+    }
+}
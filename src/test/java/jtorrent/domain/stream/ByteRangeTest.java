@@ -0,0 +1,54 @@
+package jtorrent.domain.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+
+    @Test
+    void parse_closedRange() {
+        Optional<ByteRange> range = ByteRange.parse("bytes=10-19", 100);
+        assertEquals(Optional.of(new ByteRange(10, 19)), range);
+        assertEquals(10, range.get().length());
+    }
+
+    @Test
+    void parse_openEndedRange() {
+        assertEquals(Optional.of(new ByteRange(10, 99)), ByteRange.parse("bytes=10-", 100));
+    }
+
+    @Test
+    void parse_endBeyondSize_clamped() {
+        assertEquals(Optional.of(new ByteRange(90, 99)), ByteRange.parse("bytes=90-200", 100));
+    }
+
+    @Test
+    void parse_suffixRange() {
+        assertEquals(Optional.of(new ByteRange(80, 99)), ByteRange.parse("bytes=-20", 100));
+        assertEquals(Optional.of(new ByteRange(0, 99)), ByteRange.parse("bytes=-200", 100));
+    }
+
+    @Test
+    void parse_startBeyondSize_unsatisfiable() {
+        assertTrue(ByteRange.parse("bytes=100-", 100).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 100).isEmpty());
+    }
+
+    @Test
+    void parse_malformed_throws() {
+        assertThrows(IllegalArgumentException.class, () -> ByteRange.parse("items=0-1", 100));
+        assertThrows(IllegalArgumentException.class, () -> ByteRange.parse("bytes=0-1,5-6", 100));
+        assertThrows(IllegalArgumentException.class, () -> ByteRange.parse("bytes=5-1", 100));
+        assertThrows(IllegalArgumentException.class, () -> ByteRange.parse("bytes=a-b", 100));
+    }
+
+    @Test
+    void toContentRange() {
+        assertEquals("bytes 10-19/100", new ByteRange(10, 19).toContentRange(100));
+    }
+}
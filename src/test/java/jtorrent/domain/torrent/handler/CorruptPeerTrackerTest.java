@@ -0,0 +1,83 @@
+package jtorrent.domain.torrent.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+
+class CorruptPeerTrackerTest {
+
+    private static final Sha1Hash GOOD_HASH = Sha1Hash.of(new byte[] {1});
+    private static final Sha1Hash BAD_HASH = Sha1Hash.of(new byte[] {2});
+
+    private static InetAddress address(int lastByte) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) lastByte});
+    }
+
+    @Test
+    void handlePieceVerified_strikesSenderOfDifferingBlock() throws UnknownHostException {
+        CorruptPeerTracker tracker = new CorruptPeerTracker();
+        InetAddress honest = address(1);
+        InetAddress corrupt = address(2);
+
+        tracker.recordBlock(0, 0, honest);
+        tracker.recordBlock(0, 1, corrupt);
+        tracker.handlePieceFailed(0, List.of(GOOD_HASH, BAD_HASH));
+
+        assertTrue(tracker.isSuspect(0, honest));
+        assertTrue(tracker.isSuspect(0, corrupt));
+
+        tracker.recordBlock(0, 0, address(3));
+        tracker.recordBlock(0, 1, address(3));
+        tracker.handlePieceVerified(0, List.of(GOOD_HASH, GOOD_HASH));
+
+        assertEquals(0, tracker.getStrikes(honest));
+        assertEquals(1, tracker.getStrikes(corrupt));
+        assertFalse(tracker.hasSuspectBlocks(0));
+    }
+
+    @Test
+    void handlePieceFailed_singleSender_strikesImmediately() throws UnknownHostException {
+        CorruptPeerTracker tracker = new CorruptPeerTracker();
+        InetAddress corrupt = address(1);
+
+        tracker.recordBlock(0, 0, corrupt);
+        tracker.recordBlock(0, 1, corrupt);
+        tracker.handlePieceFailed(0, List.of(GOOD_HASH, BAD_HASH));
+
+        assertEquals(1, tracker.getStrikes(corrupt));
+    }
+
+    @Test
+    void handlePieceFailed_unknownSenders_doesNotStrike() throws UnknownHostException {
+        CorruptPeerTracker tracker = new CorruptPeerTracker();
+        InetAddress sender = address(1);
+
+        tracker.recordBlock(0, 1, sender);
+        tracker.handlePieceFailed(0, List.of(GOOD_HASH, BAD_HASH));
+
+        assertEquals(0, tracker.getStrikes(sender));
+    }
+
+    @Test
+    void strike_bansAfterMaxStrikes() throws UnknownHostException {
+        CorruptPeerTracker tracker = new CorruptPeerTracker();
+        InetAddress corrupt = address(1);
+
+        for (int i = 1; i < CorruptPeerTracker.MAX_STRIKES; i++) {
+            assertTrue(tracker.strike(corrupt).isEmpty());
+        }
+
+        assertEquals(Set.of(corrupt), tracker.strike(corrupt));
+        assertTrue(tracker.isBanned(corrupt));
+        assertTrue(tracker.strike(corrupt).isEmpty());
+    }
+}
@@ -0,0 +1,315 @@
+package jtorrent.domain.torrent.handler;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+import jtorrent.domain.torrent.model.FileMetadata;
+import jtorrent.domain.torrent.model.MultiFileInfo;
+import jtorrent.domain.torrent.model.Torrent;
+import jtorrent.domain.torrent.model.TorrentContent;
+import jtorrent.domain.torrent.model.TorrentMetadata;
+import jtorrent.domain.torrent.model.TorrentProgress;
+import jtorrent.domain.torrent.model.TorrentStatistics;
+import jtorrent.domain.torrent.repository.PieceRepository;
+
+class DataReuseHandlerTest {
+
+    private static final int PIECE_SIZE = 4;
+    private static final Path SAVE_DIRECTORY = Path.of("save");
+    private static final Path SEARCH_PATH = Path.of("search");
+    private static final Path EXISTING_DIRECTORY = Path.of("existing");
+    /**
+     * Piece aligned file covering pieces 0 and 1.
+     */
+    private static final FileMetadata ALIGNED_FILE = new FileMetadata(Path.of("aligned"), 0, 8, 0, 0, 1, 3);
+    /**
+     * File covering piece 2 and the first half of piece 3, which it shares with {@link #TAIL_FILE}.
+     */
+    private static final FileMetadata UNALIGNED_FILE = new FileMetadata(Path.of("unaligned"), 8, 6, 2, 0, 3, 1);
+    private static final FileMetadata TAIL_FILE = new FileMetadata(Path.of("tail"), 14, 2, 3, 2, 3, 3);
+
+    private final byte[] data = new byte[16];
+    private FakePieceRepository repository;
+    private DataReuseHandler dataReuseHandler;
+    private TorrentMetadata metadata;
+    private Torrent torrent;
+    private int numLoads;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        List<Sha1Hash> pieceHashes = new ArrayList<>();
+        for (int i = 0; i < data.length; i += PIECE_SIZE) {
+            pieceHashes.add(Sha1Hash.of(Arrays.copyOfRange(data, i, i + PIECE_SIZE)));
+        }
+        MultiFileInfo fileInfo = new MultiFileInfo("torrent", List.of(ALIGNED_FILE, UNALIGNED_FILE, TAIL_FILE),
+                PIECE_SIZE, pieceHashes, new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]));
+        metadata = new TorrentMetadata(List.of(List.of(URI.create("http://tracker"))), null, null, null, fileInfo);
+        torrent = createTorrent();
+        numLoads = 0;
+
+        repository = new FakePieceRepository();
+        dataReuseHandler = new DataReuseHandler(repository);
+    }
+
+    private Torrent createTorrent() {
+        return Torrent.createNew(metadata, "torrent", SAVE_DIRECTORY);
+    }
+
+    /**
+     * Creates a torrent with the same files whose content is not loaded, and is saved in {@link #EXISTING_DIRECTORY}.
+     */
+    private Torrent createUnloadedTorrent() {
+        byte[] infoHash = new byte[Sha1Hash.HASH_SIZE];
+        infoHash[0] = 1;
+        return new Torrent(new Sha1Hash(infoHash), data.length, 0, new TorrentStatistics(0, 0), "existing",
+                EXISTING_DIRECTORY, Torrent.State.STOPPED, key -> {
+                    numLoads++;
+                    return new TorrentContent(metadata, TorrentProgress.createNew(metadata.fileInfo()));
+                });
+    }
+
+    private byte[] getFileData(FileMetadata fileMetadata) {
+        return Arrays.copyOfRange(data, (int) fileMetadata.start(), (int) fileMetadata.end() + 1);
+    }
+
+    private void addSearchPathFile(String name, byte[] content) throws IOException {
+        repository.files.put(SEARCH_PATH.resolve(name), content);
+        dataReuseHandler.addSearchPath(SEARCH_PATH);
+    }
+
+    private static BitSet bitSet(int... bits) {
+        BitSet bitSet = new BitSet();
+        Arrays.stream(bits).forEach(bitSet::set);
+        return bitSet;
+    }
+
+    @Test
+    void reuseExistingData_pieceAlignedFileMatches_linkAllowed() throws IOException {
+        addSearchPathFile("other", getFileData(ALIGNED_FILE));
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertEquals(Map.of(SEARCH_PATH.resolve("other"), true), repository.importedFiles);
+        assertEquals(bitSet(0, 1), torrent.getVerifiedPieces());
+    }
+
+    @Test
+    void reuseExistingData_fileSharesPieceWithNeighbour_copiedInsteadOfLinked() throws IOException {
+        addSearchPathFile("other", getFileData(UNALIGNED_FILE));
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertEquals(Map.of(SEARCH_PATH.resolve("other"), false), repository.importedFiles);
+        // the shared piece cannot be verified until the data of its neighbour is present
+        assertEquals(bitSet(2), torrent.getVerifiedPieces());
+    }
+
+    @Test
+    void reuseExistingData_fileTooSmallToContainPiece_notReused() throws IOException {
+        addSearchPathFile("other", getFileData(TAIL_FILE));
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertTrue(repository.importedFiles.isEmpty());
+        assertTrue(torrent.getVerifiedPieces().isEmpty());
+    }
+
+    @Test
+    void reuseExistingData_partialMatch_onlyMatchingPiecesCopied() throws IOException {
+        byte[] content = getFileData(ALIGNED_FILE);
+        content[PIECE_SIZE]++;
+        addSearchPathFile("other", content);
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertTrue(repository.importedFiles.isEmpty());
+        assertEquals(bitSet(0), torrent.getVerifiedPieces());
+    }
+
+    @Test
+    void reuseExistingData_multipleCandidates_bestMatchReused() throws IOException {
+        byte[] partialMatch = getFileData(ALIGNED_FILE);
+        partialMatch[0]++;
+        repository.files.put(SEARCH_PATH.resolve("partial"), partialMatch);
+        repository.files.put(SEARCH_PATH.resolve("wrong"), new byte[(int) ALIGNED_FILE.size()]);
+        addSearchPathFile("full", getFileData(ALIGNED_FILE));
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertEquals(Map.of(SEARCH_PATH.resolve("full"), true), repository.importedFiles);
+        assertEquals(bitSet(0, 1), torrent.getVerifiedPieces());
+    }
+
+    @Test
+    void reuseExistingData_noCandidateOfSameSize_nothingReused() throws IOException {
+        addSearchPathFile("other", new byte[3]);
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertTrue(repository.importedFiles.isEmpty());
+        assertTrue(torrent.getVerifiedPieces().isEmpty());
+    }
+
+    @Test
+    void reuseExistingData_targetAlreadyExists_matchingPiecesCopiedIntoTarget() throws IOException {
+        Path target = SAVE_DIRECTORY.resolve("torrent").resolve(ALIGNED_FILE.path());
+        repository.files.put(target, new byte[(int) ALIGNED_FILE.size()]);
+        addSearchPathFile("other", getFileData(ALIGNED_FILE));
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertTrue(repository.importedFiles.isEmpty());
+        assertArrayEquals(getFileData(ALIGNED_FILE), repository.files.get(target));
+        assertEquals(bitSet(0, 1), torrent.getVerifiedPieces());
+    }
+
+    @Test
+    void reuseExistingData_unloadedTorrentHasFile_reusedWithoutKeepingContentLoaded() throws IOException {
+        Torrent existing = createUnloadedTorrent();
+        repository.files.put(EXISTING_DIRECTORY.resolve("torrent").resolve(ALIGNED_FILE.path()),
+                getFileData(ALIGNED_FILE));
+        dataReuseHandler.addTorrent(existing);
+
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertEquals(bitSet(0, 1), torrent.getVerifiedPieces());
+        assertFalse(existing.isContentLoaded());
+    }
+
+    @Test
+    void removeTorrent_indexedUnloadedTorrent_filesNoLongerReusedAndContentNotLoaded() throws IOException {
+        Torrent existing = createUnloadedTorrent();
+        repository.files.put(EXISTING_DIRECTORY.resolve("torrent").resolve(ALIGNED_FILE.path()),
+                getFileData(ALIGNED_FILE));
+        dataReuseHandler.addTorrent(existing);
+        dataReuseHandler.reuseExistingData(createTorrent());
+        repository.importedFiles.clear();
+        int numLoads = this.numLoads;
+
+        dataReuseHandler.removeTorrent(existing);
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertEquals(numLoads, this.numLoads);
+        assertTrue(repository.importedFiles.isEmpty());
+        assertTrue(torrent.getVerifiedPieces().isEmpty());
+    }
+
+    @Test
+    void removeTorrent_unindexedTorrent_contentNotLoaded() {
+        Torrent existing = createUnloadedTorrent();
+        dataReuseHandler.addTorrent(existing);
+
+        dataReuseHandler.removeTorrent(existing);
+        dataReuseHandler.reuseExistingData(torrent);
+
+        assertEquals(0, numLoads);
+    }
+
+    /**
+     * Keeps the content of each file in memory.
+     */
+    private static class FakePieceRepository implements PieceRepository {
+
+        private final Map<Path, byte[]> files = new HashMap<>();
+        private final Map<Path, Boolean> importedFiles = new HashMap<>();
+
+        @Override
+        public byte[] getPiece(Torrent torrent, int index) throws IOException {
+            return getBlock(torrent, index, 0, torrent.getPieceSize(index));
+        }
+
+        @Override
+        public byte[] getBlock(Torrent torrent, int index, int offset, int length) throws IOException {
+            byte[] block = new byte[length];
+            long blockStart = torrent.getPieceOffset(index) + offset;
+            for (FileMetadata fileMetadata : torrent.getMetadata().fileInfo().getFileMetaData()) {
+                long start = Math.max(blockStart, fileMetadata.start());
+                long end = Math.min(blockStart + length - 1, fileMetadata.end());
+                if (start > end) {
+                    continue;
+                }
+                byte[] file = files.get(torrent.getRootSaveDirectory().resolve(fileMetadata.path()));
+                if (file == null) {
+                    throw new IOException("File does not exist: " + fileMetadata.path());
+                }
+                System.arraycopy(file, (int) (start - fileMetadata.start()), block, (int) (start - blockStart),
+                        (int) (end - start + 1));
+            }
+            return block;
+        }
+
+        @Override
+        public void storeBlock(Torrent torrent, int index, int offset, byte[] data) {
+            long blockStart = torrent.getPieceOffset(index) + offset;
+            for (FileMetadata fileMetadata : torrent.getMetadata().fileInfo().getFileMetaData()) {
+                long start = Math.max(blockStart, fileMetadata.start());
+                long end = Math.min(blockStart + data.length - 1, fileMetadata.end());
+                if (start > end) {
+                    continue;
+                }
+                byte[] file = files.computeIfAbsent(torrent.getRootSaveDirectory().resolve(fileMetadata.path()),
+                        path -> new byte[(int) fileMetadata.size()]);
+                System.arraycopy(data, (int) (start - blockStart), file, (int) (start - fileMetadata.start()),
+                        (int) (end - start + 1));
+            }
+        }
+
+        @Override
+        public byte[] getData(Path path, long offset, int length) throws IOException {
+            byte[] file = files.get(path);
+            if (file == null) {
+                throw new IOException("File does not exist: " + path);
+            }
+            return Arrays.copyOfRange(file, (int) offset, (int) offset + length);
+        }
+
+        @Override
+        public Map<Path, Long> getFileSizes(Path directory) {
+            return files.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith(directory))
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> (long) entry.getValue().length));
+        }
+
+        @Override
+        public boolean isFilePresent(Torrent torrent, FileMetadata fileMetadata) {
+            return files.containsKey(torrent.getRootSaveDirectory().resolve(fileMetadata.path()));
+        }
+
+        @Override
+        public void importFile(Torrent torrent, FileMetadata fileMetadata, Path source, boolean isLinkAllowed)
+                throws IOException {
+            Path target = torrent.getRootSaveDirectory().resolve(fileMetadata.path());
+            if (files.containsKey(target)) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            importedFiles.put(source, isLinkAllowed);
+            files.put(target, files.get(source).clone());
+        }
+
+        @Override
+        public void restoreSkippedData(Torrent torrent, FileMetadata fileMetadata) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
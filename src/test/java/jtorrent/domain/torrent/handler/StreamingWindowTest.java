@@ -0,0 +1,76 @@
+package jtorrent.domain.torrent.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class StreamingWindowTest {
+
+    private static final int PIECE_SIZE = 4 * 1024 * 1024;
+    private static final int NUM_PIECES = 100;
+
+    @Test
+    void isActive_onlyOncePositioned() {
+        StreamingWindow streamingWindow = new StreamingWindow(PIECE_SIZE, NUM_PIECES, () -> 0);
+        StreamingWindow.Cursor cursor = streamingWindow.openCursor();
+        assertFalse(streamingWindow.isActive());
+
+        cursor.moveTo(0);
+        assertTrue(streamingWindow.isActive());
+
+        cursor.close();
+        assertFalse(streamingWindow.isActive());
+    }
+
+    @Test
+    void getPiecesByDeadline_windowAheadOfCursor() {
+        StreamingWindow streamingWindow = new StreamingWindow(PIECE_SIZE, NUM_PIECES, () -> 0);
+        StreamingWindow.Cursor cursor = streamingWindow.openCursor();
+
+        cursor.moveTo(10L * PIECE_SIZE + 1);
+
+        assertEquals(List.of(10, 11, 12, 13), streamingWindow.getPiecesByDeadline());
+        assertTrue(streamingWindow.getDeadline(9).isEmpty());
+        assertTrue(streamingWindow.getDeadline(14).isEmpty());
+    }
+
+    @Test
+    void getPiecesByDeadline_windowClampedToLastPiece() {
+        StreamingWindow streamingWindow = new StreamingWindow(PIECE_SIZE, NUM_PIECES, () -> 0);
+        StreamingWindow.Cursor cursor = streamingWindow.openCursor();
+
+        cursor.moveTo(98L * PIECE_SIZE);
+
+        assertEquals(List.of(98, 99), streamingWindow.getPiecesByDeadline());
+    }
+
+    @Test
+    void getDeadline_earliestOfAllCursors() {
+        StreamingWindow streamingWindow = new StreamingWindow(PIECE_SIZE, NUM_PIECES, () -> 0);
+        streamingWindow.openCursor().moveTo(10L * PIECE_SIZE);
+        streamingWindow.openCursor().moveTo(12L * PIECE_SIZE);
+
+        assertEquals(OptionalLong.of(0), streamingWindow.getDeadline(12));
+    }
+
+    @Test
+    void isLate_afterDeadlinePasses() {
+        AtomicLong clock = new AtomicLong();
+        StreamingWindow streamingWindow = new StreamingWindow(PIECE_SIZE, NUM_PIECES, clock::get);
+        StreamingWindow.Cursor cursor = streamingWindow.openCursor();
+        cursor.moveTo(0);
+
+        assertTrue(streamingWindow.isTimeCritical(0));
+        assertFalse(streamingWindow.isLate(0));
+        assertFalse(streamingWindow.isTimeCritical(3));
+
+        clock.set(1);
+        assertTrue(streamingWindow.isLate(0));
+    }
+}
@@ -0,0 +1,124 @@
+package jtorrent.domain.torrent.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.peer.model.PeerContactInfo;
+
+class SuperSeederTest {
+
+    private static PeerContactInfo peer(int lastByte) throws UnknownHostException {
+        return new PeerContactInfo(InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) lastByte}), 6881);
+    }
+
+    @Test
+    void addPeer_offersDifferentPiecesToDifferentPeers() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(4);
+
+        OptionalInt first = superSeeder.addPeer(peer(1));
+        OptionalInt second = superSeeder.addPeer(peer(2));
+
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertNotEquals(first.getAsInt(), second.getAsInt());
+        assertTrue(superSeeder.isRevealed(peer(1), first.getAsInt()));
+        assertFalse(superSeeder.isRevealed(peer(1), second.getAsInt()));
+    }
+
+    @Test
+    void handlePiecesAvailable_offersNextPieceOnlyOnceSeenAtOtherPeer() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(4);
+        PeerContactInfo uploader = peer(1);
+        PeerContactInfo other = peer(2);
+        int piece = superSeeder.addPeer(uploader).getAsInt();
+        superSeeder.addPeer(other);
+
+        superSeeder.handleBlockUploaded(uploader, piece);
+        assertEquals(Map.of(), superSeeder.handlePiecesAvailable(uploader, Set.of(piece)));
+
+        Map<PeerContactInfo, Integer> offers = superSeeder.handlePiecesAvailable(other, Set.of(piece));
+        assertTrue(offers.containsKey(uploader));
+        assertNotEquals(piece, offers.get(uploader));
+    }
+
+    @Test
+    void handlePiecesAvailable_announcedBeforeUploaded_noNewOffer() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(4);
+        PeerContactInfo uploader = peer(1);
+        PeerContactInfo other = peer(2);
+        int piece = superSeeder.addPeer(uploader).getAsInt();
+        superSeeder.addPeer(other);
+
+        // the other peer cannot have received the piece from the uploader, which has not downloaded it yet
+        assertFalse(superSeeder.handlePiecesAvailable(other, Set.of(piece)).containsKey(uploader));
+    }
+
+    @Test
+    void handlePiecesAvailable_announcedByPeerThatDownloadedFromUs_noNewOffer() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(4);
+        PeerContactInfo uploader = peer(1);
+        PeerContactInfo other = peer(2);
+        int piece = superSeeder.addPeer(uploader).getAsInt();
+        superSeeder.addPeer(other);
+        superSeeder.handleBlockUploaded(uploader, piece);
+        superSeeder.handleBlockUploaded(other, piece);
+
+        assertFalse(superSeeder.handlePiecesAvailable(other, Set.of(piece)).containsKey(uploader));
+    }
+
+    @Test
+    void handlePiecesAvailable_offeredPieceAlreadyPresent_offersAnotherImmediately() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(4);
+        PeerContactInfo peer = peer(1);
+        int piece = superSeeder.addPeer(peer).getAsInt();
+
+        Map<PeerContactInfo, Integer> offers = superSeeder.handlePiecesAvailable(peer, Set.of(piece));
+
+        assertTrue(offers.containsKey(peer));
+        assertNotEquals(piece, offers.get(peer));
+    }
+
+    @Test
+    void addPeer_prefersLeastAvailablePieceNotOfferedToOthers() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(3);
+        PeerContactInfo first = peer(1);
+        superSeeder.addPeer(first);
+        // piece 0 becomes available and piece 1 is offered to the first peer instead
+        assertEquals(Map.of(first, 1), superSeeder.handlePiecesAvailable(first, Set.of(0)));
+
+        assertEquals(OptionalInt.of(2), superSeeder.addPeer(peer(2)));
+    }
+
+    @Test
+    void clear_returnsRevealedPiecesAndStopsTracking() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(4);
+        PeerContactInfo peer = peer(1);
+        int piece = superSeeder.addPeer(peer).getAsInt();
+
+        assertEquals(Map.of(peer, Set.of(piece)), superSeeder.clear());
+        assertFalse(superSeeder.isTracked(peer));
+    }
+
+    @Test
+    void isTracked_untilRemoved() throws UnknownHostException {
+        SuperSeeder superSeeder = new SuperSeeder(1);
+        PeerContactInfo peer = peer(1);
+        assertFalse(superSeeder.isTracked(peer));
+
+        superSeeder.addPeer(peer);
+        assertTrue(superSeeder.isTracked(peer));
+
+        superSeeder.removePeer(peer);
+        assertFalse(superSeeder.isTracked(peer));
+    }
+}
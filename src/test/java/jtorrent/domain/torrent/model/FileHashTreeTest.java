@@ -0,0 +1,115 @@
+package jtorrent.domain.torrent.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha256Hash;
+
+class FileHashTreeTest {
+
+    private static final int PIECE_SIZE = FileHashTree.LEAF_SIZE * 4;
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void of_singleLeaf_rootIsHashOfData() {
+        byte[] data = randomBytes(1000);
+
+        FileHashTree fileHashTree = FileHashTree.of(data, PIECE_SIZE);
+
+        assertEquals(Sha256Hash.of(data), fileHashTree.getPiecesRoot());
+        assertFalse(fileHashTree.hasPieceLayer());
+    }
+
+    @Test
+    void of_multiplePieces_pieceLayerIsValid() {
+        byte[] data = randomBytes(PIECE_SIZE * 2 + 100);
+
+        FileHashTree fileHashTree = FileHashTree.of(data, PIECE_SIZE);
+
+        assertEquals(3, fileHashTree.getPieceLayer().size());
+        assertTrue(fileHashTree.isPieceLayerValid(PIECE_SIZE));
+    }
+
+    @Test
+    void isPieceLayerValid_tamperedPieceLayer_returnsFalse() {
+        byte[] data = randomBytes(PIECE_SIZE * 2 + 100);
+        FileHashTree original = FileHashTree.of(data, PIECE_SIZE);
+        List<Sha256Hash> pieceLayer = List.of(original.getPieceLayer().get(1), original.getPieceLayer().get(0),
+                original.getPieceLayer().get(2));
+
+        FileHashTree tampered = new FileHashTree(original.getSize(), original.getPiecesRoot(), pieceLayer);
+
+        assertFalse(tampered.isPieceLayerValid(PIECE_SIZE));
+    }
+
+    @Test
+    void isPieceValid() {
+        byte[] data = randomBytes(PIECE_SIZE * 2 + 100);
+        FileHashTree fileHashTree = FileHashTree.of(data, PIECE_SIZE);
+
+        assertTrue(fileHashTree.isPieceValid(0, PIECE_SIZE, data, 0, PIECE_SIZE));
+        assertTrue(fileHashTree.isPieceValid(1, PIECE_SIZE, data, PIECE_SIZE, PIECE_SIZE));
+        assertTrue(fileHashTree.isPieceValid(2, PIECE_SIZE, data, PIECE_SIZE * 2, 100));
+
+        data[PIECE_SIZE + 1] ^= 1;
+        assertFalse(fileHashTree.isPieceValid(1, PIECE_SIZE, data, PIECE_SIZE, PIECE_SIZE));
+    }
+
+    @Test
+    void isLeafHashesValid() {
+        byte[] data = randomBytes(PIECE_SIZE * 2);
+        FileHashTree fileHashTree = FileHashTree.of(data, PIECE_SIZE);
+        List<Sha256Hash> leafHashes = FileHashTree.hashLeaves(data, PIECE_SIZE, PIECE_SIZE);
+
+        assertTrue(fileHashTree.isLeafHashesValid(1, PIECE_SIZE, leafHashes));
+        assertFalse(fileHashTree.isLeafHashesValid(0, PIECE_SIZE, leafHashes));
+    }
+
+    @Test
+    void getHashes_pieceLayerWithProof_hashesUpToRoot() {
+        byte[] data = randomBytes(PIECE_SIZE * 4);
+        FileHashTree fileHashTree = FileHashTree.of(data, PIECE_SIZE);
+        int pieceLayerIndex = fileHashTree.getPieceLayerIndex(PIECE_SIZE);
+
+        Optional<List<Sha256Hash>> hashes = fileHashTree.getHashes(PIECE_SIZE, pieceLayerIndex, 0, 2, 1);
+
+        assertTrue(hashes.isPresent());
+        assertEquals(3, hashes.get().size());
+        Sha256Hash left = Sha256Hash.of(hashes.get().get(0), hashes.get().get(1));
+        assertEquals(fileHashTree.getPiecesRoot(), Sha256Hash.of(left, hashes.get().get(2)));
+    }
+
+    @Test
+    void getHashes_repeatedRequests_hashesUpToRoot() {
+        byte[] data = randomBytes(PIECE_SIZE * 4);
+        FileHashTree fileHashTree = FileHashTree.of(data, PIECE_SIZE);
+        int pieceLayerIndex = fileHashTree.getPieceLayerIndex(PIECE_SIZE);
+        fileHashTree.getHashes(PIECE_SIZE, pieceLayerIndex, 0, 2, 1);
+
+        Optional<List<Sha256Hash>> hashes = fileHashTree.getHashes(PIECE_SIZE, pieceLayerIndex, 2, 2, 1);
+
+        assertTrue(hashes.isPresent());
+        Sha256Hash right = Sha256Hash.of(hashes.get().get(0), hashes.get().get(1));
+        assertEquals(fileHashTree.getPiecesRoot(), Sha256Hash.of(hashes.get().get(2), right));
+    }
+
+    @Test
+    void getHashes_belowPieceLayer_returnsEmpty() {
+        byte[] data = randomBytes(PIECE_SIZE * 4);
+        FileHashTree fileHashTree = FileHashTree.of(data, PIECE_SIZE);
+
+        assertTrue(fileHashTree.getHashes(PIECE_SIZE, 0, 0, 4, 0).isEmpty());
+    }
+}
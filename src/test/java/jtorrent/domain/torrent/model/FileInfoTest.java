@@ -0,0 +1,65 @@
+package jtorrent.domain.torrent.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+
+class FileInfoTest {
+
+    private static final int PIECE_SIZE = 10;
+    // a: [0, 24], empty: [25, 24], b: [25, 49], c: [50, 99]
+    private static final FileMetadata FILE_A = new FileMetadata(Path.of("a"), 0, 25, 0, 0, 2, 4);
+    private static final FileMetadata FILE_EMPTY = new FileMetadata(Path.of("empty"), 25, 0, 2, 5, 2, 4);
+    private static final FileMetadata FILE_B = new FileMetadata(Path.of("b"), 25, 25, 2, 5, 4, 9);
+    private static final FileMetadata FILE_C = new FileMetadata(Path.of("c"), 50, 50, 5, 0, 9, 9);
+
+    private FileInfo fileInfo;
+
+    @BeforeEach
+    void setUp() {
+        List<Sha1Hash> pieceHashes = Collections.nCopies(10, new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]));
+        fileInfo = new MultiFileInfo("dir", List.of(FILE_A, FILE_EMPTY, FILE_B, FILE_C), PIECE_SIZE, pieceHashes,
+                new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]));
+    }
+
+    @Test
+    void getTotalFileSize() {
+        assertEquals(100, fileInfo.getTotalFileSize());
+    }
+
+    @Test
+    void getInRange() {
+        assertEquals(List.of(FILE_A), fileInfo.getInRange(0, 24));
+        assertEquals(List.of(FILE_B), fileInfo.getInRange(25, 25));
+        assertEquals(List.of(FILE_B, FILE_C), fileInfo.getInRange(49, 50));
+        assertEquals(List.of(FILE_A, FILE_EMPTY, FILE_B, FILE_C), fileInfo.getInRange(0, 99));
+    }
+
+    @Test
+    void getInRange_outOfBounds_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> fileInfo.getInRange(0, 100));
+    }
+
+    @Test
+    void getInPiece() {
+        assertEquals(List.of(FILE_A), fileInfo.getInPiece(0));
+        assertEquals(List.of(FILE_A, FILE_EMPTY, FILE_B), fileInfo.getInPiece(2));
+        assertEquals(List.of(FILE_B), fileInfo.getInPiece(4));
+        assertEquals(List.of(FILE_C), fileInfo.getInPiece(9));
+    }
+
+    @Test
+    void getFileMetaData_byPath() {
+        assertEquals(FILE_C, fileInfo.getFileMetaData(Path.of("c")));
+        assertEquals(FILE_EMPTY, fileInfo.getFileMetaData(Path.of("empty")));
+        assertThrows(IllegalArgumentException.class, () -> fileInfo.getFileMetaData(Path.of("d")));
+    }
+}
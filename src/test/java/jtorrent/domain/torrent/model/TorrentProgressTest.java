@@ -0,0 +1,112 @@
+package jtorrent.domain.torrent.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+
+class TorrentProgressTest {
+
+    private static final int PIECE_SIZE = 10;
+    private static final Path FILE_A = Path.of("a");
+    private static final Path FILE_B = Path.of("b");
+    private static final Path FILE_C = Path.of("c");
+
+    private TorrentProgress torrentProgress;
+
+    @BeforeEach
+    void setUp() {
+        // a: [0, 24], b: [25, 49], c: [50, 99]
+        List<FileMetadata> files = List.of(
+                new FileMetadata(FILE_A, 0, 25, 0, 0, 2, 4),
+                new FileMetadata(FILE_B, 25, 25, 2, 5, 4, 9),
+                new FileMetadata(FILE_C, 50, 50, 5, 0, 9, 9)
+        );
+        List<Sha1Hash> pieceHashes = Collections.nCopies(10, new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]));
+        FileInfo fileInfo = new MultiFileInfo("dir", files, PIECE_SIZE, pieceHashes,
+                new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]));
+        torrentProgress = TorrentProgress.createNew(fileInfo);
+    }
+
+    @Test
+    void skippedFile_piecesNotWanted() {
+        torrentProgress.setFilePriority(FILE_B, FilePriority.SKIP);
+
+        assertEquals(createBitSet(0, 1, 2, 5, 6, 7, 8, 9),
+                torrentProgress.getCompletelyMissingPiecesWithUnrequestedBlocks());
+        assertTrue(torrentProgress.isPieceWanted(2));
+        assertFalse(torrentProgress.isPieceWanted(3));
+        assertFalse(torrentProgress.isPieceWanted(4));
+    }
+
+    @Test
+    void sharedPiece_takesHighestPriority() {
+        torrentProgress.setFilePriority(FILE_A, FilePriority.LOW);
+        torrentProgress.setFilePriority(FILE_B, FilePriority.HIGH);
+
+        assertEquals(FilePriority.LOW, torrentProgress.getPiecePriority(1));
+        assertEquals(FilePriority.HIGH, torrentProgress.getPiecePriority(2));
+        assertEquals(FilePriority.NORMAL, torrentProgress.getPiecePriority(5));
+    }
+
+    @Test
+    void isAllWantedPiecesVerified_ignoresSkippedPieces() {
+        torrentProgress.setFilePriority(FILE_A, FilePriority.SKIP);
+        torrentProgress.setFilePriority(FILE_B, FilePriority.SKIP);
+        for (int piece = 5; piece < 10; piece++) {
+            torrentProgress.setPieceVerified(piece);
+        }
+
+        assertTrue(torrentProgress.isAllWantedPiecesVerified());
+        assertFalse(torrentProgress.isAllPiecesVerified());
+
+        torrentProgress.setFilePriority(FILE_B, FilePriority.NORMAL);
+        assertFalse(torrentProgress.isAllWantedPiecesVerified());
+    }
+
+    @Test
+    void setUnverifiedPiecesMissing_discardsReceivedBlocks() {
+        torrentProgress.setBlockReceived(2, 0);
+        torrentProgress.setPieceVerified(3);
+
+        torrentProgress.setUnverifiedPiecesMissing(2, 4);
+
+        assertFalse(torrentProgress.isBlockReceived(2, 0));
+        assertTrue(torrentProgress.isPieceVerified(3));
+        assertTrue(torrentProgress.getCompletelyMissingPiecesWithUnrequestedBlocks().get(2));
+    }
+
+    @Test
+    void getModificationCount_onlyChangesWithPersistedState() {
+        long initialCount = torrentProgress.getModificationCount();
+
+        torrentProgress.setBlockRequested(0, 0);
+        torrentProgress.setBlockNotRequested(0, 0);
+        torrentProgress.setPieceChecked(0);
+        assertEquals(initialCount, torrentProgress.getModificationCount());
+
+        torrentProgress.setBlockReceived(0, 0);
+        long countAfterBlock = torrentProgress.getModificationCount();
+        assertTrue(countAfterBlock > initialCount);
+
+        torrentProgress.setFilePriority(FILE_C, FilePriority.HIGH);
+        assertTrue(torrentProgress.getModificationCount() > countAfterBlock);
+    }
+
+    private static BitSet createBitSet(int... indices) {
+        BitSet bitSet = new BitSet();
+        for (int index : indices) {
+            bitSet.set(index);
+        }
+        return bitSet;
+    }
+}
@@ -0,0 +1,116 @@
+package jtorrent.domain.torrent.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.Sha1Hash;
+
+class TorrentTest {
+
+    private static final Sha1Hash INFO_HASH = new Sha1Hash(new byte[Sha1Hash.HASH_SIZE]);
+    private static final int REQUIRED_IDLE_CHECKS = 2;
+
+    private FileInfo fileInfo;
+    private int numLoads;
+
+    @BeforeEach
+    void setUp() {
+        fileInfo = new SingleFileInfo(new FileMetadata(Path.of("file"), 0, 100, 0, 0, 9, 9), 10,
+                Collections.nCopies(10, INFO_HASH), INFO_HASH);
+        numLoads = 0;
+    }
+
+    private TorrentContent loadContent(Sha1Hash infoHash) {
+        numLoads++;
+        TorrentMetadata metadata = new TorrentMetadata(List.of(List.of(URI.create("http://tracker"))), null, null,
+                null, fileInfo);
+        return new TorrentContent(metadata, TorrentProgress.createNew(fileInfo));
+    }
+
+    private Torrent createSummaryTorrent() {
+        return new Torrent(INFO_HASH, 100, 30, new TorrentStatistics(0, 0), "name", Path.of("dir"),
+                Torrent.State.STOPPED, this::loadContent);
+    }
+
+    @Test
+    void summaryTorrent_contentNotLoadedUntilAccessed() {
+        Torrent torrent = createSummaryTorrent();
+
+        assertEquals(100, torrent.getTotalSize());
+        assertEquals(30, torrent.getVerifiedBytes());
+        assertFalse(torrent.isContentLoaded());
+        assertEquals(0, numLoads);
+
+        assertEquals(10, torrent.getNumPieces());
+        assertEquals(10, torrent.getNumPieces());
+        assertTrue(torrent.isContentLoaded());
+        assertEquals(1, numLoads);
+    }
+
+    @Test
+    void releaseContentIfIdle_idleAndPersisted_releasedAndLoadedAgain() {
+        Torrent torrent = createSummaryTorrent();
+        torrent.getNumPieces();
+
+        // the first check only notices the access
+        assertFalse(torrent.releaseContentIfIdle(0, REQUIRED_IDLE_CHECKS, this::loadContent));
+        assertFalse(torrent.releaseContentIfIdle(0, REQUIRED_IDLE_CHECKS, this::loadContent));
+        assertTrue(torrent.releaseContentIfIdle(0, REQUIRED_IDLE_CHECKS, this::loadContent));
+        assertFalse(torrent.isContentLoaded());
+
+        torrent.getNumPieces();
+        assertEquals(2, numLoads);
+    }
+
+    @Test
+    void releaseContentIfIdle_accessed_notReleased() {
+        Torrent torrent = createSummaryTorrent();
+
+        for (int i = 0; i <= REQUIRED_IDLE_CHECKS; i++) {
+            torrent.getNumPieces();
+            assertFalse(torrent.releaseContentIfIdle(0, REQUIRED_IDLE_CHECKS, this::loadContent));
+        }
+        assertTrue(torrent.isContentLoaded());
+    }
+
+    @Test
+    void releaseContentIfIdle_progressNotPersisted_notReleased() {
+        Torrent torrent = createSummaryTorrent();
+        torrent.setPieceVerified(0);
+        long persistedModificationCount = torrent.getProgress().getModificationCount() - 1;
+
+        for (int i = 0; i <= REQUIRED_IDLE_CHECKS; i++) {
+            assertFalse(torrent.releaseContentIfIdle(persistedModificationCount, REQUIRED_IDLE_CHECKS,
+                    this::loadContent));
+        }
+        assertTrue(torrent.isContentLoaded());
+        assertEquals(10, torrent.getVerifiedBytes());
+    }
+
+    @Test
+    void peekMetadata_contentNotLoaded_notKept() {
+        Torrent torrent = createSummaryTorrent();
+
+        assertEquals(fileInfo, torrent.peekMetadata().fileInfo());
+        assertFalse(torrent.isContentLoaded());
+        assertEquals(1, numLoads);
+    }
+
+    @Test
+    void peekMetadata_contentLoaded_notLoadedAgain() {
+        Torrent torrent = createSummaryTorrent();
+        torrent.getNumPieces();
+
+        assertEquals(torrent.getMetadata(), torrent.peekMetadata());
+        assertEquals(1, numLoads);
+    }
+}
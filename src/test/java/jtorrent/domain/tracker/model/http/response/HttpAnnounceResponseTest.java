@@ -0,0 +1,76 @@
+package jtorrent.domain.tracker.model.http.response;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.bencode.BencodeReader;
+import jtorrent.domain.tracker.model.PeerResponse;
+
+class HttpAnnounceResponseTest {
+
+    private static BencodeReader reader(String encoded) {
+        return new BencodeReader(new ByteArrayInputStream(encoded.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void read_returnsResponse() throws IOException {
+        BencodeReader reader = reader("d8:completei5e10:incompletei3e8:intervali1800e"
+                + "5:peersld2:ip8:10.0.0.17:peer id20:aaaaaaaaaaaaaaaaaaaa4:porti6881eeee");
+
+        HttpAnnounceResponse response = HttpAnnounceResponse.read(reader);
+
+        assertEquals(1800, response.getInterval());
+        assertEquals(5, response.getSeeders());
+        assertEquals(3, response.getLeechers());
+        List<PeerResponse> peers = response.getPeers();
+        assertEquals(1, peers.size());
+        assertEquals(InetAddress.getByName("10.0.0.1"), peers.get(0).getIp());
+        assertEquals(6881, peers.get(0).getPort());
+        assertEquals(Optional.of("aaaaaaaaaaaaaaaaaaaa"), peers.get(0).getPeerId());
+    }
+
+    @Test
+    void read_unknownKeys_skipped() throws IOException {
+        BencodeReader reader = reader("d8:intervali900e12:min intervali60e5:peersle"
+                + "10:tracker id3:abc7:unknownd1:ali1ei2eeee");
+
+        HttpAnnounceResponse response = HttpAnnounceResponse.read(reader);
+
+        assertEquals(900, response.getInterval());
+        assertEquals(0, response.getSeeders());
+        assertEquals(0, response.getLeechers());
+        assertTrue(response.getPeers().isEmpty());
+    }
+
+    @Test
+    void read_failureReason_throwsWithReason() {
+        BencodeReader reader = reader("d14:failure reason15:torrent unknown8:intervali1800ee");
+
+        IOException e = assertThrows(IOException.class, () -> HttpAnnounceResponse.read(reader));
+        assertTrue(e.getMessage().contains("torrent unknown"));
+    }
+
+    @Test
+    void read_missingInterval_throwsException() {
+        BencodeReader reader = reader("d8:completei5e10:incompletei3e5:peerslee");
+
+        assertThrows(IOException.class, () -> HttpAnnounceResponse.read(reader));
+    }
+
+    @Test
+    void read_truncated_throwsException() {
+        BencodeReader reader = reader("d8:intervali1800e5:peersld2:ip8:10.0.0.1");
+
+        assertThrows(IOException.class, () -> HttpAnnounceResponse.read(reader));
+    }
+}
@@ -0,0 +1,54 @@
+package jtorrent.domain.tracker.model.http.response;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import jtorrent.domain.common.util.bencode.BencodeReader;
+
+class HttpPeerResponseTest {
+
+    private static BencodeReader reader(String encoded) {
+        return new BencodeReader(new ByteArrayInputStream(encoded.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void read_returnsPeer() throws IOException {
+        BencodeReader reader = reader("d2:ip8:10.0.0.17:peer id20:aaaaaaaaaaaaaaaaaaaa4:porti6881ee");
+
+        HttpPeerResponse peer = HttpPeerResponse.read(reader);
+
+        assertEquals(InetAddress.getByName("10.0.0.1"), peer.getIp());
+        assertEquals(6881, peer.getPort());
+        assertEquals(Optional.of("aaaaaaaaaaaaaaaaaaaa"), peer.getPeerId());
+    }
+
+    @Test
+    void read_unknownKeys_skipped() throws IOException {
+        BencodeReader reader = reader("d5:extrali1ed1:xi2eee2:ip8:10.0.0.17:peer id20:aaaaaaaaaaaaaaaaaaaa"
+                + "4:porti6881e7:unknown3:abce");
+
+        HttpPeerResponse peer = HttpPeerResponse.read(reader);
+
+        assertEquals(InetAddress.getByName("10.0.0.1"), peer.getIp());
+        assertEquals(6881, peer.getPort());
+        assertEquals(Optional.of("aaaaaaaaaaaaaaaaaaaa"), peer.getPeerId());
+    }
+
+    @Test
+    void read_followedByOtherValues_onlyPeerConsumed() throws IOException {
+        BencodeReader reader = reader("ld2:ip8:10.0.0.17:peer id20:aaaaaaaaaaaaaaaaaaaa4:porti6881eei1ee");
+        reader.beginList();
+
+        HttpPeerResponse.read(reader);
+
+        assertEquals(1, reader.readInt());
+        reader.endList();
+    }
+}
@@ -0,0 +1,104 @@
+package jtorrent.presentation.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import javafx.beans.property.SimpleObjectProperty;
+
+class UiUpdateCoalescerTest {
+
+    private static final int MAX_FRAMES_PER_SECOND = 4;
+    private static final long FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / MAX_FRAMES_PER_SECOND;
+    private static final long START_NANOS = 1_000_000;
+
+    private final PublishSubject<String> subject = PublishSubject.create();
+    private final SimpleObjectProperty<String> property = new SimpleObjectProperty<>();
+    private UiUpdateCoalescer coalescer;
+    private UiUpdateCoalescer.Row row;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new UiUpdateCoalescer(MAX_FRAMES_PER_SECOND);
+        row = coalescer.createRow();
+        row.subscribe(subject, property);
+    }
+
+    @Test
+    void handleFrame_shownRow_latestValueApplied() {
+        row.show();
+        subject.onNext("1");
+        subject.onNext("2");
+        assertNull(property.get());
+
+        coalescer.handleFrame(START_NANOS);
+
+        assertEquals("2", property.get());
+    }
+
+    @Test
+    void handleFrame_hiddenRow_appliedOnceShown() {
+        subject.onNext("1");
+        coalescer.handleFrame(START_NANOS);
+        assertNull(property.get());
+
+        row.show();
+        coalescer.handleFrame(START_NANOS + FRAME_INTERVAL_NANOS);
+
+        assertEquals("1", property.get());
+    }
+
+    @Test
+    void handleFrame_rowHiddenAgain_notApplied() {
+        row.show();
+        row.hide();
+        subject.onNext("1");
+
+        coalescer.handleFrame(START_NANOS);
+
+        assertNull(property.get());
+    }
+
+    @Test
+    void handleFrame_rowShownTwiceHiddenOnce_stillApplied() {
+        row.show();
+        row.show();
+        row.hide();
+        subject.onNext("1");
+
+        coalescer.handleFrame(START_NANOS);
+
+        assertEquals("1", property.get());
+    }
+
+    @Test
+    void handleFrame_withinFrameInterval_deferredToNextFrame() {
+        row.show();
+        subject.onNext("1");
+        coalescer.handleFrame(START_NANOS);
+        subject.onNext("2");
+
+        coalescer.handleFrame(START_NANOS + FRAME_INTERVAL_NANOS - 1);
+        assertEquals("1", property.get());
+
+        coalescer.handleFrame(START_NANOS + FRAME_INTERVAL_NANOS);
+        assertEquals("2", property.get());
+    }
+
+    @Test
+    void handleFrame_disposedRow_notApplied() {
+        row.show();
+        subject.onNext("1");
+        row.dispose();
+        subject.onNext("2");
+
+        coalescer.handleFrame(START_NANOS);
+
+        assertNull(property.get());
+    }
+}